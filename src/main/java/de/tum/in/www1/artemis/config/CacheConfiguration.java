@@ -26,6 +26,7 @@ import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.spring.context.SpringManagedContext;
 
+import de.tum.in.www1.artemis.service.compass.CompassService;
 import de.tum.in.www1.artemis.service.scheduled.quiz.QuizScheduleService;
 import io.github.jhipster.config.JHipsterProperties;
 import io.github.jhipster.config.cache.PrefixedKeyGenerator;
@@ -60,6 +61,9 @@ public class CacheConfiguration {
     @Value("${spring.hazelcast.localInstances:true}")
     private boolean hazelcastLocalInstances;
 
+    @Value("${artemis.compass.executor-pool-size:8}")
+    private int compassExecutorPoolSize;
+
     public CacheConfiguration(ServerProperties serverProperties, DiscoveryClient discoveryClient, ApplicationContext applicationContext) {
         this.serverProperties = serverProperties;
         this.discoveryClient = discoveryClient;
@@ -157,6 +161,7 @@ public class CacheConfiguration {
         config.getMapConfigs().put("de.tum.in.www1.artemis.domain.*", initializeDomainMapConfig(jHipsterProperties));
 
         QuizScheduleService.configureHazelcast(config);
+        CompassService.configureHazelcast(config, compassExecutorPoolSize);
 
         return Hazelcast.newHazelcastInstance(config);
     }
@@ -0,0 +1,90 @@
+package de.tum.in.www1.artemis.config.liquibase;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tum.in.www1.artemis.domain.TextCluster;
+
+/**
+ * Converts the probabilities and distance matrices of all text clusters from the Java serialization format into the compact binary format of {@link TextCluster}.
+ * The rows are converted one by one, so that only one distance matrix is in memory at a time.
+ */
+public class TextClusterBinaryFormatMigration implements CustomTaskChange {
+
+    private final Logger log = LoggerFactory.getLogger(TextClusterBinaryFormatMigration.class);
+
+    private int migratedClusters = 0;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        var connection = (JdbcConnection) database.getConnection();
+        try (PreparedStatement selectIds = connection.prepareStatement("SELECT id FROM text_cluster");
+                PreparedStatement selectData = connection.prepareStatement("SELECT probabilities, distance_matrix FROM text_cluster WHERE id = ?");
+                PreparedStatement update = connection.prepareStatement("UPDATE text_cluster SET probabilities = ?, distance_matrix = ? WHERE id = ?");
+                ResultSet ids = selectIds.executeQuery()) {
+            while (ids.next()) {
+                long id = ids.getLong(1);
+                selectData.setLong(1, id);
+                try (ResultSet data = selectData.executeQuery()) {
+                    if (!data.next()) {
+                        continue;
+                    }
+                    byte[] probabilities = data.getBytes(1);
+                    byte[] distanceMatrix = data.getBytes(2);
+                    byte[] convertedProbabilities;
+                    byte[] convertedDistanceMatrix;
+                    try {
+                        convertedProbabilities = TextCluster.toCompactBinary(probabilities);
+                        convertedDistanceMatrix = TextCluster.toCompactBinary(distanceMatrix);
+                    }
+                    catch (IllegalArgumentException e) {
+                        throw new CustomChangeException("Could not convert the binary data of text cluster " + id, e);
+                    }
+                    if (Arrays.equals(probabilities, convertedProbabilities) && Arrays.equals(distanceMatrix, convertedDistanceMatrix)) {
+                        continue;
+                    }
+                    update.setBytes(1, convertedProbabilities);
+                    update.setBytes(2, convertedDistanceMatrix);
+                    update.setLong(3, id);
+                    update.executeUpdate();
+                    migratedClusters++;
+                }
+            }
+        }
+        catch (Exception e) {
+            throw new CustomChangeException("Could not convert the binary data of the text clusters", e);
+        }
+        log.info("Converted the binary data of {} text clusters", migratedClusters);
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Converted the binary data of " + migratedClusters + " text clusters";
+    }
+
+    @Override
+    public void setUp() {
+        // nothing to set up
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+        // no files are needed
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Custom Liquibase changes.
+ */
+package de.tum.in.www1.artemis.config.liquibase;
@@ -469,6 +469,26 @@ public class Result extends DomainObject {
         }
     }
 
+    /**
+     * Updates the attributes "score" and "successful" from the scoreInPoints of its submission, without evaluating the submission again.
+     * The scores of the submission must have been calculated before, e.g. with {@link QuizExercise#calculateAndUpdateScores(java.util.Collection)}
+     */
+    public void evaluateScoredSubmission() {
+        if (submission instanceof QuizSubmission && ((QuizSubmission) submission).getScoreInPoints() != null) {
+            QuizSubmission quizSubmission = (QuizSubmission) submission;
+            // get the exercise this result belongs to
+            StudentParticipation studentParticipation = (StudentParticipation) getParticipation();
+            QuizExercise quizExercise = (QuizExercise) studentParticipation.getExercise();
+            double maxPoints = quizExercise.getOverallQuizPoints();
+            // update score (mapped to the 0 to 100 scale) and result string
+            setScore(100.0 * quizSubmission.getScoreInPoints() / maxPoints);
+            setResultString(quizSubmission.getScoreInPoints(), maxPoints);
+        }
+        else {
+            evaluateSubmission();
+        }
+    }
+
     /**
      * Removes the assessor from the result, can be invoked to make sure that sensitive information is not sent to the client. E.g. students should not see information about
      * their assessor.
@@ -168,6 +168,10 @@ public class TextBlock implements Serializable {
     }
     // jhipster-needle-entity-add-getters-setters - JHipster will add getters and setters here, do not remove
 
+    Integer getPositionInCluster() {
+        return positionInCluster;
+    }
+
     void setPositionInCluster(Integer positionInCluster) {
         this.positionInCluster = positionInCluster;
     }
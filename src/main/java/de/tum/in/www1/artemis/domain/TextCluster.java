@@ -1,6 +1,9 @@
 package de.tum.in.www1.artemis.domain;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -15,6 +18,9 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
  * A TextCluster.
+ * <p>
+ * The probabilities and the distance matrix are stored in a compact binary format: one version byte, the length as little-endian int and the values as little-endian
+ * doubles (the distance matrix row by row). The distances are read directly from this binary data, the matrix is only decoded once per loaded cluster.
  */
 @Entity
 @Table(name = "text_cluster")
@@ -22,6 +28,10 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TextCluster extends DomainObject {
 
+    private static final byte BINARY_FORMAT_VERSION = 1;
+
+    private static final int BINARY_HEADER_LENGTH = Byte.BYTES + Integer.BYTES;
+
     @Lob
     @Column(name = "probabilities")
     private byte[] probabilities;
@@ -39,16 +49,72 @@ public class TextCluster extends DomainObject {
     @JsonIgnore
     private TextExercise exercise;
 
+    /**
+     * View on the distances of {@link #distanceMatrix}, the distance between the blocks i and j is at index i * distanceMatrixSize + j
+     */
+    @Transient
+    private DoubleBuffer distanceMatrixBuffer;
+
+    @Transient
+    private int distanceMatrixSize;
+
     public double[] getProbabilities() {
-        return castFromBinary(probabilities);
+        if (probabilities == null) {
+            return null;
+        }
+        DoubleBuffer values = asDoubleBuffer(probabilities);
+        double[] result = new double[values.remaining()];
+        values.get(result);
+        return result;
     }
 
     public void setProbabilities(double[] probabilities) {
-        this.probabilities = castToBinary(probabilities);
+        this.probabilities = probabilities != null ? toBinary(probabilities.length, probabilities) : null;
     }
 
+    /**
+     * Decodes the whole distance matrix. Use {@link #getDistance(int, int)} to look up single distances.
+     *
+     * @return the distance matrix of the blocks of this cluster
+     */
     public double[][] getDistanceMatrix() {
-        return castFromBinary(distanceMatrix);
+        DoubleBuffer distances = getDistanceMatrixBuffer();
+        if (distances == null) {
+            return null;
+        }
+        double[][] matrix = new double[distanceMatrixSize][distanceMatrixSize];
+        for (int i = 0; i < distanceMatrixSize; i++) {
+            distances.get(i * distanceMatrixSize, matrix[i]);
+        }
+        return matrix;
+    }
+
+    /**
+     * Looks up the distance between the blocks at the given positions without decoding the distance matrix
+     *
+     * @param first  the position of the first block in the cluster
+     * @param second the position of the second block in the cluster
+     * @return the distance between the two blocks
+     */
+    public double getDistance(int first, int second) {
+        DoubleBuffer distances = getDistanceMatrixBuffer();
+        if (distances == null) {
+            throw new IllegalStateException("Text cluster " + getId() + " has no distance matrix.");
+        }
+        if (first < 0 || first >= distanceMatrixSize || second < 0 || second >= distanceMatrixSize) {
+            throw new IndexOutOfBoundsException("Cannot compute distance between block " + first + " and block " + second + " in a cluster of size " + distanceMatrixSize);
+        }
+        return distances.get(first * distanceMatrixSize + second);
+    }
+
+    private DoubleBuffer getDistanceMatrixBuffer() {
+        if (distanceMatrixBuffer == null && distanceMatrix != null) {
+            // rows in the former format are converted on every load until they have been migrated
+            byte[] data = toCompactBinary(distanceMatrix);
+            distanceMatrixSize = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).getInt(Byte.BYTES);
+            distanceMatrixBuffer = asDoubleBuffer(data);
+        }
+        return distanceMatrixBuffer;
     }
 
     public TextCluster distanceMatrix(double[][] distanceMatrix) {
@@ -56,11 +122,34 @@ public class TextCluster extends DomainObject {
         return this;
     }
 
+    /**
+     * Stores the given square distance matrix in the compact binary format
+     *
+     * @param distanceMatrix the distance matrix of the blocks of this cluster
+     */
     public void setDistanceMatrix(double[][] distanceMatrix) {
-        this.distanceMatrix = castToBinary(distanceMatrix);
+        distanceMatrixBuffer = null;
+        if (distanceMatrix == null) {
+            this.distanceMatrix = null;
+            return;
+        }
+        int size = distanceMatrix.length;
+        double[] distances = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            if (distanceMatrix[i].length != size) {
+                throw new IllegalArgumentException("The distance matrix of a text cluster must be square.");
+            }
+            System.arraycopy(distanceMatrix[i], 0, distances, i * size, size);
+        }
+        this.distanceMatrix = toBinary(size, distances);
     }
 
     private int getBlockIndex(TextBlock textBlock) {
+        // the position in the cluster is the index in the ordered list of blocks unless the list has been modified without updating the positions
+        Integer position = textBlock.getPositionInCluster();
+        if (position != null && position >= 0 && position < blocks.size() && blocks.get(position).equals(textBlock)) {
+            return position;
+        }
         return blocks.indexOf(textBlock);
     }
 
@@ -128,7 +217,7 @@ public class TextCluster extends DomainObject {
             throw new IllegalArgumentException("Cannot compute distance to Text Block outside cluster.");
         }
 
-        return getDistanceMatrix()[firstIndex][secondIndex];
+        return getDistance(firstIndex, secondIndex);
     }
 
     private void updatePositions() {
@@ -143,31 +232,59 @@ public class TextCluster extends DomainObject {
     }
 
     // region Binary Cast
-    @SuppressWarnings("unchecked")
-    private <T> T castFromBinary(byte[] data) {
-        final ByteArrayInputStream bais = new ByteArrayInputStream(data);
-        try (final ObjectInputStream ois = new ObjectInputStream(bais)) {
-            return (T) ois.readObject();
+    /**
+     * Converts probabilities or a distance matrix that was stored with the Java serialization of former versions into the compact binary format. Data that is already
+     * in the compact binary format is returned unchanged.
+     *
+     * @param data the probabilities or the distance matrix as stored in the database
+     * @return the data in the compact binary format
+     * @throws IllegalArgumentException if the data cannot be converted, the cause is kept
+     */
+    public static byte[] toCompactBinary(byte[] data) {
+        // data in the Java serialization format starts with the stream magic 0xACED
+        if (data == null || data.length < 2 || data[0] != (byte) 0xAC || data[1] != (byte) 0xED) {
+            return data;
         }
-        catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
-            return null;
+        Object value = castFromBinary(data);
+        if (value instanceof double[]) {
+            double[] values = (double[]) value;
+            return toBinary(values.length, values);
         }
+        if (value instanceof double[][]) {
+            TextCluster cluster = new TextCluster();
+            cluster.setDistanceMatrix((double[][]) value);
+            return cluster.distanceMatrix;
+        }
+        throw new IllegalArgumentException("Cannot convert binary data of type " + (value != null ? value.getClass() : null) + " of a text cluster.");
+    }
+
+    private static byte[] toBinary(int length, double[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(BINARY_HEADER_LENGTH + values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(BINARY_FORMAT_VERSION).putInt(length);
+        buffer.asDoubleBuffer().put(values);
+        return buffer.array();
     }
 
-    private <T> byte[] castToBinary(T data) {
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (final ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-            oos.writeObject(data);
+    private static DoubleBuffer asDoubleBuffer(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(toCompactBinary(data));
+        if (buffer.get(0) != BINARY_FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown binary format version " + buffer.get(0) + " of a text cluster.");
         }
-        catch (IOException e) {
-            e.printStackTrace();
+        return buffer.position(BINARY_HEADER_LENGTH).slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    private static Object castFromBinary(byte[] data) {
+        final ByteArrayInputStream bais = new ByteArrayInputStream(data);
+        try (final ObjectInputStream ois = new ObjectInputStream(bais)) {
+            return ois.readObject();
+        }
+        catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot read the serialized binary data of a text cluster.", e);
         }
-        return baos.toByteArray();
     }
+    // endregion
 
     public int openTextBlockCount() {
         return (int) blocks.stream().filter(textBlock -> !textBlock.isAssessable()).count();
     }
-    // endregion
 }
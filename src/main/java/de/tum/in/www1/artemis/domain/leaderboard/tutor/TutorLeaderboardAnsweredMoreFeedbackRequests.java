@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TutorLeaderboardAnsweredMoreFeedbackRequests {
 
+    private final long exerciseId;
+
     private final long userId;
 
     private final long answeredRequests;
@@ -20,17 +22,23 @@ public class TutorLeaderboardAnsweredMoreFeedbackRequests {
         return points;
     }
 
+    public long getExerciseId() {
+        return exerciseId;
+    }
+
     public long getUserId() {
         return userId;
     }
 
-    public TutorLeaderboardAnsweredMoreFeedbackRequests(long userId, long answeredRequests, double points) {
+    public TutorLeaderboardAnsweredMoreFeedbackRequests(long exerciseId, long userId, long answeredRequests, double points) {
+        this.exerciseId = exerciseId;
         this.userId = userId;
         this.answeredRequests = answeredRequests;
         this.points = points;
     }
 
     public TutorLeaderboardAnsweredMoreFeedbackRequests() {
+        this.exerciseId = 0L;
         this.userId = 0L;
         this.answeredRequests = 0L;
         this.points = 0.0;
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TutorLeaderboardAssessments {
 
+    private final long exerciseId;
+
     private final long userId;
 
     private final long assessments;
@@ -20,17 +22,23 @@ public class TutorLeaderboardAssessments {
         return points;
     }
 
+    public long getExerciseId() {
+        return exerciseId;
+    }
+
     public long getUserId() {
         return userId;
     }
 
-    public TutorLeaderboardAssessments(long userId, long assessments, double points) {
+    public TutorLeaderboardAssessments(long exerciseId, long userId, long assessments, double points) {
+        this.exerciseId = exerciseId;
         this.userId = userId;
         this.assessments = assessments;
         this.points = points;
     }
 
     public TutorLeaderboardAssessments() {
+        this.exerciseId = 0L;
         this.userId = 0L;
         this.assessments = 0L;
         this.points = 0.0;
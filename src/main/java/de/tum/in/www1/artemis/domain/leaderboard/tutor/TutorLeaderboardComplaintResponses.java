@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TutorLeaderboardComplaintResponses {
 
+    private final long exerciseId;
+
     private final long userId;
 
     private final long complaintResponses;
@@ -20,17 +22,23 @@ public class TutorLeaderboardComplaintResponses {
         return points;
     }
 
+    public long getExerciseId() {
+        return exerciseId;
+    }
+
     public long getUserId() {
         return userId;
     }
 
-    public TutorLeaderboardComplaintResponses(long userId, long complaintResponses, double points) {
+    public TutorLeaderboardComplaintResponses(long exerciseId, long userId, long complaintResponses, double points) {
+        this.exerciseId = exerciseId;
         this.userId = userId;
         this.complaintResponses = complaintResponses;
         this.points = points;
     }
 
     public TutorLeaderboardComplaintResponses() {
+        this.exerciseId = 0L;
         this.userId = 0L;
         this.complaintResponses = 0L;
         this.points = 0.0;
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TutorLeaderboardComplaints {
 
+    private final long exerciseId;
+
     private final long userId;
 
     private final long allComplaints;
@@ -26,11 +28,16 @@ public class TutorLeaderboardComplaints {
         return points;
     }
 
+    public long getExerciseId() {
+        return exerciseId;
+    }
+
     public long getUserId() {
         return userId;
     }
 
-    public TutorLeaderboardComplaints(long userId, long allComplaints, long acceptedComplaints, double points) {
+    public TutorLeaderboardComplaints(long exerciseId, long userId, long allComplaints, long acceptedComplaints, double points) {
+        this.exerciseId = exerciseId;
         this.userId = userId;
         this.allComplaints = allComplaints;
         this.acceptedComplaints = acceptedComplaints;
@@ -38,6 +45,7 @@ public class TutorLeaderboardComplaints {
     }
 
     public TutorLeaderboardComplaints() {
+        this.exerciseId = 0L;
         this.userId = 0L;
         this.allComplaints = 0L;
         this.acceptedComplaints = 0L;
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 @JsonInclude(JsonInclude.Include.NON_EMPTY)
 public class TutorLeaderboardMoreFeedbackRequests {
 
+    private final long exerciseId;
+
     private final long userId;
 
     private final long allRequests;
@@ -26,11 +28,16 @@ public class TutorLeaderboardMoreFeedbackRequests {
         return points;
     }
 
+    public long getExerciseId() {
+        return exerciseId;
+    }
+
     public long getUserId() {
         return userId;
     }
 
-    public TutorLeaderboardMoreFeedbackRequests(long userId, long allRequests, long notAnsweredRequests, double points) {
+    public TutorLeaderboardMoreFeedbackRequests(long exerciseId, long userId, long allRequests, long notAnsweredRequests, double points) {
+        this.exerciseId = exerciseId;
         this.userId = userId;
         this.allRequests = allRequests;
         this.notAnsweredRequests = notAnsweredRequests;
@@ -38,6 +45,7 @@ public class TutorLeaderboardMoreFeedbackRequests {
     }
 
     public TutorLeaderboardMoreFeedbackRequests() {
+        this.exerciseId = 0L;
         this.userId = 0L;
         this.allRequests = 0L;
         this.notAnsweredRequests = 0L;
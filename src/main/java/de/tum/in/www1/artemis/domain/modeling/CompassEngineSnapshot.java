@@ -0,0 +1,59 @@
+package de.tum.in.www1.artemis.domain.modeling;
+
+import java.time.ZonedDateTime;
+
+import javax.persistence.*;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import de.tum.in.www1.artemis.domain.DomainObject;
+
+/**
+ * The persisted state of the Compass calculation engine of a modeling exercise, i.e. the similarity sets of the model elements and the models selected for assessment.
+ * It allows restoring the engine (e.g. after a restart or on another node) without comparing all model elements with each other again.
+ * The entity is deliberately not kept in the second level cache: the snapshot can be large and is only read once when an engine is created.
+ */
+@Entity
+@Table(name = "compass_engine_snapshot")
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CompassEngineSnapshot extends DomainObject {
+
+    @Column(name = "exercise_id", unique = true, nullable = false)
+    private Long exerciseId;
+
+    @Lob
+    @Column(name = "data")
+    private byte[] data;
+
+    @Column(name = "last_modified_date")
+    private ZonedDateTime lastModifiedDate;
+
+    public Long getExerciseId() {
+        return exerciseId;
+    }
+
+    public void setExerciseId(Long exerciseId) {
+        this.exerciseId = exerciseId;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    public ZonedDateTime getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+
+    public void setLastModifiedDate(ZonedDateTime lastModifiedDate) {
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    @Override
+    public String toString() {
+        return "CompassEngineSnapshot{" + "id=" + getId() + ", exerciseId=" + exerciseId + ", lastModifiedDate=" + lastModifiedDate + "}";
+    }
+}
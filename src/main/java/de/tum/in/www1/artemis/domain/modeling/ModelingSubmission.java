@@ -1,5 +1,7 @@
 package de.tum.in.www1.artemis.domain.modeling;
 
+import java.io.IOException;
+
 import javax.persistence.Column;
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
@@ -8,7 +10,10 @@ import javax.persistence.Lob;
 import org.springframework.util.StringUtils;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.tum.in.www1.artemis.domain.Submission;
 
@@ -87,4 +92,55 @@ public class ModelingSubmission extends Submission {
             return false;
         }
     }
+
+    /**
+     * checks if the modeling submission is empty like {@link #isEmpty(ObjectMapper)}, but streams through the model instead of building a JSON tree of the whole model.
+     * This matters when many submissions are checked, e.g. when the scores of all students of an exam are calculated.
+     *
+     * @param jsonFactory the factory for the JSON parser
+     *
+     * @return true if the submission is empty, false otherwise
+     * @throws IllegalStateException if the model is no JSON object or does not contain elements (isEmpty(ObjectMapper) throws a NullPointerException then)
+     */
+    public boolean isEmpty(JsonFactory jsonFactory) {
+        if (StringUtils.hasText(explanationText)) {
+            return false;
+        }
+        if (model == null || model.isBlank()) {
+            return true;
+        }
+        try (JsonParser parser = jsonFactory.createParser(model)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("The model is not a JSON object");
+            }
+            Boolean elementsEmpty = null;
+            // like ObjectMapper.readTree, only the first JSON value is read and trailing content is ignored
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (!"elements".equals(fieldName)) {
+                    parser.skipChildren();
+                }
+                else if (value.isStructStart()) {
+                    JsonToken token = parser.nextToken();
+                    elementsEmpty = token.isStructEnd();
+                    while (!token.isStructEnd()) {
+                        parser.skipChildren();
+                        token = parser.nextToken();
+                    }
+                }
+                else {
+                    // like JsonNode.isEmpty(), scalar values are always empty
+                    elementsEmpty = true;
+                }
+            }
+            if (elementsEmpty == null) {
+                throw new IllegalStateException("The model does not contain elements");
+            }
+            return elementsEmpty;
+        }
+        catch (IOException ex) {
+            return false;
+        }
+    }
 }
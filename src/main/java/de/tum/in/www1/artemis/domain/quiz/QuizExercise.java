@@ -342,6 +342,42 @@ public class QuizExercise extends Exercise {
         return score;
     }
 
+    /**
+     * Calculates the scores of all given submissions and their submitted answers and saves them in scoreInPoints, same as
+     * {@link QuizSubmission#calculateAndUpdateScores(QuizExercise)} for each submission, but question by question, so that each question is only prepared for
+     * scoring once. This should be used when many submissions are evaluated at once, e.g. at the end of a quiz.
+     *
+     * @param quizSubmissions the submissions of this quiz that should be evaluated
+     */
+    public void calculateAndUpdateScores(Collection<QuizSubmission> quizSubmissions) {
+        List<QuizSubmission> submissions = new ArrayList<>(quizSubmissions);
+        double[] totalScores = new double[submissions.size()];
+        for (QuizQuestion quizQuestion : getQuizQuestions()) {
+            // collect the submitted answers for this quizQuestion, submissions without an answer are skipped
+            List<SubmittedAnswer> submittedAnswers = new ArrayList<>(submissions.size());
+            List<Integer> submissionIndices = new ArrayList<>(submissions.size());
+            for (int i = 0; i < submissions.size(); i++) {
+                SubmittedAnswer submittedAnswer = submissions.get(i).getSubmittedAnswerForQuestion(quizQuestion);
+                if (submittedAnswer != null) {
+                    submittedAnswers.add(submittedAnswer);
+                    submissionIndices.add(i);
+                }
+            }
+            if (submittedAnswers.isEmpty()) {
+                continue;
+            }
+            double[] scores = quizQuestion.scoreForAnswers(submittedAnswers.toArray(new SubmittedAnswer[0]));
+            for (int j = 0; j < scores.length; j++) {
+                submittedAnswers.get(j).setScoreInPoints(scores[j]);
+                totalScores[submissionIndices.get(j)] += scores[j];
+            }
+        }
+        // set total scores
+        for (int i = 0; i < submissions.size(); i++) {
+            submissions.get(i).setScoreInPoints(totalScores[i]);
+        }
+    }
+
     /**
      * Get question by ID
      *
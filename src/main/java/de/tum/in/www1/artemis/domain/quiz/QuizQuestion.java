@@ -175,6 +175,16 @@ public abstract class QuizQuestion extends DomainObject {
         return makeScoringStrategy().calculateScore(this, submittedAnswer);
     }
 
+    /**
+     * Calculate the scores for many answers to this question at once, the question is only prepared for scoring once
+     *
+     * @param submittedAnswers The answers given for this question
+     * @return the resulting scores, in the order of the given answers
+     */
+    public double[] scoreForAnswers(SubmittedAnswer[] submittedAnswers) {
+        return makeScoringStrategy().calculateScores(this, submittedAnswers);
+    }
+
     /**
      * Checks if the given answer is 100 % correct. This is independent of the scoring type
      *
@@ -0,0 +1,109 @@
+package de.tum.in.www1.artemis.domain.quiz.scoring;
+
+import java.util.*;
+
+import de.tum.in.www1.artemis.domain.quiz.*;
+
+/**
+ * A drag and drop question compiled for scoring many answers: the drop locations are numbered and the ids of their correct drag items are stored per number,
+ * so that an answer only has to be mapped to the drop location numbers once.
+ */
+final class DragAndDropScoringTable {
+
+    private final int numberOfDropLocations;
+
+    private final Map<Long, Integer> dropLocationIndices = new HashMap<>();
+
+    private final List<Set<Long>> correctDragItemIds = new ArrayList<>();
+
+    private final boolean[] invalidDropLocations;
+
+    private final int numberOfMappedDropLocations;
+
+    private DragAndDropScoringTable(DragAndDropQuestion dndQuestion) {
+        numberOfDropLocations = dndQuestion.getDropLocations().size();
+        invalidDropLocations = new boolean[numberOfDropLocations];
+        int index = 0;
+        for (DropLocation dropLocation : dndQuestion.getDropLocations()) {
+            dropLocationIndices.put(dropLocation.getId(), index);
+            invalidDropLocations[index] = dropLocation.isInvalid();
+            correctDragItemIds.add(new HashSet<>());
+            index++;
+        }
+        for (DragAndDropMapping mapping : dndQuestion.getCorrectMappings()) {
+            Integer dropLocationIndex = dropLocationIndices.get(mapping.getDropLocation().getId());
+            if (dropLocationIndex != null) {
+                correctDragItemIds.get(dropLocationIndex).add(mapping.getDragItem().getId());
+            }
+        }
+        numberOfMappedDropLocations = (int) correctDragItemIds.stream().filter(dragItemIds -> !dragItemIds.isEmpty()).count();
+    }
+
+    /**
+     * Compiles the given quiz question
+     *
+     * @param quizQuestion the quiz question to compile
+     * @return the table or null if the question is no drag and drop question or contains unsaved elements, these have to be scored one by one
+     */
+    static DragAndDropScoringTable compile(QuizQuestion quizQuestion) {
+        if (!(quizQuestion instanceof DragAndDropQuestion)) {
+            return null;
+        }
+        DragAndDropQuestion dndQuestion = (DragAndDropQuestion) quizQuestion;
+        if (dndQuestion.getDropLocations().stream().anyMatch(dropLocation -> dropLocation.getId() == null) || dndQuestion.getCorrectMappings().stream()
+                .anyMatch(mapping -> mapping.getDropLocation() == null || mapping.getDropLocation().getId() == null || mapping.getDragItem() == null || mapping.getDragItem().getId() == null)) {
+            return null;
+        }
+        return new DragAndDropScoringTable(dndQuestion);
+    }
+
+    /**
+     * @return the number of drop locations that were meant to not stay empty
+     */
+    int getNumberOfMappedDropLocations() {
+        return numberOfMappedDropLocations;
+    }
+
+    /**
+     * Counts the correct and incorrect mappings of the answer like the drag and drop scoring strategies: invalid drop locations and invalid drag items are always
+     * correct, but only drop locations that were meant to not stay empty count as correct mappings, while every wrong mapping is incorrect
+     *
+     * @param submittedAnswer the answer
+     * @return array with correct and incorrect mapping count, or null if the answer is no drag and drop answer
+     */
+    int[] getCorrectAndIncorrectMappingCount(SubmittedAnswer submittedAnswer) {
+        if (!(submittedAnswer instanceof DragAndDropSubmittedAnswer)) {
+            return null;
+        }
+        DragItem[] selectedDragItems = new DragItem[numberOfDropLocations];
+        var mappings = ((DragAndDropSubmittedAnswer) submittedAnswer).getMappings();
+        if (mappings != null) {
+            for (DragAndDropMapping mapping : mappings) {
+                Integer dropLocationIndex = mapping.getDropLocation() != null ? dropLocationIndices.get(mapping.getDropLocation().getId()) : null;
+                // the first mapping for a drop location counts
+                if (dropLocationIndex != null && selectedDragItems[dropLocationIndex] == null) {
+                    selectedDragItems[dropLocationIndex] = mapping.getDragItem();
+                }
+            }
+        }
+
+        int correctMappings = 0;
+        int incorrectMappings = 0;
+        for (int dropLocationIndex = 0; dropLocationIndex < numberOfDropLocations; dropLocationIndex++) {
+            Set<Long> correctIds = correctDragItemIds.get(dropLocationIndex);
+            DragItem selectedDragItem = selectedDragItems[dropLocationIndex];
+            // same as DropLocation#isDropLocationCorrect and the invalid checks of the scoring strategies
+            boolean isValid = !invalidDropLocations[dropLocationIndex] && !(selectedDragItem != null && selectedDragItem.isInvalid());
+            boolean isCorrect = (correctIds.isEmpty() && selectedDragItem == null) || (selectedDragItem != null && correctIds.contains(selectedDragItem.getId()));
+            if (!isValid || isCorrect) {
+                if (!correctIds.isEmpty()) {
+                    correctMappings++;
+                }
+            }
+            else {
+                incorrectMappings++;
+            }
+        }
+        return new int[] { correctMappings, incorrectMappings };
+    }
+}
@@ -0,0 +1,84 @@
+package de.tum.in.www1.artemis.domain.quiz.scoring;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.tum.in.www1.artemis.domain.quiz.*;
+
+/**
+ * A multiple choice question compiled for scoring many answers: the answer options are numbered and the correct and invalid options are stored as bit sets,
+ * so that the options an answer got wrong can be computed with a few bit operations.
+ */
+final class MultipleChoiceScoringTable {
+
+    private final int numberOfOptions;
+
+    private final Map<Long, Integer> optionIndices = new HashMap<>();
+
+    private final BitSet correctOptions = new BitSet();
+
+    private final BitSet invalidOptions = new BitSet();
+
+    private MultipleChoiceScoringTable(MultipleChoiceQuestion mcQuestion) {
+        numberOfOptions = mcQuestion.getAnswerOptions().size();
+        int index = 0;
+        for (AnswerOption answerOption : mcQuestion.getAnswerOptions()) {
+            optionIndices.put(answerOption.getId(), index);
+            if (answerOption.isIsCorrect()) {
+                correctOptions.set(index);
+            }
+            if (answerOption.isInvalid()) {
+                invalidOptions.set(index);
+            }
+            index++;
+        }
+    }
+
+    /**
+     * Compiles the given quiz question
+     *
+     * @param quizQuestion the quiz question to compile
+     * @return the table or null if the question is no multiple choice question or contains unsaved or incomplete answer options, these have to be scored one by one
+     */
+    static MultipleChoiceScoringTable compile(QuizQuestion quizQuestion) {
+        if (!(quizQuestion instanceof MultipleChoiceQuestion)) {
+            return null;
+        }
+        MultipleChoiceQuestion mcQuestion = (MultipleChoiceQuestion) quizQuestion;
+        if (mcQuestion.getAnswerOptions().stream().anyMatch(answerOption -> answerOption.getId() == null || answerOption.isIsCorrect() == null)) {
+            return null;
+        }
+        return new MultipleChoiceScoringTable(mcQuestion);
+    }
+
+    int getNumberOfOptions() {
+        return numberOfOptions;
+    }
+
+    /**
+     * Counts the valid answer options the answer is wrong about, i.e. correct options that are not selected and incorrect options that are selected
+     *
+     * @param submittedAnswer the answer to check
+     * @return the number of wrong options, or -1 if the answer is no multiple choice answer
+     */
+    int countWrongOptions(SubmittedAnswer submittedAnswer) {
+        if (!(submittedAnswer instanceof MultipleChoiceSubmittedAnswer)) {
+            return -1;
+        }
+        BitSet wrongOptions = new BitSet(numberOfOptions);
+        var selectedOptions = ((MultipleChoiceSubmittedAnswer) submittedAnswer).getSelectedOptions();
+        if (selectedOptions != null) {
+            for (AnswerOption selectedOption : selectedOptions) {
+                Integer index = optionIndices.get(selectedOption.getId());
+                if (index != null) {
+                    wrongOptions.set(index);
+                }
+            }
+        }
+        // wrong = (correct XOR selected) AND NOT invalid
+        wrongOptions.xor(correctOptions);
+        wrongOptions.andNot(invalidOptions);
+        return wrongOptions.cardinality();
+    }
+}
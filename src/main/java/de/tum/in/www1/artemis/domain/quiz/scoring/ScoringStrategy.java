@@ -13,4 +13,21 @@ public interface ScoringStrategy {
      * @return the resulting score (usually between 0.0 and quizQuestion.getScore())
      */
     double calculateScore(QuizQuestion quizQuestion, SubmittedAnswer submittedAnswer);
+
+    /**
+     * Calculate the scores for all given answers to the given quizQuestion in one pass.
+     * <p>
+     * Implementations can prepare the quizQuestion once for all answers; the resulting scores must be the same as the ones of {@link #calculateScore(QuizQuestion, SubmittedAnswer)}.
+     *
+     * @param quizQuestion     the quizQuestion to score
+     * @param submittedAnswers the answers to score, must not contain null
+     * @return the resulting scores in the order of the given answers
+     */
+    default double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            scores[i] = calculateScore(quizQuestion, submittedAnswers[i]);
+        }
+        return scores;
+    }
 }
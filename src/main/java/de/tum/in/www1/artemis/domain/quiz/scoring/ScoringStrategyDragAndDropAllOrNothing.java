@@ -30,4 +30,19 @@ public class ScoringStrategyDragAndDropAllOrNothing implements ScoringStrategy {
         // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
         return 0.0;
     }
+
+    @Override
+    public double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        DragAndDropScoringTable table = quizQuestion.isInvalid() ? null : DragAndDropScoringTable.compile(quizQuestion);
+        if (table == null) {
+            return ScoringStrategy.super.calculateScores(quizQuestion, submittedAnswers);
+        }
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            int[] values = table.getCorrectAndIncorrectMappingCount(submittedAnswers[i]);
+            // the user must not be wrong about a single valid drop location, a submitted answer of another type cannot be correct
+            scores[i] = values != null && values[1] == 0 ? quizQuestion.getPoints() : 0.0;
+        }
+        return scores;
+    }
 }
@@ -61,4 +61,26 @@ public class ScoringStrategyDragAndDropProportionalWithoutPenalty implements Sco
         // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
         return 0.0;
     }
+
+    @Override
+    public double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        DragAndDropScoringTable table = quizQuestion.isInvalid() ? null : DragAndDropScoringTable.compile(quizQuestion);
+        if (table == null) {
+            return ScoringStrategy.super.calculateScores(quizQuestion, submittedAnswers);
+        }
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            int[] values = table.getCorrectAndIncorrectMappingCount(submittedAnswers[i]);
+            if (values == null) {
+                // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
+                scores[i] = 0.0;
+                continue;
+            }
+            double mappedDropLocations = table.getNumberOfMappedDropLocations();
+            double correctMappings = values[0];
+            double fraction = correctMappings / mappedDropLocations;
+            scores[i] = Math.max(0, quizQuestion.getPoints() * fraction);
+        }
+        return scores;
+    }
 }
@@ -35,4 +35,19 @@ public class ScoringStrategyMultipleChoiceAllOrNothing implements ScoringStrateg
         // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
         return 0.0;
     }
+
+    @Override
+    public double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        MultipleChoiceScoringTable table = quizQuestion.isInvalid() ? null : MultipleChoiceScoringTable.compile(quizQuestion);
+        if (table == null) {
+            return ScoringStrategy.super.calculateScores(quizQuestion, submittedAnswers);
+        }
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            int wrongOptions = table.countWrongOptions(submittedAnswers[i]);
+            // the user must not be wrong about a single valid answer option, a submitted answer of another type cannot be correct
+            scores[i] = wrongOptions == 0 ? quizQuestion.getPoints() : 0.0;
+        }
+        return scores;
+    }
 }
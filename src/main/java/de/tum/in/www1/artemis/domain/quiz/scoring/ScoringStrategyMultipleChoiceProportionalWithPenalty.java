@@ -46,4 +46,27 @@ public class ScoringStrategyMultipleChoiceProportionalWithPenalty implements Sco
         // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
         return 0.0;
     }
+
+    @Override
+    public double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        MultipleChoiceScoringTable table = quizQuestion.isInvalid() ? null : MultipleChoiceScoringTable.compile(quizQuestion);
+        if (table == null) {
+            return ScoringStrategy.super.calculateScores(quizQuestion, submittedAnswers);
+        }
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            int wrongOptions = table.countWrongOptions(submittedAnswers[i]);
+            if (wrongOptions < 0) {
+                // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
+                scores[i] = 0.0;
+                continue;
+            }
+            double totalOptions = table.getNumberOfOptions();
+            double correctSelections = totalOptions - wrongOptions;
+            double incorrectSelections = wrongOptions;
+            double fraction = ((correctSelections / totalOptions) - (incorrectSelections / totalOptions));
+            scores[i] = Math.max(0, quizQuestion.getPoints() * fraction);
+        }
+        return scores;
+    }
 }
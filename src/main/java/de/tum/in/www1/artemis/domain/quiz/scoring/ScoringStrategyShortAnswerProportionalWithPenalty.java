@@ -38,4 +38,26 @@ public class ScoringStrategyShortAnswerProportionalWithPenalty implements Scorin
         // the submitted answer's type doesn't fit the quizQuestion's type => it cannot be correct
         return 0.0;
     }
+
+    @Override
+    public double[] calculateScores(QuizQuestion quizQuestion, SubmittedAnswer[] submittedAnswers) {
+        ShortAnswerScoringTable table = quizQuestion.isInvalid() ? null : ShortAnswerScoringTable.compile(quizQuestion);
+        if (table == null) {
+            return ScoringStrategy.super.calculateScores(quizQuestion, submittedAnswers);
+        }
+        double[] scores = new double[submittedAnswers.length];
+        for (int i = 0; i < submittedAnswers.length; i++) {
+            int[] values = table.getCorrectAndIncorrectSolutionCount(submittedAnswers[i]);
+            if (values == null) {
+                scores[i] = calculateScore(quizQuestion, submittedAnswers[i]);
+                continue;
+            }
+            double totalSolutionsCount = table.getNumberOfSpots();
+            double correctSolutionsCount = values[0];
+            double incorrectSolutionsCount = values[1];
+            double fraction = ((correctSolutionsCount / totalSolutionsCount) - (incorrectSolutionsCount / totalSolutionsCount));
+            scores[i] = Math.max(0, quizQuestion.getPoints() * fraction);
+        }
+        return scores;
+    }
 }
@@ -0,0 +1,179 @@
+package de.tum.in.www1.artemis.domain.quiz.scoring;
+
+import java.util.*;
+
+import de.tum.in.www1.artemis.domain.quiz.*;
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+
+/**
+ * A short answer question compiled for scoring many answers: the spots and solutions are numbered, the correct solutions of each spot and the normalized
+ * solution texts are computed once, and the (expensive) fuzzy comparison of a submitted text with a solution is remembered, because many students submit the
+ * same texts.
+ * <p>
+ * The counts are the same as the ones of {@link ScoringStrategyShortAnswerUtil#getCorrectAndIncorrectSolutionCount(ShortAnswerQuestion, ShortAnswerSubmittedAnswer)}.
+ */
+final class ShortAnswerScoringTable {
+
+    private final List<ShortAnswerSpot> spots;
+
+    private final boolean[] invalidSpots;
+
+    /**
+     * The solution numbers of the correct solutions of each spot, in the iteration order of {@link ShortAnswerQuestion#getCorrectSolutionForSpot(ShortAnswerSpot)}
+     */
+    private final int[][] solutionsForSpots;
+
+    private final List<ShortAnswerSolution> solutions = new ArrayList<>();
+
+    private final List<String> normalizedSolutionTexts = new ArrayList<>();
+
+    /**
+     * How often each solution can be used in one answer (i.e. how often it is contained in {@link ShortAnswerQuestion#getSolutions()})
+     */
+    private final int[] solutionUsages;
+
+    /**
+     * The remembered results of the fuzzy comparison: solution number -> normalized submitted text -> correct
+     */
+    private final List<Map<String, Boolean>> comparisons = new ArrayList<>();
+
+    private final int similarityValue;
+
+    private final boolean matchLetterCase;
+
+    private ShortAnswerScoringTable(ShortAnswerQuestion saQuestion) {
+        spots = new ArrayList<>(saQuestion.getSpots());
+        invalidSpots = new boolean[spots.size()];
+        solutionsForSpots = new int[spots.size()][];
+        similarityValue = Objects.requireNonNullElse(saQuestion.getSimilarityValue(), 85);
+        matchLetterCase = Boolean.TRUE.equals(saQuestion.matchLetterCase());
+
+        Map<ShortAnswerSolution, Integer> solutionIndices = new HashMap<>();
+        for (int spotIndex = 0; spotIndex < spots.size(); spotIndex++) {
+            ShortAnswerSpot spot = spots.get(spotIndex);
+            invalidSpots[spotIndex] = Boolean.TRUE.equals(spot.isInvalid());
+            Set<ShortAnswerSolution> solutionsForSpot = saQuestion.getCorrectSolutionForSpot(spot);
+            solutionsForSpots[spotIndex] = new int[solutionsForSpot.size()];
+            int i = 0;
+            for (ShortAnswerSolution solution : solutionsForSpot) {
+                Integer solutionIndex = solutionIndices.get(solution);
+                if (solutionIndex == null) {
+                    solutionIndex = solutions.size();
+                    solutionIndices.put(solution, solutionIndex);
+                    solutions.add(solution);
+                    normalizedSolutionTexts.add(normalize(solution.getText()));
+                    comparisons.add(new HashMap<>());
+                }
+                solutionsForSpots[spotIndex][i++] = solutionIndex;
+            }
+        }
+        solutionUsages = new int[solutions.size()];
+        for (ShortAnswerSolution solution : saQuestion.getSolutions()) {
+            Integer solutionIndex = solutionIndices.get(solution);
+            if (solutionIndex != null) {
+                solutionUsages[solutionIndex]++;
+            }
+        }
+    }
+
+    /**
+     * Compiles the given quiz question
+     *
+     * @param quizQuestion the quiz question to compile
+     * @return the table or null if the question is no short answer question or contains unsaved spots or solutions, these have to be scored one by one
+     */
+    static ShortAnswerScoringTable compile(QuizQuestion quizQuestion) {
+        if (!(quizQuestion instanceof ShortAnswerQuestion)) {
+            return null;
+        }
+        ShortAnswerQuestion saQuestion = (ShortAnswerQuestion) quizQuestion;
+        if (saQuestion.getSpots().stream().anyMatch(spot -> spot.getId() == null) || saQuestion.getSolutions().stream().anyMatch(solution -> solution.getId() == null)
+                || saQuestion.getCorrectMappings().stream().anyMatch(mapping -> mapping.getSpot() == null || mapping.getSolution() == null || mapping.getSolution().getId() == null
+                        || mapping.getSolution().getText() == null)) {
+            return null;
+        }
+        return new ShortAnswerScoringTable(saQuestion);
+    }
+
+    int getNumberOfSpots() {
+        return spots.size();
+    }
+
+    /**
+     * Counts the correct and incorrect spots of the answer and marks its submitted texts as correct or incorrect, exactly like
+     * {@link ScoringStrategyShortAnswerUtil#getCorrectAndIncorrectSolutionCount(ShortAnswerQuestion, ShortAnswerSubmittedAnswer)}
+     *
+     * @param submittedAnswer the answer
+     * @return array with correct and incorrect solution count, or null if the answer is no short answer answer or refers to a question with different comparison
+     *         settings, such answers have to be scored one by one
+     */
+    int[] getCorrectAndIncorrectSolutionCount(SubmittedAnswer submittedAnswer) {
+        if (!(submittedAnswer instanceof ShortAnswerSubmittedAnswer) || !hasSameComparisonSettings(submittedAnswer.getQuizQuestion())) {
+            return null;
+        }
+        ShortAnswerSubmittedAnswer saAnswer = (ShortAnswerSubmittedAnswer) submittedAnswer;
+        Map<Long, ShortAnswerSubmittedText> submittedTexts = new HashMap<>();
+        for (ShortAnswerSubmittedText submittedText : saAnswer.getSubmittedTexts()) {
+            // the first submitted text for a spot counts
+            submittedTexts.putIfAbsent(submittedText.getSpot().getId(), submittedText);
+        }
+
+        int correctSolutionsCount = 0;
+        int incorrectSolutionsCount = 0;
+        int[] remainingUsages = solutionUsages.clone();
+        for (int spotIndex = 0; spotIndex < spots.size(); spotIndex++) {
+            if (invalidSpots[spotIndex]) {
+                correctSolutionsCount++;
+                continue;
+            }
+            ShortAnswerSubmittedText submittedText = submittedTexts.get(spots.get(spotIndex).getId());
+            if (submittedText == null) {
+                continue;
+            }
+            // reconnect to avoid issues
+            submittedText.setSubmittedAnswer(saAnswer);
+            submittedText.setIsCorrect(false);
+            boolean foundCorrectSolution = false;
+            for (int solutionIndex : solutionsForSpots[spotIndex]) {
+                if (isSubmittedTextCorrect(submittedText.getText(), solutionIndex) && remainingUsages[solutionIndex] > 0) {
+                    remainingUsages[solutionIndex]--;
+                    submittedText.setIsCorrect(true);
+                    correctSolutionsCount++;
+                    foundCorrectSolution = true;
+                    break;
+                }
+            }
+            if (!foundCorrectSolution) {
+                incorrectSolutionsCount++;
+            }
+        }
+        return new int[] { correctSolutionsCount, incorrectSolutionsCount };
+    }
+
+    /**
+     * Same as {@link ShortAnswerSubmittedText#isSubmittedTextCorrect(String, String)}, but with the normalized solution text and a remembered result
+     */
+    private boolean isSubmittedTextCorrect(String submittedText, int solutionIndex) {
+        if (Objects.equals(submittedText, solutions.get(solutionIndex).getText())) {
+            return true;
+        }
+        if (submittedText == null) {
+            return false;
+        }
+        return comparisons.get(solutionIndex).computeIfAbsent(normalize(submittedText),
+                normalizedText -> FuzzySearch.ratio(normalizedText, normalizedSolutionTexts.get(solutionIndex)) >= similarityValue);
+    }
+
+    private String normalize(String text) {
+        // only trim whitespace left and right if the letter case has to match, otherwise also use lowercase to allow different cases in the submitted text
+        return matchLetterCase ? text.trim() : text.toLowerCase().trim();
+    }
+
+    private boolean hasSameComparisonSettings(QuizQuestion quizQuestion) {
+        if (!(quizQuestion instanceof ShortAnswerQuestion)) {
+            return false;
+        }
+        ShortAnswerQuestion saQuestion = (ShortAnswerQuestion) quizQuestion;
+        return similarityValue == Objects.requireNonNullElse(saQuestion.getSimilarityValue(), 85) && matchLetterCase == Boolean.TRUE.equals(saQuestion.matchLetterCase());
+    }
+}
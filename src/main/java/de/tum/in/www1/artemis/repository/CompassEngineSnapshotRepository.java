@@ -0,0 +1,17 @@
+package de.tum.in.www1.artemis.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import de.tum.in.www1.artemis.domain.modeling.CompassEngineSnapshot;
+
+/**
+ * Spring Data JPA repository for the CompassEngineSnapshot entity.
+ */
+@Repository
+public interface CompassEngineSnapshotRepository extends JpaRepository<CompassEngineSnapshot, Long> {
+
+    Optional<CompassEngineSnapshot> findByExerciseId(Long exerciseId);
+}
@@ -4,6 +4,7 @@ import static org.springframework.data.jpa.repository.EntityGraph.EntityGraphTyp
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -110,6 +111,33 @@ public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
             """)
     long countByResultParticipationExerciseIdAndComplaintTypeIgnoreTestRuns(@Param("exerciseId") Long exerciseId, @Param("complaintType") ComplaintType complaintType);
 
+    /**
+     * Counts the complaints of multiple exercises at once, separated by exercise and complaint type
+     *
+     * @param exerciseIds - the ids of the exercises we want to filter by
+     * @return for every exercise and complaint type with complaints: [0] -> exercise id, [1] -> complaint type, [2] -> number of complaints
+     */
+    @Query("""
+            SELECT c.result.participation.exercise.id, c.complaintType, COUNT(c) FROM Complaint c
+            WHERE c.result.participation.exercise.id IN :#{#exerciseIds}
+            GROUP BY c.result.participation.exercise.id, c.complaintType
+            """)
+    List<Object[]> countByExerciseIdsGroupedByComplaintType(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Similar to {@link ComplaintRepository#countByExerciseIdsGroupedByComplaintType} but ignores test run submissions
+     *
+     * @param exerciseIds - the ids of the exercises we want to filter by
+     * @return for every exercise and complaint type with complaints: [0] -> exercise id, [1] -> complaint type, [2] -> number of complaints
+     */
+    @Query("""
+            SELECT c.result.participation.exercise.id, c.complaintType, COUNT(c) FROM Complaint c
+            WHERE c.result.participation.testRun = FALSE
+            AND c.result.participation.exercise.id IN :#{#exerciseIds}
+            GROUP BY c.result.participation.exercise.id, c.complaintType
+            """)
+    List<Object[]> countByExerciseIdsGroupedByComplaintTypeIgnoreTestRuns(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * Delete all complaints that belong to results of a given participation
      * @param participationId the Id of the participation where the complaints should be deleted
@@ -179,198 +207,72 @@ public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
     List<Complaint> getAllByResult_Assessor_IdAndResult_Participation_Exercise_Course_Id(Long assessorId, Long courseId);
 
     /**
-     * Get the number of Complaints for all tutors of a course
+     * Get the number of Complaints for all tutors of the given exercises, separated by exercise
      *
-     * @param groupName - name of the tutorgroup
-     * @param courseId  - id of the course
+     * @param groupName   - name of the tutorgroup
+     * @param exerciseIds - ids of the exercises
      * @return list of TutorLeaderboardComplaints
      */
     @Query("""
             SELECT
             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaints(
+                e.id,
                 a.id,
                 count(c),
                 sum( CASE WHEN (c.accepted = true) THEN 1L ELSE 0L END),
                 sum( CASE WHEN (c.accepted = true) THEN e.maxPoints ELSE 0.0 END)
             )
-            FROM
-                Complaint c join c.result r join r.participation p join p.exercise e join e.course co join r.assessor a
-            WHERE
-                 :#{#groupName} member of a.groups
-                and c.complaintType = 'COMPLAINT'
-                and co.id = :courseId
-                and r.completionDate IS NOT NULL
-            GROUP BY a.id
-            """)
-    List<TutorLeaderboardComplaints> findTutorLeaderboardComplaintsByCourseId(@Param("groupName") String groupName, @Param("courseId") long courseId);
-
-    /**
-     * Get the number of Complaints for all tutors of an exercise
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param exerciseId - id of the exercise
-     * @return list of TutorLeaderboardComplaints
-     */
-    @Query("""
-            SELECT
-            new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaints(
-                c.result.assessor.id,
-                count(c),
-                sum( CASE WHEN (c.accepted = true ) THEN 1L ELSE 0L END),
-                sum( CASE WHEN (c.accepted = true) THEN e.maxPoints ELSE 0.0 END)
-            )
             FROM
                 Complaint c join c.result r join r.participation p join p.exercise e join r.assessor a
             WHERE
                  :#{#groupName} member of a.groups
                 and c.complaintType = 'COMPLAINT'
-                and e.id = :#{#exerciseId}
-                and r.completionDate IS NOT NULL
-            GROUP BY a.id
-            """)
-    List<TutorLeaderboardComplaints> findTutorLeaderboardComplaintsByExerciseId(@Param("groupName") String groupName, @Param("exerciseId") long exerciseId);
-
-    /**
-     * Get the number of Complaints for all tutors of an exam
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param examId     - id of the exercise
-     * @return list of TutorLeaderboardComplaints
-     */
-    @Query("""
-            SELECT
-            new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaints(
-                c.result.assessor.id,
-                count(c),
-                sum( CASE WHEN (c.accepted = true ) THEN 1L ELSE 0L END),
-                sum( CASE WHEN (c.accepted = true) THEN e.maxPoints ELSE 0.0 END)
-            )
-            FROM
-                Complaint c join c.result r join r.participation p join p.exercise e join e.exerciseGroup eg join eg.exam ex join r.assessor a
-            WHERE
-                 :#{#groupName} member of a.groups
-                and c.complaintType = 'COMPLAINT'
-                and ex.id = :#{#examId}
+                and e.id IN :#{#exerciseIds}
                 and r.completionDate IS NOT NULL
-            GROUP BY a.id
+            GROUP BY e.id, a.id
             """)
-    List<TutorLeaderboardComplaints> findTutorLeaderboardComplaintsByExamId(@Param("groupName") String groupName, @Param("examId") long examId);
+    List<TutorLeaderboardComplaints> findTutorLeaderboardComplaintsByExerciseIds(@Param("groupName") String groupName, @Param("exerciseIds") Set<Long> exerciseIds);
 
     /**
-     * Get the number of complaintResponses for all tutors assessments of a course
+     * Get the number of complaintResponses for all tutors of the given exercises, separated by exercise
      *
-     * @param groupName  - name of the tutorgroup
-     * @param courseId   - id of the exercise
+     * @param groupName   - name of the tutorgroup
+     * @param exerciseIds - ids of the exercises
      * @return list of TutorLeaderboardComplaintResponses
      */
     @Query("""
             SELECT
             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaintResponses(
+                e.id,
                 cr.reviewer.id,
                 count(c),
                 sum(e.maxPoints)
             )
             FROM
-                Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join e.course co join r.assessor a
+                Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join r.assessor a
             WHERE
                 c.complaintType = 'COMPLAINT'
                 and :#{#groupName} member of a.groups
-                and co.id = :courseId
+                and e.id IN :#{#exerciseIds}
                 and r.completionDate IS NOT NULL
                 and c.accepted IS NOT NULL
-            GROUP BY cr.reviewer.id
+            GROUP BY e.id, cr.reviewer.id
             """)
-    List<TutorLeaderboardComplaintResponses> findTutorLeaderboardComplaintResponsesByCourseId(@Param("groupName") String groupName, @Param("courseId") long courseId);
-
-    /**
-     * Get the number of complaintResponses for all tutors assessments of an exercise
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param exerciseId - id of the exercise
-     * @return list of TutorLeaderboardComplaintResponses
-     */
-    @Query("""
-            SELECT
-             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaintResponses(
-                 cr.reviewer.id,
-                 count(c),
-                 sum(e.maxPoints)
-             )
-             FROM
-                Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join r.assessor a
-             WHERE
-                 c.complaintType = 'COMPLAINT'
-                 and :#{#groupName} member of a.groups
-                 and e.id = :exerciseId
-                 and r.completionDate IS NOT NULL
-                 and c.accepted IS NOT NULL
-             GROUP BY cr.reviewer.id
-             """)
-    List<TutorLeaderboardComplaintResponses> findTutorLeaderboardComplaintResponsesByExerciseId(@Param("groupName") String groupName, @Param("exerciseId") long exerciseId);
-
-    /**
-     * Get the number of complaintResponses for all tutors assessments of an exam
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param examId     - id of the exam
-     * @return list of TutorLeaderboardComplaintResponses
-     */
-    @Query("""
-            SELECT
-             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardComplaintResponses(
-                 cr.reviewer.id,
-                 count(c),
-                 sum(e.maxPoints)
-             )
-             FROM
-                Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join e.exerciseGroup eg join eg.exam ex  join r.assessor a
-             WHERE
-                 c.complaintType = 'COMPLAINT'
-                 and :#{#groupName} member of a.groups
-                 and ex.id = :examId
-                 and r.completionDate IS NOT NULL
-                 and c.accepted IS NOT NULL
-             GROUP BY cr.reviewer.id
-             """)
-    List<TutorLeaderboardComplaintResponses> findTutorLeaderboardComplaintResponsesByExamId(@Param("groupName") String groupName, @Param("examId") long examId);
-
-    /**
-     * Get the number of Feedback Requests for all tutors assessments of a course
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param courseId   - id of the exercise
-     * @return list of TutorLeaderboardMoreFeedbackRequests
-     */
-    @Query("""
-            SELECT
-             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardMoreFeedbackRequests(
-                 a.id,
-                 count(c),
-                 sum( CASE WHEN (c.accepted IS NULL) THEN 1L ELSE 0L END),
-                 sum( CASE WHEN (c.accepted IS NULL) THEN e.maxPoints ELSE 0.0 END)
-             )
-             FROM
-                Complaint c join c.result r join r.participation p join p.exercise e join e.course co join r.assessor a
-             WHERE
-                 c.complaintType = 'MORE_FEEDBACK'
-                 and :#{#groupName} member of a.groups
-                 and co.id = :courseId
-                 and r.completionDate IS NOT NULL
-             GROUP BY a.id
-             """)
-    List<TutorLeaderboardMoreFeedbackRequests> findTutorLeaderboardMoreFeedbackRequestsByCourseId(@Param("groupName") String groupName, @Param("courseId") long courseId);
+    List<TutorLeaderboardComplaintResponses> findTutorLeaderboardComplaintResponsesByExerciseIds(@Param("groupName") String groupName,
+            @Param("exerciseIds") Set<Long> exerciseIds);
 
     /**
-     * Get the number of Feedback Requests for all tutors assessments of an exercise
+     * Get the number of more feedback requests for all tutors of the given exercises, separated by exercise
      *
-     * @param groupName  - name of the tutorgroup
-     * @param exerciseId - id of the exercise
+     * @param groupName   - name of the tutorgroup
+     * @param exerciseIds - ids of the exercises
      * @return list of TutorLeaderboardMoreFeedbackRequests
      */
     @Query("""
             SELECT
             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardMoreFeedbackRequests(
-               a.id,
+                e.id,
+                a.id,
                 count(c),
                 sum( CASE WHEN (c.accepted IS NULL) THEN 1L ELSE 0L END),
                 sum( CASE WHEN (c.accepted IS NULL) THEN e.maxPoints ELSE 0.0 END)
@@ -380,63 +282,38 @@ public interface ComplaintRepository extends JpaRepository<Complaint, Long> {
             WHERE
                 c.complaintType = 'MORE_FEEDBACK'
                 and :#{#groupName} member of a.groups
-                and e.id = :exerciseId
+                and e.id IN :#{#exerciseIds}
                 and r.completionDate IS NOT NULL
-            GROUP BY a.id
+            GROUP BY e.id, a.id
             """)
-    List<TutorLeaderboardMoreFeedbackRequests> findTutorLeaderboardMoreFeedbackRequestsByExerciseId(@Param("groupName") String groupName, @Param("exerciseId") long exerciseId);
+    List<TutorLeaderboardMoreFeedbackRequests> findTutorLeaderboardMoreFeedbackRequestsByExerciseIds(@Param("groupName") String groupName,
+            @Param("exerciseIds") Set<Long> exerciseIds);
 
     /**
-     * Get the number of Feedback Request Responses for all tutors assessments of a course
+     * Get the number of answered more feedback requests for all tutors of the given exercises, separated by exercise
      *
-     * @param groupName  - name of the tutorgroup
-     * @param courseId   - id of the course
+     * @param groupName   - name of the tutorgroup
+     * @param exerciseIds - ids of the exercises
      * @return list of TutorLeaderboardAnsweredMoreFeedbackRequests
      */
     @Query("""
             SELECT
             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardAnsweredMoreFeedbackRequests(
-                 cr.reviewer.id,
+                e.id,
+                cr.reviewer.id,
                 count(c),
                 sum(e.maxPoints)
             )
-            FROM
-                Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join e.course co join r.assessor a
-            WHERE
-                c.complaintType = 'MORE_FEEDBACK'
-                and :#{#groupName} member of a.groups
-                and co.id = :courseId
-                and r.completionDate IS NOT NULL
-                and c.accepted = true
-            GROUP BY cr.reviewer.id
-            """)
-    List<TutorLeaderboardAnsweredMoreFeedbackRequests> findTutorLeaderboardAnsweredMoreFeedbackRequestsByCourseId(@Param("groupName") String groupName,
-            @Param("courseId") long courseId);
-
-    /**
-     * Get the number of Feedback Request Responses for all tutors assessments of an exercise
-     *
-     * @param groupName  - name of the tutorgroup
-     * @param exerciseId - id of the exercise
-     * @return list of TutorLeaderboardAnsweredMoreFeedbackRequests
-     */
-    @Query("""
-            SELECT
-            new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardAnsweredMoreFeedbackRequests(
-                cr.reviewer.id,
-                count(c),
-                sum(c.result.participation.exercise.maxPoints)
-                )
             FROM
                 Complaint c join c.complaintResponse cr join c.result r join r.participation p join p.exercise e join r.assessor a
             WHERE
                 c.complaintType = 'MORE_FEEDBACK'
                 and :#{#groupName} member of a.groups
-                and e.id = :exerciseId
+                and e.id IN :#{#exerciseIds}
                 and r.completionDate IS NOT NULL
                 and c.accepted = true
-            GROUP BY cr.reviewer.id
+            GROUP BY e.id, cr.reviewer.id
             """)
-    List<TutorLeaderboardAnsweredMoreFeedbackRequests> findTutorLeaderboardAnsweredMoreFeedbackRequestsByExerciseId(@Param("groupName") String groupName,
-            @Param("exerciseId") long exerciseId);
+    List<TutorLeaderboardAnsweredMoreFeedbackRequests> findTutorLeaderboardAnsweredMoreFeedbackRequestsByExerciseIds(@Param("groupName") String groupName,
+            @Param("exerciseIds") Set<Long> exerciseIds);
 }
@@ -1,6 +1,8 @@
 package de.tum.in.www1.artemis.repository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -53,6 +55,35 @@ public interface ComplaintResponseRepository extends JpaRepository<ComplaintResp
     long countByComplaintResultParticipationExerciseIdAndComplaintComplaintTypeIgnoreTestRuns(@Param("exerciseId") long exerciseId,
             @Param("complaintType") ComplaintType complaintType);
 
+    /**
+     * Counts the submitted complaint responses of multiple exercises at once, separated by exercise and complaint type
+     *
+     * @param exerciseIds - the ids of the exercises we want to filter by
+     * @return for every exercise and complaint type with responses: [0] -> exercise id, [1] -> complaint type, [2] -> number of complaint responses
+     */
+    @Query("""
+            SELECT cr.complaint.result.participation.exercise.id, cr.complaint.complaintType, COUNT(cr) FROM ComplaintResponse cr
+            WHERE cr.submittedTime IS NOT NULL
+            AND cr.complaint.result.participation.exercise.id IN :#{#exerciseIds}
+            GROUP BY cr.complaint.result.participation.exercise.id, cr.complaint.complaintType
+            """)
+    List<Object[]> countSubmittedByExerciseIdsGroupedByComplaintType(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Similar to {@link ComplaintResponseRepository#countSubmittedByExerciseIdsGroupedByComplaintType} but ignores test run submissions
+     *
+     * @param exerciseIds - the ids of the exercises we want to filter by
+     * @return for every exercise and complaint type with responses: [0] -> exercise id, [1] -> complaint type, [2] -> number of complaint responses
+     */
+    @Query("""
+            SELECT cr.complaint.result.participation.exercise.id, cr.complaint.complaintType, COUNT (DISTINCT cr) FROM ComplaintResponse cr
+            WHERE cr.submittedTime IS NOT NULL
+            AND cr.complaint.result.participation.exercise.id IN :#{#exerciseIds}
+            AND cr.complaint.result.participation.testRun = FALSE
+            GROUP BY cr.complaint.result.participation.exercise.id, cr.complaint.complaintType
+            """)
+    List<Object[]> countSubmittedByExerciseIdsGroupedByComplaintTypeIgnoreTestRuns(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * Delete all complaint responses that belong to complaints of submission results of a given participation
      * @param participationId the Id of the participation where the complaint response should be deleted
@@ -37,6 +37,12 @@ public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
             """)
     Set<Exercise> findByExerciseIdWithCategories(@Param("exerciseIds") Set<Long> exerciseIds);
 
+    @Query("select e.id from Exercise e where e.course.id = :#{#courseId}")
+    Set<Long> findAllIdsByCourseId(@Param("courseId") Long courseId);
+
+    @Query("select e.id from Exercise e where e.exerciseGroup.exam.id = :#{#examId}")
+    Set<Long> findAllIdsByExamId(@Param("examId") Long examId);
+
     @Query("select e from Exercise e where e.course.id = :#{#courseId} and e.mode = 'TEAM'")
     Set<Exercise> findAllTeamExercisesByCourseId(@Param("courseId") Long courseId);
 
@@ -6,6 +6,8 @@ import java.util.Optional;
 
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.Hibernate;
+import org.hibernate.proxy.HibernateProxy;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -30,6 +32,28 @@ public interface ParticipationRepository extends JpaRepository<Participation, Lo
     @EntityGraph(type = LOAD, attributePaths = { "submissions" })
     Optional<Participation> findWithEagerSubmissionsById(Long participationId);
 
+    @Query("select p.exercise.id from Participation p where p.id = :participationId")
+    Optional<Long> findExerciseIdById(@Param("participationId") Long participationId);
+
+    /**
+     * Returns the id of the exercise of the given participation. If the participation is a lazy proxy, only the exercise id is queried instead of loading the participation.
+     *
+     * @param participation the participation, can be an uninitialized proxy
+     * @return the id of the exercise or empty if the participation is not saved or does not belong to an exercise
+     */
+    default Optional<Long> findExerciseIdOfParticipation(Participation participation) {
+        if (participation == null) {
+            return Optional.empty();
+        }
+        if (!Hibernate.isInitialized(participation)) {
+            return findExerciseIdById((Long) ((HibernateProxy) participation).getHibernateLazyInitializer().getIdentifier());
+        }
+        if (participation.getExercise() != null) {
+            return Optional.ofNullable(participation.getExercise().getId());
+        }
+        return participation.getId() != null ? findExerciseIdById(participation.getId()) : Optional.empty();
+    }
+
     @NotNull
     default Participation findByIdWithSubmissionsElseThrow(long participationId) {
         return findWithEagerSubmissionsById(participationId).orElseThrow(() -> new EntityNotFoundException("Participation", participationId));
@@ -199,6 +199,51 @@ public interface ProgrammingExerciseRepository extends JpaRepository<Programming
             """)
     long countAssessmentsByExerciseIdSubmittedIgnoreTestRunSubmissions(@Param("exerciseId") Long exerciseId);
 
+    /**
+     * Same as {@link #countSubmissionsByExerciseIdSubmitted(Long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with submissions: [0] -> exercise id, [1] -> number of participations with a submitted submission
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM ProgrammingExerciseStudentParticipation p JOIN p.submissions s
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND s.submitted = TRUE
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countSubmissionsByExerciseIdsSubmitted(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Same as {@link #countSubmissionsByExerciseIdSubmittedIgnoreTestRunSubmissions(Long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with submissions: [0] -> exercise id, [1] -> number of participations with a submitted submission
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM ProgrammingExerciseStudentParticipation p JOIN p.submissions s
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND p.testRun = FALSE
+                AND s.submitted = TRUE
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countSubmissionsByExerciseIdsSubmittedIgnoreTestRunSubmissions(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Same as {@link #countAssessmentsByExerciseIdSubmitted(Long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with assessments: [0] -> exercise id, [1] -> number of participations with an assessed submission
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM ProgrammingExerciseStudentParticipation p JOIN p.submissions s JOIN s.results r
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND s.submitted = TRUE
+                AND r.assessor IS NOT NULL
+                AND r.completionDate IS NOT NULL
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countAssessmentsByExerciseIdsSubmitted(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * In distinction to other exercise types, students can have multiple submissions in a programming exercise.
      * We therefore have to check here if any submission of the student was submitted before the deadline.
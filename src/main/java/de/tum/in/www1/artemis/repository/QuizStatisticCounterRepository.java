@@ -0,0 +1,28 @@
+package de.tum.in.www1.artemis.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.tum.in.www1.artemis.domain.quiz.QuizStatisticCounter;
+
+/**
+ * Spring Data JPA repository for the QuizStatisticCounter entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface QuizStatisticCounterRepository extends JpaRepository<QuizStatisticCounter, Long> {
+
+    @Modifying
+    @Transactional // ok because of modifying query
+    @Query("""
+            update QuizStatisticCounter counter
+            set counter.ratedCounter = counter.ratedCounter + :#{#rated},
+                counter.unRatedCounter = counter.unRatedCounter + :#{#unrated}
+            where counter.id = :#{#counterId}
+            """)
+    void incrementCounters(@Param("counterId") Long counterId, @Param("rated") int rated, @Param("unrated") int unrated);
+}
@@ -0,0 +1,38 @@
+package de.tum.in.www1.artemis.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.tum.in.www1.artemis.domain.quiz.QuizStatistic;
+
+/**
+ * Spring Data JPA repository for the QuizStatistic entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface QuizStatisticRepository extends JpaRepository<QuizStatistic, Long> {
+
+    @Modifying
+    @Transactional // ok because of modifying query
+    @Query("""
+            update QuizStatistic statistic
+            set statistic.participantsRated = statistic.participantsRated + :#{#participantsRated},
+                statistic.participantsUnrated = statistic.participantsUnrated + :#{#participantsUnrated}
+            where statistic.id = :#{#statisticId}
+            """)
+    void incrementParticipants(@Param("statisticId") Long statisticId, @Param("participantsRated") int participantsRated, @Param("participantsUnrated") int participantsUnrated);
+
+    @Modifying
+    @Transactional // ok because of modifying query
+    @Query("""
+            update QuizQuestionStatistic statistic
+            set statistic.ratedCorrectCounter = statistic.ratedCorrectCounter + :#{#ratedCorrect},
+                statistic.unRatedCorrectCounter = statistic.unRatedCorrectCounter + :#{#unratedCorrect}
+            where statistic.id = :#{#statisticId}
+            """)
+    void incrementCorrectCounters(@Param("statisticId") Long statisticId, @Param("ratedCorrect") int ratedCorrect, @Param("unratedCorrect") int unratedCorrect);
+}
@@ -3,8 +3,10 @@ package de.tum.in.www1.artemis.repository;
 import static java.util.Arrays.asList;
 import static org.springframework.data.jpa.repository.EntityGraph.EntityGraphType.LOAD;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -148,6 +150,24 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
             """)
     long countNumberOfFinishedAssessmentsForExerciseIgnoreTestRuns(@Param("exerciseId") Long exerciseId);
 
+    /**
+     * Same as {@link #countNumberOfFinishedAssessmentsForExercise(Long)} for multiple exercises at once
+     *
+     * @param exerciseIds ids of the exercises
+     * @return for every exercise with finished assessments: [0] -> exercise id, [1] -> number of participations with a finished assessment
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT(DISTINCT p) FROM StudentParticipation p JOIN p.results r
+            WHERE p.exercise.id IN :exerciseIds
+                AND r.assessor IS NOT NULL
+                AND r.rated = TRUE
+                AND r.completionDate IS NOT NULL
+                AND (p.exercise.dueDate IS NULL
+                    OR r.submission.submissionDate <= p.exercise.dueDate)
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countNumberOfFinishedAssessmentsForExercises(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * @param exerciseId id of exercise
      * @return a list that contains the count of manual assessments for each studentParticipation of the exercise
@@ -165,6 +185,25 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
             """)
     List<Long> countNumberOfFinishedAssessmentsByExerciseIdIgnoreTestRuns(@Param("exerciseId") Long exerciseId);
 
+    /**
+     * Same as {@link #countNumberOfFinishedAssessmentsByExerciseIdIgnoreTestRuns(Long)} for multiple exercises at once
+     *
+     * @param exerciseIds ids of the exercises
+     * @return for every studentParticipation of the exercises with manual assessments: [0] -> exercise id, [1] -> number of manual assessments
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT(r.id)
+            FROM StudentParticipation p JOIN p.submissions s JOIN s.results r
+            WHERE p.exercise.id IN :exerciseIds
+                AND p.testRun = FALSE
+                AND s.submitted = TRUE
+                AND r.completionDate IS NOT NULL
+                AND r.rated = TRUE
+                AND r.assessor IS NOT NULL
+                GROUP BY p.exercise.id, p.id
+            """)
+    List<Object[]> countNumberOfFinishedAssessmentsByExerciseIdsIgnoreTestRuns(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * count the number of finsished assessments of an exam with given examId
      *
@@ -252,6 +291,25 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
             """)
     List<Result> getRatedResultsOrderedByParticipationIdSubmissionIdResultIdDescForTeam(@Param("exerciseId") Long exerciseId, @Param("teamId") Long teamId);
 
+    @Query("""
+                    SELECT r
+                    FROM StudentParticipation p JOIN p.submissions s JOIN s.results r
+                    WHERE p.exercise.id = :exerciseId
+                    AND (p.testRun IS NULL OR p.testRun = false)
+                    AND r.score IS NOT NULL AND r.completionDate IS NOT NULL
+                    ORDER BY p.id DESC, s.id DESC, r.id DESC
+            """)
+    List<Result> getResultsOrderedByParticipationIdSubmissionIdResultIdDescForExercise(@Param("exerciseId") Long exerciseId);
+
+    @Query("""
+            SELECT r
+            FROM Result r
+                LEFT JOIN FETCH r.participation p
+                LEFT JOIN FETCH p.exercise
+            WHERE r.id IN :resultIds
+            """)
+    List<Result> findAllWithParticipationAndExerciseByIdIn(@Param("resultIds") Collection<Long> resultIds);
+
     /**
      * Checks if a result for the given participation exists.
      *
@@ -367,27 +425,16 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
         return new DueDateStat(countAssessmentsByCourseIdAndRated(courseId, true), 0);
     }
 
+    /**
+     * Get the number of assessments and the points of the assessed exercises for all tutors of the given exercises, separated by exercise
+     *
+     * @param exerciseIds ids of the exercises
+     * @return list of TutorLeaderboardAssessments
+     */
     @Query("""
             SELECT
             new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardAssessments(
-                r.assessor.id,
-                count(r),
-                sum(e.maxPoints)
-                )
-            FROM
-                Result r join r.participation p join p.exercise e join e.course c join r.assessor a
-            WHERE
-                r.completionDate is not null
-                and c.id = :#{#courseId}
-            GROUP BY a.id
-            """)
-    List<TutorLeaderboardAssessments> findTutorLeaderboardAssessmentByCourseId(@Param("courseId") long courseId);
-
-    // Alternative which might be faster, in particular for complaints in the other repositories
-
-    @Query("""
-            SELECT
-            new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardAssessments(
+                e.id,
                 a.id,
                 count(r),
                 sum(e.maxPoints)
@@ -396,25 +443,9 @@ public interface ResultRepository extends JpaRepository<Result, Long> {
                 Result r join r.participation p join p.exercise e join r.assessor a
             WHERE
                 r.completionDate is not null
-                and e.id = :#{#exerciseId}
-            GROUP BY a.id
-            """)
-    List<TutorLeaderboardAssessments> findTutorLeaderboardAssessmentByExerciseId(@Param("exerciseId") long exerciseId);
-
-    @Query("""
-            SELECT
-            new de.tum.in.www1.artemis.domain.leaderboard.tutor.TutorLeaderboardAssessments(
-                a.id,
-                count(r),
-                sum(e.maxPoints)
-            )
-            FROM
-                Result r join r.participation p join p.exercise e join e.exerciseGroup eg join eg.exam ex join r.assessor a
-            WHERE
-                r.completionDate is not null
-                and ex.id = :#{#examId}
-            GROUP BY a.id
+                and e.id IN :#{#exerciseIds}
+            GROUP BY e.id, a.id
             """)
-    List<TutorLeaderboardAssessments> findTutorLeaderboardAssessmentByExamId(@Param("examId") long examId);
+    List<TutorLeaderboardAssessments> findTutorLeaderboardAssessmentByExerciseIds(@Param("exerciseIds") Set<Long> exerciseIds);
 
 }
@@ -18,6 +18,7 @@ import de.tum.in.www1.artemis.domain.Result;
 import de.tum.in.www1.artemis.domain.Submission;
 import de.tum.in.www1.artemis.domain.User;
 import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
+import de.tum.in.www1.artemis.domain.enumeration.InitializationState;
 import de.tum.in.www1.artemis.domain.exam.StudentExam;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
 import de.tum.in.www1.artemis.web.rest.errors.EntityNotFoundException;
@@ -114,6 +115,15 @@ public interface StudentParticipationRepository extends JpaRepository<StudentPar
             where participation.exercise.id = :#{#exerciseId} and participation.student.id = :#{#studentId}""")
     List<StudentParticipation> findByExerciseIdAndStudentId(@Param("exerciseId") Long exerciseId, @Param("studentId") Long studentId);
 
+    @Query("""
+            select distinct participation.student.id
+            from StudentParticipation participation
+            where participation.exercise.id = :#{#exerciseId}
+                and participation.initializationState in :#{#initializationStates}
+            """)
+    Set<Long> findStudentIdsByExerciseIdAndInitializationStateIn(@Param("exerciseId") Long exerciseId,
+            @Param("initializationStates") Collection<InitializationState> initializationStates);
+
     @Query("select distinct participation from StudentParticipation participation left join fetch participation.results left join fetch participation.submissions where participation.exercise.id = :#{#exerciseId} and participation.student.id = :#{#studentId}")
     List<StudentParticipation> findByExerciseIdAndStudentIdWithEagerResultsAndSubmissions(@Param("exerciseId") Long exerciseId, @Param("studentId") Long studentId);
 
@@ -46,11 +46,10 @@ public interface StudentScoreRepository extends JpaRepository<StudentScore, Long
     Optional<StudentScore> findStudentScoreByExerciseAndUserLazy(@Param("exercise") Exercise exercise, @Param("user") User user);
 
     @Query("""
-            SELECT sc.user, SUM(sc.lastRatedPoints)
+            SELECT sc.exercise.id, sc.user.id, sc.lastPoints, sc.lastRatedPoints
             FROM StudentScore sc
             WHERE sc.exercise IN :exercises
-            GROUP BY sc.user
             """)
-    List<Object[]> getAchievedPointsOfStudents(@Param("exercises") Set<Exercise> exercises);
+    List<Object[]> getPointsOfStudents(@Param("exercises") Set<Exercise> exercises);
 
 }
@@ -4,6 +4,7 @@ import static org.springframework.data.jpa.repository.EntityGraph.EntityGraphTyp
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -243,6 +244,53 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
             """)
     long countByExerciseIdSubmittedAfterDueDate(@Param("exerciseId") long exerciseId);
 
+    /**
+     * Same as {@link #countByExerciseIdSubmittedBeforeDueDate(long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with submissions: [0] -> exercise id, [1] -> number of participations with a submission before the due date
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM StudentParticipation p JOIN p.submissions s
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND s.submitted = TRUE
+                AND (p.exercise.dueDate IS NULL OR s.submissionDate <= p.exercise.dueDate)
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countByExerciseIdsSubmittedBeforeDueDate(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Same as {@link #countByExerciseIdSubmittedBeforeDueDateIgnoreTestRuns(long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with submissions: [0] -> exercise id, [1] -> number of participations with a submission before the due date
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM StudentParticipation p JOIN p.submissions s
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND p.testRun = FALSE
+                AND s.submitted = TRUE
+                AND (p.exercise.dueDate IS NULL OR s.submissionDate <= p.exercise.dueDate)
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countByExerciseIdsSubmittedBeforeDueDateIgnoreTestRuns(@Param("exerciseIds") Set<Long> exerciseIds);
+
+    /**
+     * Same as {@link #countByExerciseIdSubmittedAfterDueDate(long)} for multiple exercises at once
+     *
+     * @param exerciseIds the ids of the exercises we are interested in
+     * @return for every exercise with late submissions: [0] -> exercise id, [1] -> number of participations with a submission after the due date
+     */
+    @Query("""
+            SELECT p.exercise.id, COUNT (DISTINCT p) FROM StudentParticipation p JOIN p.submissions s
+            WHERE p.exercise.id IN :#{#exerciseIds}
+                AND s.submitted = TRUE
+                AND p.exercise.dueDate IS NOT NULL
+                AND s.submissionDate > p.exercise.dueDate
+            GROUP BY p.exercise.id
+            """)
+    List<Object[]> countByExerciseIdsSubmittedAfterDueDate(@Param("exerciseIds") Set<Long> exerciseIds);
+
     /**
      * Returns submissions for a exercise. Returns only a submission that has a result with a matching assessor. Since the results list may also contain
      * automatic results but those results do not have an assessor, hibernate simply sets null values for them. Make sure to use a different query if you need
@@ -47,11 +47,17 @@ public interface TeamScoreRepository extends JpaRepository<TeamScore, Long> {
     Optional<TeamScore> findTeamScoreByExerciseAndUserLazy(@Param("exercise") Exercise exercise, @Param("user") User user);
 
     @Query("""
-            SELECT ts.team, SUM(ts.lastRatedPoints)
+            SELECT ts.exercise.id, ts.team.id, ts.lastPoints, ts.lastRatedPoints
             FROM TeamScore ts
             WHERE ts.exercise IN :exercises
-            GROUP BY ts.team
             """)
-    List<Object[]> getAchievedPointsOfTeams(@Param("exercises") Set<Exercise> exercises);
+    List<Object[]> getPointsOfTeams(@Param("exercises") Set<Exercise> exercises);
+
+    @Query("""
+            SELECT team.id, student.id
+            FROM Team team JOIN team.students student
+            WHERE team.exercise IN :exercises
+            """)
+    List<Object[]> getStudentIdsOfTeams(@Param("exercises") Set<Exercise> exercises);
 
 }
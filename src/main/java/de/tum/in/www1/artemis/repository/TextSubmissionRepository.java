@@ -4,6 +4,7 @@ import static org.springframework.data.jpa.repository.EntityGraph.EntityGraphTyp
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -49,6 +50,17 @@ public interface TextSubmissionRepository extends JpaRepository<TextSubmission,
     @EntityGraph(type = LOAD, attributePaths = { "blocks", "blocks.cluster", "results", "participation", "participation.submissions" })
     List<TextSubmission> findByParticipation_ExerciseIdAndResultsIsNullAndSubmittedIsTrue(Long exerciseId);
 
+    /**
+     * Gets the ids of all open (without a result) TextSubmissions which are submitted
+     * @param exerciseId the Id of the exercise
+     * @return Set of Text Submission ids
+     */
+    @Query("select s.id from TextSubmission s where s.participation.exercise.id = :#{#exerciseId} and s.submitted = true and s.results is empty")
+    Set<Long> findIdsOfOpenSubmissionsByExerciseId(@Param("exerciseId") Long exerciseId);
+
+    @EntityGraph(type = LOAD, attributePaths = { "blocks", "results", "participation", "participation.submissions" })
+    Optional<TextSubmission> findWithEagerBlocksResultsAndParticipationById(Long submissionId);
+
     @Query("select distinct s from TextSubmission s left join fetch s.results r left join fetch r.assessor left join fetch s.blocks where r.id = :#{#resultId}")
     Optional<TextSubmission> findByResultIdWithAssessorAndBlocks(@Param("resultId") Long resultId);
 
@@ -114,6 +114,19 @@ public interface UserRepository extends JpaRepository<User, Long> {
             """)
     List<User> findAllByLoginsInGroup(@Param("groupName") String groupName, @Param("logins") Set<String> logins);
 
+    /**
+     * Gets users by their login.
+     *
+     * @param logins Logins of users
+     * @return found users with one of the given logins
+     */
+    @Query("""
+            select user
+            from User user
+            where user.login in :#{#logins}
+            """)
+    List<User> findAllByLogins(@Param("logins") Set<String> logins);
+
     /**
      * Searches for users by their login or full name.
      *
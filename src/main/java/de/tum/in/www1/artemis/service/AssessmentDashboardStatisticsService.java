@@ -0,0 +1,292 @@
+package de.tum.in.www1.artemis.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.tum.in.www1.artemis.domain.Exercise;
+import de.tum.in.www1.artemis.domain.ProgrammingExercise;
+import de.tum.in.www1.artemis.domain.enumeration.ComplaintType;
+import de.tum.in.www1.artemis.domain.participation.Participation;
+import de.tum.in.www1.artemis.repository.*;
+import de.tum.in.www1.artemis.service.util.TimeLogUtil;
+import de.tum.in.www1.artemis.web.rest.dto.DueDateStat;
+
+/**
+ * Calculates the statistics of the exercises shown on the assessment dashboard (number of submissions, assessments per correction round and complaints).
+ * <p>
+ * The statistics of all exercises of a course or exam are calculated together with a few queries that are grouped by exercise, instead of several queries per exercise.
+ * They are cached for <code>artemis.assessment-dashboard.statistics-max-age-seconds</code>, so that tutors opening the dashboard at the same time do not calculate
+ * them again. The statistics of an exercise are invalidated when a submission, result, complaint or complaint response of the exercise is saved on this instance and the
+ * transaction has been committed, the cached statistics of other instances only become outdated for the short max age.
+ */
+@Service
+public class AssessmentDashboardStatisticsService {
+
+    private final Logger log = LoggerFactory.getLogger(AssessmentDashboardStatisticsService.class);
+
+    private final ProgrammingExerciseRepository programmingExerciseRepository;
+
+    private final SubmissionRepository submissionRepository;
+
+    private final ResultRepository resultRepository;
+
+    private final ComplaintRepository complaintRepository;
+
+    private final ComplaintResponseRepository complaintResponseRepository;
+
+    private final ParticipationRepository participationRepository;
+
+    /**
+     * The cached statistics by exercise id. Invalidated exercises keep an entry without statistics, so that statistics that were calculated before the invalidation are
+     * not cached afterwards.
+     */
+    private final Map<Long, CachedStatistics> cachedStatistics = new ConcurrentHashMap<>();
+
+    @Value("${artemis.assessment-dashboard.statistics-max-age-seconds:30}")
+    private long statisticsMaxAgeInSeconds;
+
+    public AssessmentDashboardStatisticsService(ProgrammingExerciseRepository programmingExerciseRepository, SubmissionRepository submissionRepository,
+            ResultRepository resultRepository, ComplaintRepository complaintRepository, ComplaintResponseRepository complaintResponseRepository,
+            ParticipationRepository participationRepository) {
+        this.programmingExerciseRepository = programmingExerciseRepository;
+        this.submissionRepository = submissionRepository;
+        this.resultRepository = resultRepository;
+        this.complaintRepository = complaintRepository;
+        this.complaintResponseRepository = complaintResponseRepository;
+        this.participationRepository = participationRepository;
+    }
+
+    /**
+     * Get the statistics of the given exercises, either from the cache or calculated with grouped queries
+     *
+     * @param exercises exercises of a course or of an exam
+     * @param examMode  flag should be set for exam exercises, test runs are ignored then
+     * @return the statistics by exercise id
+     */
+    public Map<Long, ExerciseStatistics> getStatistics(Set<Exercise> exercises, boolean examMode) {
+        long now = System.nanoTime();
+        long maxAge = TimeUnit.SECONDS.toNanos(statisticsMaxAgeInSeconds);
+        cachedStatistics.values().removeIf(cached -> now - cached.since > maxAge);
+
+        Map<Long, ExerciseStatistics> statistics = new HashMap<>();
+        Set<Exercise> exercisesToCalculate = new HashSet<>();
+        for (Exercise exercise : exercises) {
+            CachedStatistics cached = cachedStatistics.get(exercise.getId());
+            if (cached != null && cached.statistics != null && cached.statistics.examMode == examMode
+                    && cached.statistics.numberOfAssessmentsOfCorrectionRounds.length == numberOfCorrectionRounds(exercise, examMode)) {
+                statistics.put(exercise.getId(), cached.statistics);
+            }
+            else {
+                exercisesToCalculate.add(exercise);
+            }
+        }
+        if (!exercisesToCalculate.isEmpty()) {
+            Map<Long, ExerciseStatistics> calculatedStatistics = calculateStatistics(exercisesToCalculate, examMode);
+            calculatedStatistics.forEach((exerciseId, exerciseStatistics) -> cachedStatistics.merge(exerciseId, new CachedStatistics(now, exerciseStatistics),
+                    // statistics that were invalidated while they were calculated must not be cached
+                    (existing, calculated) -> existing.since > calculated.since ? existing : calculated));
+            statistics.putAll(calculatedStatistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Invalidates the cached statistics of the exercise of the given participation, e.g. because a submission or result of the participation has been saved.
+     * If the participation is saved in a transaction, the statistics are only invalidated when the transaction has been committed, so that they are not calculated
+     * again before the changes are visible.
+     *
+     * @param participation the participation of the saved submission or result, can be an uninitialized proxy
+     */
+    public void invalidateStatistics(Participation participation) {
+        if (participation == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    invalidateStatisticsNow(participation);
+                }
+            });
+        }
+        else {
+            invalidateStatisticsNow(participation);
+        }
+    }
+
+    private void invalidateStatisticsNow(Participation participation) {
+        try {
+            participationRepository.findExerciseIdOfParticipation(participation)
+                    .ifPresent(exerciseId -> cachedStatistics.put(exerciseId, new CachedStatistics(System.nanoTime(), null)));
+        }
+        catch (Exception ex) {
+            // the transaction has already been committed, the statistics are calculated again after the max age
+            log.warn("Could not invalidate the assessment dashboard statistics of participation {}: {}", participation.getId(), ex.getMessage());
+        }
+    }
+
+    private Map<Long, ExerciseStatistics> calculateStatistics(Set<Exercise> exercises, boolean examMode) {
+        long start = System.nanoTime();
+        Set<Long> programmingExerciseIds = exercises.stream().filter(exercise -> exercise instanceof ProgrammingExercise).map(Exercise::getId).collect(Collectors.toSet());
+        Set<Long> otherExerciseIds = exercises.stream().filter(exercise -> !(exercise instanceof ProgrammingExercise)).map(Exercise::getId).collect(Collectors.toSet());
+        Set<Long> exerciseIds = exercises.stream().map(Exercise::getId).collect(Collectors.toSet());
+
+        Map<Long, ExerciseStatistics> statistics = new HashMap<>();
+        for (Exercise exercise : exercises) {
+            statistics.put(exercise.getId(), new ExerciseStatistics(examMode, numberOfCorrectionRounds(exercise, examMode)));
+        }
+
+        // number of submissions
+        if (!programmingExerciseIds.isEmpty()) {
+            var submissions = examMode ? programmingExerciseRepository.countSubmissionsByExerciseIdsSubmittedIgnoreTestRunSubmissions(programmingExerciseIds)
+                    : programmingExerciseRepository.countSubmissionsByExerciseIdsSubmitted(programmingExerciseIds);
+            forEachCount(submissions, (exerciseId, count) -> statistics.get(exerciseId).numberOfSubmissions.setInTime(count));
+        }
+        if (!otherExerciseIds.isEmpty()) {
+            var submissionsInTime = examMode ? submissionRepository.countByExerciseIdsSubmittedBeforeDueDateIgnoreTestRuns(otherExerciseIds)
+                    : submissionRepository.countByExerciseIdsSubmittedBeforeDueDate(otherExerciseIds);
+            forEachCount(submissionsInTime, (exerciseId, count) -> statistics.get(exerciseId).numberOfSubmissions.setInTime(count));
+            if (!examMode) {
+                forEachCount(submissionRepository.countByExerciseIdsSubmittedAfterDueDate(otherExerciseIds),
+                        (exerciseId, count) -> statistics.get(exerciseId).numberOfSubmissions.setLate(count));
+            }
+        }
+        log.debug("StatsTimeLog: number of submitted submissions done in {} for {} exercises", TimeLogUtil.formatDurationFrom(start), exercises.size());
+
+        // number of assessments
+        if (examMode) {
+            // [0] -> exercise id, [1] -> number of manual assessments of one participation, i.e. the number of finished correction rounds of the participation
+            for (Object[] row : resultRepository.countNumberOfFinishedAssessmentsByExerciseIdsIgnoreTestRuns(exerciseIds)) {
+                DueDateStat[] correctionRounds = statistics.get((Long) row[0]).numberOfAssessmentsOfCorrectionRounds;
+                long finishedCorrectionRounds = (Long) row[1];
+                for (int correctionRound = 0; correctionRound < correctionRounds.length && correctionRound < finishedCorrectionRounds; correctionRound++) {
+                    correctionRounds[correctionRound].setInTime(correctionRounds[correctionRound].getInTime() + 1);
+                }
+            }
+        }
+        else {
+            // no examMode here, so correction rounds defaults to 1 and is the same as the total number of assessments
+            if (!programmingExerciseIds.isEmpty()) {
+                forEachCount(programmingExerciseRepository.countAssessmentsByExerciseIdsSubmitted(programmingExerciseIds),
+                        (exerciseId, count) -> statistics.get(exerciseId).numberOfAssessmentsOfCorrectionRounds[0].setInTime(count));
+            }
+            if (!otherExerciseIds.isEmpty()) {
+                forEachCount(resultRepository.countNumberOfFinishedAssessmentsForExercises(otherExerciseIds),
+                        (exerciseId, count) -> statistics.get(exerciseId).numberOfAssessmentsOfCorrectionRounds[0].setInTime(count));
+            }
+        }
+        log.debug("StatsTimeLog: number of assessments per correction round done in {} for {} exercises", TimeLogUtil.formatDurationFrom(start), exercises.size());
+
+        // number of complaints, in exams there are no more feedback requests
+        // [0] -> exercise id, [1] -> complaint type, [2] -> number of complaints / complaint responses
+        var complaints = examMode ? complaintRepository.countByExerciseIdsGroupedByComplaintTypeIgnoreTestRuns(exerciseIds)
+                : complaintRepository.countByExerciseIdsGroupedByComplaintType(exerciseIds);
+        for (Object[] row : complaints) {
+            ExerciseStatistics exerciseStatistics = statistics.get((Long) row[0]);
+            if (row[1] == ComplaintType.COMPLAINT) {
+                exerciseStatistics.numberOfComplaints = (Long) row[2];
+            }
+            else if (row[1] == ComplaintType.MORE_FEEDBACK && !examMode) {
+                exerciseStatistics.numberOfMoreFeedbackRequests = (Long) row[2];
+            }
+        }
+        var complaintResponses = examMode ? complaintResponseRepository.countSubmittedByExerciseIdsGroupedByComplaintTypeIgnoreTestRuns(exerciseIds)
+                : complaintResponseRepository.countSubmittedByExerciseIdsGroupedByComplaintType(exerciseIds);
+        for (Object[] row : complaintResponses) {
+            ExerciseStatistics exerciseStatistics = statistics.get((Long) row[0]);
+            if (row[1] == ComplaintType.COMPLAINT) {
+                exerciseStatistics.numberOfComplaintResponses = (Long) row[2];
+            }
+            else if (row[1] == ComplaintType.MORE_FEEDBACK && !examMode) {
+                exerciseStatistics.numberOfMoreFeedbackComplaintResponses = (Long) row[2];
+            }
+        }
+        log.debug("StatsTimeLog: number of complaints done in {} for {} exercises", TimeLogUtil.formatDurationFrom(start), exercises.size());
+        return statistics;
+    }
+
+    /**
+     * Calls the consumer for every row of a query that counts per exercise
+     *
+     * @param rows          [0] -> exercise id, [1] -> count
+     * @param countConsumer consumer of the exercise id and the count
+     */
+    private static void forEachCount(List<Object[]> rows, BiConsumer<Long, Long> countConsumer) {
+        for (Object[] row : rows) {
+            countConsumer.accept((Long) row[0], (Long) row[1]);
+        }
+    }
+
+    private static int numberOfCorrectionRounds(Exercise exercise, boolean examMode) {
+        return examMode ? exercise.getExerciseGroup().getExam().getNumberOfCorrectionRoundsInExam() : 1;
+    }
+
+    private static final class CachedStatistics {
+
+        /**
+         * When the calculation of the statistics was started or when the statistics were invalidated
+         */
+        private final long since;
+
+        private final ExerciseStatistics statistics;
+
+        private CachedStatistics(long since, ExerciseStatistics statistics) {
+            this.since = since;
+            this.statistics = statistics;
+        }
+    }
+
+    /**
+     * The statistics of one exercise on the assessment dashboard. The same instance is shared by all requests as long as it is cached, so it must not be modified.
+     */
+    public static final class ExerciseStatistics {
+
+        private final boolean examMode;
+
+        private final DueDateStat numberOfSubmissions = new DueDateStat(0L, 0L);
+
+        private final DueDateStat[] numberOfAssessmentsOfCorrectionRounds;
+
+        private long numberOfComplaints;
+
+        private long numberOfComplaintResponses;
+
+        private long numberOfMoreFeedbackRequests;
+
+        private long numberOfMoreFeedbackComplaintResponses;
+
+        private ExerciseStatistics(boolean examMode, int numberOfCorrectionRounds) {
+            this.examMode = examMode;
+            this.numberOfAssessmentsOfCorrectionRounds = new DueDateStat[numberOfCorrectionRounds];
+            for (int correctionRound = 0; correctionRound < numberOfCorrectionRounds; correctionRound++) {
+                numberOfAssessmentsOfCorrectionRounds[correctionRound] = new DueDateStat(0L, 0L);
+            }
+        }
+
+        /**
+         * Sets the statistics on the given exercise, so that they are sent to the client together with the exercise
+         *
+         * @param exercise the exercise these statistics belong to
+         */
+        public void applyTo(Exercise exercise) {
+            exercise.setNumberOfSubmissions(numberOfSubmissions);
+            exercise.setNumberOfAssessmentsOfCorrectionRounds(numberOfAssessmentsOfCorrectionRounds);
+            exercise.setTotalNumberOfAssessments(numberOfAssessmentsOfCorrectionRounds[0]);
+            exercise.setNumberOfOpenComplaints(numberOfComplaints - numberOfComplaintResponses);
+            exercise.setNumberOfComplaints(numberOfComplaints);
+            exercise.setNumberOfOpenMoreFeedbackRequests(numberOfMoreFeedbackRequests - numberOfMoreFeedbackComplaintResponses);
+            exercise.setNumberOfMoreFeedbackRequests(numberOfMoreFeedbackRequests);
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package de.tum.in.www1.artemis.service;
 
-import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 
 import javax.validation.constraints.NotNull;
 
@@ -38,6 +35,7 @@ public class AutomaticTextFeedbackService {
      * For each TextBlock of the submission, this method finds already existing Feedback elements in the same cluster and chooses the one with the minimum distance.
      * Otherwise, an empty Feedback Element is created for simplicity.
      * Feedbacks are stored inline with the provided Result object.
+     * The blocks are processed per cluster: the existing Feedback of all clusters is loaded with one query and the distances are read from the distance matrix.
      *
      * @param result Result for the Submission
      */
@@ -47,37 +45,73 @@ public class AutomaticTextFeedbackService {
         final var blocks = textBlockRepository.findAllWithEagerClusterBySubmissionId(textSubmission.getId());
         textSubmission.setBlocks(blocks);
 
-        final List<Feedback> suggestedFeedback = blocks.stream().map(block -> {
-            final TextCluster cluster = block.getCluster();
-
-            // if TextBlock is part of a cluster, we try to find an existing Feedback Element
-            if (cluster != null) {
-                // Find all Feedbacks for other Blocks in Cluster.
-                final List<TextBlock> allBlocksInCluster = cluster.getBlocks().parallelStream().filter(elem -> !elem.equals(block)).collect(toList());
-                final Map<String, Feedback> feedbackForTextExerciseInCluster = feedbackService.getFeedbackForTextExerciseInCluster(cluster);
-
-                if (feedbackForTextExerciseInCluster.size() != 0) {
-                    final Optional<TextBlock> mostSimilarBlockInClusterWithFeedback = allBlocksInCluster.parallelStream()
-
-                            // Filter all other blocks in the cluster for those with Feedback
-                            .filter(element -> feedbackForTextExerciseInCluster.containsKey(element.getId()))
-
-                            // Find the closest block
-                            .min(comparing(element -> cluster.distanceBetweenBlocks(block, element)));
+        // if TextBlock is part of a cluster, we try to find an existing Feedback Element
+        final Map<TextCluster, List<TextBlock>> blocksByCluster = blocks.stream().filter(block -> block.getCluster() != null)
+                .collect(groupingBy(TextBlock::getCluster, IdentityHashMap::new, toList()));
+        if (blocksByCluster.isEmpty()) {
+            result.setFeedbacks(new ArrayList<>());
+            return;
+        }
+        final TextExercise exercise = blocksByCluster.keySet().iterator().next().getExercise();
+        final Map<String, Feedback> feedbackForTextExerciseInClusters = feedbackService.getFeedbackForTextExerciseInClusters(exercise, blocksByCluster.keySet());
+
+        final Map<String, Feedback> suggestedFeedbackByBlockId = new HashMap<>();
+        if (!feedbackForTextExerciseInClusters.isEmpty()) {
+            blocksByCluster.forEach((cluster, blocksInCluster) -> suggestFeedbackInCluster(cluster, blocksInCluster, feedbackForTextExerciseInClusters, suggestedFeedbackByBlockId));
+        }
+
+        final List<Feedback> suggestedFeedback = blocks.stream().map(block -> suggestedFeedbackByBlockId.get(block.getId())).filter(Objects::nonNull).collect(toList());
+        result.setFeedbacks(suggestedFeedback);
+    }
 
-                    if (mostSimilarBlockInClusterWithFeedback.isPresent()
-                            && cluster.distanceBetweenBlocks(block, mostSimilarBlockInClusterWithFeedback.get()) < DISTANCE_THRESHOLD) {
-                        final Feedback similarFeedback = feedbackForTextExerciseInCluster.get(mostSimilarBlockInClusterWithFeedback.get().getId());
-                        return new Feedback().reference(block.getId()).credits(similarFeedback.getCredits()).detailText(similarFeedback.getDetailText())
-                                .type(FeedbackType.AUTOMATIC);
-                    }
+    /**
+     * Finds the closest other block with Feedback for each of the given blocks of a cluster and suggests its Feedback if it is close enough.
+     *
+     * @param cluster                    the cluster of the blocks
+     * @param blocksInCluster            the blocks of the submission in the cluster
+     * @param feedbackForTextExercise    the existing Feedback by the id of the block it references
+     * @param suggestedFeedbackByBlockId the map the suggested Feedback is added to by the id of the block it references
+     */
+    private void suggestFeedbackInCluster(TextCluster cluster, List<TextBlock> blocksInCluster, Map<String, Feedback> feedbackForTextExercise,
+            Map<String, Feedback> suggestedFeedbackByBlockId) {
+        final List<TextBlock> allBlocksInCluster = cluster.getBlocks();
+
+        // Filter all blocks in the cluster for those with Feedback
+        final List<Integer> indicesWithFeedback = new ArrayList<>();
+        for (int index = 0; index < allBlocksInCluster.size(); index++) {
+            if (feedbackForTextExercise.containsKey(allBlocksInCluster.get(index).getId())) {
+                indicesWithFeedback.add(index);
+            }
+        }
+        if (indicesWithFeedback.isEmpty()) {
+            return;
+        }
+
+        for (TextBlock block : blocksInCluster) {
+            final int blockIndex = allBlocksInCluster.indexOf(block);
+            if (blockIndex == -1) {
+                continue;
+            }
+            // Find the closest other block by reading the row of the block in the distance matrix
+            int closestIndex = -1;
+            double closestDistance = Double.MAX_VALUE;
+            for (int index : indicesWithFeedback) {
+                if (index == blockIndex) {
+                    continue;
+                }
+                double distance = cluster.getDistance(blockIndex, index);
+                if (distance < closestDistance) {
+                    closestIndex = index;
+                    closestDistance = distance;
                 }
             }
 
-            return null;
-        }).filter(Objects::nonNull).collect(toList());
-
-        result.setFeedbacks(suggestedFeedback);
+            if (closestIndex != -1 && closestDistance < DISTANCE_THRESHOLD) {
+                final Feedback similarFeedback = feedbackForTextExercise.get(allBlocksInCluster.get(closestIndex).getId());
+                suggestedFeedbackByBlockId.put(block.getId(), new Feedback().reference(block.getId()).credits(similarFeedback.getCredits())
+                        .detailText(similarFeedback.getDetailText()).type(FeedbackType.AUTOMATIC));
+            }
+        }
     }
 
 }
@@ -6,8 +6,11 @@ import static java.util.stream.Collectors.toMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -51,16 +54,20 @@ public class FeedbackService {
     }
 
     /**
-     * Find all existing Feedback Elements referencing a text block part of a TextCluster.
+     * Find all existing Feedback Elements referencing a text block part of one of the given TextClusters with one query.
+     * If several Feedback Elements reference the same text block, e.g. from several correction rounds, the latest one is used.
      *
-     * @param cluster TextCluster requesting existing Feedbacks for.
+     * @param exercise the TextExercise all clusters belong to
+     * @param clusters TextClusters requesting existing Feedbacks for.
      * @return Map<TextBlockId, Feedback>
      */
-    public Map<String, Feedback> getFeedbackForTextExerciseInCluster(TextCluster cluster) {
-        final List<String> references = cluster.getBlocks().stream().map(TextBlock::getId).collect(toList());
-        final TextExercise exercise = cluster.getExercise();
-        return feedbackRepository.findByReferenceInAndResult_Submission_Participation_Exercise(references, exercise).parallelStream()
-                .collect(toMap(Feedback::getReference, feedback -> feedback));
+    public Map<String, Feedback> getFeedbackForTextExerciseInClusters(TextExercise exercise, Collection<TextCluster> clusters) {
+        final List<String> references = clusters.stream().flatMap(cluster -> cluster.getBlocks().stream()).map(TextBlock::getId).collect(toList());
+        if (references.isEmpty()) {
+            return Map.of();
+        }
+        return feedbackRepository.findByReferenceInAndResult_Submission_Participation_Exercise(references, exercise).stream()
+                .collect(toMap(Feedback::getReference, feedback -> feedback, BinaryOperator.maxBy(Comparator.comparing(Feedback::getId))));
     }
 
     /**
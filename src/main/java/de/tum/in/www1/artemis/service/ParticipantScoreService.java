@@ -2,18 +2,21 @@ package de.tum.in.www1.artemis.service;
 
 import static de.tum.in.www1.artemis.service.util.RoundingUtil.round;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import de.tum.in.www1.artemis.domain.Course;
 import de.tum.in.www1.artemis.domain.Exercise;
-import de.tum.in.www1.artemis.domain.Team;
 import de.tum.in.www1.artemis.domain.User;
 import de.tum.in.www1.artemis.domain.enumeration.ExerciseMode;
 import de.tum.in.www1.artemis.domain.enumeration.IncludedInOverallScore;
@@ -23,6 +26,8 @@ import de.tum.in.www1.artemis.repository.ParticipantScoreRepository;
 import de.tum.in.www1.artemis.repository.StudentScoreRepository;
 import de.tum.in.www1.artemis.repository.TeamScoreRepository;
 import de.tum.in.www1.artemis.repository.UserRepository;
+import de.tum.in.www1.artemis.service.ScoreAggregateCache.CalculatedScores;
+import de.tum.in.www1.artemis.service.ScoreAggregateCache.ScoreAggregate;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreAverageDTO;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreDTO;
 import de.tum.in.www1.artemis.web.rest.dto.ScoreDTO;
@@ -38,12 +43,15 @@ public class ParticipantScoreService {
 
     private final ParticipantScoreRepository participantScoreRepository;
 
+    private final ScoreAggregateCache scoreAggregateCache;
+
     public ParticipantScoreService(UserRepository userRepository, StudentScoreRepository studentScoreRepository, TeamScoreRepository teamScoreRepository,
-            ParticipantScoreRepository participantScoreRepository) {
+            ParticipantScoreRepository participantScoreRepository, ScoreAggregateCache scoreAggregateCache) {
         this.userRepository = userRepository;
         this.studentScoreRepository = studentScoreRepository;
         this.teamScoreRepository = teamScoreRepository;
         this.participantScoreRepository = participantScoreRepository;
+        this.scoreAggregateCache = scoreAggregateCache;
     }
 
     /**
@@ -56,9 +64,9 @@ public class ParticipantScoreService {
      * has been battle tested enough.
      *
      * @param exam the exam with registered students, exercise groups and exercises for which to calculate the scores
-     * @return list of scores for every registered student
+     * @return scores for every registered student together with their ETag
      */
-    public List<ScoreDTO> calculateExamScores(Exam exam) {
+    public CalculatedScores calculateExamScores(Exam exam) {
         if (exam == null || exam.getExerciseGroups() == null) {
             throw new IllegalArgumentException();
         }
@@ -67,7 +75,8 @@ public class ParticipantScoreService {
         Set<Exercise> includedExercises = exercisesOfExam.stream().filter(exercise -> !exercise.getIncludedInOverallScore().equals(IncludedInOverallScore.NOT_INCLUDED))
                 .collect(Collectors.toSet());
 
-        return calculateScores(includedExercises, exam.getRegisteredUsers(), exam.getMaxPoints().doubleValue());
+        ScoreAggregate aggregate = scoreAggregateCache.getAggregate("exam-" + exam.getId(), exercisesOfExam);
+        return calculateScores(aggregate, includedExercises, exam.getRegisteredUsers(), exam.getMaxPoints().doubleValue());
     }
 
     /**
@@ -80,9 +89,9 @@ public class ParticipantScoreService {
      * has been battle tested enough.
      *
      * @param course the course with exercises for which to calculate the course scores
-     * @return list of course scores for every member of the course
+     * @return course scores for every member of the course together with their ETag
      */
-    public List<ScoreDTO> calculateCourseScores(Course course) {
+    public CalculatedScores calculateCourseScores(Course course) {
         if (course == null || course.getExercises() == null) {
             throw new IllegalArgumentException();
         }
@@ -93,8 +102,11 @@ public class ParticipantScoreService {
         usersOfCourse.addAll(userRepository.findAllInGroupWithAuthorities(course.getTeachingAssistantGroupName()));
         usersOfCourse.addAll(userRepository.findAllInGroupWithAuthorities(course.getInstructorGroupName()));
 
+        // the aggregate contains all course exercises, so that it can be reused when exercises are released
+        Set<Exercise> courseExercises = course.getExercises().stream().filter(Exercise::isCourseExercise).collect(Collectors.toSet());
+
         // we only consider released exercises that are not optional
-        Set<Exercise> exercisesToConsider = course.getExercises().stream().filter(Exercise::isCourseExercise)
+        Set<Exercise> exercisesToConsider = courseExercises.stream()
                 .filter(exercise -> exercise.getReleaseDate() == null || exercise.getReleaseDate().isBefore(ZonedDateTime.now()))
                 .filter(exercise -> exercise.getIncludedInOverallScore() != IncludedInOverallScore.NOT_INCLUDED).collect(Collectors.toSet());
 
@@ -102,45 +114,34 @@ public class ParticipantScoreService {
         Double regularAchievablePoints = exercisesToConsider.stream().filter(exercise -> exercise.getIncludedInOverallScore() == IncludedInOverallScore.INCLUDED_COMPLETELY)
                 .map(Exercise::getMaxPoints).reduce(0.0, Double::sum);
 
-        return calculateScores(exercisesToConsider, usersOfCourse, regularAchievablePoints);
+        ScoreAggregate aggregate = scoreAggregateCache.getAggregate("course-" + course.getId(), courseExercises);
+        return calculateScores(aggregate, exercisesToConsider, usersOfCourse, regularAchievablePoints);
     }
 
-    private List<ScoreDTO> calculateScores(Set<Exercise> exercises, Set<User> users, Double scoreCalculationDenominator) {
+    private CalculatedScores calculateScores(ScoreAggregate aggregate, Set<Exercise> exercises, Set<User> users, Double scoreCalculationDenominator) {
         // 0.0 means we can not reasonably calculate the achieved points / scores
         if (scoreCalculationDenominator.equals(0.0)) {
-            return List.of();
+            return new CalculatedScores(null, null, List.of());
         }
 
-        Set<Exercise> individualExercises = exercises.stream().filter(exercise -> !exercise.isTeamMode()).collect(Collectors.toSet());
-        Set<Exercise> teamExercises = exercises.stream().filter(Exercise::isTeamMode).collect(Collectors.toSet());
+        // the scores only change if the aggregate or one of the inputs of the calculation changes
+        String cacheKey = aggregate.getVersion() + "-" + Long.toHexString(fingerprint(exercises, users, scoreCalculationDenominator));
+        Optional<CalculatedScores> cachedScores = aggregate.getCalculatedScores(cacheKey);
+        if (cachedScores.isPresent()) {
+            return cachedScores.get();
+        }
 
         // For every student we want to calculate the score
         Map<Long, ScoreDTO> userIdToScores = users.stream().collect(Collectors.toMap(User::getId, ScoreDTO::new));
 
-        // individual exercises
-        // [0] -> User
-        // [1] -> sum of achieved points in exercises
-        List<Object[]> studentAndAchievedPoints = studentScoreRepository.getAchievedPointsOfStudents(individualExercises);
-        for (Object[] rawData : studentAndAchievedPoints) {
-            User user = (User) rawData[0];
-            double achievedPoints = rawData[1] != null ? ((Number) rawData[1]).doubleValue() : 0.0;
-            if (userIdToScores.containsKey(user.getId())) {
-                userIdToScores.get(user.getId()).pointsAchieved += achievedPoints;
-            }
-        }
-
-        // team exercises
-        // [0] -> Team
-        // [1] -> sum of achieved points in exercises
-        List<Object[]> teamAndAchievedPoints = teamScoreRepository.getAchievedPointsOfTeams(teamExercises);
-        for (Object[] rawData : teamAndAchievedPoints) {
-            Team team = (Team) rawData[0];
-            double achievedPoints = rawData[1] != null ? ((Number) rawData[1]).doubleValue() : 0.0;
-            for (User student : team.getStudents()) {
-                if (userIdToScores.containsKey(student.getId())) {
-                    userIdToScores.get(student.getId()).pointsAchieved += achievedPoints;
+        // the points of team exercises are added to the points of every member of the team
+        for (Exercise exercise : exercises) {
+            aggregate.forEachPoints(exercise, true, (studentId, achievedPoints) -> {
+                ScoreDTO scoreDTO = userIdToScores.get(studentId);
+                if (scoreDTO != null) {
+                    scoreDTO.pointsAchieved += achievedPoints;
                 }
-            }
+            });
         }
 
         // calculating achieved score
@@ -150,8 +151,41 @@ public class ParticipantScoreService {
             scoreDTO.regularPointsAchievable = scoreCalculationDenominator;
         }
 
-        return new ArrayList<>(userIdToScores.values());
+        List<ScoreDTO> scores = List.copyOf(userIdToScores.values());
+        CalculatedScores calculatedScores = new CalculatedScores(cacheKey, calculateETag(scores), scores);
+        aggregate.setCalculatedScores(calculatedScores);
+        return calculatedScores;
+    }
+
+    /**
+     * Calculates the ETag of the scores from their content, so that every instance of the cluster returns the same ETag for the same scores
+     */
+    private static String calculateETag(List<ScoreDTO> scores) {
+        MessageDigest digest = DigestUtils.getSha1Digest();
+        scores.stream().sorted(Comparator.comparing(scoreDTO -> scoreDTO.studentId)).forEach(scoreDTO -> {
+            String score = scoreDTO.studentId + ":" + scoreDTO.studentLogin + ":" + scoreDTO.pointsAchieved + ":" + scoreDTO.scoreAchieved + ":" + scoreDTO.regularPointsAchievable
+                    + ";";
+            digest.update(score.getBytes(StandardCharsets.UTF_8));
+        });
+        return "\"" + Hex.encodeHexString(digest.digest()) + "\"";
+    }
 
+    /**
+     * Calculates a fingerprint of the inputs of the score calculation that does not depend on the order of the exercises and users
+     */
+    private static long fingerprint(Set<Exercise> exercises, Set<User> users, Double scoreCalculationDenominator) {
+        long fingerprint = Double.doubleToLongBits(scoreCalculationDenominator);
+        List<Exercise> sortedExercises = exercises.stream().sorted(Comparator.comparing(Exercise::getId)).collect(Collectors.toList());
+        for (Exercise exercise : sortedExercises) {
+            fingerprint = 31 * fingerprint + exercise.getId();
+            fingerprint = 31 * fingerprint + Objects.hashCode(exercise.getMaxPoints());
+            fingerprint = 31 * fingerprint + Objects.hashCode(exercise.getIncludedInOverallScore());
+        }
+        long[] userIds = users.stream().mapToLong(User::getId).sorted().toArray();
+        for (long userId : userIds) {
+            fingerprint = 31 * fingerprint + userId;
+        }
+        return fingerprint;
     }
 
     /**
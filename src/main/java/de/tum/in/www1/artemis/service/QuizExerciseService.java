@@ -197,15 +197,17 @@ public class QuizExerciseService {
                 }
             }
             quizSubmission.getSubmittedAnswers().removeAll(submittedAnswersToDelete);
+            submissions.add(quizSubmission);
+        }
+
+        // recalculate existing scores, question by question for all submissions at once
+        quizExercise.calculateAndUpdateScores(submissions);
 
-            // recalculate existing score
-            quizSubmission.calculateAndUpdateScores(quizExercise);
+        for (Result result : results) {
             // update Successful-Flag in Result
             StudentParticipation studentParticipation = (StudentParticipation) result.getParticipation();
             studentParticipation.setExercise(quizExercise);
-            result.evaluateSubmission();
-
-            submissions.add(quizSubmission);
+            result.evaluateScoredSubmission();
         }
         // save the updated submissions and results
         quizSubmissionRepository.saveAll(submissions);
@@ -0,0 +1,329 @@
+package de.tum.in.www1.artemis.service;
+
+import java.util.*;
+
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.domain.quiz.*;
+
+/**
+ * The statistic counters of one quiz exercise as primitive arrays.
+ * <p>
+ * When compiled, every {@link QuizStatistic} and {@link QuizStatisticCounter} of the quiz gets a fixed slot, and the answer options, drop locations and short answer
+ * solutions are indexed, so that adding or removing a result only touches the slots it affects instead of walking all counter entities of the quiz.
+ * The arrays hold deltas: they can be {@linkplain #applyTo() added to the statistic entities} in memory and are written to the database as increments.
+ * <p>
+ * The counting rules are the same as in {@link QuizPointStatistic#addResult(Double, Boolean)} and {@link QuizQuestionStatistic#addResult(SubmittedAnswer, boolean)}.
+ */
+final class QuizStatisticCounters {
+
+    private final QuizExercise quizExercise;
+
+    private final double overallQuizPoints;
+
+    /**
+     * slot 0 is the point statistic, all other slots are question statistics
+     */
+    private final List<QuizStatistic> statistics = new ArrayList<>();
+
+    private final List<QuizStatisticCounter> counters = new ArrayList<>();
+
+    private final Map<Double, List<Integer>> pointCounterSlots = new HashMap<>();
+
+    private final List<QuestionSlots> questions = new ArrayList<>();
+
+    private final int[] participantsRated;
+
+    private final int[] participantsUnrated;
+
+    private final int[] correctRated;
+
+    private final int[] correctUnrated;
+
+    private final int[] counterRated;
+
+    private final int[] counterUnrated;
+
+    private QuizStatisticCounters(QuizExercise quizExercise) {
+        this.quizExercise = quizExercise;
+        this.overallQuizPoints = quizExercise.getOverallQuizPoints();
+
+        QuizPointStatistic quizPointStatistic = quizExercise.getQuizPointStatistic();
+        statistics.add(quizPointStatistic);
+        for (PointCounter pointCounter : quizPointStatistic.getPointCounters()) {
+            pointCounterSlots.computeIfAbsent(pointCounter.getPoints(), points -> new ArrayList<>()).add(addCounter(pointCounter));
+        }
+
+        for (QuizQuestion quizQuestion : quizExercise.getQuizQuestions()) {
+            QuizQuestionStatistic questionStatistic = quizQuestion.getQuizQuestionStatistic();
+            if (questionStatistic == null) {
+                continue;
+            }
+            QuestionSlots questionSlots = new QuestionSlots(quizQuestion, statistics.size());
+            statistics.add(questionStatistic);
+            if (questionStatistic instanceof MultipleChoiceQuestionStatistic) {
+                for (AnswerCounter answerCounter : ((MultipleChoiceQuestionStatistic) questionStatistic).getAnswerCounters()) {
+                    if (answerCounter.getAnswer() != null) {
+                        questionSlots.answerOptionSlots.put(answerCounter.getAnswer().getId(), addCounter(answerCounter));
+                    }
+                }
+            }
+            else if (questionStatistic instanceof DragAndDropQuestionStatistic) {
+                for (DropLocationCounter dropLocationCounter : ((DragAndDropQuestionStatistic) questionStatistic).getDropLocationCounters()) {
+                    questionSlots.dropLocations.add(dropLocationCounter.getDropLocation());
+                    questionSlots.dropLocationSlots.add(addCounter(dropLocationCounter));
+                }
+            }
+            else if (questionStatistic instanceof ShortAnswerQuestionStatistic) {
+                for (ShortAnswerSpotCounter spotCounter : ((ShortAnswerQuestionStatistic) questionStatistic).getShortAnswerSpotCounters()) {
+                    ShortAnswerSpot spot = spotCounter.getSpot();
+                    List<String> solutionTexts = new ArrayList<>();
+                    for (ShortAnswerSolution solution : spot.getQuestion().getCorrectSolutionForSpot(spot)) {
+                        solutionTexts.add(solution.getText());
+                    }
+                    questionSlots.spots.add(spot);
+                    questionSlots.spotSolutionTexts.add(solutionTexts);
+                    questionSlots.spotSlots.add(addCounter(spotCounter));
+                }
+            }
+            questions.add(questionSlots);
+        }
+
+        participantsRated = new int[statistics.size()];
+        participantsUnrated = new int[statistics.size()];
+        correctRated = new int[statistics.size()];
+        correctUnrated = new int[statistics.size()];
+        counterRated = new int[counters.size()];
+        counterUnrated = new int[counters.size()];
+    }
+
+    /**
+     * Compiles the slots for the statistics of the given quiz exercise, all deltas are 0 initially.
+     *
+     * @param quizExercise the quiz exercise including questions and statistics
+     * @return the counters for the quiz exercise
+     */
+    static QuizStatisticCounters compile(QuizExercise quizExercise) {
+        return new QuizStatisticCounters(quizExercise);
+    }
+
+    /**
+     * @return the quiz exercise these counters were compiled for
+     */
+    QuizExercise getQuizExercise() {
+        return quizExercise;
+    }
+
+    private int addCounter(QuizStatisticCounter counter) {
+        counters.add(counter);
+        return counters.size() - 1;
+    }
+
+    /**
+     * Adds the result to the counters
+     *
+     * @param result the result including the quiz submission, can be null
+     */
+    void addResult(Result result) {
+        changeBasedOnResult(result, 1);
+    }
+
+    /**
+     * Removes the result from the counters
+     *
+     * @param result the result including the quiz submission, can be null
+     */
+    void removeResult(Result result) {
+        changeBasedOnResult(result, -1);
+    }
+
+    private void changeBasedOnResult(Result result, int change) {
+        if (result == null) {
+            return;
+        }
+        boolean rated = Boolean.TRUE.equals(result.isRated());
+        if (result.getScore() != null) {
+            double points = Math.round(overallQuizPoints * (result.getScore() / 100));
+            changeStatistic(0, rated, change);
+            for (int slot : pointCounterSlots.getOrDefault(points, List.of())) {
+                changeCounter(slot, rated, change);
+            }
+        }
+        QuizSubmission quizSubmission = (QuizSubmission) result.getSubmission();
+        if (quizSubmission == null) {
+            return;
+        }
+        for (QuestionSlots questionSlots : questions) {
+            SubmittedAnswer submittedAnswer = quizSubmission.getSubmittedAnswerForQuestion(questionSlots.quizQuestion);
+            if (submittedAnswer != null) {
+                changeQuestion(questionSlots, submittedAnswer, rated, change);
+            }
+        }
+    }
+
+    private void changeQuestion(QuestionSlots questionSlots, SubmittedAnswer submittedAnswer, boolean rated, int change) {
+        changeStatistic(questionSlots.statisticSlot, rated, change);
+        if (submittedAnswer instanceof MultipleChoiceSubmittedAnswer) {
+            var selectedOptions = ((MultipleChoiceSubmittedAnswer) submittedAnswer).getSelectedOptions();
+            if (selectedOptions != null) {
+                for (AnswerOption selectedOption : selectedOptions) {
+                    Integer slot = questionSlots.answerOptionSlots.get(selectedOption.getId());
+                    if (slot != null) {
+                        changeCounter(slot, rated, change);
+                    }
+                }
+            }
+        }
+        else if (submittedAnswer instanceof DragAndDropSubmittedAnswer) {
+            var dragAndDropSubmittedAnswer = (DragAndDropSubmittedAnswer) submittedAnswer;
+            if (dragAndDropSubmittedAnswer.getMappings() != null) {
+                for (int i = 0; i < questionSlots.dropLocations.size(); i++) {
+                    if (questionSlots.dropLocations.get(i).isDropLocationCorrect(dragAndDropSubmittedAnswer)) {
+                        changeCounter(questionSlots.dropLocationSlots.get(i), rated, change);
+                    }
+                }
+            }
+        }
+        else if (submittedAnswer instanceof ShortAnswerSubmittedAnswer) {
+            var shortAnswerSubmittedAnswer = (ShortAnswerSubmittedAnswer) submittedAnswer;
+            if (shortAnswerSubmittedAnswer.getSubmittedTexts() != null) {
+                for (int i = 0; i < questionSlots.spots.size(); i++) {
+                    ShortAnswerSubmittedText submittedText = shortAnswerSubmittedAnswer.getSubmittedTextForSpot(questionSlots.spots.get(i));
+                    if (submittedText == null || !Boolean.TRUE.equals(submittedText.isIsCorrect())) {
+                        continue;
+                    }
+                    // reconnect to avoid issues
+                    submittedText.setSubmittedAnswer(shortAnswerSubmittedAnswer);
+                    for (String solutionText : questionSlots.spotSolutionTexts.get(i)) {
+                        if (submittedText.isSubmittedTextCorrect(submittedText.getText(), solutionText)) {
+                            changeCounter(questionSlots.spotSlots.get(i), rated, change);
+                        }
+                    }
+                }
+            }
+        }
+        if (questionSlots.quizQuestion.isAnswerCorrect(submittedAnswer)) {
+            if (rated) {
+                correctRated[questionSlots.statisticSlot] += change;
+            }
+            else {
+                correctUnrated[questionSlots.statisticSlot] += change;
+            }
+        }
+    }
+
+    private void changeStatistic(int slot, boolean rated, int change) {
+        if (rated) {
+            participantsRated[slot] += change;
+        }
+        else {
+            participantsUnrated[slot] += change;
+        }
+    }
+
+    private void changeCounter(int slot, boolean rated, int change) {
+        if (rated) {
+            counterRated[slot] += change;
+        }
+        else {
+            counterUnrated[slot] += change;
+        }
+    }
+
+    /**
+     * Adds the deltas to the statistic entities of the quiz exercise (in memory only)
+     */
+    void applyTo() {
+        for (int slot = 0; slot < statistics.size(); slot++) {
+            QuizStatistic statistic = statistics.get(slot);
+            statistic.setParticipantsRated(statistic.getParticipantsRated() + participantsRated[slot]);
+            statistic.setParticipantsUnrated(statistic.getParticipantsUnrated() + participantsUnrated[slot]);
+            if (statistic instanceof QuizQuestionStatistic) {
+                QuizQuestionStatistic questionStatistic = (QuizQuestionStatistic) statistic;
+                questionStatistic.setRatedCorrectCounter(questionStatistic.getRatedCorrectCounter() + correctRated[slot]);
+                questionStatistic.setUnRatedCorrectCounter(questionStatistic.getUnRatedCorrectCounter() + correctUnrated[slot]);
+            }
+        }
+        for (int slot = 0; slot < counters.size(); slot++) {
+            QuizStatisticCounter counter = counters.get(slot);
+            counter.setRatedCounter(counter.getRatedCounter() + counterRated[slot]);
+            counter.setUnRatedCounter(counter.getUnRatedCounter() + counterUnrated[slot]);
+        }
+    }
+
+    /**
+     * Passes all non-zero statistic deltas to the given consumer
+     *
+     * @param consumer receives the statistic and its deltas
+     */
+    void forEachStatisticDelta(StatisticDeltaConsumer consumer) {
+        for (int slot = 0; slot < statistics.size(); slot++) {
+            if (participantsRated[slot] != 0 || participantsUnrated[slot] != 0 || correctRated[slot] != 0 || correctUnrated[slot] != 0) {
+                consumer.accept(statistics.get(slot), participantsRated[slot], participantsUnrated[slot], correctRated[slot], correctUnrated[slot]);
+            }
+        }
+    }
+
+    /**
+     * Passes all non-zero counter deltas to the given consumer
+     *
+     * @param consumer receives the counter and its deltas
+     */
+    void forEachCounterDelta(CounterDeltaConsumer consumer) {
+        for (int slot = 0; slot < counters.size(); slot++) {
+            if (counterRated[slot] != 0 || counterUnrated[slot] != 0) {
+                consumer.accept(counters.get(slot), counterRated[slot], counterUnrated[slot]);
+            }
+        }
+    }
+
+    /**
+     * Resets all deltas to 0
+     */
+    void reset() {
+        Arrays.fill(participantsRated, 0);
+        Arrays.fill(participantsUnrated, 0);
+        Arrays.fill(correctRated, 0);
+        Arrays.fill(correctUnrated, 0);
+        Arrays.fill(counterRated, 0);
+        Arrays.fill(counterUnrated, 0);
+    }
+
+    @FunctionalInterface
+    interface StatisticDeltaConsumer {
+
+        void accept(QuizStatistic statistic, int participantsRated, int participantsUnrated, int correctRated, int correctUnrated);
+    }
+
+    @FunctionalInterface
+    interface CounterDeltaConsumer {
+
+        void accept(QuizStatisticCounter counter, int rated, int unrated);
+    }
+
+    /**
+     * The slots of one question statistic and its counters
+     */
+    private static final class QuestionSlots {
+
+        private final QuizQuestion quizQuestion;
+
+        private final int statisticSlot;
+
+        private final Map<Long, Integer> answerOptionSlots = new HashMap<>();
+
+        private final List<DropLocation> dropLocations = new ArrayList<>();
+
+        private final List<Integer> dropLocationSlots = new ArrayList<>();
+
+        private final List<ShortAnswerSpot> spots = new ArrayList<>();
+
+        private final List<List<String>> spotSolutionTexts = new ArrayList<>();
+
+        private final List<Integer> spotSlots = new ArrayList<>();
+
+        private QuestionSlots(QuizQuestion quizQuestion, int statisticSlot) {
+            this.quizQuestion = quizQuestion;
+            this.statisticSlot = statisticSlot;
+        }
+    }
+}
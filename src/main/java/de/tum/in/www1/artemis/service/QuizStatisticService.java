@@ -1,44 +1,50 @@
 package de.tum.in.www1.artemis.service;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import de.tum.in.www1.artemis.domain.Result;
-import de.tum.in.www1.artemis.domain.participation.Participation;
 import de.tum.in.www1.artemis.domain.quiz.*;
-import de.tum.in.www1.artemis.repository.QuizPointStatisticRepository;
-import de.tum.in.www1.artemis.repository.QuizQuestionStatisticRepository;
-import de.tum.in.www1.artemis.repository.ResultRepository;
-import de.tum.in.www1.artemis.repository.StudentParticipationRepository;
+import de.tum.in.www1.artemis.repository.*;
 
 @Service
 public class QuizStatisticService {
 
     private final Logger log = LoggerFactory.getLogger(QuizStatisticService.class);
 
-    private final StudentParticipationRepository studentParticipationRepository;
-
     private final ResultRepository resultRepository;
 
     private final QuizPointStatisticRepository quizPointStatisticRepository;
 
     private final QuizQuestionStatisticRepository quizQuestionStatisticRepository;
 
+    private final QuizStatisticRepository quizStatisticRepository;
+
+    private final QuizStatisticCounterRepository quizStatisticCounterRepository;
+
     private final SimpMessageSendingOperations messagingTemplate;
 
-    public QuizStatisticService(StudentParticipationRepository studentParticipationRepository, ResultRepository resultRepository, SimpMessageSendingOperations messagingTemplate,
-            QuizPointStatisticRepository quizPointStatisticRepository, QuizQuestionStatisticRepository quizQuestionStatisticRepository) {
-        this.studentParticipationRepository = studentParticipationRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public QuizStatisticService(ResultRepository resultRepository, SimpMessageSendingOperations messagingTemplate, QuizPointStatisticRepository quizPointStatisticRepository,
+            QuizQuestionStatisticRepository quizQuestionStatisticRepository, QuizStatisticRepository quizStatisticRepository,
+            QuizStatisticCounterRepository quizStatisticCounterRepository, PlatformTransactionManager transactionManager) {
         this.resultRepository = resultRepository;
         this.quizPointStatisticRepository = quizPointStatisticRepository;
         this.quizQuestionStatisticRepository = quizQuestionStatisticRepository;
+        this.quizStatisticRepository = quizStatisticRepository;
+        this.quizStatisticCounterRepository = quizStatisticCounterRepository;
         this.messagingTemplate = messagingTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -65,29 +71,23 @@ public class QuizStatisticService {
             }
         }
 
-        // add the Results in every participation of the given quizExercise to the statistics
-        for (Participation participation : studentParticipationRepository.findByExerciseId(quizExercise.getId())) {
-
-            Result latestRatedResult = null;
-            Result latestUnratedResult = null;
-
-            // update all Results of a participation
-            for (Result result : resultRepository.findAllByParticipationIdOrderByCompletionDateDesc(participation.getId())) {
-
-                // find latest rated Result
-                if (Boolean.TRUE.equals(result.isRated()) && (latestRatedResult == null || latestRatedResult.getCompletionDate().isBefore(result.getCompletionDate()))) {
-                    latestRatedResult = result;
-                }
-                // find latest unrated Result
-                if (Boolean.FALSE.equals(result.isRated()) && (latestUnratedResult == null || latestUnratedResult.getCompletionDate().isBefore(result.getCompletionDate()))) {
-                    latestUnratedResult = result;
-                }
+        // find the latest rated and unrated Result of every participation of the given quizExercise with one query
+        Map<Long, Result> latestRatedResults = new HashMap<>();
+        Map<Long, Result> latestUnratedResults = new HashMap<>();
+        for (Result result : resultRepository.findByParticipationExerciseIdOrderByCompletionDateAsc(quizExercise.getId())) {
+            if (result.getParticipation() == null || result.isRated() == null) {
+                continue;
             }
-            // update statistics with latest rated und unrated Result
-            this.addResultToAllStatistics(quizExercise, latestRatedResult);
-            this.addResultToAllStatistics(quizExercise, latestUnratedResult);
+            var latestResults = result.isRated() ? latestRatedResults : latestUnratedResults;
+            latestResults.merge(result.getParticipation().getId(), result, (latestResult, newResult) -> isCompletedBefore(latestResult, newResult) ? newResult : latestResult);
         }
 
+        // add the latest rated and unrated Result of every participation to the statistics (they were reset to 0 before)
+        QuizStatisticCounters counters = QuizStatisticCounters.compile(quizExercise);
+        latestRatedResults.values().forEach(counters::addResult);
+        latestUnratedResults.values().forEach(counters::addResult);
+        counters.applyTo();
+
         // save changed Statistics
         quizPointStatisticRepository.save(quizExercise.getQuizPointStatistic());
         quizPointStatisticRepository.flush();
@@ -99,9 +99,19 @@ public class QuizStatisticService {
         }
     }
 
+    private static boolean isCompletedBefore(Result result, Result otherResult) {
+        if (otherResult.getCompletionDate() == null) {
+            return false;
+        }
+        return result.getCompletionDate() == null || result.getCompletionDate().isBefore(otherResult.getCompletionDate());
+    }
+
     /**
      * 1. check for each result if it's rated -> true: check if there is an old Result -> true: remove the old Result from the statistics 2. add new Result to the
      * quiz-point-statistic and all question-statistics
+     * <p>
+     * The changes of all given results are collected in {@link QuizStatisticCounters}, written to the database in one transaction as increments of the affected counters
+     * (so that concurrent updates cannot overwrite each other) and applied to the statistics of the given quiz, which is then sent to the instructors.
      *
      * @param results the results, which will be added to the statistics
      * @param quiz    the quizExercise with Questions where the results should contain to
@@ -111,23 +121,18 @@ public class QuizStatisticService {
         if (results != null && quiz != null && quiz.getQuizQuestions() != null) {
             log.debug("update statistics with " + results.size() + " new results");
 
+            QuizStatisticCounters counters = QuizStatisticCounters.compile(quiz);
             for (Result result : results) {
                 // check if the result is rated
                 // NOTE: there is never an old Result if the new result is rated
                 if (Boolean.FALSE.equals(result.isRated())) {
-                    removeResultFromAllStatistics(quiz, getPreviousResult(result));
+                    counters.removeResult(getPreviousResult(result));
                 }
-                addResultToAllStatistics(quiz, result);
+                counters.addResult(result);
             }
             // save statistics
-            quizPointStatisticRepository.save(quiz.getQuizPointStatistic());
-            List<QuizQuestionStatistic> quizQuestionStatistics = new ArrayList<>();
-            for (QuizQuestion quizQuestion : quiz.getQuizQuestions()) {
-                if (quizQuestion.getQuizQuestionStatistic() != null) {
-                    quizQuestionStatistics.add(quizQuestion.getQuizQuestionStatistic());
-                }
-            }
-            quizQuestionStatisticRepository.saveAll(quizQuestionStatistics);
+            transactionTemplate.executeWithoutResult(status -> saveStatisticDeltas(counters));
+            counters.applyTo();
             // notify users via websocket about new results for the statistics.
             // filters out solution information
             quiz.filterForStatisticWebsocket();
@@ -135,6 +140,23 @@ public class QuizStatisticService {
         }
     }
 
+    /**
+     * Writes the deltas of the given counters to the database as increments, must be invoked within a transaction
+     *
+     * @param counters the counters including the changes that should be saved
+     */
+    private void saveStatisticDeltas(QuizStatisticCounters counters) {
+        counters.forEachStatisticDelta((statistic, participantsRated, participantsUnrated, correctRated, correctUnrated) -> {
+            if (participantsRated != 0 || participantsUnrated != 0) {
+                quizStatisticRepository.incrementParticipants(statistic.getId(), participantsRated, participantsUnrated);
+            }
+            if (correctRated != 0 || correctUnrated != 0) {
+                quizStatisticRepository.incrementCorrectCounters(statistic.getId(), correctRated, correctUnrated);
+            }
+        });
+        counters.forEachCounterDelta((counter, rated, unrated) -> quizStatisticCounterRepository.incrementCounters(counter.getId(), rated, unrated));
+    }
+
     /**
      * Go through all Results in the Participation and return the latest one before the new Result,
      *
@@ -154,49 +176,4 @@ public class QuizStatisticService {
         }
         return oldResult;
     }
-
-    /**
-     * add Result to all Statistics of the given QuizExercise
-     *
-     * @param quizExercise contains the object of the quiz, where the Results will be added
-     * @param result       the result which will be added (NOTE: add the submission to the result previously (this would improve the performance)
-     */
-    private void addResultToAllStatistics(QuizExercise quizExercise, Result result) {
-
-        // update QuizPointStatistic with the result
-        if (result != null) {
-            // check if result contains a quizSubmission if true -> it's not necessary to fetch it from the database
-            QuizSubmission quizSubmission = (QuizSubmission) result.getSubmission();
-            quizExercise.getQuizPointStatistic().addResult(result.getScore(), result.isRated());
-            for (QuizQuestion quizQuestion : quizExercise.getQuizQuestions()) {
-                // update QuestionStatistics with the result
-                if (quizQuestion.getQuizQuestionStatistic() != null && quizSubmission != null) {
-                    quizQuestion.getQuizQuestionStatistic().addResult(quizSubmission.getSubmittedAnswerForQuestion(quizQuestion), result.isRated());
-                }
-            }
-        }
-    }
-
-    /**
-     * remove Result from all Statistics of the given QuizExercise
-     *
-     * @param quizExercise contains the object of the quiz, where the Results will be removed
-     * @param result       the result which will be removed (NOTE: add the submission to the result previously (this would improve the performance)
-     */
-    private void removeResultFromAllStatistics(QuizExercise quizExercise, Result result) {
-        // update QuizPointStatistic with the result
-        if (result != null) {
-            log.debug("remove result from all statistics " + result);
-            // check if result contains a quizSubmission if true -> a it's not necessary to fetch it from the database
-            QuizSubmission quizSubmission = (QuizSubmission) result.getSubmission();
-            quizExercise.getQuizPointStatistic().removeOldResult(result.getScore(), result.isRated());
-            for (QuizQuestion quizQuestion : quizExercise.getQuizQuestions()) {
-                // update QuestionStatistics with the result
-                if (quizQuestion.getQuizQuestionStatistic() != null) {
-                    quizQuestion.getQuizQuestionStatistic().removeOldResult(quizSubmission.getSubmittedAnswerForQuestion(quizQuestion), result.isRated());
-                }
-            }
-        }
-    }
-
 }
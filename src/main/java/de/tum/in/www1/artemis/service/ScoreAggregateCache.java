@@ -0,0 +1,428 @@
+package de.tum.in.www1.artemis.service;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+
+import de.tum.in.www1.artemis.domain.Exercise;
+import de.tum.in.www1.artemis.domain.scores.ParticipantScore;
+import de.tum.in.www1.artemis.domain.scores.StudentScore;
+import de.tum.in.www1.artemis.domain.scores.TeamScore;
+import de.tum.in.www1.artemis.repository.StudentScoreRepository;
+import de.tum.in.www1.artemis.repository.TeamScoreRepository;
+import de.tum.in.www1.artemis.web.rest.dto.ScoreDTO;
+
+/**
+ * Materialized aggregates of the participant scores of courses and exams, so that the course and exam scores can be calculated without aggregating the participant scores
+ * in the database for every request.
+ * <p>
+ * An aggregate contains the last points and the last rated points of every student and team in every exercise of the course (or exam). It is loaded once and then kept up
+ * to date incrementally: the {@link de.tum.in.www1.artemis.service.listeners.ParticipantScoreListener} reports every change of a participant score, the change is applied to
+ * the aggregates that contain the exercise and distributed to the other instances with a Hazelcast topic. Changes that cannot be applied (e.g. the score of a team that
+ * was created after the aggregate has been loaded) invalidate the aggregate, it is then loaded again with the next request. As team memberships can change without changing
+ * a participant score, aggregates are also loaded again when they are older than <code>artemis.scores.aggregate-max-age-seconds</code>.
+ * <p>
+ * An aggregate is only used once it has been loaded completely. Concurrent requests for the same aggregate wait for the same load, and the changes that arrive while it is
+ * loaded are buffered and applied in order afterwards, so that they are neither lost nor overwritten by the loaded values.
+ */
+@Service
+public class ScoreAggregateCache {
+
+    private static final String HAZELCAST_PARTICIPANT_SCORE_CHANGE_TOPIC = "participant-score-changes";
+
+    private static final int MAX_NUMBER_OF_AGGREGATES = 200;
+
+    private final Logger log = LoggerFactory.getLogger(ScoreAggregateCache.class);
+
+    private final StudentScoreRepository studentScoreRepository;
+
+    private final TeamScoreRepository teamScoreRepository;
+
+    private final ITopic<ParticipantScoreChange> participantScoreChanges;
+
+    /**
+     * The aggregates by course or exam, the least recently used aggregates are evicted
+     */
+    private final Map<String, ScoreAggregate> aggregates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ScoreAggregate> eldest) {
+            return size() > MAX_NUMBER_OF_AGGREGATES;
+        }
+    });
+
+    /**
+     * The aggregates that are being loaded by course or exam, they are published in {@link #aggregates} when they have been loaded completely
+     */
+    private final Map<String, LoadingAggregate> loadingAggregates = new ConcurrentHashMap<>();
+
+    @Value("${artemis.scores.aggregate-max-age-seconds:600}")
+    private long aggregateMaxAgeInSeconds;
+
+    public ScoreAggregateCache(StudentScoreRepository studentScoreRepository, TeamScoreRepository teamScoreRepository, HazelcastInstance hazelcastInstance) {
+        this.studentScoreRepository = studentScoreRepository;
+        this.teamScoreRepository = teamScoreRepository;
+        this.participantScoreChanges = hazelcastInstance.getTopic(HAZELCAST_PARTICIPANT_SCORE_CHANGE_TOPIC);
+        this.participantScoreChanges.addMessageListener(message -> {
+            // the changes of this instance have already been applied when they were published
+            if (message.getPublishingMember() == null || !message.getPublishingMember().localMember()) {
+                applyChange(message.getMessageObject());
+            }
+        });
+    }
+
+    /**
+     * Get the aggregate of the given exercises. It is loaded from the database if it is not cached yet, if it does not contain all the exercises or if it is outdated.
+     *
+     * @param key       the key of the aggregate, e.g. the course or exam it belongs to
+     * @param exercises all exercises of the course or exam
+     * @return the aggregate containing the points of all participants in the exercises
+     */
+    public ScoreAggregate getAggregate(String key, Set<Exercise> exercises) {
+        Set<Long> exerciseIds = exercises.stream().map(Exercise::getId).collect(Collectors.toSet());
+        while (true) {
+            ScoreAggregate aggregate = aggregates.get(key);
+            if (aggregate != null && aggregate.isValid(exerciseIds, TimeUnit.SECONDS.toNanos(aggregateMaxAgeInSeconds))) {
+                return aggregate;
+            }
+            var loadingAggregate = new LoadingAggregate(new ScoreAggregate(exerciseIds));
+            var concurrentlyLoadingAggregate = loadingAggregates.putIfAbsent(key, loadingAggregate);
+            if (concurrentlyLoadingAggregate == null) {
+                return load(key, loadingAggregate, exercises);
+            }
+            // wait for the request that already loads the aggregate, it might have been loaded without a new exercise though
+            aggregate = concurrentlyLoadingAggregate.loaded.join();
+            if (aggregate.isValid(exerciseIds, TimeUnit.SECONDS.toNanos(aggregateMaxAgeInSeconds))) {
+                return aggregate;
+            }
+        }
+    }
+
+    /**
+     * Loads the aggregate from the database and publishes it together with the changes that have arrived in the meantime. The aggregate is registered as loading before the
+     * database is queried, so that every change committed after the query has been buffered.
+     */
+    private ScoreAggregate load(String key, LoadingAggregate loadingAggregate, Set<Exercise> exercises) {
+        ScoreAggregate aggregate = loadingAggregate.aggregate;
+        try {
+            Set<Exercise> individualExercises = exercises.stream().filter(exercise -> !exercise.isTeamMode()).collect(Collectors.toSet());
+            Set<Exercise> teamExercises = exercises.stream().filter(Exercise::isTeamMode).collect(Collectors.toSet());
+            // [0] -> exercise id, [1] -> student id / team id, [2] -> last points, [3] -> last rated points
+            if (!individualExercises.isEmpty()) {
+                for (Object[] row : studentScoreRepository.getPointsOfStudents(individualExercises)) {
+                    aggregate.studentPoints.computeIfAbsent((Long) row[0], exerciseId -> new ConcurrentHashMap<>()).put((Long) row[1],
+                            new Points((Double) row[2], (Double) row[3]));
+                }
+            }
+            if (!teamExercises.isEmpty()) {
+                // [0] -> team id, [1] -> student id
+                for (Object[] row : teamScoreRepository.getStudentIdsOfTeams(teamExercises)) {
+                    aggregate.teamMembers.computeIfAbsent((Long) row[0], teamId -> new HashSet<>()).add((Long) row[1]);
+                }
+                for (Object[] row : teamScoreRepository.getPointsOfTeams(teamExercises)) {
+                    aggregate.teamPoints.computeIfAbsent((Long) row[0], exerciseId -> new ConcurrentHashMap<>()).put((Long) row[1],
+                            new Points((Double) row[2], (Double) row[3]));
+                }
+            }
+            // the buffered changes have been committed after (or while) the database was queried, so they are newer than the loaded values
+            synchronized (loadingAggregate) {
+                loadingAggregate.bufferedChanges.forEach(aggregate::apply);
+                loadingAggregate.bufferedChanges.clear();
+                aggregates.put(key, aggregate);
+                loadingAggregate.published = true;
+            }
+            loadingAggregate.loaded.complete(aggregate);
+            return aggregate;
+        }
+        catch (RuntimeException ex) {
+            loadingAggregate.loaded.completeExceptionally(ex);
+            throw ex;
+        }
+        finally {
+            loadingAggregates.remove(key, loadingAggregate);
+        }
+    }
+
+    /**
+     * Distributes the change of the given participant score to the aggregates of all instances, after the transaction in which it was changed has been committed
+     *
+     * @param participantScore the created, updated or removed participant score
+     * @param removed          whether the participant score has been removed
+     */
+    public void participantScoreChanged(ParticipantScore participantScore, boolean removed) {
+        ParticipantScoreChange change;
+        if (participantScore instanceof StudentScore && ((StudentScore) participantScore).getUser() != null) {
+            change = new ParticipantScoreChange(participantScore.getExercise().getId(), ((StudentScore) participantScore).getUser().getId(), false,
+                    participantScore.getLastPoints(), participantScore.getLastRatedPoints(), removed);
+        }
+        else if (participantScore instanceof TeamScore && ((TeamScore) participantScore).getTeam() != null) {
+            change = new ParticipantScoreChange(participantScore.getExercise().getId(), ((TeamScore) participantScore).getTeam().getId(), true,
+                    participantScore.getLastPoints(), participantScore.getLastRatedPoints(), removed);
+        }
+        else {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    publish(change);
+                }
+            });
+        }
+        else {
+            publish(change);
+        }
+    }
+
+    private void publish(ParticipantScoreChange change) {
+        // the change is applied locally right away, so that the next request of this instance already includes it
+        applyChange(change);
+        try {
+            participantScoreChanges.publish(change);
+        }
+        catch (Exception ex) {
+            log.warn("Could not distribute the change of the participant score of exercise {}, the aggregates of the exercise are invalidated: {}", change.exerciseId,
+                    ex.getMessage());
+            applyChange(change.invalidating());
+        }
+    }
+
+    private void applyChange(ParticipantScoreChange change) {
+        // buffer the change first, an aggregate that is published in the meantime is then found in the published aggregates (the change is applied twice at most, which
+        // does not matter because it sets the points of the participant)
+        for (LoadingAggregate loadingAggregate : loadingAggregates.values()) {
+            if (loadingAggregate.aggregate.exerciseIds.contains(change.exerciseId)) {
+                loadingAggregate.bufferIfNotPublished(change);
+            }
+        }
+        List<ScoreAggregate> affectedAggregates;
+        synchronized (aggregates) {
+            affectedAggregates = aggregates.values().stream().filter(aggregate -> aggregate.exerciseIds.contains(change.exerciseId)).collect(Collectors.toList());
+        }
+        for (ScoreAggregate aggregate : affectedAggregates) {
+            aggregate.apply(change);
+        }
+    }
+
+    /**
+     * The points of all participants in the exercises of a course or exam
+     */
+    public static final class ScoreAggregate {
+
+        private final Set<Long> exerciseIds;
+
+        private final long loadedAt = System.nanoTime();
+
+        private final Map<Long, Map<Long, Points>> studentPoints = new ConcurrentHashMap<>();
+
+        private final Map<Long, Map<Long, Points>> teamPoints = new ConcurrentHashMap<>();
+
+        private final Map<Long, Set<Long>> teamMembers = new ConcurrentHashMap<>();
+
+        private final AtomicLong version = new AtomicLong();
+
+        private volatile boolean invalidated = false;
+
+        private volatile CalculatedScores calculatedScores;
+
+        private ScoreAggregate(Set<Long> exerciseIds) {
+            this.exerciseIds = exerciseIds;
+        }
+
+        private boolean isValid(Set<Long> requiredExerciseIds, long maxAgeInNanos) {
+            return !invalidated && System.nanoTime() - loadedAt < maxAgeInNanos && exerciseIds.containsAll(requiredExerciseIds);
+        }
+
+        private void apply(ParticipantScoreChange change) {
+            if (change.invalidate || (change.team && !teamMembers.containsKey(change.participantId))) {
+                invalidated = true;
+            }
+            else {
+                var points = (change.team ? teamPoints : studentPoints).computeIfAbsent(change.exerciseId, exerciseId -> new ConcurrentHashMap<>());
+                if (change.removed) {
+                    points.remove(change.participantId);
+                }
+                else {
+                    points.put(change.participantId, new Points(change.lastPoints, change.lastRatedPoints));
+                }
+            }
+            version.incrementAndGet();
+        }
+
+        /**
+         * The version changes whenever the points in the aggregate change, so values calculated from the aggregate can be cached together with the version. The version
+         * only identifies the state of this aggregate on this instance.
+         *
+         * @return the current version of the aggregate
+         */
+        public long getVersion() {
+            return version.get();
+        }
+
+        /**
+         * Calls the consumer with the id and the points of every student who achieved points in the exercise, either individually or as a member of a team
+         *
+         * @param exercise       exercise of the course or exam
+         * @param rated          whether the last rated points or the last points (no matter if rated or not) should be used
+         * @param pointsConsumer consumer of the student id and the points of the student
+         */
+        public void forEachPoints(Exercise exercise, boolean rated, BiConsumer<Long, Double> pointsConsumer) {
+            if (exercise.isTeamMode()) {
+                teamPoints.getOrDefault(exercise.getId(), Map.of()).forEach((teamId, points) -> {
+                    Double value = rated ? points.lastRatedPoints : points.lastPoints;
+                    if (value != null) {
+                        teamMembers.getOrDefault(teamId, Set.of()).forEach(studentId -> pointsConsumer.accept(studentId, value));
+                    }
+                });
+            }
+            else {
+                studentPoints.getOrDefault(exercise.getId(), Map.of()).forEach((studentId, points) -> {
+                    Double value = rated ? points.lastRatedPoints : points.lastPoints;
+                    if (value != null) {
+                        pointsConsumer.accept(studentId, value);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Get the scores that have been calculated from this aggregate if they have been calculated for the given cache key
+         *
+         * @param cacheKey the key identifying the version of the aggregate and the parameters of the calculation
+         * @return the cached scores or an empty optional if the scores have not been calculated for the cache key
+         */
+        public Optional<CalculatedScores> getCalculatedScores(String cacheKey) {
+            CalculatedScores scores = calculatedScores;
+            return scores != null && cacheKey.equals(scores.cacheKey) ? Optional.of(scores) : Optional.empty();
+        }
+
+        public void setCalculatedScores(CalculatedScores calculatedScores) {
+            this.calculatedScores = calculatedScores;
+        }
+    }
+
+    /**
+     * The scores of all users of a course or exam, together with their ETag and the key under which they are cached
+     */
+    public static final class CalculatedScores {
+
+        private final String cacheKey;
+
+        private final String eTag;
+
+        private final List<ScoreDTO> scores;
+
+        public CalculatedScores(String cacheKey, String eTag, List<ScoreDTO> scores) {
+            this.cacheKey = cacheKey;
+            this.eTag = eTag;
+            this.scores = scores;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public List<ScoreDTO> getScores() {
+            return scores;
+        }
+    }
+
+    /**
+     * An aggregate that is being loaded, together with the changes that arrive in the meantime
+     */
+    private static final class LoadingAggregate {
+
+        private final ScoreAggregate aggregate;
+
+        private final CompletableFuture<ScoreAggregate> loaded = new CompletableFuture<>();
+
+        private final List<ParticipantScoreChange> bufferedChanges = new ArrayList<>();
+
+        private boolean published = false;
+
+        private LoadingAggregate(ScoreAggregate aggregate) {
+            this.aggregate = aggregate;
+        }
+
+        private synchronized void bufferIfNotPublished(ParticipantScoreChange change) {
+            // a published aggregate receives the change like all other published aggregates
+            if (!published) {
+                bufferedChanges.add(change);
+            }
+        }
+    }
+
+    /**
+     * The last points and the last rated points of a participant in an exercise
+     */
+    private static final class Points {
+
+        private final Double lastPoints;
+
+        private final Double lastRatedPoints;
+
+        private Points(Double lastPoints, Double lastRatedPoints) {
+            this.lastPoints = lastPoints;
+            this.lastRatedPoints = lastRatedPoints;
+        }
+    }
+
+    /**
+     * Change of a participant score that is distributed to all instances
+     */
+    static final class ParticipantScoreChange implements Serializable {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final long exerciseId;
+
+        private final long participantId;
+
+        private final boolean team;
+
+        private final Double lastPoints;
+
+        private final Double lastRatedPoints;
+
+        private final boolean removed;
+
+        private final boolean invalidate;
+
+        ParticipantScoreChange(long exerciseId, long participantId, boolean team, Double lastPoints, Double lastRatedPoints, boolean removed) {
+            this(exerciseId, participantId, team, lastPoints, lastRatedPoints, removed, false);
+        }
+
+        private ParticipantScoreChange(long exerciseId, long participantId, boolean team, Double lastPoints, Double lastRatedPoints, boolean removed, boolean invalidate) {
+            this.exerciseId = exerciseId;
+            this.participantId = participantId;
+            this.team = team;
+            this.lastPoints = lastPoints;
+            this.lastRatedPoints = lastRatedPoints;
+            this.removed = removed;
+            this.invalidate = invalidate;
+        }
+
+        private ParticipantScoreChange invalidating() {
+            return new ParticipantScoreChange(exerciseId, participantId, team, lastPoints, lastRatedPoints, removed, true);
+        }
+    }
+}
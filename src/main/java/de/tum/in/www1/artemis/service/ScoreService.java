@@ -2,7 +2,9 @@ package de.tum.in.www1.artemis.service;
 
 import static de.tum.in.www1.artemis.service.util.RoundingUtil.round;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -18,8 +20,6 @@ import de.tum.in.www1.artemis.domain.Exercise;
 import de.tum.in.www1.artemis.domain.Result;
 import de.tum.in.www1.artemis.domain.Team;
 import de.tum.in.www1.artemis.domain.User;
-import de.tum.in.www1.artemis.domain.participation.Participation;
-import de.tum.in.www1.artemis.domain.participation.ProgrammingExerciseStudentParticipation;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
 import de.tum.in.www1.artemis.domain.scores.ParticipantScore;
 import de.tum.in.www1.artemis.domain.scores.StudentScore;
@@ -36,16 +36,13 @@ public class ScoreService {
 
     private final TeamScoreRepository teamScoreRepository;
 
-    private final ParticipationRepository participationRepository;
-
     private final ResultRepository resultRepository;
 
     private final Logger logger = LoggerFactory.getLogger(ScoreService.class);
 
-    public ScoreService(StudentScoreRepository studentScoreRepository, TeamScoreRepository teamScoreRepository, ParticipationRepository participationRepository,
-            ResultRepository resultRepository, ParticipantScoreRepository participantScoreRepository) {
+    public ScoreService(StudentScoreRepository studentScoreRepository, TeamScoreRepository teamScoreRepository, ResultRepository resultRepository,
+            ParticipantScoreRepository participantScoreRepository) {
         this.studentScoreRepository = studentScoreRepository;
-        this.participationRepository = participationRepository;
         this.participantScoreRepository = participantScoreRepository;
         this.teamScoreRepository = teamScoreRepository;
         this.resultRepository = resultRepository;
@@ -124,57 +121,66 @@ public class ScoreService {
     }
 
     /**
-     * Either updates an existing participant score or creates a new participant score if a new result comes in
+     * Either updates an existing participant score or creates a new participant score when new results come in. All given results must belong to the same
+     * exercise and participant, so that the participant score is only loaded and saved once.
      * The annotation "@Transactional" is ok because it means that this method does not support run in an outer transactional context, instead the outer transaction is paused
      *
-     * @param createdOrUpdatedResult newly created or updated result
+     * @param studentParticipation    participation (loaded from the database) of the participant, containing the exercise
+     * @param createdOrUpdatedResults newly created or updated results of the participant in the exercise, ordered by id
      */
     @Transactional(propagation = Propagation.NOT_SUPPORTED) // ok (see JavaDoc)
-    public void updateOrCreateParticipantScore(Result createdOrUpdatedResult) {
-        if (createdOrUpdatedResult.getScore() == null || createdOrUpdatedResult.getCompletionDate() == null) {
-            return;
-        }
-        // There is a deadlock problem with programming exercises here if we use the participation from the result (reason unknown at the moment)
-        // therefore we get the participation from the database
-        Optional<StudentParticipation> studentParticipationOptional = getStudentParticipationForResult(createdOrUpdatedResult);
-        if (studentParticipationOptional.isEmpty()) {
-            return;
-        }
-        StudentParticipation studentParticipation = studentParticipationOptional.get();
+    public void updateOrCreateParticipantScore(StudentParticipation studentParticipation, List<Result> createdOrUpdatedResults) {
         // we ignore test runs of exams
         if (studentParticipation.isTestRun()) {
             return;
         }
+        List<Result> results = createdOrUpdatedResults.stream().filter(result -> result.getScore() != null && result.getCompletionDate() != null).collect(Collectors.toList());
+        if (results.isEmpty()) {
+            return;
+        }
         Exercise exercise = studentParticipation.getExercise();
         ParticipantScore existingParticipationScoreForExerciseAndParticipant = getExistingParticipationScore(studentParticipation, exercise);
         // there already exists a participant score -> we need to update it
         if (existingParticipationScoreForExerciseAndParticipant != null) {
-            updateExistingParticipantScore(existingParticipationScoreForExerciseAndParticipant, createdOrUpdatedResult, exercise);
+            updateExistingParticipantScore(existingParticipationScoreForExerciseAndParticipant, results, exercise);
         }
         else { // there does not already exists a participant score -> we need to create it
-            createNewParticipantScore(createdOrUpdatedResult, studentParticipation, exercise);
+            createNewParticipantScore(results, studentParticipation, exercise);
         }
     }
 
     /**
-     * Gets the student participation for a result from the database
+     * Rebuilds the participant scores of an exercise from scratch: the existing participant scores are removed and the participant scores are calculated again from the
+     * results of the participants (ignoring test runs).
+     * The annotation "@Transactional" is ok because the participant scores are removed and created again in one transaction, so that other requests never see the
+     * exercise without participant scores and concurrent updates cannot create a second participant score for the same participant
      *
-     * @param result result for which to get the student participation
-     * @return student participation optional
+     * @param exercise exercise for which the participant scores should be rebuilt
      */
-    private Optional<StudentParticipation> getStudentParticipationForResult(Result result) {
-        Optional<Participation> participationOptional = participationRepository.findByResults(result);
-        if (participationOptional.isEmpty()) {
-            return Optional.empty();
-        }
-        Participation participation = participationOptional.get();
-
-        boolean isStudentParticipation = participation.getClass().equals(StudentParticipation.class)
-                || participation.getClass().equals(ProgrammingExerciseStudentParticipation.class);
-        if (!isStudentParticipation) {
-            return Optional.empty();
+    @Transactional // ok (see JavaDoc)
+    public void rebuildParticipantScores(Exercise exercise) {
+        List<Result> resultsOrdered = resultRepository.getResultsOrderedByParticipationIdSubmissionIdResultIdDescForExercise(exercise.getId());
+        Map<String, ParticipantScore> participantScores = new LinkedHashMap<>();
+        for (Result result : resultsOrdered) {
+            StudentParticipation studentParticipation = (StudentParticipation) result.getParticipation();
+            if (studentParticipation.getParticipant() == null) {
+                continue;
+            }
+            ParticipantScore participantScore = participantScores.computeIfAbsent(studentParticipation.getParticipantIdentifier(),
+                    participantIdentifier -> createParticipantScore(studentParticipation, exercise));
+            // the newest results come first, so the first (rated) result of a participant is its last (rated) result
+            if (participantScore.getLastResult() == null) {
+                setLastAttributes(participantScore, result, exercise);
+            }
+            if (participantScore.getLastRatedResult() == null && result.isRated() != null && result.isRated()) {
+                setLastRatedAttributes(participantScore, result, exercise);
+            }
         }
-        return Optional.of((StudentParticipation) participation);
+        participantScoreRepository.removeAllByExerciseId(exercise.getId());
+        // Hibernate would insert the new participant scores before it removes the old ones
+        participantScoreRepository.flush();
+        participantScoreRepository.saveAll(participantScores.values());
+        logger.info("Rebuilt {} participant scores of exercise {}", participantScores.size(), exercise.getId());
     }
 
     /**
@@ -206,70 +212,64 @@ public class ScoreService {
     /**
      * Create a new Participant Score
      *
-     * @param newResult            result containing the information about the score achieved
+     * @param newResults           results containing the information about the score achieved, ordered by id
      * @param studentParticipation participation containing the information about the participant
      * @param exercise             exercise for which to create participant score
      */
-    private void createNewParticipantScore(Result newResult, StudentParticipation studentParticipation, Exercise exercise) {
-        if (exercise.isTeamMode()) {
-            createNewTeamScore(newResult, studentParticipation, exercise);
-        }
-        else {
-            createNewStudentScore(newResult, studentParticipation, exercise);
+    private void createNewParticipantScore(List<Result> newResults, StudentParticipation studentParticipation, Exercise exercise) {
+        ParticipantScore newParticipantScore = createParticipantScore(studentParticipation, exercise);
+        for (Result newResult : newResults) {
+            applyResult(newParticipantScore, newResult, exercise);
         }
+        ParticipantScore participantScore = participantScoreRepository.saveAndFlush(newParticipantScore);
+        logger.info("Saved a new participant score: " + participantScore.toString());
     }
 
-    private void createNewStudentScore(Result newResult, StudentParticipation studentParticipation, Exercise exercise) {
-        StudentScore newStudentScore = new StudentScore();
-        newStudentScore.setExercise(exercise);
-        newStudentScore.setUser(studentParticipation.getStudent().get());
-        setLastAttributes(newStudentScore, newResult, exercise);
-        if (newResult.isRated() != null && newResult.isRated()) {
-            setLastRatedAttributes(newStudentScore, newResult, exercise);
+    private ParticipantScore createParticipantScore(StudentParticipation studentParticipation, Exercise exercise) {
+        if (exercise.isTeamMode()) {
+            TeamScore newTeamScore = new TeamScore();
+            newTeamScore.setExercise(exercise);
+            newTeamScore.setTeam(studentParticipation.getTeam().get());
+            return newTeamScore;
         }
-        StudentScore studentScore = studentScoreRepository.saveAndFlush(newStudentScore);
-        logger.info("Saved a new student score: " + studentScore.toString());
-    }
-
-    private void createNewTeamScore(Result newResult, StudentParticipation studentParticipation, Exercise exercise) {
-        TeamScore newTeamScore = new TeamScore();
-        newTeamScore.setExercise(exercise);
-        newTeamScore.setTeam(studentParticipation.getTeam().get());
-        setLastAttributes(newTeamScore, newResult, exercise);
-        if (newResult.isRated() != null && newResult.isRated()) {
-            setLastRatedAttributes(newTeamScore, newResult, exercise);
+        else {
+            StudentScore newStudentScore = new StudentScore();
+            newStudentScore.setExercise(exercise);
+            newStudentScore.setUser(studentParticipation.getStudent().get());
+            return newStudentScore;
         }
-        TeamScore teamScore = teamScoreRepository.saveAndFlush(newTeamScore);
-        logger.info("Saved a new team score: " + teamScore.toString());
     }
 
     /**
-     * Update an existing participant score when a new or updated result comes in
+     * Update an existing participant score when new or updated results come in
      *
-     * @param participantScore            existing participant score that refers to the same exercise and participant as the result
-     * @param exercise                    the exercise to which the participant score belong
-     * @param updatedOrNewlyCreatedResult updated or new result
+     * @param participantScore             existing participant score that refers to the same exercise and participant as the results
+     * @param updatedOrNewlyCreatedResults updated or new results, ordered by id
+     * @param exercise                     the exercise to which the participant score belong
      */
-    private void updateExistingParticipantScore(ParticipantScore participantScore, Result updatedOrNewlyCreatedResult, Exercise exercise) {
+    private void updateExistingParticipantScore(ParticipantScore participantScore, List<Result> updatedOrNewlyCreatedResults, Exercise exercise) {
         String originalParticipantScoreStructure = participantScore.toString();
+        for (Result updatedOrNewlyCreatedResult : updatedOrNewlyCreatedResults) {
+            applyResult(participantScore, updatedOrNewlyCreatedResult, exercise);
+        }
+        participantScoreRepository.saveAndFlush(participantScore);
+        logger.info("Updated an existing participant score. Was: " + originalParticipantScoreStructure + ". Is: " + participantScore.toString());
+    }
 
-        ParticipantScore participantScoreToSave = participantScore;
+    private void applyResult(ParticipantScore participantScore, Result updatedOrNewlyCreatedResult, Exercise exercise) {
         // update the last result and last score if either it has not been set previously or new result is either the old one (=) or newer (>)
-        if (participantScoreToSave.getLastResult() == null || updatedOrNewlyCreatedResult.getId() >= participantScoreToSave.getLastResult().getId()) {
-            setLastAttributes(participantScoreToSave, updatedOrNewlyCreatedResult, exercise);
+        if (participantScore.getLastResult() == null || updatedOrNewlyCreatedResult.getId() >= participantScore.getLastResult().getId()) {
+            setLastAttributes(participantScore, updatedOrNewlyCreatedResult, exercise);
         }
         // update the last rated result and last rated score if either it has not been set previously or new rated result is either the old one (=) or newer (>)
         if (updatedOrNewlyCreatedResult.isRated() != null && updatedOrNewlyCreatedResult.isRated()
-                && (participantScoreToSave.getLastRatedResult() == null || updatedOrNewlyCreatedResult.getId() >= participantScoreToSave.getLastRatedResult().getId())) {
-            setLastRatedAttributes(participantScoreToSave, updatedOrNewlyCreatedResult, exercise);
+                && (participantScore.getLastRatedResult() == null || updatedOrNewlyCreatedResult.getId() >= participantScore.getLastRatedResult().getId())) {
+            setLastRatedAttributes(participantScore, updatedOrNewlyCreatedResult, exercise);
         }
         // Edge Case: if the result is now unrated but is equal to the current last rated result we have to set these to null (result was switched from rated to unrated)
-        if ((updatedOrNewlyCreatedResult.isRated() == null || !updatedOrNewlyCreatedResult.isRated())
-                && updatedOrNewlyCreatedResult.equals(participantScoreToSave.getLastRatedResult())) {
-            setLastRatedAttributes(participantScoreToSave, null, exercise);
+        if ((updatedOrNewlyCreatedResult.isRated() == null || !updatedOrNewlyCreatedResult.isRated()) && updatedOrNewlyCreatedResult.equals(participantScore.getLastRatedResult())) {
+            setLastRatedAttributes(participantScore, null, exercise);
         }
-        participantScoreRepository.saveAndFlush(participantScoreToSave);
-        logger.info("Updated an existing participant score. Was: " + originalParticipantScoreStructure + ". Is: " + participantScoreToSave.toString());
     }
 
     /**
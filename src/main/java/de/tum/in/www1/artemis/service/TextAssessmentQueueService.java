@@ -3,11 +3,16 @@ package de.tum.in.www1.artemis.service;
 import static java.util.stream.Collectors.*;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+
 import de.tum.in.www1.artemis.domain.TextBlock;
 import de.tum.in.www1.artemis.domain.TextCluster;
 import de.tum.in.www1.artemis.domain.TextExercise;
@@ -17,17 +22,54 @@ import de.tum.in.www1.artemis.domain.participation.Participation;
 import de.tum.in.www1.artemis.repository.TextClusterRepository;
 import de.tum.in.www1.artemis.repository.TextSubmissionRepository;
 
+/**
+ * Proposes the text submission with the highest information gain to tutors.
+ * <p>
+ * The information gain of all open submissions of an exercise is ranked once and kept per exercise. When submissions are assessed in the meantime, they are removed
+ * from the ranking and the open block counts of their clusters are decreased, so that the ranking can be updated in memory. The ranking is only calculated again from
+ * the database when new clusters arrive from Athene, when new submissions are open or when it is older than
+ * <code>artemis.athene.assessment-ranking-max-age-seconds</code>. New clusters are only received by one instance, so the invalidation is distributed to the other
+ * instances with a Hazelcast topic.
+ */
 @Service
 @Profile("athene")
 public class TextAssessmentQueueService {
 
+    private static final String HAZELCAST_ASSESSMENT_RANKING_INVALIDATION_TOPIC = "text-assessment-ranking-invalidations";
+
+    private static final int MAX_NUMBER_OF_RANKINGS = 100;
+
     private final TextClusterRepository textClusterRepository;
 
     private final TextSubmissionRepository textSubmissionRepository;
 
-    public TextAssessmentQueueService(TextClusterRepository textClusterRepository, TextSubmissionRepository textSubmissionRepository) {
+    private final ITopic<Long> assessmentRankingInvalidations;
+
+    /**
+     * The rankings by exercise id, the least recently used rankings are evicted. Invalidated exercises keep an empty ranking, so that rankings that were calculated before
+     * the invalidation are not cached afterwards.
+     */
+    private final Map<Long, AssessmentRanking> assessmentRankings = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AssessmentRanking> eldest) {
+            return size() > MAX_NUMBER_OF_RANKINGS;
+        }
+    });
+
+    @Value("${artemis.athene.assessment-ranking-max-age-seconds:600}")
+    private long assessmentRankingMaxAgeInSeconds;
+
+    public TextAssessmentQueueService(TextClusterRepository textClusterRepository, TextSubmissionRepository textSubmissionRepository, HazelcastInstance hazelcastInstance) {
         this.textClusterRepository = textClusterRepository;
         this.textSubmissionRepository = textSubmissionRepository;
+        this.assessmentRankingInvalidations = hazelcastInstance.getTopic(HAZELCAST_ASSESSMENT_RANKING_INVALIDATION_TOPIC);
+        this.assessmentRankingInvalidations.addMessageListener(message -> {
+            // the ranking on this instance has already been invalidated when the message was published
+            if (message.getPublishingMember() == null || !message.getPublishingMember().localMember()) {
+                invalidateLocalAssessmentRanking(message.getMessageObject());
+            }
+        });
     }
 
     /**
@@ -55,13 +97,58 @@ public class TextAssessmentQueueService {
         if (!textExercise.isAutomaticAssessmentEnabled()) {
             throw new IllegalArgumentException("The TextExercise is not automatic assessable");
         }
-        List<TextSubmission> textSubmissionList = getAllOpenTextSubmissions(textExercise);
-        if (textSubmissionList.isEmpty()) {
-            return Optional.empty();
+        AssessmentRanking ranking = getAssessmentRanking(textExercise);
+        Optional<Long> submissionId;
+        while ((submissionId = ranking.getBestSubmissionId(languages)).isPresent()) {
+            Optional<TextSubmission> textSubmission = textSubmissionRepository.findWithEagerBlocksResultsAndParticipationById(submissionId.get());
+            if (textSubmission.isPresent() && isOpen(textSubmission.get())) {
+                return textSubmission;
+            }
+            // the submission has been assessed since the ranking was updated
+            ranking.removeSubmission(submissionId.get());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Invalidates the ranking of the submissions of the given exercise on all instances, e.g. because new clusters have been calculated
+     *
+     * @param exerciseId the id of the exercise
+     */
+    public void invalidateAssessmentRanking(Long exerciseId) {
+        invalidateLocalAssessmentRanking(exerciseId);
+        assessmentRankingInvalidations.publish(exerciseId);
+    }
+
+    private void invalidateLocalAssessmentRanking(Long exerciseId) {
+        assessmentRankings.put(exerciseId, new AssessmentRanking(System.nanoTime()));
+    }
+
+    /**
+     * Returns the ranking of the open submissions of the given exercise. The cached ranking is updated with the submissions that are no longer open, it is only
+     * calculated again if there are open submissions that are not part of it or if it is outdated.
+     *
+     * @param textExercise the exercise of the submissions
+     * @return the up-to-date ranking
+     */
+    private AssessmentRanking getAssessmentRanking(TextExercise textExercise) {
+        long now = System.nanoTime();
+        Set<Long> openSubmissionIds = textSubmissionRepository.findIdsOfOpenSubmissionsByExerciseId(textExercise.getId());
+        AssessmentRanking cachedRanking = assessmentRankings.get(textExercise.getId());
+        boolean outdated = cachedRanking != null && now - cachedRanking.since > TimeUnit.SECONDS.toNanos(assessmentRankingMaxAgeInSeconds);
+        if (cachedRanking != null && !outdated && cachedRanking.update(openSubmissionIds)) {
+            return cachedRanking;
         }
-        Map<TextBlock, Double> smallerClusterMap = calculateSmallerClusterPercentageBatch(textSubmissionList);
-        return textSubmissionList.stream().filter(textSubmission -> languages == null || languages.contains(textSubmission.getLanguage()))
-                .max(Comparator.comparingDouble(textSubmission -> calculateInformationGain(textSubmission, smallerClusterMap)));
+        AssessmentRanking ranking = new AssessmentRanking(now, getAllOpenTextSubmissions(textExercise), openSubmissionIds,
+                textClusterRepository.findAllByExercise(textExercise));
+        // rankings that were invalidated while they were calculated must not be cached
+        assessmentRankings.merge(textExercise.getId(), ranking, (existing, calculated) -> existing.since > calculated.since ? existing : calculated);
+        return ranking;
+    }
+
+    private boolean isOpen(TextSubmission textSubmission) {
+        return textSubmission.isSubmitted() != null && textSubmission.isSubmitted() && textSubmission.getResults().isEmpty()
+                && textSubmission.getParticipation().findLatestSubmission().map(latestSubmission -> latestSubmission.getId().equals(textSubmission.getId())).orElse(false);
     }
 
     /**
@@ -93,29 +180,6 @@ public class TextAssessmentQueueService {
                 .collect(toList());
     }
 
-    /**
-     * Given an TextSubmission calculate the expected information gain
-     * based on the smallerClusterMap and addedDistancesMap
-     *
-     * @param textSubmission the textSubmission
-     * @param smallerClusterMap Map of TextBlocks to percentage of smaller clusters the TextBlock Cluster
-     * @return information gain for the TextSubmission
-     */
-    private double calculateInformationGain(TextSubmission textSubmission, Map<TextBlock, Double> smallerClusterMap) {
-        var textBlocks = textSubmission.getBlocks();
-        double totalScore = 0.0;
-        for (TextBlock textBlock : textBlocks) {
-            if (textBlock.isAssessable() || textBlock.getCluster() == null || textBlock.getAddedDistance() == null) {
-                continue;
-            }
-            double textBlockScore = textBlock.getAddedDistance();
-            textBlockScore /= textBlock.getCluster().size();
-            textBlockScore += smallerClusterMap.get(textBlock);
-            totalScore += textBlockScore;
-        }
-        return totalScore;
-    }
-
     /**
      * Sums up all the distances in the Blocks cluster
      *
@@ -128,10 +192,13 @@ public class TextAssessmentQueueService {
         if (!cluster.getBlocks().contains(textBlock)) {
             throw new IllegalArgumentException("textBlock must be an element of the cluster");
         }
-        double[][] distanceMatrix = cluster.getDistanceMatrix();
         int blockID = cluster.getBlocks().indexOf(textBlock);
-        // subtract 1 because the statement also included the distance to itself, but it should't be included
-        return Arrays.stream(distanceMatrix[blockID]).map(distance -> 1.0 - distance).sum() - 1;
+        double addedDistance = 0.0;
+        for (int otherBlockID = 0; otherBlockID < cluster.size(); otherBlockID++) {
+            addedDistance += 1.0 - cluster.getDistance(blockID, otherBlockID);
+        }
+        // subtract 1 because the sum also included the distance to itself, but it should't be included
+        return addedDistance - 1;
     }
 
     /**
@@ -167,33 +234,189 @@ public class TextAssessmentQueueService {
         if (textSubmissionList.stream().map(submission -> submission.getParticipation().getExercise()).anyMatch(elem -> elem != currentExercise)) {
             throw new IllegalArgumentException("All TextSubmissions have to be from the same Exercise");
         }
+        // the open block counts are counted once per cluster instead of once per text block
+        int[] sortedOpenTextBlockCounts = clusters.stream().mapToInt(TextCluster::openTextBlockCount).sorted().toArray();
+        Map<TextCluster, Integer> openTextBlockCounts = new IdentityHashMap<>();
         textSubmissionList.forEach(textSubmission -> {
             textSubmission.getBlocks().forEach(textBlock -> {
                 if (textBlock.getCluster() == null) {
                     return;
                 }
-                OptionalInt optionalLargestClusterSize = clusters.stream().mapToInt(TextCluster::openTextBlockCount).max();
+                int openTextBlockCount = openTextBlockCounts.computeIfAbsent(textBlock.getCluster(), TextCluster::openTextBlockCount);
+                result.put(textBlock, calculateSmallerClusterPercentage(openTextBlockCount, sortedOpenTextBlockCounts));
+            });
+        });
+        return result;
+    }
 
-                // if cluster is empty
-                if (optionalLargestClusterSize.isEmpty()) {
-                    result.put(textBlock, 0.0);
-                    return;
-                }
-                // if cluster is the largest set to smaller percentage to 1
-                if (optionalLargestClusterSize.getAsInt() == textBlock.getCluster().openTextBlockCount()) {
-                    result.put(textBlock, 1.0);
-                    return;
+    /**
+     * Calculates the percentage of clusters with less open text blocks than the cluster of a text block
+     *
+     * @param openTextBlockCount        the number of open text blocks in the cluster of the text block
+     * @param sortedOpenTextBlockCounts the numbers of open text blocks of all clusters of the exercise in ascending order
+     * @return 1 if the cluster is the largest one, otherwise the percentage of smaller clusters
+     */
+    private static double calculateSmallerClusterPercentage(int openTextBlockCount, int[] sortedOpenTextBlockCounts) {
+        // if there are no clusters
+        if (sortedOpenTextBlockCounts.length == 0) {
+            return 0.0;
+        }
+        // if cluster is the largest set to smaller percentage to 1
+        if (sortedOpenTextBlockCounts[sortedOpenTextBlockCounts.length - 1] == openTextBlockCount) {
+            return 1.0;
+        }
+        // find the first cluster that is not smaller
+        int low = 0;
+        int high = sortedOpenTextBlockCounts.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedOpenTextBlockCounts[middle] < openTextBlockCount) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return (double) low / sortedOpenTextBlockCounts.length;
+    }
+
+    /**
+     * The open submissions of an exercise ordered by their information gain. The information gain of a submission is the sum of the information gain of its clustered
+     * text blocks: the added distance divided by the cluster size plus the percentage of smaller clusters.
+     */
+    private static final class AssessmentRanking {
+
+        /**
+         * When the calculation of the ranking was started or when the ranking was invalidated
+         */
+        private final long since;
+
+        /**
+         * False for invalidated rankings
+         */
+        private final boolean valid;
+
+        private final Map<Long, RankedSubmission> submissions = new HashMap<>();
+
+        /**
+         * Open submissions that are not the latest submission of their participation and therefore not ranked
+         */
+        private final Set<Long> ignoredSubmissionIds = new HashSet<>();
+
+        private final Map<Long, Integer> openTextBlockCounts = new HashMap<>();
+
+        private List<RankedSubmission> orderedSubmissions = new ArrayList<>();
+
+        private boolean orderOutdated;
+
+        private AssessmentRanking(long since) {
+            this.since = since;
+            this.valid = false;
+        }
+
+        private AssessmentRanking(long since, List<TextSubmission> latestOpenSubmissions, Set<Long> openSubmissionIds, List<TextCluster> clusters) {
+            this.since = since;
+            this.valid = true;
+            for (TextCluster cluster : clusters) {
+                openTextBlockCounts.put(cluster.getId(), cluster.openTextBlockCount());
+            }
+            for (TextSubmission textSubmission : latestOpenSubmissions) {
+                submissions.put(textSubmission.getId(), new RankedSubmission(textSubmission));
+            }
+            ignoredSubmissionIds.addAll(openSubmissionIds);
+            ignoredSubmissionIds.removeAll(submissions.keySet());
+            orderOutdated = true;
+        }
+
+        /**
+         * Removes the submissions that are no longer open
+         *
+         * @param openSubmissionIds the ids of all open submissions of the exercise
+         * @return false if the ranking has been invalidated or if there are open submissions that are not part of the ranking
+         */
+        private synchronized boolean update(Set<Long> openSubmissionIds) {
+            if (!valid) {
+                return false;
+            }
+            for (Long openSubmissionId : openSubmissionIds) {
+                if (!submissions.containsKey(openSubmissionId) && !ignoredSubmissionIds.contains(openSubmissionId)) {
+                    return false;
                 }
+            }
+            ignoredSubmissionIds.retainAll(openSubmissionIds);
+            new ArrayList<>(submissions.keySet()).stream().filter(submissionId -> !openSubmissionIds.contains(submissionId)).forEach(this::removeSubmission);
+            return true;
+        }
 
-                int smallerClusterCount = clusters.stream().mapToInt(TextCluster::openTextBlockCount).reduce(0, (sum, elem) -> {
-                    if (elem < textBlock.getCluster().openTextBlockCount()) {
-                        return sum + 1;
+        /**
+         * Removes an assessed submission, its text blocks are no longer open
+         *
+         * @param submissionId the id of the assessed submission
+         */
+        private synchronized void removeSubmission(Long submissionId) {
+            RankedSubmission removedSubmission = submissions.remove(submissionId);
+            if (removedSubmission == null) {
+                return;
+            }
+            for (RankedTextBlock textBlock : removedSubmission.textBlocks) {
+                openTextBlockCounts.computeIfPresent(textBlock.clusterId, (clusterId, count) -> count - 1);
+            }
+            orderOutdated = true;
+        }
+
+        private synchronized Optional<Long> getBestSubmissionId(List<Language> languages) {
+            if (orderOutdated) {
+                int[] sortedOpenTextBlockCounts = openTextBlockCounts.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+                for (RankedSubmission submission : submissions.values()) {
+                    submission.informationGain = 0.0;
+                    for (RankedTextBlock textBlock : submission.textBlocks) {
+                        int openTextBlockCount = openTextBlockCounts.getOrDefault(textBlock.clusterId, 0);
+                        submission.informationGain += textBlock.relativeAddedDistance + calculateSmallerClusterPercentage(openTextBlockCount, sortedOpenTextBlockCounts);
                     }
-                    return sum;
-                });
-                result.put(textBlock, (double) smallerClusterCount / clusters.size());
-            });
-        });
-        return result;
+                }
+                orderedSubmissions = new ArrayList<>(submissions.values());
+                orderedSubmissions.sort(Comparator.comparingDouble((RankedSubmission submission) -> submission.informationGain).reversed());
+                orderOutdated = false;
+            }
+            return orderedSubmissions.stream().filter(submission -> submissions.containsKey(submission.submissionId))
+                    .filter(submission -> languages == null || languages.contains(submission.language)).findFirst().map(submission -> submission.submissionId);
+        }
+    }
+
+    private static final class RankedSubmission {
+
+        private final long submissionId;
+
+        private final Language language;
+
+        private final List<RankedTextBlock> textBlocks = new ArrayList<>();
+
+        private double informationGain;
+
+        private RankedSubmission(TextSubmission textSubmission) {
+            this.submissionId = textSubmission.getId();
+            this.language = textSubmission.getLanguage();
+            for (TextBlock textBlock : textSubmission.getBlocks()) {
+                if (textBlock.isAssessable() || textBlock.getCluster() == null || textBlock.getAddedDistance() == null) {
+                    continue;
+                }
+                textBlocks.add(new RankedTextBlock(textBlock.getCluster().getId(), textBlock.getAddedDistance() / textBlock.getCluster().size()));
+            }
+        }
+    }
+
+    private static final class RankedTextBlock {
+
+        private final Long clusterId;
+
+        /**
+         * The added distance of the text block divided by the size of its cluster
+         */
+        private final double relativeAddedDistance;
+
+        private RankedTextBlock(Long clusterId, double relativeAddedDistance) {
+            this.clusterId = clusterId;
+            this.relativeAddedDistance = relativeAddedDistance;
+        }
     }
 }
@@ -1,40 +1,83 @@
 package de.tum.in.www1.artemis.service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.validation.constraints.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
 
 import de.tum.in.www1.artemis.domain.Course;
 import de.tum.in.www1.artemis.domain.Exercise;
 import de.tum.in.www1.artemis.domain.User;
 import de.tum.in.www1.artemis.domain.exam.Exam;
 import de.tum.in.www1.artemis.domain.leaderboard.tutor.*;
+import de.tum.in.www1.artemis.domain.participation.Participation;
 import de.tum.in.www1.artemis.repository.*;
-import de.tum.in.www1.artemis.repository.UserRepository;
-import de.tum.in.www1.artemis.web.rest.ProgrammingExerciseGradingResource;
+import de.tum.in.www1.artemis.service.util.TimeLogUtil;
 import de.tum.in.www1.artemis.web.rest.dto.TutorLeaderboardDTO;
 
+/**
+ * Creates the tutor leaderboards of courses, exams and exercises.
+ * <p>
+ * The leaderboards are built from per-tutor counters (assessments, complaints, complaint responses and more feedback requests) that are calculated per exercise and
+ * cached. A leaderboard of a course or exam only sums up the counters of its exercises, the counters of exercises that are not cached are calculated together with one
+ * grouped query per counter. The counters of an exercise are invalidated when a result, complaint or complaint response of the exercise is saved and the transaction
+ * has been committed, so that the counters are not calculated again before the changes are visible. The save is only noticed by the instance that performs it, so the
+ * invalidation is distributed to the other instances with a Hazelcast topic. As group memberships and the max points of exercises can change without such an event,
+ * the counters are also calculated again after <code>artemis.assessment-dashboard.tutor-leaderboard-max-age-seconds</code>.
+ */
 @Service
 public class TutorLeaderboardService {
 
+    private static final String HAZELCAST_TUTOR_LEADERBOARD_INVALIDATION_TOPIC = "tutor-leaderboard-invalidations";
+
+    private final Logger log = LoggerFactory.getLogger(TutorLeaderboardService.class);
+
     private final ResultRepository resultRepository;
 
     private final ComplaintRepository complaintRepository;
 
     private final UserRepository userRepository;
 
-    private final Logger log = LoggerFactory.getLogger(ProgrammingExerciseGradingResource.class);
+    private final ExerciseRepository exerciseRepository;
+
+    private final ParticipationRepository participationRepository;
 
-    public TutorLeaderboardService(ResultRepository resultRepository, ComplaintRepository complaintRepository, UserRepository userRepository) {
+    private final ITopic<Long> exerciseLeaderboardInvalidations;
+
+    /**
+     * The cached counters by exercise id. Invalidated exercises keep an entry without counters, so that counters that were calculated before the invalidation are not
+     * cached afterwards.
+     */
+    private final Map<Long, ExerciseLeaderboard> exerciseLeaderboards = new ConcurrentHashMap<>();
+
+    @Value("${artemis.assessment-dashboard.tutor-leaderboard-max-age-seconds:600}")
+    private long leaderboardMaxAgeInSeconds;
+
+    public TutorLeaderboardService(ResultRepository resultRepository, ComplaintRepository complaintRepository, UserRepository userRepository,
+            ExerciseRepository exerciseRepository, ParticipationRepository participationRepository, HazelcastInstance hazelcastInstance) {
         this.resultRepository = resultRepository;
         this.complaintRepository = complaintRepository;
         this.userRepository = userRepository;
+        this.exerciseRepository = exerciseRepository;
+        this.participationRepository = participationRepository;
+        this.exerciseLeaderboardInvalidations = hazelcastInstance.getTopic(HAZELCAST_TUTOR_LEADERBOARD_INVALIDATION_TOPIC);
+        this.exerciseLeaderboardInvalidations.addMessageListener(message -> {
+            // the counters on this instance have already been invalidated when the message was published
+            if (message.getPublishingMember() == null || !message.getPublishingMember().localMember()) {
+                invalidateLocalExerciseLeaderboard(message.getMessageObject());
+            }
+        });
     }
 
     /**
@@ -44,40 +87,9 @@ public class TutorLeaderboardService {
      * @return list of tutor leaderboard objects
      */
     public List<TutorLeaderboardDTO> getCourseLeaderboard(Course course) {
-
         List<User> tutors = userRepository.getTutors(course);
-        String groupName = course.getTeachingAssistantGroupName();
-
-        long start = System.currentTimeMillis();
-        List<TutorLeaderboardAssessments> tutorLeaderboardAssessments = resultRepository.findTutorLeaderboardAssessmentByCourseId(course.getId());
-        long end = System.currentTimeMillis();
-        log.info("Finished >>resultRepository.findTutorLeaderboardAssessmentByCourseId<< call for course " + course.getId() + " in " + (end - start) + "ms");
-
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaints> tutorLeaderboardComplaints = complaintRepository.findTutorLeaderboardComplaintsByCourseId(groupName, course.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintsByCourseId<< call for course " + course.getId() + " in " + (end - start) + "ms");
-
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardMoreFeedbackRequests> tutorLeaderboardMoreFeedbackRequests = complaintRepository.findTutorLeaderboardMoreFeedbackRequestsByCourseId(groupName,
-                course.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardMoreFeedbackRequestsByCourseId<< call for course " + course.getId() + " in " + (end - start) + "ms");
-
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaintResponses> tutorLeaderboardComplaintResponses = complaintRepository.findTutorLeaderboardComplaintResponsesByCourseId(groupName,
-                course.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintResponsesByCourseId<< call for course " + course.getId() + " in " + (end - start) + "ms");
-
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardAnsweredMoreFeedbackRequests> tutorLeaderboardAnsweredMoreFeedbackRequests = complaintRepository
-                .findTutorLeaderboardAnsweredMoreFeedbackRequestsByCourseId(groupName, course.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardAnsweredMoreFeedbackRequestsByCourseId<< call for course " + course.getId() + " in " + (end - start) + "ms");
-
-        return aggregateTutorLeaderboardData(tutors, tutorLeaderboardAssessments, tutorLeaderboardComplaints, tutorLeaderboardMoreFeedbackRequests,
-                tutorLeaderboardComplaintResponses, tutorLeaderboardAnsweredMoreFeedbackRequests, false);
+        Set<Long> exerciseIds = exerciseRepository.findAllIdsByCourseId(course.getId());
+        return aggregateTutorLeaderboardData(tutors, getExerciseLeaderboards(course.getTeachingAssistantGroupName(), exerciseIds), false);
     }
 
     /**
@@ -88,25 +100,9 @@ public class TutorLeaderboardService {
      * @return list of tutor leaderboard objects
      */
     public List<TutorLeaderboardDTO> getExamLeaderboard(Course course, Exam exam) {
-
         List<User> tutors = userRepository.getTutors(course);
-        String groupName = course.getTeachingAssistantGroupName();
-
-        long start = System.currentTimeMillis();
-        List<TutorLeaderboardAssessments> tutorLeaderboardAssessments = resultRepository.findTutorLeaderboardAssessmentByExamId(exam.getId());
-        long end = System.currentTimeMillis();
-        log.info("Finished >>resultRepository.findTutorLeaderboardAssessmentByExamId<< call for exercise " + exam.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaints> tutorLeaderboardComplaints = complaintRepository.findTutorLeaderboardComplaintsByExamId(groupName, exam.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintsByExamId<< call for exercise " + exam.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaintResponses> tutorLeaderboardComplaintResponses = complaintRepository.findTutorLeaderboardComplaintResponsesByExamId(groupName, exam.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintResponsesByExamId<< call for exercise " + exam.getId() + " in " + (end - start) + "ms");
-
-        return aggregateTutorLeaderboardData(tutors, tutorLeaderboardAssessments, tutorLeaderboardComplaints, new ArrayList<>(), tutorLeaderboardComplaintResponses,
-                new ArrayList<>(), true);
+        Set<Long> exerciseIds = exerciseRepository.findAllIdsByExamId(exam.getId());
+        return aggregateTutorLeaderboardData(tutors, getExerciseLeaderboards(course.getTeachingAssistantGroupName(), exerciseIds), true);
     }
 
     /**
@@ -116,48 +112,121 @@ public class TutorLeaderboardService {
      * @return list of tutor leaderboard objects
      */
     public List<TutorLeaderboardDTO> getExerciseLeaderboard(Exercise exercise) {
+        Course course = exercise.getCourseViaExerciseGroupOrCourseMember();
+        List<User> tutors = userRepository.getTutors(course);
+        return aggregateTutorLeaderboardData(tutors, getExerciseLeaderboards(course.getTeachingAssistantGroupName(), Set.of(exercise.getId())), exercise.isExamExercise());
+    }
+
+    /**
+     * Invalidates the cached leaderboard counters of the exercise of the given participation on all instances, e.g. because a result or a complaint of the participation
+     * has been saved. If the participation is saved in a transaction, the counters are only invalidated when the transaction has been committed.
+     *
+     * @param participation the participation of the saved result or complaint, can be an uninitialized proxy
+     */
+    public void invalidateExerciseLeaderboard(Participation participation) {
+        if (participation == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    invalidateExerciseLeaderboardNow(participation);
+                }
+            });
+        }
+        else {
+            invalidateExerciseLeaderboardNow(participation);
+        }
+    }
 
-        List<User> tutors = userRepository.getTutors(exercise.getCourseViaExerciseGroupOrCourseMember());
-        String groupName = exercise.getCourseViaExerciseGroupOrCourseMember().getTeachingAssistantGroupName();
-        long start = System.currentTimeMillis();
-        List<TutorLeaderboardAssessments> tutorLeaderboardAssessments = resultRepository.findTutorLeaderboardAssessmentByExerciseId(exercise.getId());
-        long end = System.currentTimeMillis();
-        log.info("Finished >>resultRepository.findTutorLeaderboardAssessmentByExerciseId<< call for exercise " + exercise.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaints> tutorLeaderboardComplaints = complaintRepository.findTutorLeaderboardComplaintsByExerciseId(groupName, exercise.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintsByExerciseId<< call for exercise " + exercise.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardMoreFeedbackRequests> tutorLeaderboardMoreFeedbackRequests = complaintRepository.findTutorLeaderboardMoreFeedbackRequestsByExerciseId(groupName,
-                exercise.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardMoreFeedbackRequestsByExerciseId<< call for exercise " + exercise.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardComplaintResponses> tutorLeaderboardComplaintResponses = complaintRepository.findTutorLeaderboardComplaintResponsesByExerciseId(groupName,
-                exercise.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardComplaintResponsesByExerciseId<< call for exercise " + exercise.getId() + " in " + (end - start) + "ms");
-        start = System.currentTimeMillis();
-        List<TutorLeaderboardAnsweredMoreFeedbackRequests> tutorLeaderboardAnsweredMoreFeedbackRequests = complaintRepository
-                .findTutorLeaderboardAnsweredMoreFeedbackRequestsByExerciseId(groupName, exercise.getId());
-        end = System.currentTimeMillis();
-        log.info("Finished >>complaintRepository.findTutorLeaderboardAnsweredMoreFeedbackRequestsByExerciseId<< call for exercise " + exercise.getId() + " in " + (end - start)
-                + "ms");
-
-        return aggregateTutorLeaderboardData(tutors, tutorLeaderboardAssessments, tutorLeaderboardComplaints, tutorLeaderboardMoreFeedbackRequests,
-                tutorLeaderboardComplaintResponses, tutorLeaderboardAnsweredMoreFeedbackRequests, exercise.isExamExercise());
+    private void invalidateExerciseLeaderboardNow(Participation participation) {
+        try {
+            participationRepository.findExerciseIdOfParticipation(participation).ifPresent(exerciseId -> {
+                invalidateLocalExerciseLeaderboard(exerciseId);
+                exerciseLeaderboardInvalidations.publish(exerciseId);
+            });
+        }
+        catch (Exception ex) {
+            // the transaction has already been committed, the counters are calculated again after the max age
+            log.warn("Could not invalidate the tutor leaderboard counters of participation {}: {}", participation.getId(), ex.getMessage());
+        }
     }
 
-    @NotNull
-    private List<TutorLeaderboardDTO> aggregateTutorLeaderboardData(List<User> tutors, List<TutorLeaderboardAssessments> assessments, List<TutorLeaderboardComplaints> complaints,
-            List<TutorLeaderboardMoreFeedbackRequests> feedbackRequests, List<TutorLeaderboardComplaintResponses> complaintResponses,
-            List<TutorLeaderboardAnsweredMoreFeedbackRequests> answeredFeedbackRequests, boolean isExam) {
+    private void invalidateLocalExerciseLeaderboard(Long exerciseId) {
+        exerciseLeaderboards.put(exerciseId, new ExerciseLeaderboard(System.nanoTime(), null));
+    }
 
-        var assessmentsMap = assessments.stream().collect(Collectors.toMap(TutorLeaderboardAssessments::getKey, value -> value));
-        var complaintsMap = complaints.stream().collect(Collectors.toMap(TutorLeaderboardComplaints::getKey, value -> value));
-        var feedbackRequestsMap = feedbackRequests.stream().collect(Collectors.toMap(TutorLeaderboardMoreFeedbackRequests::getKey, value -> value));
-        var complaintResponsesMap = complaintResponses.stream().collect(Collectors.toMap(TutorLeaderboardComplaintResponses::getKey, value -> value));
-        var answeredFeedbackRequestsMap = answeredFeedbackRequests.stream().collect(Collectors.toMap(TutorLeaderboardAnsweredMoreFeedbackRequests::getKey, value -> value));
+    private Collection<ExerciseLeaderboard> getExerciseLeaderboards(String groupName, Set<Long> exerciseIds) {
+        long now = System.nanoTime();
+        long maxAge = TimeUnit.SECONDS.toNanos(leaderboardMaxAgeInSeconds);
+        exerciseLeaderboards.values().removeIf(leaderboard -> now - leaderboard.since > maxAge);
+
+        List<ExerciseLeaderboard> leaderboards = new ArrayList<>();
+        Set<Long> exerciseIdsToCalculate = new HashSet<>();
+        for (Long exerciseId : exerciseIds) {
+            ExerciseLeaderboard cached = exerciseLeaderboards.get(exerciseId);
+            if (cached != null && groupName.equals(cached.groupName)) {
+                leaderboards.add(cached);
+            }
+            else {
+                exerciseIdsToCalculate.add(exerciseId);
+            }
+        }
+        if (!exerciseIdsToCalculate.isEmpty()) {
+            Map<Long, ExerciseLeaderboard> calculatedLeaderboards = calculateExerciseLeaderboards(now, groupName, exerciseIdsToCalculate);
+            calculatedLeaderboards.forEach((exerciseId, leaderboard) -> exerciseLeaderboards.merge(exerciseId, leaderboard,
+                    // counters that were invalidated while they were calculated must not be cached
+                    (existing, calculated) -> existing.since > calculated.since ? existing : calculated));
+            leaderboards.addAll(calculatedLeaderboards.values());
+        }
+        return leaderboards;
+    }
+
+    private Map<Long, ExerciseLeaderboard> calculateExerciseLeaderboards(long since, String groupName, Set<Long> exerciseIds) {
+        long start = System.nanoTime();
+        Map<Long, ExerciseLeaderboard> leaderboards = new HashMap<>();
+        for (Long exerciseId : exerciseIds) {
+            leaderboards.put(exerciseId, new ExerciseLeaderboard(since, groupName));
+        }
+        resultRepository.findTutorLeaderboardAssessmentByExerciseIds(exerciseIds)
+                .forEach(assessments -> leaderboards.get(assessments.getExerciseId()).assessments.add(assessments));
+        complaintRepository.findTutorLeaderboardComplaintsByExerciseIds(groupName, exerciseIds)
+                .forEach(complaints -> leaderboards.get(complaints.getExerciseId()).complaints.add(complaints));
+        complaintRepository.findTutorLeaderboardMoreFeedbackRequestsByExerciseIds(groupName, exerciseIds)
+                .forEach(feedbackRequests -> leaderboards.get(feedbackRequests.getExerciseId()).feedbackRequests.add(feedbackRequests));
+        complaintRepository.findTutorLeaderboardComplaintResponsesByExerciseIds(groupName, exerciseIds)
+                .forEach(complaintResponses -> leaderboards.get(complaintResponses.getExerciseId()).complaintResponses.add(complaintResponses));
+        complaintRepository.findTutorLeaderboardAnsweredMoreFeedbackRequestsByExerciseIds(groupName, exerciseIds)
+                .forEach(answeredFeedbackRequests -> leaderboards.get(answeredFeedbackRequests.getExerciseId()).answeredFeedbackRequests.add(answeredFeedbackRequests));
+        log.info("Calculated the tutor leaderboard counters of {} exercises in {}", exerciseIds.size(), TimeLogUtil.formatDurationFrom(start));
+        return leaderboards;
+    }
+
+    @NotNull
+    private List<TutorLeaderboardDTO> aggregateTutorLeaderboardData(List<User> tutors, Collection<ExerciseLeaderboard> exerciseLeaderboards, boolean isExam) {
+
+        // the counters of the exercises are summed up per tutor
+        Map<Long, TutorLeaderboardAssessments> assessmentsMap = new HashMap<>();
+        Map<Long, TutorLeaderboardComplaints> complaintsMap = new HashMap<>();
+        Map<Long, TutorLeaderboardMoreFeedbackRequests> feedbackRequestsMap = new HashMap<>();
+        Map<Long, TutorLeaderboardComplaintResponses> complaintResponsesMap = new HashMap<>();
+        Map<Long, TutorLeaderboardAnsweredMoreFeedbackRequests> answeredFeedbackRequestsMap = new HashMap<>();
+        for (ExerciseLeaderboard leaderboard : exerciseLeaderboards) {
+            leaderboard.assessments.forEach(value -> assessmentsMap.merge(value.getKey(), value, (first, second) -> new TutorLeaderboardAssessments(0L, first.getUserId(),
+                    first.getAssessments() + second.getAssessments(), first.getPoints() + second.getPoints())));
+            leaderboard.complaints.forEach(value -> complaintsMap.merge(value.getKey(), value, (first, second) -> new TutorLeaderboardComplaints(0L, first.getUserId(),
+                    first.getAllComplaints() + second.getAllComplaints(), first.getAcceptedComplaints() + second.getAcceptedComplaints(), first.getPoints() + second.getPoints())));
+            leaderboard.feedbackRequests.forEach(value -> feedbackRequestsMap.merge(value.getKey(), value,
+                    (first, second) -> new TutorLeaderboardMoreFeedbackRequests(0L, first.getUserId(), first.getAllRequests() + second.getAllRequests(),
+                            first.getNotAnsweredRequests() + second.getNotAnsweredRequests(), first.getPoints() + second.getPoints())));
+            leaderboard.complaintResponses.forEach(value -> complaintResponsesMap.merge(value.getKey(), value, (first, second) -> new TutorLeaderboardComplaintResponses(0L,
+                    first.getUserId(), first.getComplaintResponses() + second.getComplaintResponses(), first.getPoints() + second.getPoints())));
+            leaderboard.answeredFeedbackRequests.forEach(value -> answeredFeedbackRequestsMap.merge(value.getKey(), value,
+                    (first, second) -> new TutorLeaderboardAnsweredMoreFeedbackRequests(0L, first.getUserId(), first.getAnsweredRequests() + second.getAnsweredRequests(),
+                            first.getPoints() + second.getPoints())));
+        }
 
         List<TutorLeaderboardDTO> tutorLeaderBoardEntries = new ArrayList<>();
 
@@ -202,4 +271,35 @@ public class TutorLeaderboardService {
         }
         return tutorLeaderBoardEntries;
     }
+
+    /**
+     * The counters of all tutors in one exercise
+     */
+    private static final class ExerciseLeaderboard {
+
+        /**
+         * When the calculation of the counters was started or when the counters were invalidated
+         */
+        private final long since;
+
+        /**
+         * The tutor group the counters were calculated for, null if the counters have been invalidated
+         */
+        private final String groupName;
+
+        private final List<TutorLeaderboardAssessments> assessments = new ArrayList<>();
+
+        private final List<TutorLeaderboardComplaints> complaints = new ArrayList<>();
+
+        private final List<TutorLeaderboardMoreFeedbackRequests> feedbackRequests = new ArrayList<>();
+
+        private final List<TutorLeaderboardComplaintResponses> complaintResponses = new ArrayList<>();
+
+        private final List<TutorLeaderboardAnsweredMoreFeedbackRequests> answeredFeedbackRequests = new ArrayList<>();
+
+        private ExerciseLeaderboard(long since, String groupName) {
+            this.since = since;
+            this.groupName = groupName;
+        }
+    }
 }
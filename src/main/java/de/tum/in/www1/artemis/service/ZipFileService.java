@@ -1,9 +1,12 @@
 package de.tum.in.www1.artemis.service;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -34,6 +37,17 @@ public class ZipFileService {
         }
     }
 
+    /**
+     * Add the given files to a zip file that is being written, each of them with its file name
+     *
+     * @param zipOutputStream the stream of the zip file, it stays open
+     * @param paths           multiple paths that should be zipped
+     */
+    public void addFilesToZipFile(ZipOutputStream zipOutputStream, List<Path> paths) {
+        paths.stream().filter(path -> !Files.isDirectory(path) && Files.exists(path))
+                .forEach(path -> copyToZipFile(zipOutputStream, path, new ZipEntry(path.getFileName().toString())));
+    }
+
     /**
      * Create a zip file of the given paths and save it in the zipFilePath
      *
@@ -69,6 +83,52 @@ public class ZipFileService {
         return zipFilePath;
     }
 
+    /**
+     * Recursively include all files in contentRootPath in a zip file and write this zip file as the entry 'zipEntryName' into the given zip output stream. In contrast to
+     * {@link #createZipFileWithFolderContent(Path, Path)}, the nested zip file is not stored on disk.
+     *
+     * @param zipOutputStream the stream of the outer zip file, it stays open
+     * @param zipEntryName    the name of the nested zip file in the outer zip file
+     * @param contentRootPath a path to a folder: all content in this folder (and in any subfolders) will be included in the nested zip file
+     * @throws IOException if an error occurred while writing to the outer zip file
+     */
+    public void addZipFileWithFolderContent(ZipOutputStream zipOutputStream, String zipEntryName, Path contentRootPath) throws IOException {
+        addZipFile(zipOutputStream, zipEntryName, nestedZipOutputStream -> addFolderContentToZipFile(nestedZipOutputStream, contentRootPath, contentRootPath));
+    }
+
+    /**
+     * Write a zip file as the entry 'zipEntryName' into the given zip output stream, the content of the nested zip file is written by the given writer
+     *
+     * @param zipOutputStream the stream of the outer zip file, it stays open
+     * @param zipEntryName    the name of the nested zip file in the outer zip file
+     * @param contentWriter   writes the entries of the nested zip file
+     * @throws IOException if an error occurred while writing to the outer zip file
+     */
+    public void addZipFile(ZipOutputStream zipOutputStream, String zipEntryName, ZipContentWriter contentWriter) throws IOException {
+        zipOutputStream.putNextEntry(new ZipEntry(zipEntryName));
+        try (ZipOutputStream nestedZipOutputStream = new ZipOutputStream(new NonClosingOutputStream(zipOutputStream))) {
+            contentWriter.write(nestedZipOutputStream);
+        }
+        zipOutputStream.closeEntry();
+    }
+
+    /**
+     * Recursively add all files in the folder to a zip file that is being written
+     *
+     * @param zipOutputStream the stream of the zip file, it stays open
+     * @param folder          all content in this folder (and in any subfolders) will be included in the zip file
+     * @param rootPath        the entries in the zip file are named relative to this path
+     * @throws IOException if the folder could not be read
+     */
+    public void addFolderContentToZipFile(ZipOutputStream zipOutputStream, Path folder, Path rootPath) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.filter(path -> !Files.isDirectory(path) && Files.exists(path)).forEach(path -> {
+                ZipEntry zipEntry = new ZipEntry(rootPath.relativize(path).toString());
+                copyToZipFile(zipOutputStream, path, zipEntry);
+            });
+        }
+    }
+
     private void copyToZipFile(ZipOutputStream zipOutputStream, Path path, ZipEntry zipEntry) {
         try {
             zipOutputStream.putNextEntry(zipEntry);
@@ -79,4 +139,33 @@ public class ZipFileService {
             log.error("Create zip file error", e);
         }
     }
+
+    /**
+     * Writes the entries of a zip file
+     */
+    @FunctionalInterface
+    public interface ZipContentWriter {
+
+        void write(ZipOutputStream zipOutputStream) throws IOException;
+    }
+
+    /**
+     * Passes everything to the given stream, but does not close it, so that a nested zip output stream can be closed without closing the outer one
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
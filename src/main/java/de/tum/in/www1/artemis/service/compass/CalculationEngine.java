@@ -109,4 +109,12 @@ public interface CalculationEngine {
      * @param finishedResults the list of finished results, i.e. results for which assessor and completion date is not null
      */
     void printStatistic(long exerciseId, List<Result> finishedResults);
+
+    /**
+     * Create a snapshot of the state of the engine that is expensive to recompute, i.e. the similarity sets of the model elements and the models selected for assessment. The
+     * snapshot can be used to restore the engine without analyzing the similarity of the unchanged models again.
+     *
+     * @return the snapshot in a compact binary format or null if it cannot be created at the moment
+     */
+    byte[] createSnapshot();
 }
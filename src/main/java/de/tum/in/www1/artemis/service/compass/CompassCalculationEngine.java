@@ -6,8 +6,10 @@ import static de.tum.in.www1.artemis.service.compass.utils.CompassConfiguration.
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,30 +46,175 @@ public class CompassCalculationEngine implements CalculationEngine {
 
     private LocalDateTime lastUsed;
 
+    /**
+     * Note: The key is the model submission id, the value is the SHA-256 digest of the JSON representation of the model. It is used to check if a model of a snapshot is still
+     * up to date.
+     */
+    private Map<Long, byte[]> modelDigests;
+
     CompassCalculationEngine(Set<ModelingSubmission> modelingSubmissions) {
+        this(modelingSubmissions, null);
+    }
+
+    /**
+     * Creates the calculation engine for the given submissions. The similarity IDs of the models that are contained unchanged in the given snapshot are restored from the
+     * snapshot, only the similarity of the other models is analyzed. If the snapshot cannot be used, the similarity of all models is analyzed.
+     *
+     * @param modelingSubmissions the modeling submissions of the exercise
+     * @param snapshot            a snapshot created by {@link #createSnapshot()} for the exercise or null
+     */
+    CompassCalculationEngine(Set<ModelingSubmission> modelingSubmissions, byte[] snapshot) {
         lastUsed = LocalDateTime.now();
         modelIndex = new ModelIndex();
         assessmentIndex = new AssessmentIndex();
         automaticAssessmentController = new AutomaticAssessmentController();
         modelSelector = new ModelSelector();
+        modelDigests = new ConcurrentHashMap<>();
 
+        List<ModelingSubmission> submissionsWithModel = new ArrayList<>();
         for (Submission submission : modelingSubmissions) {
             // We have to unproxy here as sometimes the Submission is a Hibernate proxy resulting in a cast exception
             // when iterating over the ModelingSubmissions directly (i.e. for (ModelingSubmission submission : submissions)).
             ModelingSubmission modelingSubmission = (ModelingSubmission) Hibernate.unproxy(submission);
+            if (modelingSubmission.getModel() != null) {
+                submissionsWithModel.add(modelingSubmission);
+            }
+        }
 
-            String model = modelingSubmission.getModel();
-            if (model != null) {
+        Set<Long> restoredModelIds = snapshot != null ? restoreModels(submissionsWithModel, snapshot) : Set.of();
+        for (ModelingSubmission modelingSubmission : submissionsWithModel) {
+            if (!restoredModelIds.contains(modelingSubmission.getId())) {
                 buildModel(modelingSubmission);
+            }
 
-                if (hasCompletedManualAssessment(modelingSubmission)) {
-                    addManualAssessmentForSubmission(modelingSubmission);
-                }
+            if (hasCompletedManualAssessment(modelingSubmission)) {
+                addManualAssessmentForSubmission(modelingSubmission);
             }
         }
         assessModelsAutomatically();
     }
 
+    /**
+     * Restores the models of the given submissions that are contained unchanged in the given snapshot, i.e. it builds the models and assigns the similarity IDs stored in the
+     * snapshot instead of analyzing the similarity. Additionally, it restores the models waiting for assessment and the already handled models.
+     *
+     * @param modelingSubmissions the modeling submissions with a model
+     * @param snapshot            the snapshot of the engine
+     * @return the ids of the restored models, empty if the snapshot cannot be used
+     */
+    private Set<Long> restoreModels(List<ModelingSubmission> modelingSubmissions, byte[] snapshot) {
+        CompassEngineState state;
+        try {
+            state = CompassEngineState.fromBytes(snapshot);
+        }
+        catch (IOException e) {
+            log.warn("Could not read Compass snapshot, all models are analyzed again: {}", e.getMessage());
+            return Set.of();
+        }
+        if (state == null) {
+            return Set.of();
+        }
+
+        int numberOfUniqueElements = state.getNumberOfUniqueElements();
+        Map<Long, UMLDiagram> restorableModels = new HashMap<>();
+        for (ModelingSubmission modelingSubmission : modelingSubmissions) {
+            CompassEngineState.ModelState modelState = state.getModel(modelingSubmission.getId());
+            if (modelState == null || !Arrays.equals(modelState.getModelDigest(), digest(modelingSubmission.getModel()))) {
+                // new or changed model, it has to be analyzed
+                continue;
+            }
+            try {
+                UMLDiagram model = UMLModelParser.buildModelFromJSON(parseString(modelingSubmission.getModel()).getAsJsonObject(), modelingSubmission.getId());
+                if (isRestorable(model, modelState.getSimilarityIds(), numberOfUniqueElements)) {
+                    restorableModels.put(modelingSubmission.getId(), model);
+                }
+            }
+            catch (IOException e) {
+                log.error("Error while building model for submission {} from snapshot!", modelingSubmission.getId(), e);
+            }
+        }
+
+        // every similarity set needs its unique element, otherwise new elements could not be compared with it
+        List<UMLElement> uniqueElements = new ArrayList<>(numberOfUniqueElements);
+        for (int similarityId = 0; similarityId < numberOfUniqueElements; similarityId++) {
+            long submissionId = state.getUniqueElementSubmissionId(similarityId);
+            String jsonElementId = state.getUniqueElementJsonId(similarityId);
+            UMLDiagram model = restorableModels.get(submissionId);
+            UMLElement uniqueElement = model != null ? model.getElementByJSONID(jsonElementId) : null;
+            if (uniqueElement == null || state.getModel(submissionId).getSimilarityIds().get(jsonElementId) != similarityId) {
+                log.info("Compass snapshot is outdated, because the model of submission {} has changed, all models are analyzed again", submissionId);
+                return Set.of();
+            }
+            uniqueElements.add(uniqueElement);
+        }
+
+        for (var entry : restorableModels.entrySet()) {
+            UMLDiagram model = entry.getValue();
+            SimilarityDetector.restoreSimilarity(model, modelIndex, state.getModel(entry.getKey()).getSimilarityIds());
+            modelIndex.addModel(model);
+            modelDigests.put(entry.getKey(), state.getModel(entry.getKey()).getModelDigest());
+        }
+        uniqueElements.forEach(modelIndex::restoreUniqueElement);
+
+        modelSelector.restore(filterKnownModels(state.getModelsWaitingForAssessment(), modelingSubmissions),
+                filterKnownModels(state.getAlreadyHandledModels(), modelingSubmissions));
+        log.info("Restored {} of {} models and {} similarity sets from the Compass snapshot", restorableModels.size(), modelingSubmissions.size(), numberOfUniqueElements);
+        return restorableModels.keySet();
+    }
+
+    private boolean isRestorable(UMLDiagram model, Map<String, Integer> similarityIds, int numberOfUniqueElements) {
+        for (UMLElement element : model.getAllModelElements()) {
+            Integer similarityId = similarityIds.get(element.getJSONElementID());
+            if (similarityId == null || similarityId < 0 || similarityId >= numberOfUniqueElements) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] digest(String model) {
+        return DigestUtils.sha256(model);
+    }
+
+    private List<Long> filterKnownModels(List<Long> modelIds, List<ModelingSubmission> modelingSubmissions) {
+        Set<Long> submissionIds = modelingSubmissions.stream().map(ModelingSubmission::getId).collect(Collectors.toSet());
+        return modelIds.stream().filter(submissionIds::contains).collect(Collectors.toList());
+    }
+
+    @Override
+    public byte[] createSnapshot() {
+        CompassEngineState state = new CompassEngineState();
+        Map<UMLElement, Long> submissionIdsOfElements = new IdentityHashMap<>();
+        for (UMLDiagram model : modelIndex.getModelCollection()) {
+            byte[] modelDigest = modelDigests.get(model.getModelSubmissionId());
+            if (modelDigest == null) {
+                continue;
+            }
+            Map<String, Integer> similarityIds = new HashMap<>();
+            for (UMLElement element : model.getAllModelElements()) {
+                similarityIds.put(element.getJSONElementID(), element.getSimilarityID());
+                submissionIdsOfElements.put(element, model.getModelSubmissionId());
+            }
+            state.addModel(model.getModelSubmissionId(), modelDigest, similarityIds);
+        }
+        for (UMLElement uniqueElement : modelIndex.getUniqueElements()) {
+            Long submissionId = submissionIdsOfElements.get(uniqueElement);
+            if (submissionId == null) {
+                // the model of the element is currently being added, the snapshot is created again afterwards
+                return null;
+            }
+            state.addUniqueElement(submissionId, uniqueElement.getJSONElementID());
+        }
+        state.setModelSelection(modelSelector.getModelsWaitingForAssessment(), modelSelector.getAlreadyHandledModels());
+        try {
+            return state.toBytes();
+        }
+        catch (IOException e) {
+            log.error("Could not create Compass snapshot", e);
+            return null;
+        }
+    }
+
     /**
      * Checks if the given modeling submission already has a completed manual assessment. The assessment is completed if the submission has a result with a completion date.
      *
@@ -89,6 +236,7 @@ public class CompassCalculationEngine implements CalculationEngine {
     private void buildModel(ModelingSubmission modelingSubmission) {
         if (modelingSubmission.getModel() != null) {
             buildModel(modelingSubmission.getId(), parseString(modelingSubmission.getModel()).getAsJsonObject());
+            modelDigests.put(modelingSubmission.getId(), digest(modelingSubmission.getModel()));
         }
     }
 
@@ -204,6 +352,7 @@ public class CompassCalculationEngine implements CalculationEngine {
             JsonElement jsonElement = parseString(model);
             if (jsonElement != null) {
                 buildModel(modelId, jsonElement.getAsJsonObject());
+                modelDigests.put(modelId, digest(model));
             }
         }
     }
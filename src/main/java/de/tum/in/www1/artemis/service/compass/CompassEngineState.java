@@ -0,0 +1,170 @@
+package de.tum.in.www1.artemis.service.compass;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary representation of the state of a {@link CompassCalculationEngine} that is expensive to recompute, i.e. the similarity sets of the model elements (which
+ * require comparing every new model element with the unique elements of the exercise) and the state of the model selection.
+ * <p>
+ * The (deflated) format is: version, the models (submission id, SHA-256 digest of the model JSON and the similarity id of each model element by its JSON id), the unique element of
+ * each similarity set ordered by similarity id (submission id and JSON id of the element), the models waiting for assessment and the already handled models.
+ * The assessments are not part of the state, they are stored in the database anyway.
+ */
+class CompassEngineState {
+
+    private static final int VERSION = 2;
+
+    private final Map<Long, ModelState> models = new HashMap<>();
+
+    private final List<Long> uniqueElementSubmissionIds = new ArrayList<>();
+
+    private final List<String> uniqueElementJsonIds = new ArrayList<>();
+
+    private final List<Long> modelsWaitingForAssessment = new ArrayList<>();
+
+    private final List<Long> alreadyHandledModels = new ArrayList<>();
+
+    static class ModelState {
+
+        private final byte[] modelDigest;
+
+        private final Map<String, Integer> similarityIds;
+
+        ModelState(byte[] modelDigest, Map<String, Integer> similarityIds) {
+            this.modelDigest = modelDigest;
+            this.similarityIds = similarityIds;
+        }
+
+        byte[] getModelDigest() {
+            return modelDigest;
+        }
+
+        Map<String, Integer> getSimilarityIds() {
+            return similarityIds;
+        }
+    }
+
+    void addModel(long submissionId, byte[] modelDigest, Map<String, Integer> similarityIds) {
+        models.put(submissionId, new ModelState(modelDigest, similarityIds));
+    }
+
+    void addUniqueElement(long submissionId, String jsonElementId) {
+        uniqueElementSubmissionIds.add(submissionId);
+        uniqueElementJsonIds.add(jsonElementId);
+    }
+
+    void setModelSelection(Collection<Long> modelsWaitingForAssessment, Collection<Long> alreadyHandledModels) {
+        this.modelsWaitingForAssessment.addAll(modelsWaitingForAssessment);
+        this.alreadyHandledModels.addAll(alreadyHandledModels);
+    }
+
+    ModelState getModel(long submissionId) {
+        return models.get(submissionId);
+    }
+
+    int getNumberOfUniqueElements() {
+        return uniqueElementSubmissionIds.size();
+    }
+
+    long getUniqueElementSubmissionId(int similarityId) {
+        return uniqueElementSubmissionIds.get(similarityId);
+    }
+
+    String getUniqueElementJsonId(int similarityId) {
+        return uniqueElementJsonIds.get(similarityId);
+    }
+
+    List<Long> getModelsWaitingForAssessment() {
+        return modelsWaitingForAssessment;
+    }
+
+    List<Long> getAlreadyHandledModels() {
+        return alreadyHandledModels;
+    }
+
+    /**
+     * Serializes the state into the compact binary format
+     *
+     * @return the serialized state
+     * @throws IOException if the state cannot be written
+     */
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(bytes)))) {
+            out.writeInt(VERSION);
+            out.writeInt(models.size());
+            for (var model : models.entrySet()) {
+                out.writeLong(model.getKey());
+                out.writeShort(model.getValue().getModelDigest().length);
+                out.write(model.getValue().getModelDigest());
+                out.writeInt(model.getValue().getSimilarityIds().size());
+                for (var element : model.getValue().getSimilarityIds().entrySet()) {
+                    out.writeUTF(element.getKey());
+                    out.writeInt(element.getValue());
+                }
+            }
+            out.writeInt(uniqueElementSubmissionIds.size());
+            for (int i = 0; i < uniqueElementSubmissionIds.size(); i++) {
+                out.writeLong(uniqueElementSubmissionIds.get(i));
+                out.writeUTF(uniqueElementJsonIds.get(i));
+            }
+            writeIds(out, modelsWaitingForAssessment);
+            writeIds(out, alreadyHandledModels);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a state that was serialized with {@link #toBytes()}
+     *
+     * @param data the serialized state
+     * @return the state or null if the data has been written in an unknown (e.g. outdated) version
+     * @throws IOException if the data cannot be read
+     */
+    static CompassEngineState fromBytes(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(data))))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            CompassEngineState state = new CompassEngineState();
+            int numberOfModels = in.readInt();
+            for (int i = 0; i < numberOfModels; i++) {
+                long submissionId = in.readLong();
+                byte[] modelDigest = new byte[in.readUnsignedShort()];
+                in.readFully(modelDigest);
+                int numberOfElements = in.readInt();
+                Map<String, Integer> similarityIds = new HashMap<>();
+                for (int j = 0; j < numberOfElements; j++) {
+                    similarityIds.put(in.readUTF(), in.readInt());
+                }
+                state.addModel(submissionId, modelDigest, similarityIds);
+            }
+            int numberOfUniqueElements = in.readInt();
+            for (int i = 0; i < numberOfUniqueElements; i++) {
+                state.addUniqueElement(in.readLong(), in.readUTF());
+            }
+            state.modelsWaitingForAssessment.addAll(readIds(in));
+            state.alreadyHandledModels.addAll(readIds(in));
+            return state;
+        }
+    }
+
+    private static void writeIds(DataOutputStream out, List<Long> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (long id : ids) {
+            out.writeLong(id);
+        }
+    }
+
+    private static List<Long> readIds(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Long> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(in.readLong());
+        }
+        return ids;
+    }
+}
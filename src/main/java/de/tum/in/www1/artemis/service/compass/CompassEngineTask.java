@@ -0,0 +1,90 @@
+package de.tum.in.www1.artemis.service.compass;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.hazelcast.spring.context.SpringAware;
+
+import de.tum.in.www1.artemis.domain.Feedback;
+
+/**
+ * Task to execute an operation on the Compass calculation engine of an exercise on the cluster member that owns the engine. The task can be serialized and distributed.
+ */
+@SpringAware
+final class CompassEngineTask implements Callable<Serializable>, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    enum Operation {
+        REMOVE_MODEL_WAITING_FOR_ASSESSMENT, GET_MODELS_WAITING_FOR_ASSESSMENT, CANCEL_ASSESSMENT, RESET_MODELS_WAITING_FOR_ASSESSMENT, ADD_ASSESSMENT, GET_SEMI_AUTOMATIC_RESULT,
+        REMOVE_SEMI_AUTOMATIC_RESULT, ADD_MODEL, GET_STATISTICS, PRINT_STATISTIC
+    }
+
+    final Operation operation;
+
+    final long exerciseId;
+
+    final Long submissionId;
+
+    final String model;
+
+    final ArrayList<Feedback> feedbacks;
+
+    @Autowired // ok
+    transient CompassService compassService;
+
+    private CompassEngineTask(Operation operation, long exerciseId, Long submissionId, String model, ArrayList<Feedback> feedbacks) {
+        this.operation = operation;
+        this.exerciseId = exerciseId;
+        this.submissionId = submissionId;
+        this.model = model;
+        this.feedbacks = feedbacks;
+    }
+
+    static CompassEngineTask of(Operation operation, long exerciseId) {
+        return new CompassEngineTask(operation, exerciseId, null, null, null);
+    }
+
+    static CompassEngineTask of(Operation operation, long exerciseId, long submissionId) {
+        return new CompassEngineTask(operation, exerciseId, submissionId, null, null);
+    }
+
+    static CompassEngineTask addModel(long exerciseId, long submissionId, String model) {
+        return new CompassEngineTask(Operation.ADD_MODEL, exerciseId, submissionId, model, null);
+    }
+
+    /**
+     * Only the values of the feedback that Compass needs are transferred, not the (lazily loaded) result and its relationships
+     */
+    static CompassEngineTask addAssessment(long exerciseId, long submissionId, List<Feedback> feedbacks) {
+        ArrayList<Feedback> feedbackCopies = new ArrayList<>(feedbacks.size());
+        for (Feedback feedback : feedbacks) {
+            feedbackCopies.add(copyForTransfer(feedback));
+        }
+        return new CompassEngineTask(Operation.ADD_ASSESSMENT, exerciseId, submissionId, null, feedbackCopies);
+    }
+
+    /**
+     * Copies the values of the given feedback that are used by Compass, without the result it belongs to
+     *
+     * @param feedback the feedback that should be sent to another cluster member
+     * @return the copy of the feedback
+     */
+    static Feedback copyForTransfer(Feedback feedback) {
+        Feedback feedbackCopy = new Feedback().text(feedback.getText()).detailText(feedback.getDetailText()).reference(feedback.getReference()).credits(feedback.getCredits())
+                .positive(feedback.isPositive()).type(feedback.getType());
+        feedbackCopy.setId(feedback.getId());
+        return feedbackCopy;
+    }
+
+    @Override
+    public Serializable call() {
+        return compassService.executeOnOwner(this);
+    }
+}
@@ -2,12 +2,14 @@ package de.tum.in.www1.artemis.service.compass;
 
 import static de.tum.in.www1.artemis.service.compass.utils.CompassConfiguration.*;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -16,20 +18,31 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.google.gson.JsonObject;
-
+import com.google.gson.JsonParser;
+import com.hazelcast.cluster.Member;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.MemberLeftException;
+import com.hazelcast.spi.exception.TargetNotMemberException;
+
+import de.tum.in.www1.artemis.config.Constants;
 import de.tum.in.www1.artemis.domain.Feedback;
 import de.tum.in.www1.artemis.domain.Result;
 import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
 import de.tum.in.www1.artemis.domain.enumeration.DiagramType;
+import de.tum.in.www1.artemis.domain.modeling.CompassEngineSnapshot;
 import de.tum.in.www1.artemis.domain.modeling.ModelingExercise;
 import de.tum.in.www1.artemis.domain.modeling.ModelingSubmission;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.repository.CompassEngineSnapshotRepository;
 import de.tum.in.www1.artemis.repository.ModelingExerciseRepository;
 import de.tum.in.www1.artemis.repository.ModelingSubmissionRepository;
 import de.tum.in.www1.artemis.repository.ResultRepository;
 import de.tum.in.www1.artemis.repository.StudentParticipationRepository;
 import de.tum.in.www1.artemis.service.compass.grade.CompassGrade;
 import de.tum.in.www1.artemis.service.compass.grade.Grade;
+import de.tum.in.www1.artemis.web.rest.errors.InternalServerErrorException;
 
 @Service
 public class CompassService {
@@ -44,6 +57,24 @@ public class CompassService {
 
     private final StudentParticipationRepository studentParticipationRepository;
 
+    private final CompassEngineSnapshotRepository compassEngineSnapshotRepository;
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final IExecutorService compassExecutor;
+
+    /**
+     * Set while an operation forwarded by another cluster member is executed, so that it is never forwarded again (e.g. during a partition migration)
+     */
+    private static final ThreadLocal<Boolean> executingForwardedTask = ThreadLocal.withInitial(() -> false);
+
+    private static final long FORWARD_TIMEOUT_SECONDS = 120;
+
+    /**
+     * How often an operation is forwarded if the owner of the engine has left the cluster in the meantime
+     */
+    private static final int MAX_FORWARD_ATTEMPTS = 3;
+
     /**
      * Map that contains a Map for different modeling exercises, i.e. the outer map maps exerciseId -> Map. The inner maps map submissionIds to automatic results.
      * Automatic results generated by Compass are not stored in the database, instead they are stored in these maps. As soon as a submission is locked for assessment, its automatic
@@ -56,12 +87,159 @@ public class CompassService {
      */
     private static Map<Long, CalculationEngine> compassCalculationEngines = new ConcurrentHashMap<>();
 
+    /**
+     * The ids of the exercises whose calculation engine has changed since its snapshot was saved the last time
+     */
+    private static final Set<Long> exercisesWithChangedEngine = ConcurrentHashMap.newKeySet();
+
     public CompassService(ResultRepository resultRepository, ModelingExerciseRepository modelingExerciseRepository, ModelingSubmissionRepository modelingSubmissionRepository,
-            StudentParticipationRepository studentParticipationRepository) {
+            StudentParticipationRepository studentParticipationRepository, CompassEngineSnapshotRepository compassEngineSnapshotRepository, HazelcastInstance hazelcastInstance) {
         this.resultRepository = resultRepository;
         this.modelingExerciseRepository = modelingExerciseRepository;
         this.modelingSubmissionRepository = modelingSubmissionRepository;
         this.studentParticipationRepository = studentParticipationRepository;
+        this.compassEngineSnapshotRepository = compassEngineSnapshotRepository;
+        this.hazelcastInstance = hazelcastInstance;
+        this.compassExecutor = hazelcastInstance.getExecutorService(Constants.HAZELCAST_COMPASS_EXECUTOR);
+    }
+
+    /**
+     * Configures Hazelcast for the CompassService before the HazelcastInstance is created.
+     *
+     * @param config   the {@link Config} the CompassService-specific configuration should be added to
+     * @param poolSize the number of threads that execute the forwarded operations on each cluster member
+     */
+    public static void configureHazelcast(Config config, int poolSize) {
+        config.getExecutorConfig(Constants.HAZELCAST_COMPASS_EXECUTOR).setPoolSize(poolSize);
+    }
+
+    /**
+     * The calculation engine of an exercise is only kept by the cluster member that owns the Hazelcast partition of the exercise id, so that each engine is only built once in
+     * the cluster. All operations on the engine of an exercise are forwarded to this member.
+     *
+     * @param exerciseId the id of the exercise
+     * @return true if the engine of the exercise is owned by this cluster member (or if there is no owner yet), false otherwise
+     */
+    private boolean isEngineOwner(long exerciseId) {
+        if (executingForwardedTask.get()) {
+            return true;
+        }
+        Member owner = hazelcastInstance.getPartitionService().getPartition(exerciseId).getOwner();
+        return owner == null || owner.localMember();
+    }
+
+    /**
+     * Forwards the given operation to the cluster member that owns the engine of the exercise and waits for the result. If the owner has left the cluster, the operation is
+     * forwarded again to the new owner of the exercise (or executed locally if this member owns it now). Any other failure is passed to the caller: the operation might have
+     * been executed by the owner anyway (e.g. after a timeout), and executing it again would apply it twice (e.g. an assessment) and build a second engine on a member that
+     * does not own it.
+     *
+     * @param task the operation that should be executed
+     * @return the result of the operation
+     */
+    private Serializable forwardToEngineOwner(CompassEngineTask task) {
+        // the engine was built here before the partition of the exercise has been migrated to another member, it is not up to date anymore
+        removeLocalCalculationEngine(task.exerciseId);
+        for (int attempt = 1;; attempt++) {
+            try {
+                return compassExecutor.submitToKeyOwner(task, task.exerciseId).get(FORWARD_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InternalServerErrorException("Interrupted while forwarding " + task.operation + " for exercise " + task.exerciseId + " to the Compass engine owner");
+            }
+            catch (TimeoutException e) {
+                throw new InternalServerErrorException("The owner of the Compass engine did not execute " + task.operation + " for exercise " + task.exerciseId + " in time");
+            }
+            catch (ExecutionException | RuntimeException e) {
+                if (!isEngineOwnerGone(e) || attempt >= MAX_FORWARD_ATTEMPTS) {
+                    throw asRuntimeException(e, task);
+                }
+                log.warn("The owner of the Compass engine for exercise {} has left the cluster, forward {} again", task.exerciseId, task.operation);
+                if (isEngineOwner(task.exerciseId)) {
+                    return executeOnOwner(task);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param exception the exception thrown while forwarding an operation
+     * @return true if the operation could not be executed because the owner of the engine is not a member of the cluster anymore, false otherwise
+     */
+    private static boolean isEngineOwnerGone(Exception exception) {
+        Throwable cause = exception instanceof ExecutionException && !(exception instanceof MemberLeftException) ? exception.getCause() : exception;
+        return cause instanceof MemberLeftException || cause instanceof TargetNotMemberException;
+    }
+
+    private static RuntimeException asRuntimeException(Exception exception, CompassEngineTask task) {
+        Throwable cause = exception instanceof ExecutionException && exception.getCause() != null ? exception.getCause() : exception;
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new InternalServerErrorException(
+                "Could not execute " + task.operation + " for exercise " + task.exerciseId + " on the owner of the Compass engine: " + cause.getMessage());
+    }
+
+    /**
+     * Executes an operation that has been forwarded to this cluster member because it owns the engine of the exercise.
+     *
+     * @param task the operation that should be executed
+     * @return the result of the operation, if any
+     */
+    Serializable executeOnOwner(CompassEngineTask task) {
+        executingForwardedTask.set(true);
+        try {
+            switch (task.operation) {
+                case REMOVE_MODEL_WAITING_FOR_ASSESSMENT -> removeModelWaitingForAssessment(task.exerciseId, task.submissionId);
+                case GET_MODELS_WAITING_FOR_ASSESSMENT -> {
+                    return new ArrayList<>(getModelsWaitingForAssessment(task.exerciseId));
+                }
+                case CANCEL_ASSESSMENT -> {
+                    ModelingExercise modelingExercise = findModelingExerciseById(task.exerciseId);
+                    if (modelingExercise != null) {
+                        cancelAssessmentForSubmission(modelingExercise, task.submissionId);
+                    }
+                }
+                case RESET_MODELS_WAITING_FOR_ASSESSMENT -> resetModelsWaitingForAssessment(task.exerciseId);
+                case ADD_ASSESSMENT -> addAssessment(task.exerciseId, task.submissionId, task.feedbacks);
+                case GET_SEMI_AUTOMATIC_RESULT -> {
+                    Result result = getResultWithFeedbackSuggestionsForSubmission(task.submissionId, task.exerciseId);
+                    return result != null ? copyForTransfer(result) : null;
+                }
+                case REMOVE_SEMI_AUTOMATIC_RESULT -> removeSemiAutomaticResultForSubmission(task.submissionId, task.exerciseId);
+                case ADD_MODEL -> addModel(task.exerciseId, task.submissionId, task.model);
+                case GET_STATISTICS -> {
+                    return getStatistics(task.exerciseId).toString();
+                }
+                case PRINT_STATISTIC -> printStatistic(task.exerciseId);
+            }
+            return null;
+        }
+        finally {
+            executingForwardedTask.remove();
+        }
+    }
+
+    /**
+     * Copies the values of a semi automatic result that are needed by the caller, without its (lazily loaded) relationships, so that it can be sent to another cluster member
+     */
+    private static Result copyForTransfer(Result result) {
+        Result copy = new Result();
+        copy.setId(result.getId());
+        copy.setResultString(result.getResultString());
+        copy.setCompletionDate(result.getCompletionDate());
+        copy.setSuccessful(result.isSuccessful());
+        copy.setScore(result.getScore());
+        copy.setRated(result.isRated());
+        copy.setHasFeedback(result.getHasFeedback());
+        copy.setAssessmentType(result.getAssessmentType());
+        copy.setHasComplaint(result.getHasComplaint().orElse(null));
+        copy.setExampleResult(result.isExampleResult());
+        for (Feedback feedback : result.getFeedbacks()) {
+            copy.addFeedback(CompassEngineTask.copyForTransfer(feedback));
+        }
+        return copy;
     }
 
     /**
@@ -121,10 +299,15 @@ public class CompassService {
      * @param modelSubmissionId the id of the model submission which can be removed
      */
     public void removeModelWaitingForAssessment(long exerciseId, long modelSubmissionId) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.REMOVE_MODEL_WAITING_FOR_ASSESSMENT, exerciseId, modelSubmissionId));
+            return;
+        }
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) {
             return;
         }
         compassCalculationEngines.get(exerciseId).removeModelWaitingForAssessment(modelSubmissionId, true);
+        exercisesWithChangedEngine.add(exerciseId);
     }
 
     /**
@@ -135,7 +318,12 @@ public class CompassService {
      * @param exerciseId the id of the exercise the models should belong to
      * @return a list of optimal model Ids waiting for an assessment by an assessor
      */
+    @SuppressWarnings("unchecked")
     public List<Long> getModelsWaitingForAssessment(long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            List<Long> optimalModelIds = (List<Long>) forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.GET_MODELS_WAITING_FOR_ASSESSMENT, exerciseId));
+            return optimalModelIds != null ? optimalModelIds : new ArrayList<>();
+        }
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) {
             return new ArrayList<>();
         }
@@ -146,6 +334,7 @@ public class CompassService {
             List<Long> nextOptimalModelIds = getNextOptimalModels(exerciseId);
             if (nextOptimalModelIds != null) {
                 optimalModelIds.addAll(nextOptimalModelIds);
+                exercisesWithChangedEngine.add(exerciseId);
             }
         }
 
@@ -183,10 +372,18 @@ public class CompassService {
      * @param modelSubmissionId the id of the model submission which should be marked as unassessed
      */
     public void cancelAssessmentForSubmission(ModelingExercise modelingExercise, long modelSubmissionId) {
-        if (!isSupported(modelingExercise) || !loadExerciseIfSuspended(modelingExercise.getId())) {
+        if (!isSupported(modelingExercise)) {
+            return;
+        }
+        if (!isEngineOwner(modelingExercise.getId())) {
+            forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.CANCEL_ASSESSMENT, modelingExercise.getId(), modelSubmissionId));
+            return;
+        }
+        if (!loadExerciseIfSuspended(modelingExercise.getId())) {
             return;
         }
         compassCalculationEngines.get(modelingExercise.getId()).markModelAsUnassessed(modelSubmissionId);
+        exercisesWithChangedEngine.add(modelingExercise.getId());
         if (semiAutomaticResultMaps.containsKey(modelingExercise.getId())) {
             semiAutomaticResultMaps.get(modelingExercise.getId()).remove(modelSubmissionId);
         }
@@ -199,6 +396,10 @@ public class CompassService {
      * @param exerciseId the exerciseId
      */
     public void resetModelsWaitingForAssessment(long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.RESET_MODELS_WAITING_FOR_ASSESSMENT, exerciseId));
+            return;
+        }
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) {
             return;
         }
@@ -206,6 +407,7 @@ public class CompassService {
         for (long modelSubmissionId : optimalModelIds) {
             compassCalculationEngines.get(exerciseId).removeModelWaitingForAssessment(modelSubmissionId, false);
         }
+        exercisesWithChangedEngine.add(exerciseId);
     }
 
     /**
@@ -216,6 +418,10 @@ public class CompassService {
      * @param modelingAssessment the new assessment as a list of Feedback
      */
     public void addAssessment(long exerciseId, long submissionId, List<Feedback> modelingAssessment) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.addAssessment(exerciseId, submissionId, modelingAssessment));
+            return;
+        }
         log.info("Add assessment for exercise " + exerciseId + " and model " + submissionId);
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) { // TODO rework after distinguishing between saved and submitted assessments
             return;
@@ -223,6 +429,7 @@ public class CompassService {
 
         CalculationEngine engine = compassCalculationEngines.get(exerciseId);
         engine.notifyNewAssessment(modelingAssessment, submissionId);
+        exercisesWithChangedEngine.add(exerciseId);
 
         // Check all models for new automatic assessments
         assessAllAutomatically(engine.getModelIds(), exerciseId);
@@ -236,6 +443,9 @@ public class CompassService {
      * @return the semi automatic result for the submission with the given id
      */
     public Result getResultWithFeedbackSuggestionsForSubmission(long submissionId, long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            return (Result) forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.GET_SEMI_AUTOMATIC_RESULT, exerciseId, submissionId));
+        }
         if (!semiAutomaticResultMaps.containsKey(exerciseId)) {
             return null;
         }
@@ -249,6 +459,10 @@ public class CompassService {
      * @param exerciseId the exercise the given submission belongs to
      */
     public void removeSemiAutomaticResultForSubmission(long submissionId, long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.REMOVE_SEMI_AUTOMATIC_RESULT, exerciseId, submissionId));
+            return;
+        }
         if (semiAutomaticResultMaps.containsKey(exerciseId)) {
             semiAutomaticResultMaps.get(exerciseId).remove(submissionId);
         }
@@ -442,10 +656,15 @@ public class CompassService {
      * @param model      the new model as raw string
      */
     public void addModel(long exerciseId, long modelId, String model) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.addModel(exerciseId, modelId, model));
+            return;
+        }
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) {
             return;
         }
         compassCalculationEngines.get(exerciseId).notifyNewModel(model, modelId);
+        exercisesWithChangedEngine.add(exerciseId);
         generateAutomaticFeedbackSuggestions(modelId, exerciseId);
     }
 
@@ -468,6 +687,7 @@ public class CompassService {
 
     /**
      * Loads all the submissions of the given exercise from the database, creates a new calculation engine from the submissions and adds it to the list of calculation engines.
+     * If there is a snapshot of the engine, the similarity of the unchanged models is restored from it instead of analyzing it again.
      * Afterwards, trigger the automatic assessment attempt for every submission.
      *
      * @param exerciseId the exerciseId of the exercise for which the calculation engine should be loaded
@@ -479,8 +699,10 @@ public class CompassService {
         log.info("Loading Compass calculation engine for exercise " + exerciseId);
 
         Set<ModelingSubmission> modelingSubmissions = getSubmissionsForExercise(exerciseId);
-        CalculationEngine calculationEngine = new CompassCalculationEngine(modelingSubmissions);
+        byte[] snapshot = compassEngineSnapshotRepository.findByExerciseId(exerciseId).map(CompassEngineSnapshot::getData).orElse(null);
+        CalculationEngine calculationEngine = new CompassCalculationEngine(modelingSubmissions, snapshot);
         compassCalculationEngines.put(exerciseId, calculationEngine);
+        exercisesWithChangedEngine.add(exerciseId);
         assessAllAutomatically(calculationEngine.getModelIds(), exerciseId);
     }
 
@@ -502,12 +724,68 @@ public class CompassService {
      * @return statistics about the UML model
      */
     public JsonObject getStatistics(long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            String statistics = (String) forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.GET_STATISTICS, exerciseId));
+            return statistics != null ? JsonParser.parseString(statistics).getAsJsonObject() : new JsonObject();
+        }
         if (!isSupported(exerciseId) || !loadExerciseIfSuspended(exerciseId)) {
             return new JsonObject();
         }
         return compassCalculationEngines.get(exerciseId).getStatistics();
     }
 
+    /**
+     * Saves the snapshots of all calculation engines that have changed since their snapshot was saved the last time, so that the engines can be restored quickly, e.g. after a
+     * restart or when they have been removed from memory.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000) // execute this every minute
+    public void saveChangedCalculationEngineSnapshots() {
+        for (Long exerciseId : new ArrayList<>(exercisesWithChangedEngine)) {
+            saveCalculationEngineSnapshot(exerciseId);
+        }
+    }
+
+    private void saveCalculationEngineSnapshot(long exerciseId) {
+        if (!exercisesWithChangedEngine.remove(exerciseId)) {
+            return;
+        }
+        CalculationEngine engine = compassCalculationEngines.get(exerciseId);
+        if (engine == null) {
+            return;
+        }
+        byte[] data = engine.createSnapshot();
+        if (data == null) {
+            // try again next time
+            exercisesWithChangedEngine.add(exerciseId);
+            return;
+        }
+        try {
+            CompassEngineSnapshot snapshot = compassEngineSnapshotRepository.findByExerciseId(exerciseId).orElseGet(CompassEngineSnapshot::new);
+            snapshot.setExerciseId(exerciseId);
+            snapshot.setData(data);
+            snapshot.setLastModifiedDate(ZonedDateTime.now());
+            compassEngineSnapshotRepository.save(snapshot);
+        }
+        catch (Exception e) {
+            log.warn("Could not save the Compass snapshot for exercise {}: {}", exerciseId, e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the engine of the given exercise from this cluster member (if it exists) after saving its latest changes, because another member owns the engine now.
+     *
+     * @param exerciseId the id of the exercise
+     */
+    private void removeLocalCalculationEngine(long exerciseId) {
+        if (!compassCalculationEngines.containsKey(exerciseId)) {
+            return;
+        }
+        saveCalculationEngineSnapshot(exerciseId);
+        compassCalculationEngines.remove(exerciseId);
+        semiAutomaticResultMaps.remove(exerciseId);
+        log.info("Removed Compass calculation engine for exercise {}, because it is owned by another cluster member now", exerciseId);
+    }
+
     // Call every night at 2:00 am to free memory for unused calculation engines (older than 1 day)
     @Scheduled(cron = "0 0 2 * * *") // execute this every night at 2:00:00 am
     private static void cleanUpCalculationEngines() {
@@ -524,6 +802,10 @@ public class CompassService {
      * @param exerciseId the id of the modeling exercise for which the statistic should be printed
      */
     public void printStatistic(Long exerciseId) {
+        if (!isEngineOwner(exerciseId)) {
+            forwardToEngineOwner(CompassEngineTask.of(CompassEngineTask.Operation.PRINT_STATISTIC, exerciseId));
+            return;
+        }
         if (!loadExerciseIfSuspended(exerciseId)) {
             return;
         }
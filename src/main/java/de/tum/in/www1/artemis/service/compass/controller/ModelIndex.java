@@ -16,6 +16,13 @@ public class ModelIndex {
 
     private Queue<UMLElement> uniqueModelElementList;
 
+    /**
+     * The unique elements partitioned by their class. The similarity of elements of different classes is always 0 (see the similarity implementations of the UML
+     * elements), so only the unique elements of the same class have to be compared to a new element. The elements of each partition are in the same order as in
+     * uniqueModelElementList, so the best fit is the same as the one of a scan over all unique elements.
+     */
+    private Map<Class<?>, Queue<UMLElement>> uniqueModelElementsByType;
+
     /**
      * Note: The key is the model submission id
      */
@@ -26,6 +33,7 @@ public class ModelIndex {
     public ModelIndex() {
         modelElementMapping = new ConcurrentHashMap<>();
         uniqueModelElementList = new ConcurrentLinkedQueue<>();
+        uniqueModelElementsByType = new ConcurrentHashMap<>();
         modelMap = new ConcurrentHashMap<>();
     }
 
@@ -44,11 +52,15 @@ public class ModelIndex {
         // Pair of similarity value and similarity ID
         var bestSimilarityFit = Pair.of(-1.0, -1);
 
-        for (final var knownElement : uniqueModelElementList) {
-            final var similarity = knownElement.similarity(element);
-            if (similarity > CompassConfiguration.EQUALITY_THRESHOLD && similarity > bestSimilarityFit.getFirst()) {
-                // element is similar to existing element and has a higher similarity than another element
-                bestSimilarityFit = Pair.of(similarity, knownElement.getSimilarityID());
+        // only elements of the same type can be similar
+        final var candidates = uniqueModelElementsByType.get(element.getClass());
+        if (candidates != null) {
+            for (final var knownElement : candidates) {
+                final var similarity = knownElement.similarity(element);
+                if (similarity > CompassConfiguration.EQUALITY_THRESHOLD && similarity > bestSimilarityFit.getFirst()) {
+                    // element is similar to existing element and has a higher similarity than another element
+                    bestSimilarityFit = Pair.of(similarity, knownElement.getSimilarityID());
+                }
             }
         }
 
@@ -59,10 +71,33 @@ public class ModelIndex {
 
         // element does not fit already known element / similarity set
         uniqueModelElementList.add(element);
+        uniqueModelElementsByType.computeIfAbsent(element.getClass(), type -> new ConcurrentLinkedQueue<>()).add(element);
         modelElementMapping.put(element, uniqueModelElementList.size() - 1);
         return uniqueModelElementList.size() - 1;
     }
 
+    /**
+     * Restore the similarity ID of the given model element from a snapshot instead of retrieving it by comparing the element with the unique elements. Like in
+     * {@link #retrieveSimilarityId(UMLElement)}, the element is added to the mapping before its similarity ID and context are set.
+     *
+     * @param element      a model element of a restored model
+     * @param similarityId the similarity ID of the element stored in the snapshot
+     */
+    void restoreSimilarityId(UMLElement element, int similarityId) {
+        modelElementMapping.put(element, similarityId);
+    }
+
+    /**
+     * Restore a unique element from a snapshot, i.e. the element representing the next similarity set. The unique elements have to be restored in the order of
+     * their similarity IDs (starting with 0) and before any new similarity ID is retrieved.
+     *
+     * @param element the unique element, its similarity ID has to match the number of unique elements restored before
+     */
+    public void restoreUniqueElement(UMLElement element) {
+        uniqueModelElementList.add(element);
+        uniqueModelElementsByType.computeIfAbsent(element.getClass(), type -> new ConcurrentLinkedQueue<>()).add(element);
+    }
+
     /**
      * Add a new model to the model map.
      *
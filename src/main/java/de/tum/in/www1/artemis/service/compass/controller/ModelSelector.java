@@ -3,6 +3,7 @@ package de.tum.in.www1.artemis.service.compass.controller;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import de.tum.in.www1.artemis.service.compass.umlmodel.UMLDiagram;
 
@@ -37,6 +38,11 @@ public class ModelSelector {
      */
     private Set<Long> alreadyHandledModels = ConcurrentHashMap.newKeySet();
 
+    /**
+     * Caches the similarities between the models, as the same candidates are compared with the same unhandled models again and again when selecting the next models.
+     */
+    private final ModelSimilarityMatrix similarityMatrix = new ModelSimilarityMatrix();
+
     /**
      * Calculate the given number of models which would mean the biggest knowledge gain to support the automatic assessment process. The selected models are currently unassessed
      * and not queued for assessment (i.e. in alreadyHandledModels). Which models mean the biggest knowledge gain is decided based on the coverage and the mean similarity of the
@@ -99,7 +105,8 @@ public class ModelSelector {
     /**
      * Computes and returns the given number of candidate models with the highest mean similarity, i.e. for every model in the given list of candidate models, it calculates the
      * mean similarity compared to all models in the given list of unhandled models and sorts the candidate models according to the calculated mean similarity. I then returns the
-     * given number of candidate models with the highest mean similarity.
+     * given number of candidate models with the highest mean similarity. The mean similarities of the candidates are calculated in parallel, the similarities of the model pairs
+     * are taken from the similarity matrix if they have been calculated before.
      *
      * @param numberOfModels  the number of models that should be returned
      * @param candidates      the candidate models for which to calculate the mean similarity
@@ -115,14 +122,25 @@ public class ModelSelector {
         SortedMap<Double, Long> sortedSimilarityMap = new TreeMap<>(Collections.reverseOrder());
         double epsilon = EPSILON;
 
-        for (UMLDiagram candidate : candidates) {
-            double similarity = 0;
+        double[] meanSimilarities;
+        synchronized (similarityMatrix) {
+            int[] candidateIndices = similarityMatrix.indicesOf(candidates);
+            int[] modelIndices = similarityMatrix.indicesOf(unhandledModels);
+            meanSimilarities = IntStream.range(0, candidates.size()).parallel().mapToDouble(candidateNumber -> {
+                UMLDiagram candidate = candidates.get(candidateNumber);
+                double similarity = 0;
 
-            for (UMLDiagram model : unhandledModels) {
-                similarity += model.similarity(candidate);
-            }
+                for (int modelNumber = 0; modelNumber < unhandledModels.size(); modelNumber++) {
+                    similarity += similarityMatrix.getSimilarity(unhandledModels.get(modelNumber), modelIndices[modelNumber], candidate, candidateIndices[candidateNumber]);
+                }
+
+                return similarity / unhandledModels.size();
+            }).toArray();
+        }
 
-            similarity /= unhandledModels.size();
+        for (int candidateNumber = 0; candidateNumber < candidates.size(); candidateNumber++) {
+            UMLDiagram candidate = candidates.get(candidateNumber);
+            double similarity = meanSimilarities[candidateNumber];
             // We add a small amount to every similarity to prevent duplicates. E.g if all models are exactly the same, their similarity is exactly the same as well. This would
             // result in only one element in the sorted map as duplicate keys are not permitted. So we add a small amount that does not impact the order of the similarities.
             similarity += epsilon;
@@ -138,6 +156,21 @@ public class ModelSelector {
         return new ArrayList<>(modelsWaitingForAssessment);
     }
 
+    public List<Long> getAlreadyHandledModels() {
+        return new ArrayList<>(alreadyHandledModels);
+    }
+
+    /**
+     * Restore the models waiting for assessment and the already handled models from a snapshot.
+     *
+     * @param modelsWaitingForAssessment the ids of the models that were waiting for assessment
+     * @param alreadyHandledModels       the ids of the models that were already handled
+     */
+    public void restore(Collection<Long> modelsWaitingForAssessment, Collection<Long> alreadyHandledModels) {
+        this.modelsWaitingForAssessment.addAll(modelsWaitingForAssessment);
+        this.alreadyHandledModels.addAll(alreadyHandledModels);
+    }
+
     public void addAlreadyHandledModel(long modelId) {
         alreadyHandledModels.add(modelId);
     }
@@ -0,0 +1,77 @@
+package de.tum.in.www1.artemis.service.compass.controller;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tum.in.www1.artemis.service.compass.umlmodel.UMLDiagram;
+
+/**
+ * Symmetric matrix of the similarities between the models of an exercise. The similarity of two models does not change, so it is only calculated when it is requested for the
+ * first time and then kept in the matrix. Every model gets a row when it is requested for the first time, i.e. the matrix grows incrementally with the models of the exercise.
+ * <p>
+ * Only the lower triangle (including the diagonal) is stored, as float values in one array, so that the matrix of an exercise with 1000 models needs about 2 MB.
+ * <p>
+ * The matrix is not thread-safe: the indices have to be assigned by one thread at a time and not while similarities are retrieved. Retrieving similarities for the same indices
+ * concurrently is fine, the same value might just be calculated twice.
+ */
+class ModelSimilarityMatrix {
+
+    private final Map<Long, Integer> modelIndices = new HashMap<>();
+
+    private float[] similarities = new float[0];
+
+    private int capacity = 0;
+
+    /**
+     * Get the indices of the given models in the matrix. Models that are not contained yet get a new row.
+     *
+     * @param models the models for which the indices should be returned
+     * @return the indices of the models in the order of the given list
+     */
+    int[] indicesOf(List<UMLDiagram> models) {
+        int[] indices = new int[models.size()];
+        for (int i = 0; i < models.size(); i++) {
+            indices[i] = modelIndices.computeIfAbsent(models.get(i).getModelSubmissionId(), submissionId -> modelIndices.size());
+        }
+        ensureCapacity(modelIndices.size());
+        return indices;
+    }
+
+    /**
+     * Get the similarity of the two given models. If it has not been calculated before, it is calculated and stored in the matrix.
+     *
+     * @param model1 the first model
+     * @param index1 the index of the first model, see {@link #indicesOf(List)}
+     * @param model2 the second model
+     * @param index2 the index of the second model, see {@link #indicesOf(List)}
+     * @return the similarity of the two models
+     */
+    double getSimilarity(UMLDiagram model1, int index1, UMLDiagram model2, int index2) {
+        int cell = index1 >= index2 ? cellOf(index1, index2) : cellOf(index2, index1);
+        float similarity = similarities[cell];
+        if (Float.isNaN(similarity)) {
+            // always calculate the similarity from the same side to make the matrix symmetric
+            similarity = (float) (index1 >= index2 ? model1.similarity(model2) : model2.similarity(model1));
+            similarities[cell] = similarity;
+        }
+        return similarity;
+    }
+
+    private static int cellOf(int row, int column) {
+        return (int) ((long) row * (row + 1) / 2) + column;
+    }
+
+    private void ensureCapacity(int numberOfModels) {
+        if (numberOfModels <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(numberOfModels, Math.max(16, capacity * 2));
+        // the rows of the lower triangle are stored one after the other, so the existing cells keep their position when the matrix grows
+        float[] newSimilarities = Arrays.copyOf(similarities, cellOf(newCapacity, 0));
+        Arrays.fill(newSimilarities, similarities.length, newSimilarities.length, Float.NaN);
+        similarities = newSimilarities;
+        capacity = newCapacity;
+    }
+}
@@ -1,5 +1,7 @@
 package de.tum.in.www1.artemis.service.compass.controller;
 
+import java.util.Map;
+
 import de.tum.in.www1.artemis.service.compass.assessment.Context;
 import de.tum.in.www1.artemis.service.compass.umlmodel.UMLDiagram;
 import de.tum.in.www1.artemis.service.compass.umlmodel.UMLElement;
@@ -24,6 +26,25 @@ public class SimilarityDetector {
         setContextOfModelElements(model);
     }
 
+    /**
+     * Restore the similarity of all model elements of the given UML diagram from a snapshot instead of analyzing it again. It assigns the stored similarityId to every model
+     * element and registers it in the model index. Additionally, it sets the context of the model elements.
+     *
+     * @param model         the model which contains the model elements for which the similarityId and the context should be restored and set
+     * @param index         the modelIndex which keeps track of all similarityIds of all the model elements in one modeling exercise
+     * @param similarityIds the similarityIds stored in the snapshot, mapped by the JSON id of the model elements, has to contain every element of the model
+     */
+    public static void restoreSimilarity(UMLDiagram model, ModelIndex index, Map<String, Integer> similarityIds) {
+
+        for (UMLElement element : model.getAllModelElements()) {
+            int similarityId = similarityIds.get(element.getJSONElementID());
+            index.restoreSimilarityId(element, similarityId);
+            element.setSimilarityID(similarityId);
+        }
+
+        setContextOfModelElements(model);
+    }
+
     /**
      * Set the context of all model elements of the given UML diagram. For UML attributes and methods, the context contains the similarityId of their parent class. For all other
      * elements no context is considered and the default NO_CONTEXT is assigned.
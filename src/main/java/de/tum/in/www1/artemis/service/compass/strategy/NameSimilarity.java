@@ -1,11 +1,30 @@
 package de.tum.in.www1.artemis.service.compass.strategy;
 
+import java.util.Map;
 import java.util.Objects;
-
-import me.xdrop.fuzzywuzzy.FuzzySearch;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class NameSimilarity {
 
+    /**
+     * The maximum number of name pairs whose similarity is cached. The same (class, attribute and method) names are compared very often when the similarity of model elements
+     * is analyzed, so caching the similarity of these pairs avoids most of the Levenshtein calculations.
+     */
+    private static final int MAX_CACHE_SIZE = 100_000;
+
+    /**
+     * The cache consists of two generations: new entries are added to the current generation. When it is full, it becomes the previous generation and the entries that are not
+     * used anymore are evicted with the old previous generation. Entries of the previous generation that are still used are moved to the current generation.
+     */
+    private static volatile Map<NamePair, Double> currentGeneration = new ConcurrentHashMap<>();
+
+    private static volatile Map<NamePair, Double> previousGeneration = new ConcurrentHashMap<>();
+
+    /**
+     * Row of the edit distance matrix that is reused for all calculations of a thread
+     */
+    private static final ThreadLocal<int[]> distanceRow = ThreadLocal.withInitial(() -> new int[64]);
+
     /**
      * Analyzes the similarity between two given strings by calculating a Levenshtein simple ratio.
      *
@@ -22,7 +41,92 @@ public class NameSimilarity {
         }
 
         // TODO longterm: think about an even more sophisticated approach that takes e.g. thesaurus and specific uml conventions into account
-        return FuzzySearch.ratio(string1, string2) / 100.0;
+        NamePair namePair = new NamePair(string1, string2);
+        Double similarity = currentGeneration.get(namePair);
+        if (similarity == null) {
+            similarity = previousGeneration.get(namePair);
+            if (similarity == null) {
+                similarity = ratio(string1, string2) / 100.0;
+            }
+            cache(namePair, similarity);
+        }
+        return similarity;
+    }
+
+    private static void cache(NamePair namePair, Double similarity) {
+        Map<NamePair, Double> generation = currentGeneration;
+        if (generation.size() >= MAX_CACHE_SIZE / 2) {
+            synchronized (NameSimilarity.class) {
+                if (currentGeneration == generation) {
+                    previousGeneration = generation;
+                    currentGeneration = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        currentGeneration.put(namePair, similarity);
+    }
+
+    /**
+     * Calculates the Levenshtein simple ratio of the two strings in percent, i.e. the same value as FuzzySearch.ratio: The edit distance only allows insertions and deletions
+     * (a substitution counts twice), the ratio is (length of both strings - distance) / length of both strings. It does not allocate memory apart from growing the reused row.
+     *
+     * @param string1 the first of the two strings that should be compared
+     * @param string2 the second of the two strings that should be compared
+     * @return the rounded ratio between 0 and 100
+     */
+    static int ratio(String string1, String string2) {
+        int lengthSum = string1.length() + string2.length();
+        if (lengthSum == 0) {
+            return 100;
+        }
+        return (int) Math.round(100 * ((lengthSum - indelDistance(string1, string2)) / (double) lengthSum));
+    }
+
+    private static int indelDistance(String string1, String string2) {
+        int start = 0;
+        int end1 = string1.length();
+        int end2 = string2.length();
+        // the common prefix and suffix do not change the distance
+        while (start < end1 && start < end2 && string1.charAt(start) == string2.charAt(start)) {
+            start++;
+        }
+        while (end1 > start && end2 > start && string1.charAt(end1 - 1) == string2.charAt(end2 - 1)) {
+            end1--;
+            end2--;
+        }
+        int length1 = end1 - start;
+        int length2 = end2 - start;
+        if (length1 == 0) {
+            return length2;
+        }
+        if (length2 == 0) {
+            return length1;
+        }
+
+        int[] row = distanceRow.get();
+        if (row.length <= length2) {
+            row = new int[Math.max(length2 + 1, row.length * 2)];
+            distanceRow.set(row);
+        }
+        for (int j = 0; j <= length2; j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= length1; i++) {
+            char char1 = string1.charAt(start + i - 1);
+            int diagonal = row[0];
+            row[0] = i;
+            for (int j = 1; j <= length2; j++) {
+                int above = row[j];
+                if (char1 == string2.charAt(start + j - 1)) {
+                    row[j] = diagonal;
+                }
+                else {
+                    row[j] = Math.min(above, row[j - 1]) + 1;
+                }
+                diagonal = above;
+            }
+        }
+        return row[length2];
     }
 
     /**
@@ -35,4 +139,40 @@ public class NameSimilarity {
     public static double nameEqualsSimilarity(String string1, String string2) {
         return Objects.equals(string1, string2) ? 1 : 0;
     }
+
+    /**
+     * Unordered pair of names, the similarity is symmetric
+     */
+    private static final class NamePair {
+
+        private final String first;
+
+        private final String second;
+
+        private final int hash;
+
+        NamePair(String string1, String string2) {
+            boolean ordered = string1.compareTo(string2) <= 0;
+            this.first = ordered ? string1 : string2;
+            this.second = ordered ? string2 : string1;
+            this.hash = 31 * first.hashCode() + second.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof NamePair)) {
+                return false;
+            }
+            NamePair other = (NamePair) obj;
+            return hash == other.hash && first.equals(other.first) && second.equals(other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
@@ -2,7 +2,9 @@ package de.tum.in.www1.artemis.service.connectors;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -13,9 +15,12 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
@@ -28,9 +33,15 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.errors.UnsupportedCredentialItem;
 import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
 import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
@@ -38,9 +49,11 @@ import org.eclipse.jgit.transport.*;
 import org.eclipse.jgit.transport.sshd.JGitKeyCache;
 import org.eclipse.jgit.transport.sshd.KeyPasswordProvider;
 import org.eclipse.jgit.transport.sshd.SshdSessionFactoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -51,6 +64,10 @@ import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
 import de.tum.in.www1.artemis.exception.GitException;
 import de.tum.in.www1.artemis.service.ZipFileService;
 import de.tum.in.www1.artemis.web.rest.errors.EntityNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class GitService {
@@ -87,9 +104,39 @@ public class GitService {
     @Value("${artemis.git.email}")
     private String artemisGitEmail;
 
-    private final Map<Path, Repository> cachedRepositories = new ConcurrentHashMap<>();
+    @Value("${artemis.git.repository-cache.max-size:500}")
+    private int repositoryCacheMaxSize;
 
-    private final Map<Path, Path> cloneInProgressOperations = new ConcurrentHashMap<>();
+    @Value("${artemis.git.repository-cache.idle-timeout-seconds:600}")
+    private long repositoryCacheIdleTimeoutSeconds;
+
+    private final Map<Path, CachedRepository> cachedRepositories = new ConcurrentHashMap<>();
+
+    @Value("${artemis.git.clone-wait-timeout-seconds:60}")
+    private long cloneWaitTimeoutSeconds;
+
+    /**
+     * The clone operations that are currently running, mapped by the local path of the repository. Requests that need a repository which is being cloned wait for
+     * the same clone instead of cloning it again.
+     */
+    private final Map<Path, CompletableFuture<Void>> cloneInProgressOperations = new ConcurrentHashMap<>();
+
+    @Value("${artemis.git.template-mirror.enabled:false}")
+    private boolean useTemplateMirror;
+
+    @Value("${artemis.git.template-mirror.path:./repos-mirror}")
+    private String templateMirrorPath;
+
+    @Value("${artemis.git.template-mirror.refresh-interval-seconds:600}")
+    private long templateMirrorRefreshIntervalSeconds;
+
+    @Value("${artemis.git.template-mirror.idle-timeout-seconds:86400}")
+    private long templateMirrorIdleTimeoutSeconds;
+
+    /**
+     * The local mirrors of template repositories, mapped by their path in <code>artemis.git.template-mirror.path</code>
+     */
+    private final Map<Path, TemplateMirror> templateMirrors = new ConcurrentHashMap<>();
 
     private final ZipFileService zipFileService;
 
@@ -97,12 +144,54 @@ public class GitService {
 
     private static final int JGIT_TIMEOUT_IN_SECONDS = 5;
 
-    public GitService(ZipFileService zipFileService) {
+    /**
+     * Repositories that have been accessed within this time without a lease are considered to be in use and are not evicted because the cache is full
+     */
+    private static final long REPOSITORY_CACHE_IN_USE_MILLIS = 60 * 1000;
+
+    private static final String METRIC_REPOSITORY_CACHE_SIZE = "artemis.git.repository.cache.size";
+
+    private static final String METRIC_REPOSITORY_CACHE_REQUESTS = "artemis.git.repository.cache.requests";
+
+    private static final String METRIC_REPOSITORY_CACHE_EVICTIONS = "artemis.git.repository.cache.evictions";
+
+    private static final String METRIC_CLONE_DURATION = "artemis.git.clone.duration";
+
+    private static final String METRIC_CLONE_WAITS = "artemis.git.clone.waits";
+
+    private final Counter repositoryCacheHitCounter;
+
+    private final Counter repositoryCacheMissCounter;
+
+    private final Counter repositoryCacheIdleEvictionCounter;
+
+    private final Counter repositoryCacheSizeEvictionCounter;
+
+    private final Timer cloneSuccessTimer;
+
+    private final Timer cloneFailureTimer;
+
+    private final Counter cloneWaitCounter;
+
+    public GitService(ZipFileService zipFileService, MeterRegistry meterRegistry) {
         log.info("file.encoding=" + System.getProperty("file.encoding"));
         log.info("sun.jnu.encoding=" + System.getProperty("sun.jnu.encoding"));
         log.info("Default Charset=" + Charset.defaultCharset());
         log.info("Default Charset in Use=" + new OutputStreamWriter(new ByteArrayOutputStream()).getEncoding());
         this.zipFileService = zipFileService;
+        Gauge.builder(METRIC_REPOSITORY_CACHE_SIZE, cachedRepositories, Map::size).description("Number of open local git repositories in the cache").register(meterRegistry);
+        this.repositoryCacheHitCounter = Counter.builder(METRIC_REPOSITORY_CACHE_REQUESTS).tag("result", "hit").description("Number of local git repositories taken from the cache")
+                .register(meterRegistry);
+        this.repositoryCacheMissCounter = Counter.builder(METRIC_REPOSITORY_CACHE_REQUESTS).tag("result", "miss")
+                .description("Number of local git repositories that had to be opened because they were not cached").register(meterRegistry);
+        this.repositoryCacheIdleEvictionCounter = Counter.builder(METRIC_REPOSITORY_CACHE_EVICTIONS).tag("cause", "idle")
+                .description("Number of local git repositories closed because they have not been used for a while").register(meterRegistry);
+        this.repositoryCacheSizeEvictionCounter = Counter.builder(METRIC_REPOSITORY_CACHE_EVICTIONS).tag("cause", "size")
+                .description("Number of local git repositories closed because the cache was full").register(meterRegistry);
+        this.cloneSuccessTimer = Timer.builder(METRIC_CLONE_DURATION).tag("result", "success").description("Duration to clone a remote git repository").register(meterRegistry);
+        this.cloneFailureTimer = Timer.builder(METRIC_CLONE_DURATION).tag("result", "failure").description("Duration to clone a remote git repository").register(meterRegistry);
+        this.cloneWaitCounter = Counter.builder(METRIC_CLONE_WAITS).description("Number of requests that waited for a clone of the same repository started by another request")
+                .register(meterRegistry);
     }
 
     /**
@@ -269,12 +358,78 @@ public class GitService {
      * @throws GitAPIException      if the repository could not be checked out.
      */
     public Repository getOrCheckoutRepository(ProgrammingExerciseParticipation participation, String targetPath) throws InterruptedException, GitAPIException {
+        return getOrCheckoutRepository(participation, targetPath, getTemplateRepositoryUrl(participation));
+    }
+
+    /**
+     * Get the local repository for a given participation. If the local repo does not exist yet, it will be checked out. If the participation is a student participation,
+     * the given template repository can be used to clone it, see {@link #getOrCheckoutRepository(VcsRepositoryUrl, VcsRepositoryUrl, Path, boolean, VcsRepositoryUrl, boolean)}.
+     *
+     * @param participation   Participation the remote repository belongs to.
+     * @param targetPath      path where the repo is located on disk
+     * @param templateRepoUrl the template repository of the exercise of the participation, can be null
+     * @return the repository if it could be checked out
+     * @throws InterruptedException if the repository could not be checked out.
+     * @throws GitAPIException      if the repository could not be checked out.
+     */
+    public Repository getOrCheckoutRepository(ProgrammingExerciseParticipation participation, String targetPath, @Nullable VcsRepositoryUrl templateRepoUrl)
+            throws InterruptedException, GitAPIException {
         var repoUrl = participation.getVcsRepositoryUrl();
-        Repository repository = getOrCheckoutRepository(repoUrl, targetPath, true);
+        templateRepoUrl = getTemplateRepositoryUrlForMirror(participation, templateRepoUrl);
+        Repository repository = templateRepoUrl != null ? getOrCheckoutRepository(repoUrl, repoUrl, getLocalPathOfRepo(targetPath, repoUrl), true, templateRepoUrl, true)
+                : getOrCheckoutRepository(repoUrl, targetPath, true);
         repository.setParticipation(participation);
         return repository;
     }
 
+    /**
+     * Get the local repository for a given participation without checking out its files. If the local repo does not exist yet, it will be cloned. The files can be read
+     * with {@link #readFilesAtCommit(Repository, ObjectId, RepositoryFileConsumer)}, which avoids writing (and later deleting) all files of the repository.
+     *
+     * @param participation Participation the remote repository belongs to.
+     * @param targetPath    path where the repo is located on disk
+     * @return the repository if it could be cloned
+     * @throws InterruptedException if the repository could not be cloned.
+     * @throws GitAPIException      if the repository could not be cloned.
+     */
+    public Repository getOrCloneRepositoryWithoutCheckout(ProgrammingExerciseParticipation participation, String targetPath) throws InterruptedException, GitAPIException {
+        return getOrCloneRepositoryWithoutCheckout(participation, targetPath, getTemplateRepositoryUrl(participation));
+    }
+
+    /**
+     * Get the local repository for a given participation without checking out its files. If the local repo does not exist yet, it will be cloned. If the participation is
+     * a student participation, the given template repository can be used to clone it.
+     *
+     * @param participation   Participation the remote repository belongs to.
+     * @param targetPath      path where the repo is located on disk
+     * @param templateRepoUrl the template repository of the exercise of the participation, can be null
+     * @return the repository if it could be cloned
+     * @throws InterruptedException if the repository could not be cloned.
+     * @throws GitAPIException      if the repository could not be cloned.
+     */
+    public Repository getOrCloneRepositoryWithoutCheckout(ProgrammingExerciseParticipation participation, String targetPath, @Nullable VcsRepositoryUrl templateRepoUrl)
+            throws InterruptedException, GitAPIException {
+        var repoUrl = participation.getVcsRepositoryUrl();
+        templateRepoUrl = getTemplateRepositoryUrlForMirror(participation, templateRepoUrl);
+        Repository repository = templateRepoUrl != null ? getOrCheckoutRepository(repoUrl, repoUrl, getLocalPathOfRepo(targetPath, repoUrl), false, templateRepoUrl, false)
+                : getOrCloneRepositoryWithoutCheckout(repoUrl, targetPath);
+        repository.setParticipation(participation);
+        return repository;
+    }
+
+    /**
+     * Get the local repository for a given remote repository URL without checking out its files. If the local repo does not exist yet, it will be cloned.
+     *
+     * @param repoUrl    The remote repository.
+     * @param targetPath path where the repo is located on disk
+     * @return the repository if it could be cloned
+     * @throws InterruptedException if the repository could not be cloned.
+     * @throws GitAPIException      if the repository could not be cloned.
+     */
+    public Repository getOrCloneRepositoryWithoutCheckout(VcsRepositoryUrl repoUrl, String targetPath) throws InterruptedException, GitAPIException {
+        return getOrCheckoutRepository(repoUrl, repoUrl, getLocalPathOfRepo(targetPath, repoUrl), false, null, false);
+    }
+
     /**
      * Get the local repository for a given participation.
      * If the local repo does not exist yet, it will be checked out.
@@ -289,6 +444,22 @@ public class GitService {
      * @throws GitAPIException      if the repository could not be checked out.
      */
     public Repository getOrCheckoutRepositoryForJPlag(ProgrammingExerciseParticipation participation, String targetPath) throws InterruptedException, GitAPIException {
+        return getOrCheckoutRepositoryForJPlag(participation, targetPath, getTemplateRepositoryUrl(participation));
+    }
+
+    /**
+     * Get the local repository for a given participation, see {@link #getOrCheckoutRepositoryForJPlag(ProgrammingExerciseParticipation, String)}. If the participation
+     * is a student participation, the given template repository can be used to clone it.
+     *
+     * @param participation   Participation the remote repository belongs to.
+     * @param targetPath      path where the repo is located on disk
+     * @param templateRepoUrl the template repository of the exercise of the participation, can be null
+     * @return the repository if it could be checked out
+     * @throws InterruptedException if the repository could not be checked out.
+     * @throws GitAPIException      if the repository could not be checked out.
+     */
+    public Repository getOrCheckoutRepositoryForJPlag(ProgrammingExerciseParticipation participation, String targetPath, @Nullable VcsRepositoryUrl templateRepoUrl)
+            throws InterruptedException, GitAPIException {
         var repoUrl = participation.getVcsRepositoryUrl();
         String repoFolderName = folderNameForRepositoryUrl(repoUrl);
 
@@ -297,7 +468,9 @@ public class GitService {
         String updatedRepoFolderName = repoFolderName.replaceAll("/[a-zA-Z0-9]*-", "/" + participation.getId() + "-");
         Path localPath = Paths.get(targetPath, updatedRepoFolderName);
 
-        Repository repository = getOrCheckoutRepository(repoUrl, localPath, true);
+        templateRepoUrl = getTemplateRepositoryUrlForMirror(participation, templateRepoUrl);
+        Repository repository = templateRepoUrl != null ? getOrCheckoutRepository(repoUrl, repoUrl, localPath, true, templateRepoUrl, true)
+                : getOrCheckoutRepository(repoUrl, localPath, true);
         repository.setParticipation(participation);
 
         return repository;
@@ -355,53 +528,295 @@ public class GitService {
      */
     public Repository getOrCheckoutRepository(VcsRepositoryUrl sourceRepoUrl, VcsRepositoryUrl targetRepoUrl, Path localPath, boolean pullOnGet)
             throws InterruptedException, GitAPIException {
-        // First try to just retrieve the git repository from our server, as it might already be checked out.
-        // If the sourceRepoUrl differs from the targetRepoUrl, we attempt to clone the source repo into the target directory
-        Repository repository = getExistingCheckedOutRepositoryByLocalPath(localPath, targetRepoUrl);
-        // Note: in case the actual git repository in the file system is corrupt (e.g. by accident), we will get an exception here
-        // the exception will then delete the folder, so that the next attempt would be successful.
-        if (repository != null) {
-            if (pullOnGet) {
-                pull(repository);
+        return getOrCheckoutRepository(sourceRepoUrl, targetRepoUrl, localPath, pullOnGet, null, true);
+    }
+
+    /**
+     * Get the local repository for a given remote repository URL. If the local repo does not exist yet, it will be checked out. If a template repository is given and
+     * <code>artemis.git.template-mirror.enabled</code> is set, the objects of the local mirror of the template repository are reused for the clone, so that only the
+     * objects that are not contained in the template repository are transferred.
+     *
+     * @param sourceRepoUrl   The source remote repository.
+     * @param targetRepoUrl   The target remote repository.
+     * @param localPath       The local path to clone the repository to.
+     * @param pullOnGet       Pull from the remote on the checked out repository, if it does not need to be cloned.
+     * @param templateRepoUrl The template repository the source repository has been created from, can be null
+     * @param checkout        Check out the files of the repository if it has to be cloned, otherwise only the git folder is created.
+     * @return the repository if it could be checked out.
+     * @throws InterruptedException if the repository could not be checked out.
+     * @throws GitAPIException      if the repository could not be checked out.
+     */
+    private Repository getOrCheckoutRepository(VcsRepositoryUrl sourceRepoUrl, VcsRepositoryUrl targetRepoUrl, Path localPath, boolean pullOnGet,
+            @Nullable VcsRepositoryUrl templateRepoUrl, boolean checkout) throws InterruptedException, GitAPIException {
+        // Atomically decide whether the repository is being cloned by another request at the moment, whether it already exists on our server, or whether this request
+        // has to clone it. Only the first request clones, all others wait for it, because the folder of the repository is incomplete until the clone is finished.
+        CompletableFuture<Void> clone = new CompletableFuture<>();
+        CompletableFuture<Void> cloneInProgress = cloneInProgressOperations.compute(localPath, (path, runningClone) -> {
+            if (runningClone != null) {
+                return runningClone;
+            }
+            // an existing folder is not registered (returning null creates no mapping), the check only looks at the file system while the map entry is locked
+            return Files.exists(path) ? null : clone;
+        });
+        if (cloneInProgress == null) {
+            // First try to just retrieve the git repository from our server, as it has already been checked out.
+            // If the sourceRepoUrl differs from the targetRepoUrl, we attempt to clone the source repo into the target directory
+            Repository repository = getExistingCheckedOutRepositoryByLocalPath(localPath, targetRepoUrl);
+            // Note: in case the actual git repository in the file system is corrupt (e.g. by accident), we will get an exception here
+            // the exception will then delete the folder, so that the next attempt would be successful.
+            if (repository != null) {
+                if (pullOnGet) {
+                    pull(repository);
+                }
+                return repository;
+            }
+            // If the folder does not contain a git repository, clone it from the remote.
+            cloneInProgress = cloneInProgressOperations.putIfAbsent(localPath, clone);
+            if (cloneInProgress == null) {
+                cloneInProgress = clone;
+            }
+        }
+        if (cloneInProgress != clone) {
+            waitForClone(localPath, cloneInProgress);
+            Repository repository = getExistingCheckedOutRepositoryByLocalPath(localPath, targetRepoUrl);
+            if (repository == null) {
+                throw new GitException("The repository " + localPath + " could not be opened after it has been cloned");
             }
             return repository;
         }
-        // If the git repository can't be found on our server, clone it from the remote.
-        else {
-            int numberOfAttempts = 5;
-            // Make sure that multiple clone operations for the same repository cannot happen at the same time.
-            while (cloneInProgressOperations.containsKey(localPath)) {
-                log.warn("Clone is already in progress. This will lead to an error. Wait for a second");
-                Thread.sleep(1000);
-                if (numberOfAttempts == 0) {
-                    throw new GitException("Cannot clone the same repository multiple times");
+        long start = System.nanoTime();
+        try {
+            var gitUriAsString = getGitUriAsString(sourceRepoUrl);
+            log.debug("Cloning from " + gitUriAsString + " to " + localPath);
+            // make sure the directory to copy into is empty
+            FileUtils.deleteDirectory(localPath.toFile());
+            TemplateMirror templateMirror = templateRepoUrl != null && useTemplateMirror ? getOrUpdateTemplateMirror(templateRepoUrl) : null;
+            if (templateMirror != null) {
+                try {
+                    cloneWithTemplateMirror(gitUriAsString, localPath, templateMirror.path, checkout);
                 }
-                else {
-                    numberOfAttempts--;
+                finally {
+                    templateMirror.release();
                 }
             }
-            // Clone repository.
-            try {
-                var gitUriAsString = getGitUriAsString(sourceRepoUrl);
-                log.debug("Cloning from " + gitUriAsString + " to " + localPath);
-                cloneInProgressOperations.put(localPath, localPath);
-                // make sure the directory to copy into is empty
-                FileUtils.deleteDirectory(localPath.toFile());
-                Git result = Git.cloneRepository().setTransportConfigCallback(sshCallback).setURI(gitUriAsString).setDirectory(localPath.toFile()).call();
+            else {
+                Git result = Git.cloneRepository().setTransportConfigCallback(sshCallback).setURI(gitUriAsString).setDirectory(localPath.toFile()).setNoCheckout(!checkout)
+                        .call();
                 result.close();
             }
-            catch (GitAPIException | RuntimeException | IOException | URISyntaxException e) {
-                log.error("Exception during clone " + e);
-                // cleanup the folder to avoid problems in the future.
-                // 'deleteQuietly' is the same as 'deleteDirectory' but is not throwing an exception, thus we avoid a try-catch block.
-                FileUtils.deleteQuietly(localPath.toFile());
-                throw new GitException(e);
+            cloneSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            clone.complete(null);
+        }
+        catch (GitAPIException | RuntimeException | IOException | URISyntaxException e) {
+            log.error("Exception during clone " + e);
+            cloneFailureTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // cleanup the folder to avoid problems in the future.
+            // 'deleteQuietly' is the same as 'deleteDirectory' but is not throwing an exception, thus we avoid a try-catch block.
+            FileUtils.deleteQuietly(localPath.toFile());
+            GitException exception = new GitException(e);
+            // the requests waiting for this clone fail immediately as well
+            clone.completeExceptionally(exception);
+            throw exception;
+        }
+        finally {
+            // make sure that cloneInProgress is released
+            cloneInProgressOperations.remove(localPath, clone);
+        }
+        return getExistingCheckedOutRepositoryByLocalPath(localPath, targetRepoUrl);
+    }
+
+    /**
+     * Returns the template repository of the exercise of a participation, if the template participation has been loaded with the exercise
+     *
+     * @param participation the participation whose repository should be cloned
+     * @return the url of the template repository, or null if it is not known
+     */
+    @Nullable
+    private VcsRepositoryUrl getTemplateRepositoryUrl(ProgrammingExerciseParticipation participation) {
+        ProgrammingExercise programmingExercise = participation.getProgrammingExercise();
+        return programmingExercise != null ? programmingExercise.getVcsTemplateRepositoryUrl() : null;
+    }
+
+    /**
+     * Returns the template repository that should be used to clone the repository of a participation with the local mirror of template repositories
+     *
+     * @param participation   the participation whose repository should be cloned
+     * @param templateRepoUrl the template repository of the exercise of the participation, can be null
+     * @return the url of the template repository, or null if the repository should be cloned without the mirror
+     */
+    @Nullable
+    private VcsRepositoryUrl getTemplateRepositoryUrlForMirror(ProgrammingExerciseParticipation participation, @Nullable VcsRepositoryUrl templateRepoUrl) {
+        if (!useTemplateMirror || !(participation instanceof ProgrammingExerciseStudentParticipation)) {
+            return null;
+        }
+        return templateRepoUrl;
+    }
+
+    /**
+     * Creates or updates the local bare mirror of a template repository in <code>artemis.git.template-mirror.path</code>. The mirror is fetched again at most every
+     * <code>artemis.git.template-mirror.refresh-interval-seconds</code>, a slightly outdated mirror only means that a few more objects are transferred for a clone.
+     * The returned mirror is in use until it is released, it is not deleted by {@link #evictTemplateMirrors()} in the meantime.
+     *
+     * @param templateRepoUrl the url of the template repository
+     * @return the mirror, or null if it could not be created
+     */
+    @Nullable
+    private TemplateMirror getOrUpdateTemplateMirror(VcsRepositoryUrl templateRepoUrl) {
+        Path mirrorPath = Paths.get(templateMirrorPath, folderNameForRepositoryUrl(templateRepoUrl) + ".git");
+        while (true) {
+            TemplateMirror templateMirror = templateMirrors.computeIfAbsent(mirrorPath, TemplateMirror::new);
+            synchronized (templateMirror) {
+                // the mirror has been deleted in the meantime
+                if (templateMirror.evicted) {
+                    continue;
+                }
+                if (!updateTemplateMirror(templateRepoUrl, templateMirror)) {
+                    return null;
+                }
+                templateMirror.users++;
+                templateMirror.lastUse = System.currentTimeMillis();
+                return templateMirror;
             }
-            finally {
-                // make sure that cloneInProgress is released
-                cloneInProgressOperations.remove(localPath);
+        }
+    }
+
+    /**
+     * Creates or fetches the given mirror of a template repository if it has not been updated within <code>artemis.git.template-mirror.refresh-interval-seconds</code>
+     *
+     * @param templateRepoUrl the url of the template repository
+     * @param templateMirror  the mirror, the caller holds its lock
+     * @return false if the mirror could not be updated
+     */
+    private boolean updateTemplateMirror(VcsRepositoryUrl templateRepoUrl, TemplateMirror templateMirror) {
+        Path mirrorPath = templateMirror.path;
+        if (templateMirror.lastUpdate > System.currentTimeMillis() - templateMirrorRefreshIntervalSeconds * 1000) {
+            return true;
+        }
+        try {
+            if (Files.exists(mirrorPath.resolve("objects"))) {
+                try (Git mirror = Git.open(mirrorPath.toFile())) {
+                    mirror.fetch().setTransportConfigCallback(sshCallback).setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*")).setRemoveDeletedRefs(true).call();
+                }
+            }
+            else {
+                log.debug("Create the mirror of the template repository {} in {}", templateRepoUrl, mirrorPath);
+                Git.cloneRepository().setTransportConfigCallback(sshCallback).setURI(getGitUriAsString(templateRepoUrl)).setDirectory(mirrorPath.toFile()).setBare(true)
+                        .setCloneAllBranches(true).call().close();
             }
-            return getExistingCheckedOutRepositoryByLocalPath(localPath, targetRepoUrl);
+            templateMirror.lastUpdate = System.currentTimeMillis();
+            return true;
+        }
+        catch (GitAPIException | RuntimeException | IOException | URISyntaxException ex) {
+            log.warn("Cannot update the mirror of the template repository {}, the repository is cloned without it: {}", templateRepoUrl, ex.getMessage());
+            templateMirror.lastUpdate = 0;
+            // a mirror that is used by a clone at the moment is deleted later by the eviction
+            if (templateMirror.users == 0) {
+                FileUtils.deleteQuietly(mirrorPath.toFile());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Clones a repository that has been created from a template repository, like <code>git clone --reference --dissociate</code>: the pack files of the local mirror of the
+     * template repository are linked (or copied) into the new repository and the branches of the template are announced to the remote, so that only the objects the
+     * template does not contain are transferred. The new repository does not depend on the mirror, so it can be zipped and deleted as usual.
+     *
+     * @param gitUriAsString     the uri of the repository to clone
+     * @param localPath          the local path to clone the repository to
+     * @param templateMirrorPath the path of the bare mirror of the template repository
+     * @param checkout           check out the files of the default branch, otherwise only the branch is created
+     * @throws GitAPIException if the repository could not be fetched or checked out
+     * @throws IOException     if the objects of the mirror could not be linked
+     */
+    private void cloneWithTemplateMirror(String gitUriAsString, Path localPath, Path templateMirrorPath, boolean checkout) throws GitAPIException, IOException {
+        try (Git git = Git.init().setDirectory(localPath.toFile()).call(); Git mirror = Git.open(templateMirrorPath.toFile())) {
+            var repository = git.getRepository();
+            Path packFolder = localPath.resolve(".git").resolve("objects").resolve("pack");
+            Path mirrorPackFolder = templateMirrorPath.resolve("objects").resolve("pack");
+            Files.createDirectories(packFolder);
+            Files.createDirectories(mirrorPackFolder);
+            // files that are still being written by a fetch into the mirror have a different prefix
+            try (var mirrorPackFiles = Files.newDirectoryStream(mirrorPackFolder, "pack-*")) {
+                for (Path mirrorPackFile : mirrorPackFiles) {
+                    Path packFile = packFolder.resolve(mirrorPackFile.getFileName());
+                    try {
+                        // pack files are never modified, so the repository can share them with the mirror
+                        Files.createLink(packFile, mirrorPackFile);
+                    }
+                    catch (IOException | UnsupportedOperationException ex) {
+                        Files.copy(mirrorPackFile, packFile);
+                    }
+                }
+            }
+            // the template branches are only referenced during the fetch, so that the remote does not send the objects they contain
+            List<String> templateRefs = new ArrayList<>();
+            for (Ref mirrorRef : mirror.getRepository().getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+                String templateRef = "refs/template/" + Repository.shortenRefName(mirrorRef.getName());
+                RefUpdate refUpdate = repository.updateRef(templateRef);
+                refUpdate.setNewObjectId(mirrorRef.getObjectId());
+                refUpdate.forceUpdate();
+                templateRefs.add(templateRef);
+            }
+
+            StoredConfig config = repository.getConfig();
+            config.setString(ConfigConstants.CONFIG_REMOTE_SECTION, Constants.DEFAULT_REMOTE_NAME, ConfigConstants.CONFIG_KEY_URL, gitUriAsString);
+            config.setString(ConfigConstants.CONFIG_REMOTE_SECTION, Constants.DEFAULT_REMOTE_NAME, "fetch", "+refs/heads/*:refs/remotes/origin/*");
+            config.save();
+            FetchResult fetchResult = git.fetch().setRemote(Constants.DEFAULT_REMOTE_NAME).setTransportConfigCallback(sshCallback).call();
+
+            for (String templateRef : templateRefs) {
+                RefUpdate refUpdate = repository.updateRef(templateRef);
+                refUpdate.setForceUpdate(true);
+                refUpdate.delete();
+            }
+
+            // check out the default branch of the remote, like a clone
+            Ref remoteHead = fetchResult.getAdvertisedRef(Constants.HEAD);
+            if (remoteHead == null) {
+                // the remote repository is empty
+                return;
+            }
+            String defaultBranch = remoteHead.isSymbolic() ? Repository.shortenRefName(remoteHead.getTarget().getName()) : null;
+            if (defaultBranch == null) {
+                defaultBranch = fetchResult.getAdvertisedRefs().stream()
+                        .filter(ref -> ref.getName().startsWith(Constants.R_HEADS) && remoteHead.getObjectId().equals(ref.getObjectId()))
+                        .map(ref -> Repository.shortenRefName(ref.getName())).findFirst().orElse(Constants.MASTER);
+            }
+            if (checkout) {
+                git.checkout().setCreateBranch(true).setName(defaultBranch).setStartPoint(Constants.DEFAULT_REMOTE_NAME + "/" + defaultBranch)
+                        .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK).call();
+            }
+            else {
+                git.branchCreate().setName(defaultBranch).setStartPoint(Constants.DEFAULT_REMOTE_NAME + "/" + defaultBranch)
+                        .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK).call();
+                repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + defaultBranch);
+            }
+        }
+    }
+
+    /**
+     * Waits until the clone of a repository started by another request is finished. The clone itself is not affected if waiting is interrupted or times out.
+     *
+     * @param localPath the local path the repository is cloned to
+     * @param clone     the clone that is in progress
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     * @throws GitException         if the clone failed or did not finish within <code>artemis.git.clone-wait-timeout-seconds</code>
+     */
+    private void waitForClone(Path localPath, CompletableFuture<Void> clone) throws InterruptedException {
+        log.debug("Clone of {} is already in progress, wait for it to finish", localPath);
+        cloneWaitCounter.increment();
+        try {
+            clone.get(cloneWaitTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        catch (ExecutionException ex) {
+            throw new GitException("The clone of the repository " + localPath + " failed", ex.getCause());
+        }
+        catch (CancellationException ex) {
+            throw new GitException("The clone of the repository " + localPath + " has been cancelled", ex);
+        }
+        catch (TimeoutException ex) {
+            throw new GitException("The clone of the repository " + localPath + " did not finish within " + cloneWaitTimeoutSeconds + " seconds", ex);
         }
     }
 
@@ -423,6 +838,10 @@ public class GitService {
     /**
      * Get an existing git repository that is checked out on the server. Returns immediately null if the localPath does not exist. Will first try to retrieve a cached repository
      * from cachedRepositories. Side effect: This method caches retrieved repositories in a HashMap, so continuous retrievals can be avoided (reduces load).
+     * <p>
+     * The cache is bounded by <code>artemis.git.repository-cache.max-size</code> and repositories that have not been used for
+     * <code>artemis.git.repository-cache.idle-timeout-seconds</code> are closed, see {@link #evictCachedRepositories()}. Use {@link #leaseRepository(Repository)} to keep a
+     * repository open during long running operations.
      *
      * @param localPath           to git repo on server.
      * @param remoteRepositoryUrl the remote repository url for the git repository, will be added to the Repository object for later use, can be null
@@ -432,14 +851,19 @@ public class GitService {
         // Check if there is a folder with the provided path of the git repository.
         if (!Files.exists(localPath)) {
             // In this case we should remove the repository if cached, because it can't exist anymore.
-            cachedRepositories.remove(localPath);
+            CachedRepository removedRepository = cachedRepositories.remove(localPath);
+            if (removedRepository != null && removedRepository.markEvicted()) {
+                removedRepository.repository.close();
+            }
             return null;
         }
-        // Check if the repository is already cached in the server's session.
-        Repository cachedRepository = cachedRepositories.get(localPath);
-        if (cachedRepository != null) {
-            return cachedRepository;
+        // Check if the repository is already cached in the server's session. A repository that is being evicted at the same time is opened again.
+        CachedRepository cachedRepository = cachedRepositories.get(localPath);
+        if (cachedRepository != null && cachedRepository.access()) {
+            repositoryCacheHitCounter.increment();
+            return cachedRepository.repository;
         }
+        repositoryCacheMissCounter.increment();
         // Else try to retrieve the git repository from our server. It could e.g. be the case that the folder is there, but there is no .git folder in it!
         try {
             // Open the repository from the filesystem
@@ -453,7 +877,17 @@ public class GitService {
             // and https://git-scm.com/docs/git-gc for an explanation of the parameter
             repository.getConfig().setInt(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTO, 0);
             // Cache the JGit repository object for later use: avoids the expensive re-opening of local repositories
-            cachedRepositories.put(localPath, repository);
+            CachedRepository newlyCachedRepository = new CachedRepository(repository);
+            CachedRepository concurrentlyCachedRepository = cachedRepositories.merge(localPath, newlyCachedRepository,
+                    (existing, created) -> existing.access() ? existing : created);
+            if (concurrentlyCachedRepository != newlyCachedRepository) {
+                // another thread opened the same repository in the meantime, only one of them is kept open
+                repository.close();
+                return concurrentlyCachedRepository.repository;
+            }
+            if (cachedRepositories.size() > repositoryCacheMaxSize) {
+                evictLeastRecentlyUsedRepositories();
+            }
             return repository;
         }
         catch (IOException ex) {
@@ -461,6 +895,134 @@ public class GitService {
         }
     }
 
+    /**
+     * Leases the given repository, so that it is not closed by the cache until the lease is closed, e.g. during an export that takes longer than usual. Leases can be
+     * nested. If the cache has already closed the given repository, it is opened again and the lease contains the newly opened repository: callers must continue with
+     * {@link RepositoryLease#getRepository()}.
+     *
+     * @param repository a repository retrieved from this service
+     * @return the lease, which has to be closed once the repository is not used anymore
+     */
+    public RepositoryLease leaseRepository(Repository repository) {
+        Path localPath = repository.getLocalPath();
+        while (true) {
+            CachedRepository cachedRepository = cachedRepositories.get(localPath);
+            if (cachedRepository == null) {
+                if (getExistingCheckedOutRepositoryByLocalPath(localPath, repository.getRemoteRepositoryUrl()) == null) {
+                    // the repository is not cached because its folder does not exist (anymore)
+                    return new RepositoryLease(repository, null);
+                }
+                continue;
+            }
+            if (cachedRepository.acquire()) {
+                Repository leasedRepository = cachedRepository.repository;
+                if (leasedRepository != repository) {
+                    leasedRepository.setParticipation(repository.getParticipation());
+                }
+                return new RepositoryLease(leasedRepository, cachedRepository);
+            }
+            // the repository has been evicted in the meantime
+            cachedRepositories.remove(localPath, cachedRepository);
+        }
+    }
+
+    /**
+     * Closes the cached repositories that have not been used within <code>artemis.git.repository-cache.idle-timeout-seconds</code> and, if there are still more than
+     * <code>artemis.git.repository-cache.max-size</code> repositories in the cache, the least recently used ones. Leased repositories are never closed, repositories
+     * that have just been accessed without a lease are not closed because the cache is full. Closing a repository releases its pack file handles and object caches, it
+     * is opened again on the next access.
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000) // execute this every minute
+    public void evictCachedRepositories() {
+        long idleSince = System.currentTimeMillis() - repositoryCacheIdleTimeoutSeconds * 1000;
+        for (Map.Entry<Path, CachedRepository> entry : cachedRepositories.entrySet()) {
+            if (evictRepository(entry.getKey(), entry.getValue(), idleSince)) {
+                repositoryCacheIdleEvictionCounter.increment();
+            }
+        }
+        if (cachedRepositories.size() > repositoryCacheMaxSize) {
+            evictLeastRecentlyUsedRepositories();
+        }
+    }
+
+    private synchronized void evictLeastRecentlyUsedRepositories() {
+        int numberOfRepositoriesToEvict = cachedRepositories.size() - repositoryCacheMaxSize;
+        if (numberOfRepositoriesToEvict <= 0) {
+            return;
+        }
+        long inUseSince = System.currentTimeMillis() - REPOSITORY_CACHE_IN_USE_MILLIS;
+        List<Map.Entry<Path, CachedRepository>> candidates = new ArrayList<>();
+        for (Map.Entry<Path, CachedRepository> entry : cachedRepositories.entrySet()) {
+            if (entry.getValue().lastAccess < inUseSince) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        for (Map.Entry<Path, CachedRepository> candidate : candidates) {
+            if (numberOfRepositoriesToEvict <= 0) {
+                break;
+            }
+            if (evictRepository(candidate.getKey(), candidate.getValue(), inUseSince)) {
+                repositoryCacheSizeEvictionCounter.increment();
+                numberOfRepositoriesToEvict--;
+            }
+        }
+        if (numberOfRepositoriesToEvict > 0) {
+            log.debug("The git repository cache contains {} repositories more than its maximum size because they are in use", numberOfRepositoriesToEvict);
+        }
+    }
+
+    /**
+     * Closes a cached repository if it is not leased and has not been accessed since the given time. The decision is atomic with respect to accesses and leases of
+     * the repository: once it has been made, the repository is not returned by the cache anymore.
+     */
+    private boolean evictRepository(Path localPath, CachedRepository cachedRepository, long notAccessedSince) {
+        if (!cachedRepository.evictIfUnused(notAccessedSince)) {
+            return false;
+        }
+        cachedRepositories.remove(localPath, cachedRepository);
+        // JGit counts the usages of a repository, so it is only closed completely if nobody else opened it explicitly
+        cachedRepository.repository.close();
+        return true;
+    }
+
+    /**
+     * Deletes the local mirrors of template repositories that have not been used for a clone within <code>artemis.git.template-mirror.idle-timeout-seconds</code>, e.g.
+     * because the exercise is over. Mirrors that have been created before the server was started are considered to be used when they were last modified.
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000) // execute this every hour
+    public void evictTemplateMirrors() {
+        if (!useTemplateMirror) {
+            return;
+        }
+        Path mirrorRoot = Paths.get(templateMirrorPath);
+        if (Files.isDirectory(mirrorRoot)) {
+            // the mirrors are stored in <project>/<repository>.git
+            try (var mirrorPaths = Files.find(mirrorRoot, 2, (path, attributes) -> attributes.isDirectory() && path.getFileName().toString().endsWith(".git"))) {
+                mirrorPaths.forEach(mirrorPath -> templateMirrors.computeIfAbsent(mirrorPath, path -> {
+                    TemplateMirror templateMirror = new TemplateMirror(path);
+                    templateMirror.lastUse = path.toFile().lastModified();
+                    return templateMirror;
+                }));
+            }
+            catch (IOException | UncheckedIOException ex) {
+                log.warn("Cannot list the mirrors of the template repositories in {}: {}", mirrorRoot, ex.getMessage());
+            }
+        }
+        long idleSince = System.currentTimeMillis() - templateMirrorIdleTimeoutSeconds * 1000;
+        for (TemplateMirror templateMirror : templateMirrors.values()) {
+            synchronized (templateMirror) {
+                if (templateMirror.users > 0 || templateMirror.lastUse >= idleSince) {
+                    continue;
+                }
+                log.debug("Delete the unused mirror of a template repository in {}", templateMirror.path);
+                templateMirror.evicted = true;
+                templateMirrors.remove(templateMirror.path, templateMirror);
+                FileUtils.deleteQuietly(templateMirror.path.toFile());
+            }
+        }
+    }
+
     /**
      * Commits with the given message into the repository.
      *
@@ -540,9 +1102,13 @@ public class GitService {
      * @throws GitAPIException if the reset failed.
      */
     public void reset(Repository repo, String ref) throws GitAPIException {
+        reset(repo, ref, ResetCommand.ResetType.HARD);
+    }
+
+    private void reset(Repository repo, String ref, ResetCommand.ResetType resetType) throws GitAPIException {
         Git git = new Git(repo);
         setRemoteUrl(repo);
-        git.reset().setMode(ResetCommand.ResetType.HARD).setRef(ref).call();
+        git.reset().setMode(resetType).setRef(ref).call();
         git.close();
     }
 
@@ -636,6 +1202,22 @@ public class GitService {
         }
     }
 
+    /**
+     * Reset the branch and the index of a local repository to origin/master without touching the files on disk, e.g. for a repository that has been cloned with
+     * {@link #getOrCloneRepositoryWithoutCheckout(ProgrammingExerciseParticipation, String)}
+     *
+     * @param repo Local Repository Object.
+     */
+    public void resetToOriginMasterWithoutCheckout(Repository repo) {
+        try {
+            fetchAll(repo);
+            reset(repo, "origin/master", ResetCommand.ResetType.MIXED);
+        }
+        catch (GitAPIException | JGitInternalException ex) {
+            log.error("Cannot reset the repo " + repo.getLocalPath() + " to origin/master due to the following exception: " + ex.getMessage());
+        }
+    }
+
     /**
      * Get last commit hash from master
      *
@@ -675,6 +1257,21 @@ public class GitService {
     // TODO: remove transactional
     @Transactional(readOnly = true)
     public void filterLateSubmissions(Repository repository, Optional<Submission> lastValidSubmission, ZonedDateTime filterLateSubmissionsDate) {
+        filterLateSubmissions(repository, lastValidSubmission, filterLateSubmissionsDate, true);
+    }
+
+    /**
+     * Filter all commits after exercise due date, see {@link #filterLateSubmissions(Repository, Optional, ZonedDateTime)}
+     *
+     * @param repository                Local Repository Object.
+     * @param lastValidSubmission       The last valid submission from the database or empty, if not found
+     * @param filterLateSubmissionsDate the date after which all submissions should be filtered out (may be null)
+     * @param checkout                  update the files on disk and close the repository, otherwise only the branch and the index are reset and the repository stays open
+     *                                  (for repositories without checked out files, whose files are read from the git object database afterwards)
+     */
+    // TODO: remove transactional
+    @Transactional(readOnly = true)
+    public void filterLateSubmissions(Repository repository, Optional<Submission> lastValidSubmission, ZonedDateTime filterLateSubmissionsDate, boolean checkout) {
         if (filterLateSubmissionsDate == null) {
             // No date set in client and exercise has no due date
             return;
@@ -702,11 +1299,14 @@ public class GitService {
             }
             log.debug("Last commit hash is {}", commitHash);
 
-            reset(repository, commitHash);
+            reset(repository, commitHash, checkout ? ResetCommand.ResetType.HARD : ResetCommand.ResetType.MIXED);
 
-            // if repo is not closed, it causes weird IO issues when trying to delete the repo again
-            // java.io.IOException: Unable to delete file: ...\.git\objects\pack\...
-            repository.close();
+            if (checkout) {
+                // if repo is not closed, it causes weird IO issues when trying to delete the repo again
+                // java.io.IOException: Unable to delete file: ...\.git\objects\pack\...
+                // a repository without checked out files is still read when it is zipped, it has to be closed by the caller afterwards
+                repository.close();
+            }
         }
         catch (GitAPIException | JGitInternalException ex) {
             log.warn("Cannot filter the repo " + repository.getLocalPath() + " due to the following exception: " + ex.getMessage());
@@ -813,6 +1413,57 @@ public class GitService {
         return repo.getFiles();
     }
 
+    /**
+     * Reads all files of the repository at the given commit directly from the git object database and passes their content to the consumer, one after the other. In
+     * contrast to {@link #listFiles(Repository)}, the files do not have to be checked out, e.g. for a repository cloned with
+     * {@link #getOrCloneRepositoryWithoutCheckout(ProgrammingExerciseParticipation, String)}. Only regular and executable files are read, symbolic links and submodules are
+     * skipped.
+     *
+     * @param repo     Local Repository Object.
+     * @param commitId the commit whose files should be read
+     * @param consumer receives the path and the content of each file, the content stream is only valid during the call
+     * @throws IOException if the objects could not be read or the consumer failed
+     */
+    public void readFilesAtCommit(Repository repo, ObjectId commitId, RepositoryFileConsumer consumer) throws IOException {
+        try (ObjectReader reader = repo.newObjectReader(); RevWalk revWalk = new RevWalk(reader); TreeWalk treeWalk = new TreeWalk(repo, reader)) {
+            treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                FileMode fileMode = treeWalk.getFileMode(0);
+                if (fileMode != FileMode.REGULAR_FILE && fileMode != FileMode.EXECUTABLE_FILE) {
+                    continue;
+                }
+                try (InputStream content = reader.open(treeWalk.getObjectId(0)).openStream()) {
+                    consumer.accept(treeWalk.getPathString(), content);
+                }
+            }
+        }
+    }
+
+    /**
+     * Zips a repository that contains a participation and writes the zip file as one entry into the given zip output stream. The zip file has the same content as
+     * the one of {@link #zipRepositoryWithParticipation(Repository, String, boolean)}, but the files are read from the git object database at the current HEAD, so the
+     * files of the repository do not have to be checked out. Its index has to match HEAD, see {@link #resetToOriginMasterWithoutCheckout(Repository)}.
+     *
+     * @param repo            Local Repository Object.
+     * @param zipOutputStream the stream of the outer zip file, it stays open
+     * @param zipEntryName    the name of the zip file in the outer zip file, see {@link #getZipFilenameOfRepositoryWithParticipation(Repository, boolean)}
+     * @throws IOException if the objects could not be read or the zip file could not be written
+     */
+    public void zipRepositoryWithParticipationWithoutCheckout(Repository repo, ZipOutputStream zipOutputStream, String zipEntryName) throws IOException {
+        zipFileService.addZipFile(zipOutputStream, zipEntryName, nestedZipOutputStream -> {
+            zipFileService.addFolderContentToZipFile(nestedZipOutputStream, repo.getDirectory().toPath(), repo.getLocalPath());
+            ObjectId head = repo.resolve(Constants.HEAD);
+            if (head != null) {
+                readFilesAtCommit(repo, head, (path, content) -> {
+                    nestedZipOutputStream.putNextEntry(new ZipEntry(path));
+                    content.transferTo(nestedZipOutputStream);
+                    nestedZipOutputStream.closeEntry();
+                });
+            }
+        });
+    }
+
     /**
      * Get a specific file by name. Makes sure the file is actually part of the repository.
      *
@@ -891,7 +1542,10 @@ public class GitService {
      */
     public void deleteLocalRepository(Repository repository) throws IOException {
         Path repoPath = repository.getLocalPath();
-        cachedRepositories.remove(repoPath);
+        CachedRepository removedRepository = cachedRepositories.remove(repoPath);
+        if (removedRepository != null) {
+            removedRepository.markEvicted();
+        }
         // if repository is not closed, it causes weird IO issues when trying to delete the repository again
         // java.io.IOException: Unable to delete file: ...\.git\objects\pack\...
         repository.closeBeforeDelete();
@@ -945,6 +1599,17 @@ public class GitService {
      * @throws IOException if the zipping process failed.
      */
     public Path zipRepositoryWithParticipation(Repository repo, String targetPath, boolean hideStudentName) throws IOException {
+        return zipRepository(repo.getLocalPath(), getZipFilenameOfRepositoryWithParticipation(repo, hideStudentName), targetPath);
+    }
+
+    /**
+     * Returns the name of the zip file of a git repository that contains a participation, see {@link #zipRepositoryWithParticipation(Repository, String, boolean)}
+     *
+     * @param repo            Local Repository Object.
+     * @param hideStudentName option to hide the student name for the zip file
+     * @return the name of the zip file without whitespace
+     */
+    public String getZipFilenameOfRepositoryWithParticipation(Repository repo, boolean hideStudentName) {
         var exercise = repo.getParticipation().getProgrammingExercise();
         var courseShortName = exercise.getCourseViaExerciseGroupOrCourseMember().getShortName();
         var participation = (ProgrammingExerciseStudentParticipation) repo.getParticipation();
@@ -965,7 +1630,7 @@ public class GitService {
         else {
             zipRepoName += "-" + studentTeamOrDefault + ".zip";
         }
-        return zipRepository(repo.getLocalPath(), zipRepoName, targetPath);
+        return zipRepoName.replaceAll("\\s", "");
     }
 
     /**
@@ -1026,4 +1691,136 @@ public class GitService {
         git.stashCreate().call();
         git.close();
     }
+
+    /**
+     * A repository in the cache, together with the time of its last access and the number of its leases. Accesses, leases and the eviction are synchronized on the
+     * cached repository, so a repository is never returned or leased after it has been evicted.
+     */
+    private static class CachedRepository {
+
+        private final Repository repository;
+
+        private int leases;
+
+        private boolean evicted;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private CachedRepository(Repository repository) {
+            this.repository = repository;
+        }
+
+        /**
+         * @return false if the repository has been evicted and must not be used anymore
+         */
+        private synchronized boolean access() {
+            if (evicted) {
+                return false;
+            }
+            lastAccess = System.currentTimeMillis();
+            return true;
+        }
+
+        /**
+         * @return false if the repository has been evicted and cannot be leased anymore
+         */
+        private synchronized boolean acquire() {
+            if (!access()) {
+                return false;
+            }
+            leases++;
+            return true;
+        }
+
+        private synchronized void release() {
+            leases--;
+            lastAccess = System.currentTimeMillis();
+        }
+
+        private synchronized boolean evictIfUnused(long notAccessedSince) {
+            if (evicted || leases > 0 || lastAccess >= notAccessedSince) {
+                return false;
+            }
+            evicted = true;
+            return true;
+        }
+
+        /**
+         * @return false if the repository had already been evicted
+         */
+        private synchronized boolean markEvicted() {
+            boolean wasEvicted = evicted;
+            evicted = true;
+            return !wasEvicted;
+        }
+    }
+
+    /**
+     * A lease of a repository, see {@link #leaseRepository(Repository)}. The repository is not closed by the cache until the lease is closed.
+     */
+    public static final class RepositoryLease implements AutoCloseable {
+
+        private final Repository repository;
+
+        @Nullable
+        private final CachedRepository cachedRepository;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private RepositoryLease(Repository repository, @Nullable CachedRepository cachedRepository) {
+            this.repository = repository;
+            this.cachedRepository = cachedRepository;
+        }
+
+        public Repository getRepository() {
+            return repository;
+        }
+
+        /**
+         * Allows the cache to close the repository again, closing a lease more than once has no effect
+         */
+        @Override
+        public void close() {
+            if (cachedRepository != null && closed.compareAndSet(false, true)) {
+                cachedRepository.release();
+            }
+        }
+    }
+
+    /**
+     * A local mirror of a template repository, together with the number of clones that use it at the moment. All fields are guarded by the lock of the mirror.
+     */
+    private static class TemplateMirror {
+
+        private final Path path;
+
+        private long lastUpdate;
+
+        private long lastUse = System.currentTimeMillis();
+
+        private int users;
+
+        /**
+         * True if the mirror has been deleted, it must not be used anymore and is created again with a new instance
+         */
+        private boolean evicted;
+
+        private TemplateMirror(Path path) {
+            this.path = path;
+        }
+
+        private synchronized void release() {
+            users--;
+            lastUse = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Receives the files of a repository read by {@link #readFilesAtCommit(Repository, ObjectId, RepositoryFileConsumer)}
+     */
+    @FunctionalInterface
+    public interface RepositoryFileConsumer {
+
+        void accept(String path, InputStream content) throws IOException;
+    }
 }
@@ -257,6 +257,9 @@ public class AtheneService {
 
         // Save clusters in Database
         textClusterRepository.saveAll(savedClusters);
+
+        // The submissions have to be ranked again with the new clusters
+        textAssessmentQueueService.invalidateAssessmentRanking(exerciseId);
     }
 
 }
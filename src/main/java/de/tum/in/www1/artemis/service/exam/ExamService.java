@@ -16,7 +16,7 @@ import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.actuate.audit.AuditEventRepository;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
 
 import de.tum.in.www1.artemis.config.Constants;
 import de.tum.in.www1.artemis.domain.*;
@@ -188,9 +188,14 @@ public class ExamService {
         // Adding exam information to DTO
         ExamScoresDTO scores = new ExamScoresDTO(exam.getId(), exam.getTitle(), exam.getMaxPoints());
 
-        // Counts how many participants each exercise has
-        Map<Long, Long> exerciseIdToNumberParticipations = studentParticipations.stream()
-                .collect(Collectors.groupingBy(studentParticipation -> studentParticipation.getExercise().getId(), Collectors.counting()));
+        // Counts how many participants each exercise has and groups the participations by student in one pass,
+        // instead of filtering all participations of the exam for each student
+        Map<Long, Long> exerciseIdToNumberParticipations = new HashMap<>();
+        Map<Long, List<StudentParticipation>> studentIdToParticipations = new HashMap<>();
+        for (StudentParticipation studentParticipation : studentParticipations) {
+            exerciseIdToNumberParticipations.merge(studentParticipation.getExercise().getId(), 1L, Long::sum);
+            studentIdToParticipations.computeIfAbsent(studentParticipation.getStudent().get().getId(), studentId -> new ArrayList<>()).add(studentParticipation);
+        }
 
         // Adding exercise group information to DTO
         for (ExerciseGroup exerciseGroup : exam.getExerciseGroups()) {
@@ -218,7 +223,7 @@ public class ExamService {
 
         // Adding registered student information to DTO
         Set<StudentExam> studentExams = studentExamRepository.findByExamId(examId); // fetched without test runs
-        ObjectMapper objectMapper = new ObjectMapper();
+        JsonFactory jsonFactory = new JsonFactory();
         for (StudentExam studentExam : studentExams) {
 
             User user = studentExam.getUser();
@@ -226,8 +231,7 @@ public class ExamService {
                     studentExam.isSubmitted());
 
             // Adding student results information to DTO
-            List<StudentParticipation> participationsOfStudent = studentParticipations.stream()
-                    .filter(studentParticipation -> studentParticipation.getStudent().get().getId().equals(studentResult.userId)).collect(Collectors.toList());
+            List<StudentParticipation> participationsOfStudent = studentIdToParticipations.getOrDefault(studentResult.userId, List.of());
 
             studentResult.overallPointsAchieved = 0.0;
             for (StudentParticipation studentParticipation : participationsOfStudent) {
@@ -250,7 +254,7 @@ public class ExamService {
                     }
 
                     // Check whether the student attempted to solve the exercise
-                    boolean hasNonEmptySubmission = hasNonEmptySubmission(studentParticipation.getSubmissions(), exercise, objectMapper);
+                    boolean hasNonEmptySubmission = hasNonEmptySubmission(studentParticipation.getSubmissions(), exercise, jsonFactory);
                     studentResult.exerciseGroupIdToExerciseResult.put(exercise.getExerciseGroup().getId(), new ExamScoresDTO.ExerciseResult(exercise.getId(), exercise.getTitle(),
                             exercise.getMaxPoints(), relevantResult.getScore(), achievedPoints, hasNonEmptySubmission));
                 }
@@ -278,12 +282,12 @@ public class ExamService {
     /**
      * Checks whether one of the submissions is not empty
      *
-     * @param submissions         Submissions to check
-     * @param exercise            Exercise of the submissions
-     * @param jacksonObjectMapper Mapper to parse a modeling exercise model string to JSON
+     * @param submissions Submissions to check
+     * @param exercise    Exercise of the submissions
+     * @param jsonFactory Factory for the parser that checks a modeling exercise model string
      * @return true if at least one submission is not empty else false
      */
-    private boolean hasNonEmptySubmission(Set<Submission> submissions, Exercise exercise, ObjectMapper jacksonObjectMapper) {
+    private boolean hasNonEmptySubmission(Set<Submission> submissions, Exercise exercise, JsonFactory jsonFactory) {
         if (exercise instanceof ProgrammingExercise) {
             return submissions.stream().anyMatch(submission -> submission.getType() == SubmissionType.MANUAL);
         }
@@ -298,7 +302,7 @@ public class ExamService {
         else if (exercise instanceof ModelingExercise) {
             ModelingSubmission modelingSubmission = (ModelingSubmission) submissions.iterator().next();
             try {
-                return !modelingSubmission.isEmpty(jacksonObjectMapper);
+                return !modelingSubmission.isEmpty(jsonFactory);
             }
             catch (Exception e) {
                 // Then the student most likely submitted something which breaks the model, if parsing fails
@@ -2,15 +2,17 @@ package de.tum.in.www1.artemis.service.exam;
 
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
 import javax.validation.constraints.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -23,6 +25,7 @@ import de.tum.in.www1.artemis.domain.modeling.ModelingExercise;
 import de.tum.in.www1.artemis.domain.modeling.ModelingSubmission;
 import de.tum.in.www1.artemis.domain.participation.ProgrammingExerciseStudentParticipation;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.domain.participation.TemplateProgrammingExerciseParticipation;
 import de.tum.in.www1.artemis.domain.quiz.*;
 import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.repository.UserRepository;
@@ -30,7 +33,9 @@ import de.tum.in.www1.artemis.security.SecurityUtils;
 import de.tum.in.www1.artemis.service.ParticipationService;
 import de.tum.in.www1.artemis.service.SubmissionService;
 import de.tum.in.www1.artemis.service.SubmissionVersionService;
+import de.tum.in.www1.artemis.service.WebsocketMessagingService;
 import de.tum.in.www1.artemis.service.programming.ProgrammingExerciseParticipationService;
+import de.tum.in.www1.artemis.web.rest.dto.ExamExerciseStartStatusDTO;
 import de.tum.in.www1.artemis.web.rest.errors.AccessForbiddenException;
 import de.tum.in.www1.artemis.web.rest.errors.EntityNotFoundException;
 
@@ -42,6 +47,8 @@ public class StudentExamService {
 
     private static final String ENTITY_NAME = "studentExam";
 
+    private static final Set<InitializationState> STARTED_INITIALIZATION_STATES = EnumSet.of(InitializationState.INITIALIZED, InitializationState.FINISHED);
+
     private final Logger log = LoggerFactory.getLogger(StudentExamService.class);
 
     private final ParticipationService participationService;
@@ -72,11 +79,19 @@ public class StudentExamService {
 
     private final ExamRepository examRepository;
 
+    private final WebsocketMessagingService websocketMessagingService;
+
+    private final ThreadPoolExecutor exerciseStartExecutor;
+
+    private final Semaphore programmingExerciseStartPermits;
+
     public StudentExamService(StudentExamRepository studentExamRepository, UserRepository userRepository, ParticipationService participationService,
             QuizSubmissionRepository quizSubmissionRepository, TextSubmissionRepository textSubmissionRepository, ModelingSubmissionRepository modelingSubmissionRepository,
             SubmissionVersionService submissionVersionService, ProgrammingExerciseParticipationService programmingExerciseParticipationService, SubmissionService submissionService,
             ProgrammingSubmissionRepository programmingSubmissionRepository, StudentParticipationRepository studentParticipationRepository, ExamQuizService examQuizService,
-            ProgrammingExerciseRepository programmingExerciseRepository, ExamRepository examRepository) {
+            ProgrammingExerciseRepository programmingExerciseRepository, ExamRepository examRepository, WebsocketMessagingService websocketMessagingService,
+            @Value("${artemis.exam.start-exercises.parallelism:10}") int parallelism,
+            @Value("${artemis.exam.start-exercises.programming-parallelism:5}") int programmingParallelism) {
         this.participationService = participationService;
         this.studentExamRepository = studentExamRepository;
         this.userRepository = userRepository;
@@ -91,6 +106,13 @@ public class StudentExamService {
         this.submissionService = submissionService;
         this.programmingExerciseRepository = programmingExerciseRepository;
         this.examRepository = examRepository;
+        this.websocketMessagingService = websocketMessagingService;
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.exerciseStartExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> new Thread(runnable, "exam-exercise-start-" + threadNumber.incrementAndGet()));
+        this.exerciseStartExecutor.allowCoreThreadTimeOut(true);
+        this.programmingExerciseStartPermits = new Semaphore(Math.max(1, programmingParallelism));
     }
 
     /**
@@ -466,7 +488,12 @@ public class StudentExamService {
     }
 
     /**
-     * Starts all the exercises of all the student exams of an exam
+     * Starts all the exercises of all the student exams of an exam.
+     * <p>
+     * The students that already have a fully initialized participation are loaded once per exercise (instead of once per student and exercise) and the template participation
+     * of each programming exercise is only loaded once. The missing participations are then started by a bounded pool of
+     * <code>artemis.exam.start-exercises.parallelism</code> threads, of which at most <code>artemis.exam.start-exercises.programming-parallelism</code> set up programming
+     * exercises (i.e. copy repositories and build plans) at the same time. The progress is sent to the instructors over websocket.
      *
      * @param examId exam to which the student exams belong
      * @return number of generated Participations
@@ -474,27 +501,78 @@ public class StudentExamService {
     public int startExercises(Long examId) {
         var exam = examRepository.findWithStudentExamsExercisesById(examId).orElseThrow(() -> new EntityNotFoundException("Exam", examId));
         var studentExams = exam.getStudentExams();
+
+        Map<Long, Set<Long>> startedStudentIdsByExerciseId = new HashMap<>();
+        Map<Long, TemplateProgrammingExerciseParticipation> templateParticipationsByExerciseId = new HashMap<>();
+        List<Runnable> missingStarts = new ArrayList<>();
         List<StudentParticipation> generatedParticipations = Collections.synchronizedList(new ArrayList<>());
-        executeInParallel(() -> studentExams.parallelStream().forEach(studentExam -> setUpExerciseParticipationsAndSubmissions(studentExam, generatedParticipations)));
+        var progress = new ExerciseStartProgress(examId);
+
+        for (StudentExam studentExam : studentExams) {
+            User student = studentExam.getUser();
+            for (Exercise exercise : studentExam.getExercises()) {
+                var startedStudentIds = startedStudentIdsByExerciseId.computeIfAbsent(exercise.getId(),
+                        exerciseId -> studentParticipationRepository.findStudentIdsByExerciseIdAndInitializationStateIn(exerciseId, STARTED_INITIALIZATION_STATES));
+                if (startedStudentIds.contains(student.getId())) {
+                    continue;
+                }
+                boolean isProgrammingExercise = exercise instanceof ProgrammingExercise;
+                if (isProgrammingExercise) {
+                    // Load lazy property
+                    var templateParticipation = templateParticipationsByExerciseId.computeIfAbsent(exercise.getId(),
+                            exerciseId -> programmingExerciseRepository.findByIdWithTemplateAndSolutionParticipationElseThrow(exerciseId).getTemplateParticipation());
+                    ((ProgrammingExercise) exercise).setTemplateParticipation(templateParticipation);
+                }
+                missingStarts.add(() -> {
+                    SecurityUtils.setAuthorizationObject();
+                    boolean started = isProgrammingExercise ? startProgrammingExercise(studentExam, exercise, student, generatedParticipations)
+                            : startExercise(studentExam, exercise, student, generatedParticipations);
+                    progress.update(started);
+                });
+            }
+        }
+
+        progress.total = missingStarts.size();
+        log.info("Start {} missing participations for exam {}", missingStarts.size(), examId);
+        executeInParallel(missingStarts);
+        progress.finish();
         return generatedParticipations.size();
     }
 
-    private void executeInParallel(Runnable task) {
-        final int numberOfParallelThreads = 10;
-        ForkJoinPool forkJoinPool = new ForkJoinPool(numberOfParallelThreads);
-        Future<?> future = forkJoinPool.submit(task);
-        // Wait for the operation to complete
+    private boolean startProgrammingExercise(StudentExam studentExam, Exercise exercise, User student, List<StudentParticipation> generatedParticipations) {
         try {
-            future.get();
+            programmingExerciseStartPermits.acquire();
         }
         catch (InterruptedException e) {
-            log.error("Execute in parallel got interrupted while waiting for task to complete", e);
+            Thread.currentThread().interrupt();
+            return false;
         }
-        catch (ExecutionException e) {
-            log.error("Execute in parallel failed, an exception was thrown", e.getCause());
+        try {
+            return startExercise(studentExam, exercise, student, generatedParticipations);
         }
         finally {
-            forkJoinPool.shutdown();
+            programmingExerciseStartPermits.release();
+        }
+    }
+
+    private void executeInParallel(List<Runnable> tasks) {
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks) {
+            futures.add(exerciseStartExecutor.submit(task));
+        }
+        // Wait for the operations to complete
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                log.error("Execute in parallel got interrupted while waiting for task to complete", e);
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException e) {
+                log.error("Execute in parallel failed, an exception was thrown", e.getCause());
+            }
         }
     }
 
@@ -509,33 +587,89 @@ public class StudentExamService {
 
         for (Exercise exercise : studentExam.getExercises()) {
             SecurityUtils.setAuthorizationObject();
-            // NOTE: it is not ideal to invoke the next line several times (e.g. 2000 student exams with 10 exercises would lead to 20.000 database calls to find a participation).
-            // One optimization could be that we load all participations per exercise once (or per exercise) into a large list (10 * 2000 = 20.000 participations) and then check if
-            // those participations exist in Java, however this might lead to memory issues and might be more difficult to program (and more difficult to understand)
-            // TODO: directly check in the database if the entry exists for the student, exercise and InitializationState.INITIALIZED
             var studentParticipations = participationService.findByExerciseAndStudentId(exercise, student.getId());
             // we start the exercise if no participation was found that was already fully initialized
             if (studentParticipations.stream().noneMatch(studentParticipation -> studentParticipation.getParticipant().equals(student)
                     && studentParticipation.getInitializationState() != null && studentParticipation.getInitializationState().hasCompletedState(InitializationState.INITIALIZED))) {
-                try {
-                    if (exercise instanceof ProgrammingExercise) {
-                        // TODO: we should try to move this out of the for-loop into the method which calls this method.
-                        // Load lazy property
-                        final var programmingExercise = programmingExerciseRepository.findByIdWithTemplateAndSolutionParticipationElseThrow(exercise.getId());
-                        ((ProgrammingExercise) exercise).setTemplateParticipation(programmingExercise.getTemplateParticipation());
-                    }
-                    // this will also create initial (empty) submissions for quiz, text, modeling and file upload
-                    var participation = participationService.startExercise(exercise, student, true);
-                    generatedParticipations.add(participation);
-                }
-                catch (Exception ex) {
-                    log.warn("Start exercise for student exam {} and exercise {} and student {} failed with exception: {}", studentExam.getId(), exercise.getId(), student.getId(),
-                            ex.getMessage(), ex);
+                if (exercise instanceof ProgrammingExercise) {
+                    // Load lazy property
+                    final var programmingExercise = programmingExerciseRepository.findByIdWithTemplateAndSolutionParticipationElseThrow(exercise.getId());
+                    ((ProgrammingExercise) exercise).setTemplateParticipation(programmingExercise.getTemplateParticipation());
                 }
+                startExercise(studentExam, exercise, student, generatedParticipations);
             }
         }
     }
 
+    /**
+     * Starts the exercise for the student, the template participation of a programming exercise must already be loaded.
+     * This will also create initial (empty) submissions for quiz, text, modeling and file upload.
+     *
+     * @return whether the exercise has been started successfully
+     */
+    private boolean startExercise(StudentExam studentExam, Exercise exercise, User student, List<StudentParticipation> generatedParticipations) {
+        try {
+            var participation = participationService.startExercise(exercise, student, true);
+            generatedParticipations.add(participation);
+            return true;
+        }
+        catch (Exception ex) {
+            log.warn("Start exercise for student exam {} and exercise {} and student {} failed with exception: {}", studentExam.getId(), exercise.getId(), student.getId(),
+                    ex.getMessage(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Counts the started participations of an exam and sends the progress to the instructors at most every second (and when all participations have been started)
+     */
+    private class ExerciseStartProgress {
+
+        private static final long MIN_INTERVAL_BETWEEN_UPDATES_IN_MILLIS = 1000;
+
+        private final Long examId;
+
+        private final AtomicInteger started = new AtomicInteger();
+
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private final AtomicLong lastUpdate = new AtomicLong();
+
+        private volatile int total;
+
+        ExerciseStartProgress(Long examId) {
+            this.examId = examId;
+        }
+
+        void update(boolean success) {
+            (success ? started : failed).incrementAndGet();
+            long now = System.currentTimeMillis();
+            long last = lastUpdate.get();
+            if (now - last >= MIN_INTERVAL_BETWEEN_UPDATES_IN_MILLIS && lastUpdate.compareAndSet(last, now)) {
+                send(false);
+            }
+        }
+
+        void finish() {
+            send(true);
+        }
+
+        private void send(boolean finished) {
+            try {
+                websocketMessagingService.sendMessage("/topic/exams/" + examId + "/exercise-start-status",
+                        new ExamExerciseStartStatusDTO(examId, total, started.get(), failed.get(), finished));
+            }
+            catch (Exception ex) {
+                log.warn("Could not send the exercise start status of exam {}: {}", examId, ex.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        exerciseStartExecutor.shutdown();
+    }
+
     /**
      * Find all unsubmitted student exams (ignores test runs) with exercises.
      * @param examId the exam id
@@ -0,0 +1,54 @@
+package de.tum.in.www1.artemis.service.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.hibernate.Hibernate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import de.tum.in.www1.artemis.domain.Complaint;
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.service.AssessmentDashboardStatisticsService;
+import de.tum.in.www1.artemis.service.TutorLeaderboardService;
+
+/**
+ * Invalidates the cached tutor leaderboard counters and assessment dashboard statistics of an exercise when a complaint or more feedback request about one of its
+ * results is created, updated or removed.
+ */
+@Component
+public class ComplaintListener {
+
+    private AssessmentDashboardStatisticsService assessmentDashboardStatisticsService;
+
+    private TutorLeaderboardService tutorLeaderboardService;
+
+    /**
+     * The services require repositories which require the {@link javax.persistence.EntityManager} that instantiates this listener.
+     * To break this circular dependency we use lazy injection here.
+     *
+     * @param assessmentDashboardStatisticsService the service caching the assessment dashboard statistics that will be lazily injected by Spring
+     * @param tutorLeaderboardService              the service caching the tutor leaderboard counters that will be lazily injected by Spring
+     */
+    public ComplaintListener(@Lazy AssessmentDashboardStatisticsService assessmentDashboardStatisticsService, @Lazy TutorLeaderboardService tutorLeaderboardService) {
+        this.assessmentDashboardStatisticsService = assessmentDashboardStatisticsService;
+        this.tutorLeaderboardService = tutorLeaderboardService;
+    }
+
+    /**
+     * Will be called by Hibernate AFTER a complaint is created, updated or removed
+     *
+     * @param complaint created, updated or removed complaint
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateCachedStatistics(Complaint complaint) {
+        Result result = complaint.getResult();
+        if (result != null && Hibernate.isInitialized(result)) {
+            assessmentDashboardStatisticsService.invalidateStatistics(result.getParticipation());
+            tutorLeaderboardService.invalidateExerciseLeaderboard(result.getParticipation());
+        }
+    }
+}
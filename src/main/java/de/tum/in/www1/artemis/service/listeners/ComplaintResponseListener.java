@@ -0,0 +1,54 @@
+package de.tum.in.www1.artemis.service.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.hibernate.Hibernate;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import de.tum.in.www1.artemis.domain.Complaint;
+import de.tum.in.www1.artemis.domain.ComplaintResponse;
+import de.tum.in.www1.artemis.service.AssessmentDashboardStatisticsService;
+import de.tum.in.www1.artemis.service.TutorLeaderboardService;
+
+/**
+ * Invalidates the cached tutor leaderboard counters and assessment dashboard statistics of an exercise when a response to a complaint about one of its results is
+ * created, updated or removed.
+ */
+@Component
+public class ComplaintResponseListener {
+
+    private AssessmentDashboardStatisticsService assessmentDashboardStatisticsService;
+
+    private TutorLeaderboardService tutorLeaderboardService;
+
+    /**
+     * The services require repositories which require the {@link javax.persistence.EntityManager} that instantiates this listener.
+     * To break this circular dependency we use lazy injection here.
+     *
+     * @param assessmentDashboardStatisticsService the service caching the assessment dashboard statistics that will be lazily injected by Spring
+     * @param tutorLeaderboardService              the service caching the tutor leaderboard counters that will be lazily injected by Spring
+     */
+    public ComplaintResponseListener(@Lazy AssessmentDashboardStatisticsService assessmentDashboardStatisticsService, @Lazy TutorLeaderboardService tutorLeaderboardService) {
+        this.assessmentDashboardStatisticsService = assessmentDashboardStatisticsService;
+        this.tutorLeaderboardService = tutorLeaderboardService;
+    }
+
+    /**
+     * Will be called by Hibernate AFTER a complaint response is created, updated or removed
+     *
+     * @param complaintResponse created, updated or removed complaint response
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateCachedStatistics(ComplaintResponse complaintResponse) {
+        Complaint complaint = complaintResponse.getComplaint();
+        if (complaint != null && Hibernate.isInitialized(complaint) && complaint.getResult() != null && Hibernate.isInitialized(complaint.getResult())) {
+            assessmentDashboardStatisticsService.invalidateStatistics(complaint.getResult().getParticipation());
+            tutorLeaderboardService.invalidateExerciseLeaderboard(complaint.getResult().getParticipation());
+        }
+    }
+}
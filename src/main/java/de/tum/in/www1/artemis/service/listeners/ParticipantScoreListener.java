@@ -0,0 +1,51 @@
+package de.tum.in.www1.artemis.service.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import de.tum.in.www1.artemis.domain.scores.ParticipantScore;
+import de.tum.in.www1.artemis.service.ScoreAggregateCache;
+
+/**
+ * Keeps the aggregated course and exam scores of the {@link ScoreAggregateCache} up to date when participant scores are created, updated or removed.
+ */
+@Component
+public class ParticipantScoreListener {
+
+    private ScoreAggregateCache scoreAggregateCache;
+
+    /**
+     * The {@link ScoreAggregateCache} requires repositories which require the {@link javax.persistence.EntityManager} that instantiates this listener. To break this
+     * circular dependency we use lazy injection here.
+     *
+     * @param scoreAggregateCache the cache of the aggregated scores that will be lazily injected by Spring
+     */
+    public ParticipantScoreListener(@Lazy ScoreAggregateCache scoreAggregateCache) {
+        this.scoreAggregateCache = scoreAggregateCache;
+    }
+
+    /**
+     * Will be called by Hibernate AFTER a participant score is created or updated
+     *
+     * @param participantScore created or updated participant score
+     */
+    @PostPersist
+    @PostUpdate
+    public void participantScoreSaved(ParticipantScore participantScore) {
+        scoreAggregateCache.participantScoreChanged(participantScore, false);
+    }
+
+    /**
+     * Will be called by Hibernate AFTER a participant score is removed
+     *
+     * @param participantScore removed participant score
+     */
+    @PostRemove
+    public void participantScoreRemoved(ParticipantScore participantScore) {
+        scoreAggregateCache.participantScoreChanged(participantScore, true);
+    }
+}
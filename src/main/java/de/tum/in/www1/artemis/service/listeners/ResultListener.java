@@ -8,7 +8,10 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.service.AssessmentDashboardStatisticsService;
 import de.tum.in.www1.artemis.service.ScoreService;
+import de.tum.in.www1.artemis.service.TutorLeaderboardService;
+import de.tum.in.www1.artemis.service.scheduled.ParticipantScoreSchedulerService;
 
 /**
  * Important: As the ResultListener potentially will be called from a situation where no {@link org.springframework.security.core.Authentication}
@@ -23,15 +26,28 @@ public class ResultListener {
 
     private ScoreService scoreService;
 
+    private ParticipantScoreSchedulerService participantScoreSchedulerService;
+
+    private AssessmentDashboardStatisticsService assessmentDashboardStatisticsService;
+
+    private TutorLeaderboardService tutorLeaderboardService;
+
     /**
      * While {@link javax.persistence.EntityManager} is being initialized it instantiates {@link javax.persistence.EntityListeners} including
      * {@link ResultListener}. Now {@link ResultListener} requires the {@link ScoreService} which requires {@link de.tum.in.www1.artemis.repository.StudentScoreRepository}
-     * which requires {@link javax.persistence.EntityManager}. To break this circular dependency we use lazy injection of the service here.
+     * which requires {@link javax.persistence.EntityManager}. To break this circular dependency we use lazy injection of the services here.
      *
-     * @param scoreService the student score service that will be lazily injected by Spring
+     * @param scoreService                         the student score service that will be lazily injected by Spring
+     * @param participantScoreSchedulerService     the service applying the participant score updates that will be lazily injected by Spring
+     * @param assessmentDashboardStatisticsService the service caching the assessment dashboard statistics that will be lazily injected by Spring
+     * @param tutorLeaderboardService              the service caching the tutor leaderboard counters that will be lazily injected by Spring
      */
-    public ResultListener(@Lazy ScoreService scoreService) {
+    public ResultListener(@Lazy ScoreService scoreService, @Lazy ParticipantScoreSchedulerService participantScoreSchedulerService,
+            @Lazy AssessmentDashboardStatisticsService assessmentDashboardStatisticsService, @Lazy TutorLeaderboardService tutorLeaderboardService) {
         this.scoreService = scoreService;
+        this.participantScoreSchedulerService = participantScoreSchedulerService;
+        this.assessmentDashboardStatisticsService = assessmentDashboardStatisticsService;
+        this.tutorLeaderboardService = tutorLeaderboardService;
     }
 
     /**
@@ -44,10 +60,13 @@ public class ResultListener {
     @PreRemove
     public void removeOrUpdateAssociatedParticipantScore(Result resultToBeDeleted) {
         scoreService.removeOrUpdateAssociatedParticipantScore(resultToBeDeleted);
+        assessmentDashboardStatisticsService.invalidateStatistics(resultToBeDeleted.getParticipation());
+        invalidateTutorLeaderboard(resultToBeDeleted);
     }
 
     /**
-     * Update or create a new participation score after a result is created or updated
+     * Schedule the update or creation of the participation score after a result is created or updated. The participation score is updated asynchronously after the
+     * transaction has been committed, together with the other results of the participant that were saved in the meantime.
      * <p>
      * Will be called by Hibernate AFTER a result is updated or created
      *
@@ -56,6 +75,17 @@ public class ResultListener {
     @PostUpdate
     @PostPersist
     public void updateOrCreateParticipantScore(Result createdOrUpdatedResult) {
-        scoreService.updateOrCreateParticipantScore(createdOrUpdatedResult);
+        participantScoreSchedulerService.scheduleUpdate(createdOrUpdatedResult);
+        assessmentDashboardStatisticsService.invalidateStatistics(createdOrUpdatedResult.getParticipation());
+        invalidateTutorLeaderboard(createdOrUpdatedResult);
+    }
+
+    /**
+     * Automatic results (e.g. of every build of a programming exercise) have no assessor, so they do not change the tutor leaderboard
+     */
+    private void invalidateTutorLeaderboard(Result result) {
+        if (!result.isAutomatic()) {
+            tutorLeaderboardService.invalidateExerciseLeaderboard(result.getParticipation());
+        }
     }
 }
@@ -0,0 +1,42 @@
+package de.tum.in.www1.artemis.service.listeners;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import de.tum.in.www1.artemis.domain.Submission;
+import de.tum.in.www1.artemis.service.AssessmentDashboardStatisticsService;
+
+/**
+ * Invalidates the cached assessment dashboard statistics of an exercise when one of its submissions is created, updated or removed.
+ */
+@Component
+public class SubmissionListener {
+
+    private AssessmentDashboardStatisticsService assessmentDashboardStatisticsService;
+
+    /**
+     * The {@link AssessmentDashboardStatisticsService} requires repositories which require the {@link javax.persistence.EntityManager} that instantiates this listener.
+     * To break this circular dependency we use lazy injection here.
+     *
+     * @param assessmentDashboardStatisticsService the service caching the assessment dashboard statistics that will be lazily injected by Spring
+     */
+    public SubmissionListener(@Lazy AssessmentDashboardStatisticsService assessmentDashboardStatisticsService) {
+        this.assessmentDashboardStatisticsService = assessmentDashboardStatisticsService;
+    }
+
+    /**
+     * Will be called by Hibernate AFTER a submission is created, updated or removed
+     *
+     * @param submission created, updated or removed submission
+     */
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void invalidateAssessmentDashboardStatistics(Submission submission) {
+        assessmentDashboardStatisticsService.invalidateStatistics(submission.getParticipation());
+    }
+}
@@ -0,0 +1,285 @@
+package de.tum.in.www1.artemis.service.plagiarism;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jplag.GSTiling;
+import jplag.JPlag;
+import jplag.JPlagComparison;
+import jplag.JPlagResult;
+import jplag.Structure;
+import jplag.Submission;
+import jplag.Token;
+import jplag.strategy.AbstractComparisonStrategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A JPlag comparison strategy that compares the submissions on several threads instead of comparing all pairs one after the other.
+ * <p>
+ * The submissions are only parsed once by JPlag. Before the comparison, a MinHash signature over the token n-grams of every submission is calculated. Only pairs of
+ * submissions whose estimated n-gram similarity can reach the similarity threshold are compared with the greedy string tiling of JPlag. The pairs are distributed in
+ * shards (all candidate pairs of one submission) to the threads.
+ * <p>
+ * The greedy string tiling marks the tokens of the compared submissions, therefore every thread compares its own copies of the token lists. A thread drops its copies
+ * once their shard is done. The resulting comparisons reference the submissions parsed by JPlag, so that they can be used in reports as usual.
+ */
+public class ShardedJPlagComparisonStrategy extends AbstractComparisonStrategy {
+
+    private static final int MIN_HASH_SIGNATURE_LENGTH = 64;
+
+    /**
+     * The default part of the n-gram similarity corresponding to the similarity threshold that the estimated n-gram similarity of a candidate pair must reach. The
+     * standard error of the estimate with 64 hash functions is at most 1 / 16, e.g. the n-gram similarity corresponding to a threshold of 50% is 1 / 3, so a pair at
+     * the threshold is only filtered if its estimate is more than 2.5 standard errors too low. The n-gram similarity also underestimates the similarity of JPlag for
+     * submissions of different length, so a lower factor is safer for such exercises.
+     */
+    public static final double DEFAULT_PRE_FILTER_FACTOR = 0.5;
+
+    private final Logger log = LoggerFactory.getLogger(ShardedJPlagComparisonStrategy.class);
+
+    private final JPlag jplag;
+
+    private final int numberOfThreads;
+
+    private final double preFilterFactor;
+
+    /**
+     * Creates the strategy for the given JPlag instance with the default pre-filter, it has to be assigned to {@link JPlag#comparisonStrategy} before JPlag is run
+     *
+     * @param jplag           the JPlag instance that parses the submissions
+     * @param numberOfThreads the number of threads that compare the submissions
+     */
+    public ShardedJPlagComparisonStrategy(JPlag jplag, int numberOfThreads) {
+        this(jplag, numberOfThreads, DEFAULT_PRE_FILTER_FACTOR);
+    }
+
+    /**
+     * Creates the strategy for the given JPlag instance, it has to be assigned to {@link JPlag#comparisonStrategy} before JPlag is run
+     *
+     * @param jplag           the JPlag instance that parses the submissions
+     * @param numberOfThreads the number of threads that compare the submissions
+     * @param preFilterFactor the part of the n-gram similarity corresponding to the similarity threshold that the estimated n-gram similarity of a pair must reach, 0
+     *                        compares all pairs
+     */
+    public ShardedJPlagComparisonStrategy(JPlag jplag, int numberOfThreads, double preFilterFactor) {
+        super(jplag.getOptions(), new GSTiling(jplag));
+        this.jplag = jplag;
+        this.numberOfThreads = Math.max(1, numberOfThreads);
+        this.preFilterFactor = preFilterFactor;
+    }
+
+    @Override
+    public JPlagResult compareSubmissions(Vector<Submission> submissions, Submission baseCodeSubmission) {
+        if (baseCodeSubmission != null) {
+            compareSubmissionsToBaseCode(submissions, baseCodeSubmission);
+        }
+        long start = System.currentTimeMillis();
+        int numberOfSubmissions = submissions.size();
+        int nGramLength = options.getMinTokenMatch() != null ? options.getMinTokenMatch() : jplag.language.min_token_match();
+
+        long[][] signatures = new long[numberOfSubmissions][];
+        byte[][] serializedTokens = new byte[numberOfSubmissions][];
+        for (int index = 0; index < numberOfSubmissions; index++) {
+            Structure tokenList = submissions.get(index).tokenList;
+            if (tokenList != null) {
+                signatures[index] = calculateMinHashSignature(tokenList, nGramLength);
+                serializedTokens[index] = serializeTokens(tokenList);
+            }
+        }
+
+        // the n-gram similarity (Jaccard index) of two submissions with the similarity threshold t is about t / (2 - t)
+        double similarityThreshold = options.getSimilarityThreshold() / 100.0;
+        double minimumEstimatedSimilarity = similarityThreshold > 0 && preFilterFactor > 0 ? preFilterFactor * similarityThreshold / (2 - similarityThreshold) : -1;
+
+        List<List<JPlagComparison>> comparisonsPerShard = new ArrayList<>(Collections.nCopies(numberOfSubmissions, List.of()));
+        AtomicInteger nextShard = new AtomicInteger();
+        AtomicLong numberOfComparedPairs = new AtomicLong();
+        ExecutorService threadPool = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numberOfThreads; thread++) {
+                futures.add(threadPool.submit(() -> {
+                    var worker = new Worker(submissions, serializedTokens);
+                    int shard;
+                    while ((shard = nextShard.getAndIncrement()) < numberOfSubmissions) {
+                        List<JPlagComparison> comparisons = new ArrayList<>();
+                        for (int other = shard + 1; other < numberOfSubmissions; other++) {
+                            if (signatures[shard] == null || signatures[other] == null || estimateSimilarity(signatures[shard], signatures[other]) < minimumEstimatedSimilarity) {
+                                continue;
+                            }
+                            numberOfComparedPairs.incrementAndGet();
+                            JPlagComparison comparison = worker.compare(shard, other);
+                            if (baseCodeSubmission != null) {
+                                comparison.bcMatchesA = baseCodeMatches.get(comparison.subA.name);
+                                comparison.bcMatchesB = baseCodeMatches.get(comparison.subB.name);
+                            }
+                            if (isAboveSimilarityThreshold(comparison)) {
+                                comparisons.add(comparison);
+                            }
+                        }
+                        comparisonsPerShard.set(shard, comparisons);
+                        worker.finishShard(shard);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The JPlag comparison has been interrupted", ex);
+        }
+        catch (ExecutionException ex) {
+            throw new IllegalStateException("The JPlag comparison failed: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        finally {
+            threadPool.shutdownNow();
+        }
+
+        List<JPlagComparison> comparisons = new ArrayList<>();
+        comparisonsPerShard.forEach(comparisons::addAll);
+        long numberOfPairs = (long) numberOfSubmissions * (numberOfSubmissions - 1) / 2;
+        log.info("Compared {} of {} pairs of submissions after the pre-filter on {} threads", numberOfComparedPairs.get(), numberOfPairs, numberOfThreads);
+        return new JPlagResult(comparisons, System.currentTimeMillis() - start, numberOfSubmissions, options);
+    }
+
+    /**
+     * Calculates the MinHash signature of the set of token type n-grams of a submission
+     *
+     * @param tokenList   the tokens of the submission
+     * @param nGramLength the number of tokens in one n-gram
+     * @return the signature, for every hash function the minimum hash of all n-grams
+     */
+    private static long[] calculateMinHashSignature(Structure tokenList, int nGramLength) {
+        long[] signature = new long[MIN_HASH_SIGNATURE_LENGTH];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        Token[] tokens = tokenList.tokens;
+        for (int start = 0; start + nGramLength <= tokenList.size(); start++) {
+            long nGramHash = 0;
+            for (int index = start; index < start + nGramLength; index++) {
+                nGramHash = 31 * nGramHash + tokens[index].type;
+            }
+            for (int function = 0; function < MIN_HASH_SIGNATURE_LENGTH; function++) {
+                long hash = mix(nGramHash + function * 0x9E3779B97F4A7C15L);
+                if (hash < signature[function]) {
+                    signature[function] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double estimateSimilarity(long[] firstSignature, long[] secondSignature) {
+        if (firstSignature[0] == Long.MAX_VALUE || secondSignature[0] == Long.MAX_VALUE) {
+            // submissions with less tokens than one n-gram are always compared
+            return 1.0;
+        }
+        int equalHashes = 0;
+        for (int function = 0; function < MIN_HASH_SIGNATURE_LENGTH; function++) {
+            if (firstSignature[function] == secondSignature[function]) {
+                equalHashes++;
+            }
+        }
+        return (double) equalHashes / MIN_HASH_SIGNATURE_LENGTH;
+    }
+
+    /**
+     * The finalizer of the 64 bit MurmurHash3, used to derive independent hash functions from one n-gram hash
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static byte[] serializeTokens(Structure tokenList) {
+        var outputStream = new ByteArrayOutputStream();
+        try (var objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(Arrays.copyOf(tokenList.tokens, tokenList.size()));
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Compares submissions on one thread with its own greedy string tiling and its own copies of the token lists
+     */
+    private class Worker {
+
+        private final Vector<Submission> submissions;
+
+        private final byte[][] serializedTokens;
+
+        private final GSTiling gSTiling = new GSTiling(jplag);
+
+        /**
+         * The copies of the token lists by the index of their submission
+         */
+        private final TreeMap<Integer, Structure> tokenCopies = new TreeMap<>();
+
+        /**
+         * Two submissions that are compared with the copied token lists, they are only created once because JPlag searches the files of a new submission
+         */
+        private Submission firstCopy;
+
+        private Submission secondCopy;
+
+        private Worker(Vector<Submission> submissions, byte[][] serializedTokens) {
+            this.submissions = submissions;
+            this.serializedTokens = serializedTokens;
+        }
+
+        private JPlagComparison compare(int first, int second) {
+            if (firstCopy == null) {
+                firstCopy = new Submission(submissions.get(first).name, submissions.get(first).submissionFile, jplag);
+                secondCopy = new Submission(submissions.get(second).name, submissions.get(second).submissionFile, jplag);
+            }
+            firstCopy.tokenList = getTokenCopy(first);
+            secondCopy.tokenList = getTokenCopy(second);
+            JPlagComparison comparison = gSTiling.compare(firstCopy, secondCopy);
+            // the matches refer to token positions, which are the same in the copies and the parsed submissions
+            comparison.subA = comparison.subA == firstCopy ? submissions.get(first) : submissions.get(second);
+            comparison.subB = comparison.subB == firstCopy ? submissions.get(first) : submissions.get(second);
+            return comparison;
+        }
+
+        /**
+         * Drops the copies that are not needed anymore: the shards are processed in ascending order and a shard only contains pairs with submissions of higher index
+         *
+         * @param shard the index of the submission whose shard is done
+         */
+        private void finishShard(int shard) {
+            tokenCopies.headMap(shard, true).clear();
+        }
+
+        private Structure getTokenCopy(int index) {
+            return tokenCopies.computeIfAbsent(index, key -> deserializeTokens(serializedTokens[index]));
+        }
+
+        private Structure deserializeTokens(byte[] data) {
+            try (var objectInputStream = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                Token[] tokens = (Token[]) objectInputStream.readObject();
+                Structure tokenList = new Structure();
+                tokenList.ensureCapacity(tokens.length);
+                for (Token token : tokens) {
+                    tokenList.addToken(token);
+                }
+                return tokenList;
+            }
+            catch (IOException | ClassNotFoundException ex) {
+                throw new IllegalStateException("Could not copy the tokens of a submission", ex);
+            }
+        }
+    }
+}
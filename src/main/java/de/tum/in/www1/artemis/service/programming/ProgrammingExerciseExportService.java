@@ -2,18 +2,19 @@ package de.tum.in.www1.artemis.service.programming;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipOutputStream;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -60,6 +61,7 @@ import de.tum.in.www1.artemis.service.FileService;
 import de.tum.in.www1.artemis.service.UrlService;
 import de.tum.in.www1.artemis.service.ZipFileService;
 import de.tum.in.www1.artemis.service.connectors.GitService;
+import de.tum.in.www1.artemis.service.plagiarism.ShardedJPlagComparisonStrategy;
 import de.tum.in.www1.artemis.service.util.TimeLogUtil;
 import de.tum.in.www1.artemis.web.rest.dto.RepositoryExportOptionsDTO;
 import de.tum.in.www1.artemis.web.rest.errors.BadRequestAlertException;
@@ -73,6 +75,18 @@ public class ProgrammingExerciseExportService {
     @Value("${artemis.repo-download-clone-path}")
     private String repoDownloadClonePath;
 
+    @Value("${artemis.plagiarism-checks.sharded-comparison:false}")
+    private boolean shardedPlagiarismComparison;
+
+    @Value("${artemis.plagiarism-checks.comparison-threads:4}")
+    private int plagiarismComparisonThreads;
+
+    @Value("${artemis.plagiarism-checks.pre-filter-factor:0.5}")
+    private double plagiarismPreFilterFactor;
+
+    @Value("${artemis.repository-export.parallelism:4}")
+    private int repositoryExportParallelism;
+
     private final ProgrammingExerciseRepository programmingExerciseRepository;
 
     private final StudentParticipationRepository studentParticipationRepository;
@@ -107,48 +121,61 @@ public class ProgrammingExerciseExportService {
      * @return the path to the zip file
      */
     public Path exportProgrammingExercise(ProgrammingExercise exercise, String pathToStoreZipFile, List<String> exportErrors) {
-        // Will contain the zipped files. Note that there can be null elements
-        // because e.g exportStudentRepositories returns null if student repositories don't
-        // exist.
-        var zipFiles = new ArrayList<File>();
-
         // Lazy load student participations and set the export options.
         var studentParticipations = studentParticipationRepository.findByExerciseId(exercise.getId()).stream()
                 .map(studentParticipation -> (ProgrammingExerciseStudentParticipation) studentParticipation).collect(Collectors.toList());
         var exportOptions = new RepositoryExportOptionsDTO();
         exportOptions.setHideStudentNameInZippedFolder(false);
 
-        // Export student repositories
-        var studentZipFilePaths = exportStudentRepositories(exercise, studentParticipations, exportOptions, exportErrors).stream().filter(Objects::nonNull).map(Path::toFile)
-                .collect(Collectors.toList());
-        zipFiles.addAll(studentZipFilePaths);
-
-        // Export the template, solution, and tests repositories
-        zipFiles.add(exportInstructorRepositoryForExercise(exercise.getId(), RepositoryType.TEMPLATE, exportErrors));
-        zipFiles.add(exportInstructorRepositoryForExercise(exercise.getId(), RepositoryType.SOLUTION, exportErrors));
-        zipFiles.add(exportInstructorRepositoryForExercise(exercise.getId(), RepositoryType.TESTS, exportErrors));
-
-        // Remove null elements and get the file path of each zip file.
-        var zipFilePathsNonNull = zipFiles.stream().filter(Objects::nonNull).map(File::toPath).collect(Collectors.toList());
+        var timestamp = ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-Hmss"));
+        var filename = exercise.getCourseViaExerciseGroupOrCourseMember().getShortName() + "-" + exercise.getTitle() + "-" + exercise.getId() + "-" + timestamp + ".zip";
+        var pathToZippedExercise = Path.of(pathToStoreZipFile, filename);
+        // Will contain the zipped instructor repositories. Note that they are null if a repository does not exist.
+        var instructorZipFiles = new ArrayList<Path>();
+
+        boolean zipFileCreated = false;
+        try (OutputStream outputStream = Files.newOutputStream(pathToZippedExercise)) {
+            // the zip output stream is only closed if it contains a repository, as a zip file without entries cannot be finished
+            ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+            // Export student repositories, they are written into the zip file directly
+            int numberOfExportedRepositories = exportStudentRepositories(exercise, studentParticipations, exportOptions, zipOutputStream, exportErrors);
+
+            // Export the template, solution, and tests repositories
+            for (var repositoryType : List.of(RepositoryType.TEMPLATE, RepositoryType.SOLUTION, RepositoryType.TESTS)) {
+                var instructorZipFile = exportInstructorRepositoryForExercise(exercise.getId(), repositoryType, exportErrors);
+                if (instructorZipFile != null) {
+                    instructorZipFiles.add(instructorZipFile.toPath());
+                }
+            }
+            zipFileService.addFilesToZipFile(zipOutputStream, instructorZipFiles);
+            numberOfExportedRepositories += instructorZipFiles.size();
 
-        try {
-            // Zip the student and instructor repos together.
-            var timestamp = ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-Hmss"));
-            var filename = exercise.getCourseViaExerciseGroupOrCourseMember().getShortName() + "-" + exercise.getTitle() + "-" + exercise.getId() + "-" + timestamp + ".zip";
-            var pathToZippedExercise = Path.of(pathToStoreZipFile, filename);
-            zipFileService.createZipFile(pathToZippedExercise, zipFilePathsNonNull, false);
-            return pathToZippedExercise;
+            if (numberOfExportedRepositories == 0) {
+                var error = "Failed to export programming exercise " + exercise.getId() + " because none of its repositories could be exported";
+                log.info(error);
+                exportErrors.add(error);
+            }
+            else {
+                zipOutputStream.close();
+                zipFileCreated = true;
+            }
         }
         catch (IOException e) {
             var error = "Failed to export programming exercise " + exercise.getId() + " because the zip file " + pathToStoreZipFile + " could not be created: " + e.getMessage();
-            log.info(error);
+            log.error(error, e);
             exportErrors.add(error);
-            return null;
         }
         finally {
             // Delete the zipped repo files since we don't need those anymore.
-            zipFilePathsNonNull.forEach(zipFilePath -> fileService.scheduleForDeletion(zipFilePath, 1));
+            instructorZipFiles.forEach(zipFilePath -> fileService.scheduleForDeletion(zipFilePath, 1));
         }
+
+        if (!zipFileCreated) {
+            // Delete the empty or partially written zip file
+            fileService.scheduleForDeletion(pathToZippedExercise, 0);
+            return null;
+        }
+        return pathToZippedExercise;
     }
 
     /**
@@ -222,27 +249,59 @@ public class ProgrammingExerciseExportService {
         ProgrammingExercise programmingExercise = programmingExerciseRepository.findWithTemplateAndSolutionParticipationTeamAssignmentConfigCategoriesById(programmingExerciseId)
                 .get();
 
-        var zippedRepos = exportStudentRepositories(programmingExercise, participations, repositoryExportOptions, new ArrayList<>());
-
-        // delete project root folder
         final var targetPath = fileService.getUniquePathString(repoDownloadClonePath);
-        deleteReposDownloadProjectRootDirectory(programmingExercise, targetPath);
+        String filename = programmingExercise.getCourseViaExerciseGroupOrCourseMember().getShortName() + "-" + programmingExercise.getShortName() + "-"
+                + System.currentTimeMillis() + ".zip";
+        Path zipFilePath = Paths.get(targetPath, filename);
+        int numberOfExportedRepositories;
+        try {
+            Files.createDirectories(zipFilePath.getParent());
+            // Create a zip file into which the repositories are written directly
+            try (OutputStream outputStream = Files.newOutputStream(zipFilePath)) {
+                // the zip output stream is only closed if it contains a repository, as a zip file without entries cannot be finished
+                ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+                numberOfExportedRepositories = exportStudentRepositories(programmingExercise, participations, repositoryExportOptions, zipOutputStream, new ArrayList<>());
+                if (numberOfExportedRepositories > 0) {
+                    zipOutputStream.close();
+                }
+            }
+        }
+        catch (IOException ex) {
+            log.error("Creating zip file for programming exercise {} did not work correctly", programmingExercise.getTitle(), ex);
+            fileService.scheduleForDeletion(zipFilePath, 0);
+            return null;
+        }
+        finally {
+            // delete project root folder
+            deleteReposDownloadProjectRootDirectory(programmingExercise, targetPath);
+        }
 
-        // Create a zip folder containing the zipped repositories.
-        return createZipWithAllRepositories(programmingExercise, zippedRepos);
+        if (numberOfExportedRepositories == 0) {
+            log.warn("The zip file could not be created. Ignoring the request to export repositories for exercise " + programmingExercise.getTitle());
+            fileService.scheduleForDeletion(zipFilePath, 0);
+            return null;
+        }
+        fileService.scheduleForDeletion(zipFilePath, 5);
+        return new File(zipFilePath.toString());
     }
 
     /**
-     * Zip the participations of programming exercises of a requested list of students separately.
+     * Checks out the repositories of the given participations of a programming exercise and writes each of them as a separate zip file into the given zip output stream.
+     * <p>
+     * The repositories are checked out on <code>artemis.repository-export.parallelism</code> threads, while the calling thread writes them into the zip output stream in
+     * the order in which their checkout has finished. Only a few checked out repositories wait for being written at the same time, and no intermediate zip file is
+     * created per repository. A repository that cannot be exported is skipped and reported in the export errors.
      *
      * @param programmingExercise     the programming exercise
      * @param participations          participations that should be exported
      * @param repositoryExportOptions the options that should be used for the export
+     * @param zipOutputStream         the zip file into which the zipped repositories are written, it stays open
      * @param exportErrors            A list of errors that occured during export (populated by this function)
-     * @return List of zip file paths
+     * @return the number of repositories written into the zip output stream
+     * @throws IOException if the zip output stream could not be written, the export is aborted in this case
      */
-    public List<Path> exportStudentRepositories(ProgrammingExercise programmingExercise, @NotNull List<ProgrammingExerciseStudentParticipation> participations,
-            RepositoryExportOptionsDTO repositoryExportOptions, List<String> exportErrors) {
+    public int exportStudentRepositories(ProgrammingExercise programmingExercise, @NotNull List<ProgrammingExerciseStudentParticipation> participations,
+            RepositoryExportOptionsDTO repositoryExportOptions, ZipOutputStream zipOutputStream, List<String> exportErrors) throws IOException {
         var programmingExerciseId = programmingExercise.getId();
         if (repositoryExportOptions.isExportAllParticipants()) {
             log.info("Request to export all student or team repositories of programming exercise {} with title '{}'", programmingExerciseId, programmingExercise.getTitle());
@@ -252,21 +311,98 @@ public class ProgrammingExerciseExportService {
                     programmingExercise.getTitle(), participations.stream().map(StudentParticipation::getParticipantIdentifier).collect(Collectors.joining(", ")));
         }
 
-        List<Path> zippedRepos = Collections.synchronizedList(new ArrayList<>());
-        participations.parallelStream().forEach(participation -> {
+        // the student repositories can be cloned with the objects of the template repository
+        VcsRepositoryUrl templateRepositoryUrl = programmingExercise.getVcsTemplateRepositoryUrl();
+        if (templateRepositoryUrl == null) {
+            // the template participation has not been loaded with the exercise
+            templateRepositoryUrl = programmingExerciseRepository.findWithTemplateAndSolutionParticipationById(programmingExerciseId)
+                    .map(ProgrammingExercise::getVcsTemplateRepositoryUrl).orElse(null);
+        }
+        final VcsRepositoryUrl templateRepoUrl = templateRepositoryUrl;
+
+        int parallelism = Math.max(1, repositoryExportParallelism);
+        ExecutorService threadPool = Executors.newFixedThreadPool(parallelism);
+        CompletionService<CheckedOutRepository> checkouts = new ExecutorCompletionService<>(threadPool);
+        Iterator<ProgrammingExerciseStudentParticipation> remainingParticipations = participations.iterator();
+        Set<String> zipEntryNames = new HashSet<>();
+        int numberOfRunningCheckouts = 0;
+        int numberOfExportedRepositories = 0;
+        try {
+            while (remainingParticipations.hasNext() || numberOfRunningCheckouts > 0) {
+                // limit the number of checked out repositories that are not written yet
+                while (remainingParticipations.hasNext() && numberOfRunningCheckouts < 2 * parallelism) {
+                    var participation = remainingParticipations.next();
+                    checkouts.submit(() -> checkoutRepositoryForExport(programmingExercise, templateRepoUrl, participation, repositoryExportOptions));
+                    numberOfRunningCheckouts++;
+                }
+                CheckedOutRepository checkout = checkouts.take().get();
+                numberOfRunningCheckouts--;
+                if (checkout.error != null) {
+                    exportErrors.add(checkout.error);
+                    continue;
+                }
+                if (checkout.repository == null) {
+                    continue;
+                }
+                try {
+                    String zipEntryName = gitService.getZipFilenameOfRepositoryWithParticipation(checkout.repository, repositoryExportOptions.isHideStudentNameInZippedFolder());
+                    if (!zipEntryNames.add(zipEntryName)) {
+                        // e.g. if the student names are hidden, the zip files must still have different names
+                        zipEntryName = zipEntryName.replaceAll("\\.zip$", "-" + checkout.participation.getId() + ".zip");
+                        zipEntryNames.add(zipEntryName);
+                    }
+                    log.debug("Write repository {} into the zip file", checkout.repository.getLocalPath());
+                    if (checkout.filesCheckedOut) {
+                        zipFileService.addZipFileWithFolderContent(zipOutputStream, zipEntryName, checkout.repository.getLocalPath());
+                    }
+                    else {
+                        gitService.zipRepositoryWithParticipationWithoutCheckout(checkout.repository, zipOutputStream, zipEntryName);
+                    }
+                    numberOfExportedRepositories++;
+                }
+                finally {
+                    checkout.cleanUp();
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The export of the student repositories has been interrupted", ex);
+        }
+        catch (ExecutionException ex) {
+            // checkoutRepositoryForExport catches all exceptions of a single repository
+            throw new IOException("The export of the student repositories failed: " + ex.getCause().getMessage(), ex.getCause());
+        }
+        finally {
+            threadPool.shutdownNow();
+            if (numberOfRunningCheckouts > 0) {
+                cleanUpAbortedCheckouts(threadPool, checkouts, numberOfRunningCheckouts);
+            }
+        }
+        return numberOfExportedRepositories;
+    }
+
+    /**
+     * Deletes the repositories that have been checked out for an export which has been aborted
+     */
+    private void cleanUpAbortedCheckouts(ExecutorService threadPool, CompletionService<CheckedOutRepository> checkouts, int numberOfRunningCheckouts) {
+        try {
+            threadPool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        Future<CheckedOutRepository> checkout;
+        while (numberOfRunningCheckouts-- > 0 && (checkout = checkouts.poll()) != null) {
             try {
-                var zippedRepo = createZipForRepositoryWithParticipation(programmingExercise, participation, repositoryExportOptions);
-                if (zippedRepo != null) {
-                    zippedRepos.add(zippedRepo);
+                if (!checkout.isCancelled()) {
+                    checkout.get().cleanUp();
                 }
             }
-            catch (IOException | GitAPIException | GitException | InterruptedException e) {
-                var error = "Failed to export the student repository with participation: " + participation.getId() + " for programming exercise '" + programmingExercise.getTitle()
-                        + "' (id: " + programmingExercise.getId() + ") because the repository couldn't be downloaded. ";
-                exportErrors.add(error);
+            catch (InterruptedException | ExecutionException ex) {
+                log.warn("Could not delete a repository of an aborted export: {}", ex.getMessage());
             }
-        });
-        return zippedRepos;
+        }
     }
 
     /**
@@ -304,62 +440,43 @@ public class ProgrammingExerciseExportService {
     }
 
     /**
-     * Creates one single zip archive containing all zipped repositories found under the given paths
-     *
-     * @param programmingExercise The programming exercise to which all repos belong to
-     * @param pathsToZippedRepos  The paths to all zipped repositories
-     * @return the zip file
-     */
-    private File createZipWithAllRepositories(ProgrammingExercise programmingExercise, List<Path> pathsToZippedRepos) {
-        if (pathsToZippedRepos.isEmpty()) {
-            log.warn("The zip file could not be created. Ignoring the request to export repositories for exercise " + programmingExercise.getTitle());
-            return null;
-        }
-
-        try {
-            log.debug("Create zip file for {} repositorie(s) of programming exercise: {}", pathsToZippedRepos.size(), programmingExercise.getTitle());
-
-            String filename = programmingExercise.getCourseViaExerciseGroupOrCourseMember().getShortName() + "-" + programmingExercise.getShortName() + "-"
-                    + System.currentTimeMillis() + ".zip";
-            Path zipFilePath = Paths.get(pathsToZippedRepos.get(0).getParent().toString(), filename);
-            zipFileService.createZipFile(zipFilePath, pathsToZippedRepos, false);
-            fileService.scheduleForDeletion(zipFilePath, 5);
-            return new File(zipFilePath.toString());
-        }
-        catch (IOException ex) {
-            log.error("Creating zip file for programming exercise {} did not work correctly: {} ", programmingExercise.getTitle(), ex.getMessage());
-            return null;
-        }
-        finally {
-            // we do some cleanup here to prevent future errors with file handling
-            deleteTempZipRepoFiles(pathsToZippedRepos);
-        }
-    }
-
-    /**
-     * Checks out the repository for the given participation, zips it and adds the path to the given list of already
-     * zipped repos.
+     * Checks out the repository for the given participation and applies the export options to it, so that it can be zipped. If the export options do not modify the
+     * files, they are not checked out but read from the git object database when the repository is zipped. Any expected exception is returned as an error of the
+     * checked out repository.
      *
      * @param programmingExercise     The programming exercise for the participation
-     * @param participation           The participation, for which the repository should get zipped
-     * @param repositoryExportOptions The options, that should get applied to the zipeed repo
-     * @return The checked out and zipped repository
+     * @param templateRepositoryUrl   The template repository of the programming exercise, can be null
+     * @param participation           The participation, for which the repository should get checked out
+     * @param repositoryExportOptions The options, that should get applied to the checked out repo
+     * @return The checked out repository, which has to be cleaned up after it has been zipped
      */
-    private Path createZipForRepositoryWithParticipation(final ProgrammingExercise programmingExercise, final ProgrammingExerciseStudentParticipation participation,
-            final RepositoryExportOptionsDTO repositoryExportOptions) throws IOException, GitAPIException, InterruptedException {
+    private CheckedOutRepository checkoutRepositoryForExport(final ProgrammingExercise programmingExercise, @Nullable final VcsRepositoryUrl templateRepositoryUrl,
+            final ProgrammingExerciseStudentParticipation participation, final RepositoryExportOptionsDTO repositoryExportOptions) {
         if (participation.getVcsRepositoryUrl() == null) {
             log.warn("Ignore participation " + participation.getId() + " for export, because its repository URL is null");
-            return null;
+            return new CheckedOutRepository(participation, null, null, null, false, null);
         }
         final var targetPath = fileService.getUniquePathString(repoDownloadClonePath);
+        // the files only have to be checked out if they are modified, otherwise they are read from the git object database when the repository is zipped
+        final boolean checkout = repositoryExportOptions.isAddParticipantName() || repositoryExportOptions.isCombineStudentCommits()
+                || repositoryExportOptions.isNormalizeCodeStyle();
         Repository repository = null;
+        GitService.RepositoryLease lease = null;
         try {
-            // Checkout the repository
-            repository = gitService.getOrCheckoutRepository(participation, targetPath);
-            gitService.resetToOriginMaster(repository);
+            // Checkout the repository, the export can take a while, so the repository must not be closed by the cache until it has been zipped
+            if (checkout) {
+                lease = gitService.leaseRepository(gitService.getOrCheckoutRepository(participation, targetPath, templateRepositoryUrl));
+                repository = lease.getRepository();
+                gitService.resetToOriginMaster(repository);
+            }
+            else {
+                lease = gitService.leaseRepository(gitService.getOrCloneRepositoryWithoutCheckout(participation, targetPath, templateRepositoryUrl));
+                repository = lease.getRepository();
+                gitService.resetToOriginMasterWithoutCheckout(repository);
+            }
 
             if (repositoryExportOptions.isFilterLateSubmissions() && repositoryExportOptions.getFilterLateSubmissionsDate() != null) {
-                filterLateSubmissions(repositoryExportOptions.getFilterLateSubmissionsDate(), participation, repository);
+                filterLateSubmissions(repositoryExportOptions.getFilterLateSubmissionsDate(), participation, repository, checkout);
             }
 
             if (repositoryExportOptions.isAddParticipantName()) {
@@ -382,37 +499,15 @@ public class ProgrammingExerciseExportService {
                     log.warn("Cannot normalize code style in the repository " + repository.getLocalPath() + " due to the following exception: " + ex.getMessage());
                 }
             }
-
-            log.debug("Create temporary zip file for repository " + repository.getLocalPath().toString());
-            Path zippedRepoFile = gitService.zipRepositoryWithParticipation(repository, targetPath, repositoryExportOptions.isHideStudentNameInZippedFolder());
-
-            // if repository is not closed, it causes weird IO issues when trying to delete the repository again
-            // java.io.IOException: Unable to delete file: ...\.git\objects\pack\...
-            repository.close();
-
-            return zippedRepoFile;
+            return new CheckedOutRepository(participation, repository, lease, targetPath, checkout, null);
         }
-        finally {
-            deleteTempLocalRepository(repository);
-            fileService.scheduleForDirectoryDeletion(Path.of(targetPath), 5);
-        }
-    }
-
-    /**
-     * Delete all temporary zipped repositories created during export
-     *
-     * @param pathsToZipeedRepos A list of all paths to the zip files, that should be deleted
-     */
-    private void deleteTempZipRepoFiles(List<Path> pathsToZipeedRepos) {
-        log.debug("Delete all temporary zip repo files");
-        // delete the temporary zipped repo files
-        for (Path zippedRepoFile : pathsToZipeedRepos) {
-            try {
-                Files.delete(zippedRepoFile);
-            }
-            catch (Exception ex) {
-                log.warn("Could not delete file " + zippedRepoFile + ". Error message: " + ex.getMessage());
-            }
+        catch (IOException | GitAPIException | RuntimeException | InterruptedException e) {
+            var error = "Failed to export the student repository with participation: " + participation.getId() + " for programming exercise '" + programmingExercise.getTitle()
+                    + "' (id: " + programmingExercise.getId() + ") because the repository couldn't be downloaded. ";
+            log.error(error, e);
+            var checkedOutRepository = new CheckedOutRepository(participation, repository, lease, targetPath, checkout, error);
+            checkedOutRepository.cleanUp();
+            return checkedOutRepository;
         }
     }
 
@@ -460,7 +555,7 @@ public class ProgrammingExerciseExportService {
 
         log.info("Start JPlag programming comparison");
 
-        JPlag jplag = new JPlag(options);
+        JPlag jplag = createJPlag(options);
         JPlagResult result = jplag.run();
 
         log.info("JPlag programming comparison finished with " + result.getComparisons().size() + " comparisons");
@@ -523,7 +618,7 @@ public class ProgrammingExerciseExportService {
         options.setSimilarityThreshold(similarityThreshold);
 
         log.info("Start JPlag programming comparison");
-        JPlag jplag = new JPlag(options);
+        JPlag jplag = createJPlag(options);
         JPlagResult result = jplag.run();
         log.info("JPlag programming comparison finished with " + result.getComparisons().size() + " comparisons");
 
@@ -554,6 +649,21 @@ public class ProgrammingExerciseExportService {
         return new File(zipFilePath.toString());
     }
 
+    /**
+     * Creates the JPlag instance for the given options. If the sharded comparison is enabled, the submissions are pre-filtered and compared on several threads.
+     *
+     * @param options the options of the plagiarism check
+     * @return the JPlag instance
+     * @throws ExitException if JPlag cannot be initialized with the options
+     */
+    private JPlag createJPlag(JPlagOptions options) throws ExitException {
+        JPlag jplag = new JPlag(options);
+        if (shardedPlagiarismComparison) {
+            jplag.comparisonStrategy = new ShardedJPlagComparisonStrategy(jplag, plagiarismComparisonThreads, plagiarismPreFilterFactor);
+        }
+        return jplag;
+    }
+
     private void cleanupResourcesAsync(final ProgrammingExercise programmingExercise, final List<Repository> repositories, final String targetPath) {
         executor.schedule(() -> {
             log.info("Will delete local repositories");
@@ -603,7 +713,7 @@ public class ProgrammingExerciseExportService {
 
         participations.forEach(participation -> {
             try {
-                Repository repo = gitService.getOrCheckoutRepositoryForJPlag(participation, targetPath);
+                Repository repo = gitService.getOrCheckoutRepositoryForJPlag(participation, targetPath, programmingExercise.getVcsTemplateRepositoryUrl());
                 gitService.resetToOriginMaster(repo); // start with clean state
                 downloadedRepositories.add(repo);
             }
@@ -673,13 +783,14 @@ public class ProgrammingExerciseExportService {
      * @param submissionDate The submission date (inclusive), after which all submissions should get filtered out
      * @param participation  The participation related to the repository
      * @param repo           The repository for which to filter all late submissions
+     * @param checkout       Whether the files of the repository are checked out and have to be updated
      */
-    private void filterLateSubmissions(ZonedDateTime submissionDate, ProgrammingExerciseStudentParticipation participation, Repository repo) {
+    private void filterLateSubmissions(ZonedDateTime submissionDate, ProgrammingExerciseStudentParticipation participation, Repository repo, boolean checkout) {
         log.debug("Filter late submissions for participation {}", participation.toString());
         Optional<Submission> lastValidSubmission = participation.getSubmissions().stream()
                 .filter(s -> s.getSubmissionDate() != null && s.getSubmissionDate().isBefore(submissionDate)).max(Comparator.comparing(Submission::getSubmissionDate));
 
-        gitService.filterLateSubmissions(repo, lastValidSubmission, submissionDate);
+        gitService.filterLateSubmissions(repo, lastValidSubmission, submissionDate, checkout);
     }
 
     /**
@@ -807,4 +918,50 @@ public class ProgrammingExerciseExportService {
         }
         return allRepoFiles;
     }
+
+    /**
+     * A repository that has been checked out for an export, or the error why it could not be checked out
+     */
+    private class CheckedOutRepository {
+
+        private final ProgrammingExerciseStudentParticipation participation;
+
+        private final Repository repository;
+
+        private final GitService.RepositoryLease lease;
+
+        private final String targetPath;
+
+        private final boolean filesCheckedOut;
+
+        private final String error;
+
+        private CheckedOutRepository(ProgrammingExerciseStudentParticipation participation, Repository repository, GitService.RepositoryLease lease, String targetPath,
+                boolean filesCheckedOut, String error) {
+            this.participation = participation;
+            this.repository = repository;
+            this.lease = lease;
+            this.targetPath = targetPath;
+            this.filesCheckedOut = filesCheckedOut;
+            this.error = error;
+        }
+
+        /**
+         * Deletes the checked out repository
+         */
+        private void cleanUp() {
+            if (lease != null) {
+                lease.close();
+            }
+            if (repository != null) {
+                // if repository is not closed, it causes weird IO issues when trying to delete the repository again
+                // java.io.IOException: Unable to delete file: ...\.git\objects\pack\...
+                repository.close();
+                deleteTempLocalRepository(repository);
+            }
+            if (targetPath != null) {
+                fileService.scheduleForDirectoryDeletion(Path.of(targetPath), 5);
+            }
+        }
+    }
 }
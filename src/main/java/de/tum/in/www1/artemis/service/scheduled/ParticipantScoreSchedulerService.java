@@ -0,0 +1,202 @@
+package de.tum.in.www1.artemis.service.scheduled;
+
+import static de.tum.in.www1.artemis.service.util.TimeLogUtil.formatDurationFrom;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hazelcast.cluster.Member;
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.core.HazelcastInstance;
+
+import de.tum.in.www1.artemis.domain.Exercise;
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.repository.ResultRepository;
+import de.tum.in.www1.artemis.security.SecurityUtils;
+import de.tum.in.www1.artemis.service.ScoreService;
+
+/**
+ * Keeps the participant scores (student and team scores) up to date when results are created or updated.
+ * <p>
+ * The {@link de.tum.in.www1.artemis.service.listeners.ResultListener} only schedules the update: the id of the result is added to the pending updates after the transaction
+ * that saved the result has been committed, so the request saving the result does not pay for the update. The pending updates are applied every
+ * <code>artemis.scores.update-interval-millis</code> milliseconds in batches of <code>artemis.scores.update-batch-size</code> results. All results of the same participant
+ * and exercise that were saved in the meantime are applied together, i.e. the participant score is only loaded and saved once.
+ * <p>
+ * The pending updates are kept in a distributed Hazelcast queue (with a backup on another cluster member), so that they are not lost if the server that saved the result
+ * is shut down or crashes. They are only applied by the oldest member of the cluster, so that the participant score of a participant is never updated (or created) by two
+ * servers at the same time. Before a server is shut down, it applies the pending updates if it is the oldest member. If an update fails, the participant scores of the
+ * exercise can be rebuilt from scratch with {@link #rebuildParticipantScores(Collection)}.
+ */
+@Service
+public class ParticipantScoreSchedulerService {
+
+    private final Logger log = LoggerFactory.getLogger(ParticipantScoreSchedulerService.class);
+
+    private final ScoreService scoreService;
+
+    private final ResultRepository resultRepository;
+
+    private static final String HAZELCAST_PENDING_PARTICIPANT_SCORE_UPDATES = "pending-participant-score-updates";
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final IQueue<Long> pendingResultIds;
+
+    @Value("${artemis.scores.update-batch-size:500}")
+    private int updateBatchSize;
+
+    @Value("${artemis.scores.rebuild-parallelism:4}")
+    private int rebuildParallelism;
+
+    public ParticipantScoreSchedulerService(ScoreService scoreService, ResultRepository resultRepository, HazelcastInstance hazelcastInstance) {
+        this.scoreService = scoreService;
+        this.resultRepository = resultRepository;
+        this.hazelcastInstance = hazelcastInstance;
+        this.pendingResultIds = hazelcastInstance.getQueue(HAZELCAST_PENDING_PARTICIPANT_SCORE_UPDATES);
+    }
+
+    /**
+     * Schedules the update of the participant score after a result has been created or updated. If the result is saved in a transaction, the update is only scheduled
+     * when the transaction has been committed.
+     *
+     * @param createdOrUpdatedResult created or updated result
+     */
+    public void scheduleUpdate(Result createdOrUpdatedResult) {
+        if (createdOrUpdatedResult.getId() == null || createdOrUpdatedResult.getScore() == null || createdOrUpdatedResult.getCompletionDate() == null) {
+            return;
+        }
+        Long resultId = createdOrUpdatedResult.getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+                @Override
+                public void afterCommit() {
+                    pendingResultIds.offer(resultId);
+                }
+            });
+        }
+        else {
+            pendingResultIds.offer(resultId);
+        }
+    }
+
+    /**
+     * Applies the pending updates of the participant scores, if this server is the oldest member of the cluster
+     */
+    @Scheduled(fixedDelayString = "${artemis.scores.update-interval-millis:2000}", initialDelayString = "${artemis.scores.update-interval-millis:2000}")
+    public synchronized void executeScheduledTasks() {
+        if (pendingResultIds.isEmpty() || !isOldestClusterMember()) {
+            return;
+        }
+        long start = System.nanoTime();
+        // In the following we use custom @Query methods that will fail if no authentication is available
+        SecurityUtils.setAuthorizationObject();
+        int numberOfResults = 0;
+        List<Long> batch = new ArrayList<>();
+        while (pendingResultIds.drainTo(batch, updateBatchSize) > 0) {
+            numberOfResults += batch.size();
+            // a result that has been saved several times is only loaded once
+            updateParticipantScores(new ArrayList<>(new LinkedHashSet<>(batch)));
+            batch.clear();
+        }
+        log.debug("Updated the participant scores of {} results in {}", numberOfResults, formatDurationFrom(start));
+    }
+
+    /**
+     * Applies the pending updates before the server is shut down, so that they are not lost if this is the last server of the cluster
+     */
+    @PreDestroy
+    public void applyPendingUpdatesOnShutdown() {
+        try {
+            executeScheduledTasks();
+        }
+        catch (Exception ex) {
+            log.warn("Could not apply the {} pending participant score updates before the shutdown: {}", pendingResultIds.size(), ex.getMessage());
+        }
+    }
+
+    private boolean isOldestClusterMember() {
+        // the members are ordered by the time they joined the cluster
+        Iterator<Member> members = hazelcastInstance.getCluster().getMembers().iterator();
+        return !members.hasNext() || members.next().localMember();
+    }
+
+    private void updateParticipantScores(List<Long> resultIds) {
+        List<Result> results;
+        try {
+            results = resultRepository.findAllWithParticipationAndExerciseByIdIn(resultIds);
+        }
+        catch (Exception ex) {
+            log.error("Could not load the results {} to update the participant scores: {}", resultIds, ex.getMessage(), ex);
+            return;
+        }
+        // group the results by participant and exercise, results of participations that are not student participations (e.g. of the template) are ignored
+        Map<String, List<Result>> resultsByParticipant = new HashMap<>();
+        for (Result result : results) {
+            if (result.getParticipation() instanceof StudentParticipation) {
+                var studentParticipation = (StudentParticipation) result.getParticipation();
+                String key = studentParticipation.getExercise().getId() + "-" + studentParticipation.getParticipantIdentifier();
+                resultsByParticipant.computeIfAbsent(key, participant -> new ArrayList<>()).add(result);
+            }
+        }
+        for (List<Result> resultsOfParticipant : resultsByParticipant.values()) {
+            resultsOfParticipant.sort(Comparator.comparing(Result::getId));
+            var studentParticipation = (StudentParticipation) resultsOfParticipant.get(0).getParticipation();
+            try {
+                scoreService.updateOrCreateParticipantScore(studentParticipation, resultsOfParticipant);
+            }
+            catch (Exception ex) {
+                log.error("Could not update the participant score of participation {} with the results {}: {}", studentParticipation.getId(),
+                        resultsOfParticipant.stream().map(Result::getId).collect(Collectors.toList()), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the participant scores of the given exercises from scratch, <code>artemis.scores.rebuild-parallelism</code> exercises at the same time.
+     * The pending updates are not applied while the participant scores are rebuilt.
+     *
+     * @param exercises the exercises for which the participant scores should be rebuilt
+     */
+    public synchronized void rebuildParticipantScores(Collection<? extends Exercise> exercises) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(rebuildParallelism, exercises.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>(exercises.size());
+            for (Exercise exercise : exercises) {
+                futures.add(executor.submit(() -> {
+                    SecurityUtils.setAuthorizationObject();
+                    scoreService.rebuildParticipantScores(exercise);
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                }
+                catch (ExecutionException ex) {
+                    log.error("Could not rebuild the participant scores of an exercise: {}", ex.getCause().getMessage(), ex.getCause());
+                }
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdown();
+        }
+        log.info("Rebuilt the participant scores of {} exercises in {}", exercises.size(), formatDurationFrom(start));
+    }
+}
@@ -0,0 +1,165 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import static de.tum.in.www1.artemis.service.util.TimeLogUtil.formatDurationFrom;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.tum.in.www1.artemis.domain.Exercise;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+
+/**
+ * Sends the participations (including result and quiz exercise) to the participants of a quiz after it has ended.
+ * <p>
+ * The messages are sent by a dedicated, bounded pool of <code>artemis.quiz.result-delivery.parallelism</code> threads instead of the common fork join pool,
+ * so that a large quiz does not starve other work. The pool has a bounded queue and lets the caller send the message itself when the queue is full, which
+ * slows down the producer to the pace at which the messages can be handed over to the message broker (relay).
+ * <p>
+ * The quiz exercise is the same for all participants, so it is only converted into a JSON tree once. This tree is added to the JSON tree of each participation, which is
+ * then sent instead of the participation.
+ */
+@Service
+public class QuizResultDeliveryService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizResultDeliveryService.class);
+
+    private static final String EXERCISE_PROPERTY = "exercise";
+
+    private final SimpMessageSendingOperations messagingTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final ThreadPoolExecutor deliveryExecutor;
+
+    @Value("${artemis.quiz.result-delivery.timeout-seconds:60}")
+    private long deliveryTimeoutInSeconds;
+
+    public QuizResultDeliveryService(SimpMessageSendingOperations messagingTemplate, MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter,
+            @Value("${artemis.quiz.result-delivery.parallelism:8}") int parallelism, @Value("${artemis.quiz.result-delivery.queue-capacity:500}") int queueCapacity) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = mappingJackson2HttpMessageConverter.getObjectMapper();
+        int threads = Math.max(1, parallelism);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.deliveryExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> new Thread(runnable, "quiz-result-delivery-" + threadNumber.incrementAndGet()), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.deliveryExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sends each participation to its participant and waits until all messages have been handed over to the message broker (at most
+     * <code>artemis.quiz.result-delivery.timeout-seconds</code>).
+     * The participations must already be prepared for the client and belong to the given quiz exercise.
+     *
+     * @param quizExerciseId  the id of the quiz exercise the participations belong to
+     * @param participations  the participations that should be sent, with the username of the participant as key
+     * @param onDelivered     invoked with the username after the participation was sent, can be invoked concurrently
+     * @return the number of participations that were sent
+     */
+    public int deliver(long quizExerciseId, Collection<? extends Map.Entry<String, StudentParticipation>> participations, Consumer<String> onDelivered) {
+        if (participations.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        String destination = "/topic/exercise/" + quizExerciseId + "/participation";
+        JsonNode exerciseNode = convertSharedExercise(participations.iterator().next().getValue());
+        AtomicInteger delivered = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(participations.size());
+        for (var entry : participations) {
+            futures.add(deliveryExecutor.submit(() -> {
+                try {
+                    send(entry.getKey(), destination, entry.getValue(), exerciseNode);
+                    delivered.incrementAndGet();
+                    onDelivered.accept(entry.getKey());
+                }
+                catch (Exception e) {
+                    log.error("Could not send the result of quiz {} to user {}: {}", quizExerciseId, entry.getKey(), e.getMessage());
+                }
+            }));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(deliveryTimeoutInSeconds);
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            catch (TimeoutException e) {
+                log.warn("Sending the results of quiz {} did not finish within {} seconds, the remaining ones are sent in the background", quizExerciseId,
+                        deliveryTimeoutInSeconds);
+                break;
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (ExecutionException e) {
+                // cannot happen, the tasks handle their exceptions themselves
+                log.error("Unexpected exception while sending the results of quiz {}: {}", quizExerciseId, e.getMessage());
+            }
+        }
+        log.debug("Sent {} of {} quiz results in {} for quiz {}", delivered.get(), participations.size(), formatDurationFrom(start), quizExerciseId);
+        return delivered.get();
+    }
+
+    private void send(String username, String destination, StudentParticipation participation, JsonNode exerciseNode) {
+        if (exerciseNode == null) {
+            messagingTemplate.convertAndSendToUser(username, destination, participation);
+            return;
+        }
+        // convert the participation without the exercise and add the shared exercise tree instead
+        Exercise exercise = participation.getExercise();
+        participation.setExercise(null);
+        ObjectNode participationNode;
+        try {
+            participationNode = objectMapper.valueToTree(participation);
+        }
+        finally {
+            participation.setExercise(exercise);
+        }
+        participationNode.set(EXERCISE_PROPERTY, exerciseNode);
+        // the JSON tree is sent like any other object, so that the message is still converted into JSON text with the content type application/json
+        messagingTemplate.convertAndSendToUser(username, destination, participationNode);
+    }
+
+    /**
+     * Converts the exercise of the given participation into a JSON tree exactly like it would be serialized as part of the participation
+     *
+     * @return the JSON tree of the exercise or null if it cannot be shared, then each participation is serialized completely
+     */
+    private JsonNode convertSharedExercise(StudentParticipation participation) {
+        if (participation.getExercise() == null) {
+            return null;
+        }
+        try {
+            // convert a participation that only contains the exercise, so that the annotations of the exercise property are considered
+            var participationWithExercise = new StudentParticipation();
+            participationWithExercise.setExercise(participation.getExercise());
+            return objectMapper.valueToTree(participationWithExercise).get(EXERCISE_PROPERTY);
+        }
+        catch (IllegalArgumentException e) {
+            log.warn("Could not convert the quiz exercise {} once for all participants: {}", participation.getExercise().getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deliveryExecutor.shutdown();
+    }
+}
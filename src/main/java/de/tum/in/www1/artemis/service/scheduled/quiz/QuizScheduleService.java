@@ -12,9 +12,10 @@ import javax.validation.constraints.NotNull;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
 import com.hazelcast.config.Config;
@@ -43,6 +44,16 @@ public class QuizScheduleService {
 
     private static final String HAZELCAST_PROCESS_CACHE_HANDLER = QuizProcessCacheTask.HAZELCAST_PROCESS_CACHE_TASK + "-handler";
 
+    /**
+     * How often the submissions buffered on this instance are published to the distributed cache
+     */
+    private static final Duration SUBMISSION_BUFFER_FLUSH_INTERVAL = Duration.ofMillis(500);
+
+    /**
+     * Saves arriving within this many seconds before the end of the submission period are not buffered, so that they cannot be published after the quiz was processed
+     */
+    private static final long SUBMISSION_BUFFER_WRITE_THROUGH_WINDOW_IN_SECONDS = 2;
+
     private final IScheduledExecutorService threadPoolTaskScheduler;
 
     private final IAtomicReference<ScheduledTaskHandler> scheduledProcessQuizSubmissions;
@@ -59,16 +70,23 @@ public class QuizScheduleService {
 
     private final QuizStatisticService quizStatisticService;
 
-    private final SimpMessageSendingOperations messagingTemplate;
-
     private final QuizCache quizCache;
 
+    private final QuizSubmissionBuffer submissionBuffer;
+
+    private final TaskScheduler taskScheduler;
+
     private final QuizExerciseRepository quizExerciseRepository;
 
-    public QuizScheduleService(SimpMessageSendingOperations messagingTemplate, StudentParticipationRepository studentParticipationRepository, ResultRepository resultRepository,
+    private final QuizSubmissionBatchPersistenceService quizSubmissionBatchPersistenceService;
+
+    private final QuizResultDeliveryService quizResultDeliveryService;
+
+    public QuizScheduleService(QuizResultDeliveryService quizResultDeliveryService, StudentParticipationRepository studentParticipationRepository, ResultRepository resultRepository,
             UserRepository userRepository, QuizSubmissionRepository quizSubmissionRepository, HazelcastInstance hazelcastInstance, QuizExerciseRepository quizExerciseRepository,
-            QuizMessagingService quizMessagingService, QuizStatisticService quizStatisticService) {
-        this.messagingTemplate = messagingTemplate;
+            QuizMessagingService quizMessagingService, QuizStatisticService quizStatisticService, @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+            QuizSubmissionBatchPersistenceService quizSubmissionBatchPersistenceService) {
+        this.quizResultDeliveryService = quizResultDeliveryService;
         this.studentParticipationRepository = studentParticipationRepository;
         this.resultRepository = resultRepository;
         this.userRepository = userRepository;
@@ -78,7 +96,10 @@ public class QuizScheduleService {
         this.quizStatisticService = quizStatisticService;
         this.scheduledProcessQuizSubmissions = hazelcastInstance.getCPSubsystem().getAtomicReference(HAZELCAST_PROCESS_CACHE_HANDLER);
         this.threadPoolTaskScheduler = hazelcastInstance.getScheduledExecutorService(Constants.HAZELCAST_QUIZ_SCHEDULER);
+        this.taskScheduler = taskScheduler;
+        this.quizSubmissionBatchPersistenceService = quizSubmissionBatchPersistenceService;
         this.quizCache = new QuizCache(hazelcastInstance);
+        this.submissionBuffer = new QuizSubmissionBuffer(quizCache);
     }
 
     /**
@@ -96,10 +117,15 @@ public class QuizScheduleService {
     public void applicationReady() {
         // activate Quiz Schedule Service
         startSchedule(5 * 1000);                          // every 5 seconds
+        // publish the submissions buffered on this instance, this runs on every instance (in contrast to the distributed process cache task)
+        taskScheduler.scheduleAtFixedRate(submissionBuffer::flushAll, SUBMISSION_BUFFER_FLUSH_INTERVAL);
     }
 
     /**
      * add a quizSubmission to the submissionHashMap
+     * <p>
+     * Saved submissions are buffered on this instance and published to the distributed cache in batches (only the latest submission per user),
+     * submitted submissions and saves shortly before the end of the quiz are published immediately.
      *
      * @param quizExerciseId the quizExerciseId of the quiz the submission belongs to (first Key)
      * @param username       the username of the user, who submitted the submission (second Key)
@@ -107,10 +133,28 @@ public class QuizScheduleService {
      */
     public void updateSubmission(Long quizExerciseId, String username, QuizSubmission quizSubmission) {
         if (quizSubmission != null && quizExerciseId != null && username != null) {
-            quizCache.getTransientWriteCacheFor(quizExerciseId).getSubmissions().put(username, quizSubmission);
+            if (quizSubmission.isSubmitted() || isCloseToEndOfSubmissionPeriod(quizCache.getReadCacheFor(quizExerciseId).getExercise())) {
+                submissionBuffer.writeThrough(quizExerciseId, username, quizSubmission);
+            }
+            else {
+                submissionBuffer.buffer(quizExerciseId, username, quizSubmission);
+            }
         }
     }
 
+    /**
+     * Checks if buffering a submission could delay its publication until after the quiz has been processed
+     *
+     * @param quizExercise the locally cached quiz exercise, may be null
+     * @return true if the submission period ends soon (or the quiz exercise is unknown), false otherwise
+     */
+    private boolean isCloseToEndOfSubmissionPeriod(QuizExercise quizExercise) {
+        if (quizExercise == null || quizExercise.getDueDate() == null || !quizExercise.isStarted()) {
+            return true;
+        }
+        return quizExercise.getRemainingTime() + Constants.QUIZ_GRACE_PERIOD_IN_SECONDS <= SUBMISSION_BUFFER_WRITE_THROUGH_WINDOW_IN_SECONDS;
+    }
+
     /**
      * add a result to resultHashMap for a statistic-update
      * this should only be invoked once, when the quiz was submitted
@@ -149,7 +193,12 @@ public class QuizScheduleService {
         if (quizExerciseId == null || username == null) {
             return null;
         }
-        QuizSubmission quizSubmission = quizCache.getReadCacheFor(quizExerciseId).getSubmissions().get(username);
+        // a submission buffered on this instance is always newer than the published one
+        QuizSubmission quizSubmission = submissionBuffer.getPendingSubmission(quizExerciseId, username);
+        if (quizSubmission != null) {
+            return quizSubmission;
+        }
+        quizSubmission = quizCache.getReadCacheFor(quizExerciseId).getSubmissions().get(username);
         if (quizSubmission != null) {
             return quizSubmission;
         }
@@ -345,6 +394,7 @@ public class QuizScheduleService {
      * This will cause cached submissions, participations and results to be lost!
      */
     public void clearAllQuizData() {
+        submissionBuffer.clear();
         quizCache.clear();
     }
 
@@ -355,6 +405,7 @@ public class QuizScheduleService {
      * @param quizExerciseId refers to one specific quiz exercise for which the data should be cleared
      */
     public void clearQuizData(Long quizExerciseId) {
+        submissionBuffer.clear(quizExerciseId);
         quizCache.removeAndClear(quizExerciseId);
     }
 
@@ -375,6 +426,8 @@ public class QuizScheduleService {
         log.info("Process cached quiz submissions");
         // global try-catch for error logging
         try {
+            // make sure the submissions buffered on this instance are included, the other instances publish theirs periodically
+            submissionBuffer.flushAll();
             for (QuizExerciseCache cachedQuiz : quizCache.getAllQuizExerciseCaches()) {
                 // this way near cache is used (values will deserialize new objects)
                 Long quizExerciseId = cachedQuiz.getExerciseId();
@@ -383,7 +436,7 @@ public class QuizScheduleService {
                 // check if quiz has been deleted
                 if (quizExercise == null) {
                     log.debug("Remove quiz " + quizExerciseId + " from resultHashMap");
-                    quizCache.removeAndClear(quizExerciseId);
+                    clearQuizData(quizExerciseId);
                     continue;
                 }
 
@@ -433,19 +486,25 @@ public class QuizScheduleService {
                 if (hasNewParticipations && hasEnded) {
                     // Send the participation with containing result and quiz back to the users via websocket and remove the participation from the ParticipationHashMap
                     Collection<Entry<String, StudentParticipation>> finishedParticipations = cachedQuiz.getParticipations().entrySet();
-                    // TODO maybe find a better way to optimize the performance (use an executor service with e.g. X parallel threads)
-                    finishedParticipations.parallelStream().forEach(entry -> {
+                    List<Entry<String, StudentParticipation>> participationsToSend = new ArrayList<>(finishedParticipations.size());
+                    Map<String, String> cacheKeysByUser = new HashMap<>();
+                    for (Entry<String, StudentParticipation> entry : finishedParticipations) {
                         StudentParticipation participation = entry.getValue();
                         if (participation.getParticipant() == null || participation.getParticipantIdentifier() == null) {
                             log.error("Participation is missing student (or student is missing username): {}", participation);
                         }
                         else {
-                            sendQuizResultToUser(quizExerciseId, participation);
-                            cachedQuiz.getParticipations().remove(entry.getKey());
+                            var user = participation.getParticipantIdentifier();
+                            removeUnnecessaryObjectsBeforeSendingToClient(participation);
+                            participationsToSend.add(Map.entry(user, participation));
+                            cacheKeysByUser.put(user, entry.getKey());
                         }
-                    });
+                    }
+                    // the participations are sent in parallel by a bounded executor, each one is removed from the cache as soon as it was sent
+                    int numberOfSentParticipations = quizResultDeliveryService.deliver(quizExerciseId, participationsToSend,
+                            user -> cachedQuiz.getParticipations().remove(cacheKeysByUser.get(user)));
                     if (finishedParticipations.size() > 0) {
-                        log.info("Sent out {} participations in {} for quiz {}", finishedParticipations.size(), formatDurationFrom(start), quizExercise.getTitle());
+                        log.info("Sent out {} participations in {} for quiz {}", numberOfSentParticipations, formatDurationFrom(start), quizExercise.getTitle());
                     }
                 }
 
@@ -481,12 +540,6 @@ public class QuizScheduleService {
         quizCache.remove(cachedQuiz.getExerciseId());
     }
 
-    private void sendQuizResultToUser(long quizExerciseId, StudentParticipation participation) {
-        var user = participation.getParticipantIdentifier();
-        removeUnnecessaryObjectsBeforeSendingToClient(participation);
-        messagingTemplate.convertAndSendToUser(user, "/topic/exercise/" + quizExerciseId + "/participation", participation);
-    }
-
     private void removeUnnecessaryObjectsBeforeSendingToClient(StudentParticipation participation) {
         if (participation.getExercise() != null) {
             var quizExercise = (QuizExercise) participation.getExercise();
@@ -517,6 +570,8 @@ public class QuizScheduleService {
     /**
      * check if the user submitted the submission or if the quiz has ended: if true: -> Create Participation and Result and save to Database (DB Write) Remove processed Submissions
      * from SubmissionHashMap and write Participations with Result into ParticipationHashMap and Results into ResultHashMap
+     * <p>
+     * The submissions are saved in batches, submissions of a batch that could not be saved are saved individually afterwards.
      *
      * @param quizExercise      the quiz which should be checked
      * @param userSubmissionMap a Map with all submissions for the given quizExercise mapped by the username
@@ -524,86 +579,141 @@ public class QuizScheduleService {
      */
     private int saveQuizSubmissionWithParticipationAndResultToDatabase(@NotNull QuizExercise quizExercise, Map<String, QuizSubmission> userSubmissionMap) {
 
-        int count = 0;
-
+        Map<String, QuizSubmission> submissionsToSave = new HashMap<>();
         for (String username : userSubmissionMap.keySet()) {
-            try {
-                // first case: the user submitted the quizSubmission
-                QuizSubmission quizSubmission = userSubmissionMap.get(username);
-                if (quizSubmission.isSubmitted()) {
-                    if (quizSubmission.getType() == null) {
-                        quizSubmission.setType(SubmissionType.MANUAL);
-                    }
-                } // second case: the quiz has ended
-                else if (quizExercise.isEnded()) {
-                    quizSubmission.setSubmitted(true);
-                    quizSubmission.setType(SubmissionType.TIMEOUT);
-                    quizSubmission.setSubmissionDate(ZonedDateTime.now());
-                }
-                else {
-                    // the quiz is running and the submission was not yet submitted.
-                    continue;
+            QuizSubmission quizSubmission = userSubmissionMap.get(username);
+            if (quizSubmission != null && prepareSubmissionForSaving(quizExercise, quizSubmission)) {
+                submissionsToSave.put(username, quizSubmission);
+            }
+        }
+        if (submissionsToSave.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, StudentParticipation> savedParticipations = quizSubmissionBatchPersistenceService.saveSubmissionsWithParticipationAndResult(quizExercise, submissionsToSave);
+        if (!savedParticipations.isEmpty()) {
+            // add the participations to the participationHashMap for the send out at the end of the quiz
+            quizCache.getTransientWriteCacheFor(quizExercise.getId()).getParticipations().putAll(savedParticipations);
+            // remove the submissions only after the participations have been added to the participation hashmap to avoid duplicated key exceptions for multiple participations
+            // for the same user
+            savedParticipations.keySet().forEach(userSubmissionMap::remove);
+            // add the results of the participations to the resultHashMap for the statistic-Update
+            Map<Long, Result> savedResults = new HashMap<>();
+            savedParticipations.values().forEach(participation -> participation.getResults().forEach(result -> savedResults.put(result.getId(), result)));
+            quizCache.getTransientWriteCacheFor(quizExercise.getId()).getResults().putAll(savedResults);
+        }
+
+        int count = savedParticipations.size();
+        for (String username : submissionsToSave.keySet()) {
+            if (!savedParticipations.containsKey(username)) {
+                // the batch of this user could not be saved, so we save the submission on its own (with a fresh copy of the cached submission)
+                if (saveQuizSubmissionWithParticipationAndResultToDatabase(quizExercise, userSubmissionMap, username)) {
+                    count++;
                 }
+            }
+        }
+        return count;
+    }
 
-                count++;
-                // Create Participation and Result and save to Database (DB Write)
-                // Remove processed Submissions from SubmissionHashMap and write Participations with Result into ParticipationHashMap and Results into ResultHashMap
-
-                StudentParticipation participation = new StudentParticipation();
-                // TODO: when this is set earlier for the individual quiz start of a student, we don't need to set this here anymore
-                participation.setInitializationDate(quizSubmission.getSubmissionDate());
-                Optional<User> user = userRepository.findOneByLogin(username);
-                user.ifPresent(participation::setParticipant);
-                // add the quizExercise to the participation
-                participation.setExercise(quizExercise);
-                participation.setInitializationState(InitializationState.FINISHED);
-
-                // create participation
-                participation = studentParticipationRepository.save(participation);
-                quizSubmission.setParticipation(participation);
-                quizSubmission = quizSubmissionRepository.save(quizSubmission);
-                participation.setSubmissions(Set.of(quizSubmission));
-                var savedQuizSubmission = quizSubmissionRepository.findById(quizSubmission.getId()).get();
-
-                // create new result
-                Result result = new Result().participation(participation);
-                result.setRated(true);
-                result.setAssessmentType(AssessmentType.AUTOMATIC);
-                result.setCompletionDate(savedQuizSubmission.getSubmissionDate());
-                result = resultRepository.save(result);
-
-                // set submission, calculate scores and update result and submission accordingly
-                result.setSubmission(savedQuizSubmission);
-                savedQuizSubmission.calculateAndUpdateScores(quizExercise);
-                result.evaluateSubmission();
-
-                // add result to submission
-                savedQuizSubmission.setResults(List.of(result));
-                // save submission to set result index column
-                savedQuizSubmission = quizSubmissionRepository.save(savedQuizSubmission);
-                result = resultRepository.save(result);
-                // NOTE: we save submission and result here individually so that one exception (e.g. duplicated key) cannot destroy multiple student answers
-
-                // reconnect entities after save
-                participation.setSubmissions(Set.of(savedQuizSubmission));
-                participation.setResults(Set.of(result));
-                result.setSubmission(savedQuizSubmission);
-                result.setParticipation(participation);
-
-                // add the participation to the participationHashMap for the send out at the end of the quiz
-                addParticipation(quizExercise.getId(), participation);
-
-                // remove the submission only after the participation has been added to the participation hashmap to avoid duplicated key exceptions for multiple participations for
-                // the same user
-                userSubmissionMap.remove(username);
-
-                // add the result of the participation resultHashMap for the statistic-Update
-                addResultForStatisticUpdate(quizExercise.getId(), result);
+    /**
+     * Marks the submission as submitted if the quiz has ended
+     *
+     * @param quizExercise   the quiz the submission belongs to
+     * @param quizSubmission the cached submission
+     * @return true if the submission needs to be saved (submit or timeout), false if the quiz is running and the submission was not yet submitted
+     */
+    private boolean prepareSubmissionForSaving(QuizExercise quizExercise, QuizSubmission quizSubmission) {
+        // first case: the user submitted the quizSubmission
+        if (quizSubmission.isSubmitted()) {
+            if (quizSubmission.getType() == null) {
+                quizSubmission.setType(SubmissionType.MANUAL);
             }
-            catch (Exception e) {
-                log.error("Exception in saveQuizSubmissionWithParticipationAndResultToDatabase() for user {} in quiz {}: {}", username, quizExercise.getId(), e.getMessage(), e);
+            return true;
+        } // second case: the quiz has ended
+        else if (quizExercise.isEnded()) {
+            quizSubmission.setSubmitted(true);
+            quizSubmission.setType(SubmissionType.TIMEOUT);
+            quizSubmission.setSubmissionDate(ZonedDateTime.now());
+            return true;
+        }
+        // the quiz is running and the submission was not yet submitted.
+        return false;
+    }
+
+    /**
+     * Create Participation and Result for the submission of one user and save to Database (DB Write). Remove the processed Submission from SubmissionHashMap and write the
+     * Participation with Result into ParticipationHashMap and the Result into ResultHashMap
+     *
+     * @param quizExercise      the quiz which should be checked
+     * @param userSubmissionMap a Map with all submissions for the given quizExercise mapped by the username
+     * @param username          the user whose submission should be saved
+     * @return true if the submission was processed (submit or timeout), false otherwise
+     */
+    private boolean saveQuizSubmissionWithParticipationAndResultToDatabase(@NotNull QuizExercise quizExercise, Map<String, QuizSubmission> userSubmissionMap, String username) {
+        try {
+            QuizSubmission quizSubmission = userSubmissionMap.get(username);
+            if (quizSubmission == null || !prepareSubmissionForSaving(quizExercise, quizSubmission)) {
+                return false;
             }
+
+            // Create Participation and Result and save to Database (DB Write)
+            // Remove processed Submissions from SubmissionHashMap and write Participations with Result into ParticipationHashMap and Results into ResultHashMap
+
+            StudentParticipation participation = new StudentParticipation();
+            // TODO: when this is set earlier for the individual quiz start of a student, we don't need to set this here anymore
+            participation.setInitializationDate(quizSubmission.getSubmissionDate());
+            Optional<User> user = userRepository.findOneByLogin(username);
+            user.ifPresent(participation::setParticipant);
+            // add the quizExercise to the participation
+            participation.setExercise(quizExercise);
+            participation.setInitializationState(InitializationState.FINISHED);
+
+            // create participation
+            participation = studentParticipationRepository.save(participation);
+            quizSubmission.setParticipation(participation);
+            quizSubmission = quizSubmissionRepository.save(quizSubmission);
+            participation.setSubmissions(Set.of(quizSubmission));
+            var savedQuizSubmission = quizSubmissionRepository.findById(quizSubmission.getId()).get();
+
+            // create new result
+            Result result = new Result().participation(participation);
+            result.setRated(true);
+            result.setAssessmentType(AssessmentType.AUTOMATIC);
+            result.setCompletionDate(savedQuizSubmission.getSubmissionDate());
+            result = resultRepository.save(result);
+
+            // set submission, calculate scores and update result and submission accordingly
+            result.setSubmission(savedQuizSubmission);
+            savedQuizSubmission.calculateAndUpdateScores(quizExercise);
+            result.evaluateSubmission();
+
+            // add result to submission
+            savedQuizSubmission.setResults(List.of(result));
+            // save submission to set result index column
+            savedQuizSubmission = quizSubmissionRepository.save(savedQuizSubmission);
+            result = resultRepository.save(result);
+            // NOTE: we save submission and result here individually so that one exception (e.g. duplicated key) cannot destroy multiple student answers
+
+            // reconnect entities after save
+            participation.setSubmissions(Set.of(savedQuizSubmission));
+            participation.setResults(Set.of(result));
+            result.setSubmission(savedQuizSubmission);
+            result.setParticipation(participation);
+
+            // add the participation to the participationHashMap for the send out at the end of the quiz
+            addParticipation(quizExercise.getId(), participation);
+
+            // remove the submission only after the participation has been added to the participation hashmap to avoid duplicated key exceptions for multiple participations for
+            // the same user
+            userSubmissionMap.remove(username);
+
+            // add the result of the participation resultHashMap for the statistic-Update
+            addResultForStatisticUpdate(quizExercise.getId(), result);
+            return true;
+        }
+        catch (Exception e) {
+            log.error("Exception in saveQuizSubmissionWithParticipationAndResultToDatabase() for user {} in quiz {}: {}", username, quizExercise.getId(), e.getMessage(), e);
+            return false;
         }
-        return count;
     }
 }
@@ -0,0 +1,182 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import static de.tum.in.www1.artemis.service.util.TimeLogUtil.formatDurationFrom;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.domain.User;
+import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
+import de.tum.in.www1.artemis.domain.enumeration.InitializationState;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.domain.quiz.QuizExercise;
+import de.tum.in.www1.artemis.domain.quiz.QuizSubmission;
+import de.tum.in.www1.artemis.repository.QuizSubmissionRepository;
+import de.tum.in.www1.artemis.repository.ResultRepository;
+import de.tum.in.www1.artemis.repository.StudentParticipationRepository;
+import de.tum.in.www1.artemis.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Saves the processed quiz submissions of a quiz exercise (including the new participation and result of each user) in batches.
+ * <p>
+ * Each batch is written in one transaction with one query for the users and bulk saves for participations, submissions and results,
+ * instead of one transaction and several round trips per user. This matters at the end of a quiz, when all remaining submissions are processed at once.
+ */
+@Service
+public class QuizSubmissionBatchPersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizSubmissionBatchPersistenceService.class);
+
+    private static final String METRIC_PERSISTED_SUBMISSIONS = "artemis.quiz.submissions.persisted";
+
+    private static final String METRIC_FAILED_BATCHES = "artemis.quiz.submissions.failed.batches";
+
+    private static final String METRIC_BATCH_DURATION = "artemis.quiz.submissions.batch.duration";
+
+    @Value("${artemis.quiz.submission-batch-size:100}")
+    private int batchSize;
+
+    private final StudentParticipationRepository studentParticipationRepository;
+
+    private final QuizSubmissionRepository quizSubmissionRepository;
+
+    private final ResultRepository resultRepository;
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter persistedSubmissionsCounter;
+
+    private final Counter failedBatchesCounter;
+
+    private final Timer batchTimer;
+
+    public QuizSubmissionBatchPersistenceService(StudentParticipationRepository studentParticipationRepository, QuizSubmissionRepository quizSubmissionRepository,
+            ResultRepository resultRepository, UserRepository userRepository, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.studentParticipationRepository = studentParticipationRepository;
+        this.quizSubmissionRepository = quizSubmissionRepository;
+        this.resultRepository = resultRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.persistedSubmissionsCounter = Counter.builder(METRIC_PERSISTED_SUBMISSIONS).description("Number of quiz submissions saved in batches").register(meterRegistry);
+        this.failedBatchesCounter = Counter.builder(METRIC_FAILED_BATCHES).description("Number of quiz submission batches that could not be saved").register(meterRegistry);
+        this.batchTimer = Timer.builder(METRIC_BATCH_DURATION).description("Duration to save one batch of quiz submissions").register(meterRegistry);
+    }
+
+    /**
+     * Creates and saves a participation and a result for each of the given (submitted) quiz submissions and saves the submissions, in batches of
+     * <code>artemis.quiz.submission-batch-size</code> submissions per transaction.
+     * <p>
+     * If a batch cannot be saved (e.g. due to a duplicated key), the whole batch is rolled back and none of its users is contained in the returned map,
+     * so that the caller can save these submissions individually.
+     *
+     * @param quizExercise      the quiz exercise the submissions belong to, including questions
+     * @param userSubmissionMap the submitted quiz submissions mapped by the username, these objects are modified and must not be reused if their batch failed
+     * @return the saved participations (including the result with the submission) mapped by the username
+     */
+    public Map<String, StudentParticipation> saveSubmissionsWithParticipationAndResult(QuizExercise quizExercise, Map<String, QuizSubmission> userSubmissionMap) {
+        Map<String, StudentParticipation> savedParticipations = new HashMap<>();
+        if (userSubmissionMap.isEmpty()) {
+            return savedParticipations;
+        }
+        long start = System.nanoTime();
+        int effectiveBatchSize = Math.max(1, batchSize);
+        List<String> usernames = new ArrayList<>(userSubmissionMap.keySet());
+        int numberOfBatches = 0;
+        for (int from = 0; from < usernames.size(); from += effectiveBatchSize) {
+            numberOfBatches++;
+            List<String> batchUsernames = usernames.subList(from, Math.min(from + effectiveBatchSize, usernames.size()));
+            Map<String, QuizSubmission> batch = new HashMap<>();
+            batchUsernames.forEach(username -> batch.put(username, userSubmissionMap.get(username)));
+            long batchStart = System.nanoTime();
+            try {
+                savedParticipations.putAll(transactionTemplate.execute(status -> saveBatch(quizExercise, batch)));
+                persistedSubmissionsCounter.increment(batch.size());
+            }
+            catch (Exception e) {
+                failedBatchesCounter.increment();
+                log.warn("Could not save batch of {} submissions in quiz {}, they need to be saved individually: {}", batch.size(), quizExercise.getId(), e.getMessage());
+            }
+            finally {
+                batchTimer.record(System.nanoTime() - batchStart, TimeUnit.NANOSECONDS);
+            }
+        }
+        double seconds = Math.max((System.nanoTime() - start) / 1_000_000_000.0, 0.001);
+        log.info("Saved {} of {} submissions in {} batches in {} ({} submissions/s) in quiz {}", savedParticipations.size(), userSubmissionMap.size(), numberOfBatches,
+                formatDurationFrom(start), Math.round(savedParticipations.size() / seconds), quizExercise.getId());
+        return savedParticipations;
+    }
+
+    /**
+     * Saves one batch, must be invoked within a transaction
+     */
+    private Map<String, StudentParticipation> saveBatch(QuizExercise quizExercise, Map<String, QuizSubmission> batch) {
+        Map<String, User> users = userRepository.findAllByLogins(batch.keySet()).stream().collect(Collectors.toMap(User::getLogin, Function.identity()));
+
+        // create participations
+        Map<String, StudentParticipation> participations = new HashMap<>();
+        batch.forEach((username, quizSubmission) -> {
+            StudentParticipation participation = new StudentParticipation();
+            // TODO: when this is set earlier for the individual quiz start of a student, we don't need to set this here anymore
+            participation.setInitializationDate(quizSubmission.getSubmissionDate());
+            participation.setParticipant(users.get(username));
+            participation.setExercise(quizExercise);
+            participation.setInitializationState(InitializationState.FINISHED);
+            participations.put(username, participation);
+        });
+        studentParticipationRepository.saveAll(participations.values());
+
+        // create submissions
+        batch.forEach((username, quizSubmission) -> quizSubmission.setParticipation(participations.get(username)));
+        quizSubmissionRepository.saveAll(batch.values());
+
+        // create results
+        Map<String, Result> results = new HashMap<>();
+        batch.forEach((username, quizSubmission) -> {
+            Result result = new Result().participation(participations.get(username));
+            result.setRated(true);
+            result.setAssessmentType(AssessmentType.AUTOMATIC);
+            result.setCompletionDate(quizSubmission.getSubmissionDate());
+            results.put(username, result);
+        });
+        resultRepository.saveAll(results.values());
+
+        // calculate scores of the whole batch question by question, then set submission and update result and submission accordingly
+        quizExercise.calculateAndUpdateScores(batch.values());
+        batch.forEach((username, quizSubmission) -> {
+            Result result = results.get(username);
+            result.setSubmission(quizSubmission);
+            result.evaluateScoredSubmission();
+            // add result to submission
+            quizSubmission.setResults(List.of(result));
+        });
+        // save submission to set result index column
+        quizSubmissionRepository.saveAll(batch.values());
+        resultRepository.saveAll(results.values());
+
+        // reconnect entities after save
+        batch.forEach((username, quizSubmission) -> {
+            StudentParticipation participation = participations.get(username);
+            Result result = results.get(username);
+            participation.setSubmissions(Set.of(quizSubmission));
+            participation.setResults(Set.of(result));
+            result.setSubmission(quizSubmission);
+            result.setParticipation(participation);
+        });
+        return participations;
+    }
+}
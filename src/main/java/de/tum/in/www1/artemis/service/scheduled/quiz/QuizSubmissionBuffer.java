@@ -0,0 +1,149 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tum.in.www1.artemis.domain.quiz.QuizSubmission;
+
+/**
+ * Node-local write-behind buffer for quiz submissions that are saved (but not yet submitted) during a live quiz.
+ * <p>
+ * Students save their quiz very frequently, and writing every save directly into the distributed {@link QuizExerciseCache} costs a network round trip and a full
+ * serialization of the submission each time. This buffer collects the saves of the current instance in a {@link ConcurrentHashMap} per quiz exercise (which is
+ * striped internally, so concurrent saves of different users do not block each other), only keeps the latest submission per user and publishes all pending
+ * submissions of a quiz to the distributed cache in one batch when {@linkplain #flush(Long) flushed}.
+ * <p>
+ * Publishing (flushing and {@linkplain #writeThrough(Long, String, QuizSubmission) writing through}) is serialized per quiz exercise, so that an older
+ * submission of a user can never overwrite a newer one in the distributed cache.
+ */
+final class QuizSubmissionBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(QuizSubmissionBuffer.class);
+
+    private final QuizCache quizCache;
+
+    /**
+     * The pending (not yet published) submissions of this instance: quizExerciseId -> username -> latest submission
+     */
+    private final Map<Long, Map<String, QuizSubmission>> pendingSubmissions = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes all writes of this instance into the distributed submission map of one quiz exercise
+     */
+    private final Map<Long, ReentrantLock> publishLocks = new ConcurrentHashMap<>();
+
+    QuizSubmissionBuffer(QuizCache quizCache) {
+        this.quizCache = Objects.requireNonNull(quizCache, "quizCache must not be null");
+    }
+
+    /**
+     * Buffers the submission locally; it replaces a pending submission of the same user and will be published with the next flush.
+     *
+     * @param quizExerciseId the id of the quiz exercise the submission belongs to
+     * @param username       the username of the user who saved the submission
+     * @param quizSubmission the latest submission of the user
+     */
+    void buffer(Long quizExerciseId, String username, QuizSubmission quizSubmission) {
+        pendingSubmissions.computeIfAbsent(quizExerciseId, id -> new ConcurrentHashMap<>()).put(username, quizSubmission);
+    }
+
+    /**
+     * Publishes the submission to the distributed cache immediately, together with all other pending submissions of the quiz exercise.
+     * This is used for submissions that must be visible cluster-wide right away, e.g. submitted ones.
+     *
+     * @param quizExerciseId the id of the quiz exercise the submission belongs to
+     * @param username       the username of the user who saved the submission
+     * @param quizSubmission the latest submission of the user
+     */
+    void writeThrough(Long quizExerciseId, String username, QuizSubmission quizSubmission) {
+        buffer(quizExerciseId, username, quizSubmission);
+        flush(quizExerciseId);
+    }
+
+    /**
+     * Returns the latest submission of the user that has not been published yet
+     *
+     * @param quizExerciseId the id of the quiz exercise the submission belongs to
+     * @param username       the username of the user
+     * @return the pending submission or null if there is none on this instance
+     */
+    QuizSubmission getPendingSubmission(Long quizExerciseId, String username) {
+        var pendingForQuiz = pendingSubmissions.get(quizExerciseId);
+        return pendingForQuiz != null ? pendingForQuiz.get(username) : null;
+    }
+
+    /**
+     * Publishes all pending submissions of all quiz exercises to the distributed cache.
+     *
+     * @return the number of published submissions
+     */
+    int flushAll() {
+        int published = 0;
+        for (Long quizExerciseId : pendingSubmissions.keySet()) {
+            published += flush(quizExerciseId);
+        }
+        return published;
+    }
+
+    /**
+     * Publishes all pending submissions of the given quiz exercise to the distributed cache in one batch.
+     *
+     * @param quizExerciseId the id of the quiz exercise
+     * @return the number of published submissions
+     */
+    int flush(Long quizExerciseId) {
+        var lock = publishLocks.computeIfAbsent(quizExerciseId, id -> new ReentrantLock());
+        var pendingForQuiz = pendingSubmissions.get(quizExerciseId);
+        Map<String, QuizSubmission> batch = new HashMap<>();
+        lock.lock();
+        try {
+            if (pendingForQuiz == null || pendingForQuiz.isEmpty()) {
+                return 0;
+            }
+            for (var entry : pendingForQuiz.entrySet()) {
+                // only claim the entry if it was not replaced in the meantime, newer submissions stay pending for the next flush
+                if (pendingForQuiz.remove(entry.getKey(), entry.getValue())) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!batch.isEmpty()) {
+                quizCache.getTransientWriteCacheFor(quizExerciseId).getSubmissions().putAll(batch);
+                log.debug("Published {} buffered submissions for quiz {}", batch.size(), quizExerciseId);
+            }
+            return batch.size();
+        }
+        catch (Exception e) {
+            log.error("Exception while publishing buffered submissions for quiz {}: {}", quizExerciseId, e.getMessage(), e);
+            // keep the claimed submissions for the next flush unless they have been replaced by newer ones in the meantime
+            batch.forEach(pendingForQuiz::putIfAbsent);
+            return 0;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discards all pending submissions of the given quiz exercise.
+     *
+     * @param quizExerciseId the id of the quiz exercise
+     */
+    void clear(Long quizExerciseId) {
+        pendingSubmissions.remove(quizExerciseId);
+        publishLocks.remove(quizExerciseId);
+    }
+
+    /**
+     * Discards all pending submissions of all quiz exercises.
+     */
+    void clear() {
+        pendingSubmissions.clear();
+        publishLocks.clear();
+    }
+}
@@ -10,9 +10,11 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import de.tum.in.www1.artemis.domain.Course;
 import de.tum.in.www1.artemis.domain.Exercise;
@@ -23,6 +25,8 @@ import de.tum.in.www1.artemis.repository.CourseRepository;
 import de.tum.in.www1.artemis.repository.ExamRepository;
 import de.tum.in.www1.artemis.service.AuthorizationCheckService;
 import de.tum.in.www1.artemis.service.ParticipantScoreService;
+import de.tum.in.www1.artemis.service.ScoreAggregateCache.CalculatedScores;
+import de.tum.in.www1.artemis.service.scheduled.ParticipantScoreSchedulerService;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreAverageDTO;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreDTO;
 import de.tum.in.www1.artemis.web.rest.dto.ScoreDTO;
@@ -41,12 +45,15 @@ public class ParticipantScoreResource {
 
     private final AuthorizationCheckService authorizationCheckService;
 
+    private final ParticipantScoreSchedulerService participantScoreSchedulerService;
+
     public ParticipantScoreResource(AuthorizationCheckService authorizationCheckService, CourseRepository courseRepository, ExamRepository examRepository,
-            ParticipantScoreService participantScoreService) {
+            ParticipantScoreService participantScoreService, ParticipantScoreSchedulerService participantScoreSchedulerService) {
         this.authorizationCheckService = authorizationCheckService;
         this.courseRepository = courseRepository;
         this.examRepository = examRepository;
         this.participantScoreService = participantScoreService;
+        this.participantScoreSchedulerService = participantScoreSchedulerService;
     }
 
     /**
@@ -60,21 +67,24 @@ public class ParticipantScoreResource {
      * The goal is to switch completely to this much faster server based calculation if the {@link de.tum.in.www1.artemis.service.listeners.ResultListener}
      * has been battle tested enough.
      *
-     * @param courseId the id of the course for which to calculate the course scores
+     * The response contains an ETag, if the scores have not changed since the request with the ETag in the If-None-Match header, the response is 304 (Not Modified).
+     *
+     * @param courseId   the id of the course for which to calculate the course scores
+     * @param webRequest the request, its If-None-Match header contains the ETag of the scores the client already has
      * @return list of scores for every member of the course
      */
     @GetMapping("/courses/{courseId}/course-scores")
     @PreAuthorize("hasAnyRole('INSTRUCTOR', 'ADMIN')")
-    public ResponseEntity<List<ScoreDTO>> getScoresOfCourse(@PathVariable Long courseId) {
+    public ResponseEntity<List<ScoreDTO>> getScoresOfCourse(@PathVariable Long courseId, WebRequest webRequest) {
         long start = System.currentTimeMillis();
         log.debug("REST request to get course scores for course : {}", courseId);
         Course course = courseRepository.findByIdWithEagerExercisesElseThrow(courseId);
         if (!authorizationCheckService.isAtLeastInstructorInCourse(course, null)) {
             return forbidden();
         }
-        List<ScoreDTO> scoreDTOS = participantScoreService.calculateCourseScores(course);
+        CalculatedScores scores = participantScoreService.calculateCourseScores(course);
         log.info("getScoresOfCourse took " + (System.currentTimeMillis() - start) + "ms");
-        return ResponseEntity.ok().body(scoreDTOS);
+        return scoresResponse(scores, webRequest);
     }
 
     /**
@@ -88,12 +98,15 @@ public class ParticipantScoreResource {
      * The goal is to switch completely to this much faster server based calculation if the {@link de.tum.in.www1.artemis.service.listeners.ResultListener}
      * has been battle tested enough.
      *
-     * @param examId the id of the exam for which to calculate the exam scores
+     * The response contains an ETag, if the scores have not changed since the request with the ETag in the If-None-Match header, the response is 304 (Not Modified).
+     *
+     * @param examId     the id of the exam for which to calculate the exam scores
+     * @param webRequest the request, its If-None-Match header contains the ETag of the scores the client already has
      * @return list of scores for every registered user in the xam
      */
     @GetMapping("/exams/{examId}/exam-scores")
     @PreAuthorize("hasAnyRole('INSTRUCTOR', 'ADMIN')")
-    public ResponseEntity<List<ScoreDTO>> getScoresOfExam(@PathVariable Long examId) {
+    public ResponseEntity<List<ScoreDTO>> getScoresOfExam(@PathVariable Long examId, WebRequest webRequest) {
         long start = System.currentTimeMillis();
         log.debug("REST request to get exam scores for exam : {}", examId);
         Exam exam = examRepository.findByIdWithRegisteredUsersExerciseGroupsAndExercisesElseThrow(examId);
@@ -101,9 +114,20 @@ public class ParticipantScoreResource {
             return forbidden();
         }
 
-        List<ScoreDTO> scoreDTOS = participantScoreService.calculateExamScores(exam);
+        CalculatedScores scores = participantScoreService.calculateExamScores(exam);
         log.info("getScoresOfExam took " + (System.currentTimeMillis() - start) + "ms");
-        return ResponseEntity.ok().body(scoreDTOS);
+        return scoresResponse(scores, webRequest);
+    }
+
+    private ResponseEntity<List<ScoreDTO>> scoresResponse(CalculatedScores scores, WebRequest webRequest) {
+        if (scores.getETag() == null) {
+            return ResponseEntity.ok().body(scores.getScores());
+        }
+        // handles weak ETags and If-None-Match headers with several ETags
+        if (webRequest.checkNotModified(scores.getETag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(scores.getETag()).build();
+        }
+        return ResponseEntity.ok().eTag(scores.getETag()).body(scores.getScores());
     }
 
     /**
@@ -288,4 +312,26 @@ public class ParticipantScoreResource {
         return ResponseEntity.ok().body(resultsOfAllExercises);
     }
 
+    /**
+     * PUT /courses/:courseId/participant-scores/rebuild rebuilds the participant scores of all exercises of the course (excluding exam exercises) from scratch
+     * <p>
+     * The participant scores are usually updated by the {@link de.tum.in.www1.artemis.service.listeners.ResultListener}. This allows to reconcile them with the results,
+     * e.g. if an update has failed.
+     *
+     * @param courseId the id of the course for which to rebuild the participant scores
+     * @return the ResponseEntity with status 200 (OK)
+     */
+    @PutMapping("/courses/{courseId}/participant-scores/rebuild")
+    @PreAuthorize("hasAnyRole('INSTRUCTOR', 'ADMIN')")
+    public ResponseEntity<Void> rebuildParticipantScoresOfCourse(@PathVariable Long courseId) {
+        long start = System.currentTimeMillis();
+        log.debug("REST request to rebuild the participant scores of course : {}", courseId);
+        Course course = courseRepository.findByIdWithEagerExercisesElseThrow(courseId);
+        if (!authorizationCheckService.isAtLeastInstructorInCourse(course, null)) {
+            return forbidden();
+        }
+        participantScoreSchedulerService.rebuildParticipantScores(course.getExercises());
+        log.info("rebuildParticipantScoresOfCourse took " + (System.currentTimeMillis() - start) + "ms");
+        return ResponseEntity.ok().build();
+    }
 }
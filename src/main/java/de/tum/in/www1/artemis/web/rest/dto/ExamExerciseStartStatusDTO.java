@@ -0,0 +1,38 @@
+package de.tum.in.www1.artemis.web.rest.dto;
+
+/**
+ * Progress of starting the exercises of all student exams of an exam, sent to the instructors while the participations are created.
+ */
+public class ExamExerciseStartStatusDTO {
+
+    public Long examId;
+
+    /**
+     * number of (student, exercise) pairs for which a participation has to be started
+     */
+    public int total;
+
+    /**
+     * number of participations that have been started successfully
+     */
+    public int started;
+
+    /**
+     * number of participations that could not be started
+     */
+    public int failed;
+
+    public boolean finished;
+
+    public ExamExerciseStartStatusDTO() {
+        // default constructor for Jackson
+    }
+
+    public ExamExerciseStartStatusDTO(Long examId, int total, int started, int failed, boolean finished) {
+        this.examId = examId;
+        this.total = total;
+        this.started = started;
+        this.failed = failed;
+        this.finished = finished;
+    }
+}
@@ -207,6 +207,12 @@ public class CourseBitbucketBambooJiraIntegrationTest extends AbstractSpringInte
         courseTestService.testGetCourseForAssessmentDashboardWithStats();
     }
 
+    @Test
+    @WithMockUser(username = "tutor1", roles = "TA")
+    public void testGetCourseForAssessmentDashboardWithStats_newSubmissionInvalidatesStats() throws Exception {
+        courseTestService.testGetCourseForAssessmentDashboardWithStats_newSubmissionInvalidatesStats();
+    }
+
     @Test
     @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
     public void testGetCourseForInstructorDashboardWithStats() throws Exception {
@@ -3,18 +3,32 @@ package de.tum.in.www1.artemis;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.internal.storage.file.PackIndex;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ReflogEntry;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import de.tum.in.www1.artemis.domain.ProgrammingExercise;
+import de.tum.in.www1.artemis.domain.Repository;
+import de.tum.in.www1.artemis.domain.VcsRepositoryUrl;
+import de.tum.in.www1.artemis.domain.participation.ProgrammingExerciseStudentParticipation;
 import de.tum.in.www1.artemis.util.GitUtilService;
 
 public class GitServiceTest extends AbstractSpringIntegrationBambooBitbucketJiraTest {
@@ -69,6 +83,175 @@ public class GitServiceTest extends AbstractSpringIntegrationBambooBitbucketJira
         assertThat(gitUtilService.isLocalEqualToRemote()).isTrue();
     }
 
+    @Test
+    public void checkoutRepositoryNotOnServerConcurrently() throws Exception {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        gitUtilService.deleteRepo(GitUtilService.REPOS.LOCAL);
+        gitUtilService.reinitializeLocalRepository();
+        var firstCheckout = CompletableFuture.supplyAsync(() -> checkoutRepository(repoUrl));
+        var secondCheckout = CompletableFuture.supplyAsync(() -> checkoutRepository(repoUrl));
+        // both requests get the same repository, it is only cloned once
+        assertThat(firstCheckout.get()).isSameAs(secondCheckout.get());
+        assertThat(gitUtilService.isLocalEqualToRemote()).isTrue();
+    }
+
+    @Test
+    public void checkoutStudentRepositoryWithTemplateMirror() throws Exception {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        // the template repository only contains the initial commit
+        var templatePath = Files.createTempDirectory("template-repositories").resolve("scm/template-repository.git");
+        Git.cloneRepository().setURI(gitUtilService.getCompleteRepoPathStringByType(GitUtilService.REPOS.REMOTE)).setDirectory(templatePath.toFile()).setBare(true).call()
+                .close();
+        var templateUrl = new VcsRepositoryUrl("file://" + templatePath);
+        ObjectId templateCommitId = gitUtilService.getRepoByType(GitUtilService.REPOS.REMOTE).resolve(Constants.HEAD);
+        // the student repository contains another commit
+        String newFileContent = "const a = arr.reduce(sum)";
+        gitUtilService.updateFile(GitUtilService.REPOS.REMOTE, GitUtilService.FILES.FILE1, newFileContent);
+        gitUtilService.stashAndCommitAll(GitUtilService.REPOS.REMOTE);
+        gitUtilService.deleteRepo(GitUtilService.REPOS.LOCAL);
+        gitUtilService.reinitializeLocalRepository();
+        // the template participation is not loaded with the exercise, its repository url is passed explicitly
+        var participation = new ProgrammingExerciseStudentParticipation();
+        participation.setRepositoryUrl(repoUrl.toString());
+        participation.setProgrammingExercise(new ProgrammingExercise());
+
+        var mirrorPath = Files.createTempDirectory("template-mirrors");
+        ReflectionTestUtils.setField(gitService, "useTemplateMirror", true);
+        ReflectionTestUtils.setField(gitService, "templateMirrorPath", mirrorPath.toString());
+        try {
+            Repository repository = gitService.getOrCheckoutRepository(participation, (String) ReflectionTestUtils.getField(gitService, "repoClonePath"), templateUrl);
+            assertThat(gitUtilService.isLocalEqualToRemote()).isTrue();
+            assertThat(gitUtilService.getFileContent(GitUtilService.REPOS.LOCAL, GitUtilService.FILES.FILE1)).isEqualTo(newFileContent);
+            assertThat(repository.getRefDatabase().getRefsByPrefix("refs/template/")).isEmpty();
+
+            // the pack files of the mirror are reused, only the objects of the student's commit have been fetched
+            Path mirrorPackFolder = mirrorPath.resolve("template-repository.git/objects/pack");
+            Set<String> mirrorPackFiles = listFileNames(mirrorPackFolder);
+            Set<String> packFiles = listFileNames(repository.getLocalPath().resolve(".git/objects/pack"));
+            assertThat(mirrorPackFiles).isNotEmpty();
+            assertThat(packFiles).containsAll(mirrorPackFiles);
+            var fetchedPackIndexes = packFiles.stream().filter(fileName -> fileName.endsWith(".idx") && !mirrorPackFiles.contains(fileName)).collect(Collectors.toList());
+            assertThat(fetchedPackIndexes).hasSize(1);
+            PackIndex fetchedPackIndex = PackIndex.open(repository.getLocalPath().resolve(".git/objects/pack").resolve(fetchedPackIndexes.get(0)).toFile());
+            assertThat(fetchedPackIndex.hasObject(repository.resolve(Constants.HEAD))).isTrue();
+            assertThat(fetchedPackIndex.hasObject(templateCommitId)).isFalse();
+        }
+        finally {
+            ReflectionTestUtils.setField(gitService, "useTemplateMirror", false);
+            FileUtils.deleteQuietly(mirrorPath.toFile());
+            FileUtils.deleteQuietly(templatePath.getParent().getParent().toFile());
+        }
+    }
+
+    @Test
+    public void evictUnusedTemplateMirrors() throws Exception {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        gitUtilService.deleteRepo(GitUtilService.REPOS.LOCAL);
+        gitUtilService.reinitializeLocalRepository();
+        var participation = new ProgrammingExerciseStudentParticipation();
+        participation.setRepositoryUrl(repoUrl.toString());
+
+        var mirrorPath = Files.createTempDirectory("template-mirrors");
+        ReflectionTestUtils.setField(gitService, "useTemplateMirror", true);
+        ReflectionTestUtils.setField(gitService, "templateMirrorPath", mirrorPath.toString());
+        try {
+            gitService.getOrCheckoutRepository(participation, (String) ReflectionTestUtils.getField(gitService, "repoClonePath"), repoUrl);
+            assertThat(mirrorPath.resolve("test-repository.git")).isDirectory();
+
+            // the mirror has just been used
+            gitService.evictTemplateMirrors();
+            assertThat(mirrorPath.resolve("test-repository.git")).isDirectory();
+
+            ReflectionTestUtils.setField(gitService, "templateMirrorIdleTimeoutSeconds", -1L);
+            gitService.evictTemplateMirrors();
+            assertThat(mirrorPath.resolve("test-repository.git")).doesNotExist();
+            assertThat((Map<?, ?>) ReflectionTestUtils.getField(gitService, "templateMirrors")).isEmpty();
+        }
+        finally {
+            ReflectionTestUtils.setField(gitService, "useTemplateMirror", false);
+            ReflectionTestUtils.setField(gitService, "templateMirrorIdleTimeoutSeconds", 86400L);
+            FileUtils.deleteQuietly(mirrorPath.toFile());
+        }
+    }
+
+    private Set<String> listFileNames(Path folder) throws IOException {
+        try (var files = Files.list(folder)) {
+            return files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+
+    @Test
+    public void cloneRepositoryWithoutCheckoutAndReadFilesAtHead() throws GitAPIException, InterruptedException, IOException {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        String newFileContent = "const a = arr.reduce(sum)";
+        gitUtilService.updateFile(GitUtilService.REPOS.REMOTE, GitUtilService.FILES.FILE1, newFileContent);
+        gitUtilService.stashAndCommitAll(GitUtilService.REPOS.REMOTE);
+        gitUtilService.deleteRepo(GitUtilService.REPOS.LOCAL);
+        gitUtilService.reinitializeLocalRepository();
+
+        Repository repository = gitService.getOrCloneRepositoryWithoutCheckout(repoUrl, (String) ReflectionTestUtils.getField(gitService, "repoClonePath"));
+        // the files are not checked out ...
+        assertThat(gitUtilService.getFileContent(GitUtilService.REPOS.LOCAL, GitUtilService.FILES.FILE1)).isNull();
+
+        // ... but they can be read from the object database
+        Map<String, String> files = new HashMap<>();
+        gitService.readFilesAtCommit(repository, repository.resolve(Constants.HEAD),
+                (path, content) -> files.put(path, new String(content.readAllBytes(), StandardCharsets.UTF_8)));
+        assertThat(files).containsOnlyKeys(GitUtilService.FILES.FILE1.toString(), GitUtilService.FILES.FILE2.toString(), GitUtilService.FILES.FILE3.toString());
+        assertThat(files).containsEntry(GitUtilService.FILES.FILE1.toString(), newFileContent);
+    }
+
+    private Repository checkoutRepository(VcsRepositoryUrl repoUrl) {
+        try {
+            return gitService.getOrCheckoutRepository(repoUrl, false);
+        }
+        catch (GitAPIException | InterruptedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Test
+    public void evictIdleRepositoryFromCacheOnlyIfNotLeased() throws GitAPIException, InterruptedException {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        Repository repository = gitService.getOrCheckoutRepository(repoUrl, true);
+        // all cached repositories are idle now
+        ReflectionTestUtils.setField(gitService, "repositoryCacheIdleTimeoutSeconds", -1L);
+        try {
+            try (var lease = gitService.leaseRepository(repository); var nestedLease = gitService.leaseRepository(repository)) {
+                assertThat(lease.getRepository()).isSameAs(repository);
+                nestedLease.close();
+                gitService.evictCachedRepositories();
+                assertThat(gitService.getOrCheckoutRepository(repoUrl, false)).isSameAs(repository);
+            }
+            gitService.evictCachedRepositories();
+            assertThat(gitService.getOrCheckoutRepository(repoUrl, false)).isNotSameAs(repository);
+        }
+        finally {
+            ReflectionTestUtils.setField(gitService, "repositoryCacheIdleTimeoutSeconds", 600L);
+        }
+    }
+
+    @Test
+    public void leaseRepositoryThatHasBeenEvictedInTheMeantime() throws Exception {
+        var repoUrl = gitUtilService.getRepoUrlByType(GitUtilService.REPOS.REMOTE);
+        Repository repository = gitService.getOrCheckoutRepository(repoUrl, true);
+        ReflectionTestUtils.setField(gitService, "repositoryCacheIdleTimeoutSeconds", -1L);
+        try {
+            // the repository is evicted between retrieving and leasing it
+            gitService.evictCachedRepositories();
+            try (var lease = gitService.leaseRepository(repository)) {
+                assertThat(lease.getRepository()).isNotSameAs(repository);
+                gitService.evictCachedRepositories();
+                // the newly opened repository is still cached and can be used
+                assertThat(gitService.getOrCheckoutRepository(repoUrl, false)).isSameAs(lease.getRepository());
+                assertThat(lease.getRepository().resolve(Constants.HEAD)).isEqualTo(gitUtilService.getRepoByType(GitUtilService.REPOS.REMOTE).resolve(Constants.HEAD));
+            }
+        }
+        finally {
+            ReflectionTestUtils.setField(gitService, "repositoryCacheIdleTimeoutSeconds", 600L);
+        }
+    }
+
     @Test
     public void combineAllCommitsIntoInitialCommitTest() throws GitAPIException {
         String newFileContent1 = "lorem ipsum";
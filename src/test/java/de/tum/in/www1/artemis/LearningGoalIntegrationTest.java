@@ -32,6 +32,7 @@ import de.tum.in.www1.artemis.domain.quiz.QuizExercise;
 import de.tum.in.www1.artemis.domain.quiz.QuizSubmission;
 import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.service.ParticipationService;
+import de.tum.in.www1.artemis.service.scheduled.ParticipantScoreSchedulerService;
 import de.tum.in.www1.artemis.util.ModelFactory;
 import de.tum.in.www1.artemis.web.rest.dto.CourseLearningGoalProgress;
 import de.tum.in.www1.artemis.web.rest.dto.IndividualLearningGoalProgress;
@@ -80,6 +81,9 @@ public class LearningGoalIntegrationTest extends AbstractSpringIntegrationBamboo
     @Autowired
     LectureUnitRepository lectureUnitRepository;
 
+    @Autowired
+    ParticipantScoreSchedulerService participantScoreSchedulerService;
+
     Long idOfCourse;
 
     Long idOfLearningGoal;
@@ -145,6 +149,7 @@ public class LearningGoalIntegrationTest extends AbstractSpringIntegrationBamboo
         teams = database.addTeamsForExerciseFixedTeamSize(teamTextExercise, 5, tutor, 3);
 
         createParticipationSubmissionAndResult(idOfTeamTextExercise, teams.get(0), 10.0, 0.0, 50, true);
+        participantScoreSchedulerService.executeScheduledTasks();
 
         creatingLectureUnitsOfLectureOne();
         creatingLectureUnitsOfLectureTwo();
@@ -10,6 +10,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.test.context.support.WithMockUser;
 
@@ -19,6 +20,7 @@ import de.tum.in.www1.artemis.domain.lecture.ExerciseUnit;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
 import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.service.ParticipationService;
+import de.tum.in.www1.artemis.service.scheduled.ParticipantScoreSchedulerService;
 import de.tum.in.www1.artemis.util.ModelFactory;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreAverageDTO;
 import de.tum.in.www1.artemis.web.rest.dto.ParticipantScoreDTO;
@@ -78,6 +80,12 @@ public class ParticipantScoreIntegrationTest extends AbstractSpringIntegrationBa
     @Autowired
     StudentParticipationRepository studentParticipationRepository;
 
+    @Autowired
+    ParticipantScoreRepository participantScoreRepository;
+
+    @Autowired
+    ParticipantScoreSchedulerService participantScoreSchedulerService;
+
     @AfterEach
     public void resetDatabase() {
         database.resetDatabase();
@@ -128,6 +136,7 @@ public class ParticipantScoreIntegrationTest extends AbstractSpringIntegrationBa
         idOfExam = exam.getId();
         createIndividualTextExerciseForExam();
         database.createParticipationSubmissionAndResult(getIdOfIndividualTextExerciseOfExam, student1, 10.0, 10.0, 50, true);
+        participantScoreSchedulerService.executeScheduledTasks();
     }
 
     private void testAllPreAuthorize() throws Exception {
@@ -139,6 +148,7 @@ public class ParticipantScoreIntegrationTest extends AbstractSpringIntegrationBa
         request.get("/api/exams/" + idOfExam + "/participant-scores/", HttpStatus.FORBIDDEN, Long.class);
         request.getList("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.FORBIDDEN, ScoreDTO.class);
         request.getList("/api/exams/" + idOfExam + "/exam-scores", HttpStatus.FORBIDDEN, ScoreDTO.class);
+        request.put("/api/courses/" + idOfCourse + "/participant-scores/rebuild", null, HttpStatus.FORBIDDEN);
     }
 
     @Test
@@ -197,6 +207,30 @@ public class ParticipantScoreIntegrationTest extends AbstractSpringIntegrationBa
         assertThat(scoreOfStudent1.regularPointsAchievable).isEqualTo(20.0);
     }
 
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    public void getCourseScores_withUnchangedScores_shouldReturnNotModified() throws Exception {
+        String eTag = request.getETag("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.OK);
+        assertThat(eTag).isNotNull();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        request.get("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.NOT_MODIFIED, String.class, headers);
+        // a new result changes the participant score and therefore the course scores
+        User student1 = userRepository.findOneByLogin("student1").get();
+        database.createParticipationSubmissionAndResult(idOfIndividualTextExercise, student1, 10.0, 10.0, 100, true);
+        participantScoreSchedulerService.executeScheduledTasks();
+        request.get("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.OK, String.class, headers);
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    public void getCourseScores_withWeakETagAmongSeveralETags_shouldReturnNotModified() throws Exception {
+        String eTag = request.getETag("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(List.of("\"outdated\"", "W/" + eTag));
+        request.get("/api/courses/" + idOfCourse + "/course-scores", HttpStatus.NOT_MODIFIED, String.class, headers);
+    }
+
     @Test
     @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
     public void getExamScores_asInstructorOfCourse_shouldReturnExamScores() throws Exception {
@@ -220,6 +254,38 @@ public class ParticipantScoreIntegrationTest extends AbstractSpringIntegrationBa
         assertParticipantScoreDTOStructure(team1Result, null, idOfTeam1, idOfTeamTextExercise, 50D, 50D, 5.0, 5.0);
     }
 
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    public void rebuildParticipantScoresOfCourse_asInstructorOfCourse_shouldRecreateParticipantScores() throws Exception {
+        participantScoreRepository.deleteAll();
+        request.put("/api/courses/" + idOfCourse + "/participant-scores/rebuild", null, HttpStatus.OK);
+        List<ParticipantScoreDTO> participantScoresOfCourse = request.getList("/api/courses/" + idOfCourse + "/participant-scores", HttpStatus.OK, ParticipantScoreDTO.class);
+        assertThat(participantScoresOfCourse.size()).isEqualTo(2);
+        ParticipantScoreDTO student1Result = participantScoresOfCourse.stream().filter(participantScoreDTO -> participantScoreDTO.userId != null).findFirst().get();
+        ParticipantScoreDTO team1Result = participantScoresOfCourse.stream().filter(participantScoreDTO -> participantScoreDTO.teamId != null).findFirst().get();
+        assertParticipantScoreDTOStructure(student1Result, idOfStudent1, null, idOfIndividualTextExercise, 50D, 50D, 5.0, 5.0);
+        assertParticipantScoreDTOStructure(team1Result, null, idOfTeam1, idOfTeamTextExercise, 50D, 50D, 5.0, 5.0);
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    public void rebuildParticipantScoresOfCourse_withExistingParticipantScores_shouldReplaceThem() throws Exception {
+        long numberOfParticipantScores = participantScoreRepository.count();
+        request.put("/api/courses/" + idOfCourse + "/participant-scores/rebuild", null, HttpStatus.OK);
+        assertThat(participantScoreRepository.count()).isEqualTo(numberOfParticipantScores);
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    public void applyPendingUpdatesOnShutdown_shouldUpdateParticipantScores() throws Exception {
+        User student1 = userRepository.findOneByLogin("student1").get();
+        database.createParticipationSubmissionAndResult(idOfIndividualTextExercise, student1, 10.0, 10.0, 100, true);
+        participantScoreSchedulerService.applyPendingUpdatesOnShutdown();
+        List<ParticipantScoreDTO> participantScoresOfCourse = request.getList("/api/courses/" + idOfCourse + "/participant-scores", HttpStatus.OK, ParticipantScoreDTO.class);
+        ParticipantScoreDTO student1Result = participantScoresOfCourse.stream().filter(participantScoreDTO -> participantScoreDTO.userId != null).findFirst().get();
+        assertParticipantScoreDTOStructure(student1Result, idOfStudent1, null, idOfIndividualTextExercise, 100D, 100D, 10.0, 10.0);
+    }
+
     @Test
     @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
     public void getAverageScoreOfParticipantInCourse_asInstructorOfCourse_shouldReturnAverageParticipantScores() throws Exception {
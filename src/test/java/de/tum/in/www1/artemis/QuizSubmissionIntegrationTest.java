@@ -9,7 +9,10 @@ import java.security.Principal;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -31,6 +34,7 @@ import de.tum.in.www1.artemis.domain.enumeration.ScoringType;
 import de.tum.in.www1.artemis.domain.quiz.*;
 import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.service.QuizExerciseService;
+import de.tum.in.www1.artemis.service.QuizStatisticService;
 import de.tum.in.www1.artemis.service.scheduled.quiz.QuizScheduleService;
 import de.tum.in.www1.artemis.web.websocket.QuizSubmissionWebsocketService;
 
@@ -68,6 +72,9 @@ public class QuizSubmissionIntegrationTest extends AbstractSpringIntegrationBamb
     @Autowired
     ResultRepository resultRepository;
 
+    @Autowired
+    QuizStatisticService quizStatisticService;
+
     int multiplier = 100;
 
     @BeforeEach
@@ -260,6 +267,74 @@ public class QuizSubmissionIntegrationTest extends AbstractSpringIntegrationBamb
         }
     }
 
+    @Test
+    @WithMockUser(value = "student1", roles = "USER")
+    public void testQuizStatisticsMatchRecalculation() throws Exception {
+        List<Course> courses = database.createCoursesWithExercisesAndLectures(false);
+        Course course = courses.get(0);
+        QuizExercise quizExercise = database.createQuiz(course, ZonedDateTime.now().minusSeconds(10), null);
+        quizExercise.setDueDate(ZonedDateTime.now().minusSeconds(8));
+        quizExercise.setDuration(2);
+        quizExercise.setIsPlannedToStart(true);
+        quizExercise.setIsVisibleBeforeStart(true);
+        quizExercise.setIsOpenForPractice(true);
+        quizExerciseService.save(quizExercise);
+
+        var numberOfParticipants = 12;
+
+        // every student submits twice, so that the second result replaces the first one in the statistics
+        for (int attempt = 0; attempt < 2; attempt++) {
+            for (int i = 1; i <= numberOfParticipants; i++) {
+                QuizSubmission quizSubmission = database.generateSubmissionForThreeQuestions(quizExercise, i + attempt, true, null);
+                database.changeUser("student" + i);
+                request.postWithResponseBody("/api/exercises/" + quizExercise.getId() + "/submissions/practice", quizSubmission, Result.class, HttpStatus.OK);
+            }
+            // the statistics are updated incrementally with the new results
+            quizScheduleService.processCachedQuizSubmissions();
+        }
+        Map<String, Integer> updatedStatistics = getStatisticCounters(quizExerciseRepository.findOneWithQuestionsAndStatistics(quizExercise.getId()));
+        assertThat(updatedStatistics.get("points-unrated")).isEqualTo(numberOfParticipants);
+
+        quizStatisticService.recalculateStatistics(quizExerciseRepository.findOneWithQuestionsAndStatistics(quizExercise.getId()));
+
+        Map<String, Integer> recalculatedStatistics = getStatisticCounters(quizExerciseRepository.findOneWithQuestionsAndStatistics(quizExercise.getId()));
+        assertThat(updatedStatistics).isEqualTo(recalculatedStatistics);
+    }
+
+    private Map<String, Integer> getStatisticCounters(QuizExercise quizExercise) {
+        Map<String, Integer> counters = new HashMap<>();
+        QuizPointStatistic quizPointStatistic = quizExercise.getQuizPointStatistic();
+        counters.put("points-rated", quizPointStatistic.getParticipantsRated());
+        counters.put("points-unrated", quizPointStatistic.getParticipantsUnrated());
+        for (PointCounter pointCounter : quizPointStatistic.getPointCounters()) {
+            counters.put("points-" + pointCounter.getPoints() + "-rated", pointCounter.getRatedCounter());
+            counters.put("points-" + pointCounter.getPoints() + "-unrated", pointCounter.getUnRatedCounter());
+        }
+        for (QuizQuestion question : quizExercise.getQuizQuestions()) {
+            QuizQuestionStatistic statistic = question.getQuizQuestionStatistic();
+            String prefix = "question-" + question.getId();
+            counters.put(prefix + "-rated", statistic.getParticipantsRated());
+            counters.put(prefix + "-unrated", statistic.getParticipantsUnrated());
+            counters.put(prefix + "-correct-rated", statistic.getRatedCorrectCounter());
+            counters.put(prefix + "-correct-unrated", statistic.getUnRatedCorrectCounter());
+            Set<? extends QuizStatisticCounter> questionCounters;
+            if (statistic instanceof MultipleChoiceQuestionStatistic) {
+                questionCounters = ((MultipleChoiceQuestionStatistic) statistic).getAnswerCounters();
+            }
+            else if (statistic instanceof DragAndDropQuestionStatistic) {
+                questionCounters = ((DragAndDropQuestionStatistic) statistic).getDropLocationCounters();
+            }
+            else {
+                questionCounters = ((ShortAnswerQuestionStatistic) statistic).getShortAnswerSpotCounters();
+            }
+            for (QuizStatisticCounter counter : questionCounters) {
+                counters.put(prefix + "-counter-" + counter.getId() + "-rated", counter.getRatedCounter());
+                counters.put(prefix + "-counter-" + counter.getId() + "-unrated", counter.getUnRatedCounter());
+            }
+        }
+        return counters;
+    }
+
     @Test
     @WithMockUser(value = "student1", roles = "USER")
     public void testQuizSubmitPractice_badRequest() throws Exception {
@@ -0,0 +1,66 @@
+package de.tum.in.www1.artemis.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tum.in.www1.artemis.domain.modeling.ModelingSubmission;
+import de.tum.in.www1.artemis.util.FileUtils;
+
+public class ModelingSubmissionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "  ", "{\"elements\":[]}", "{\"elements\":{}}", "{\"elements\":[{\"id\":\"1\",\"bounds\":{\"x\":[1,{}]}}],\"relationships\":[]}",
+            "{\"version\":\"2.0\",\"elements\":{\"a\":{\"b\":[]}},\"relationships\":{}}", "{\"elements\":null}", "{\"elements\":5}", "{\"elements\":\"\"}",
+            "{\"version\":\"2.0\"}", "[]", "5", "{\"elements\":[]} trailing", "{\"elements\":[1]} }", "{\"elements\":[1]", "{\"elements\":[],\"elements\":[1]}",
+            "{\"elements\":[1],\"elements\":[]}", "{\"elements\":[], \"version\": tru}", "{\"elements\":[[],[]]}", "no json" })
+    public void isEmptyWithJsonFactoryMatchesObjectMapper(String model) {
+        ModelingSubmission submission = new ModelingSubmission();
+        submission.setModel(model);
+
+        assertThat(outcome(() -> submission.isEmpty(jsonFactory))).isEqualTo(outcome(() -> submission.isEmpty(objectMapper)));
+    }
+
+    @Test
+    public void isEmptyWithJsonFactoryMatchesObjectMapperForExampleModels() throws IOException {
+        for (String modelFile : new String[] { "empty-class-diagram.json", "example-class-diagram.json", "model.54727.json", "use-case-model.json" }) {
+            ModelingSubmission submission = new ModelingSubmission();
+            submission.setModel(FileUtils.loadFileFromResources("test-data/model-submission/" + modelFile));
+
+            assertThat(submission.isEmpty(jsonFactory)).as(modelFile).isEqualTo(submission.isEmpty(objectMapper));
+        }
+    }
+
+    @Test
+    public void isEmptyWithJsonFactoryConsidersModelAndExplanation() {
+        ModelingSubmission submission = new ModelingSubmission();
+        assertThat(submission.isEmpty(jsonFactory)).isTrue();
+
+        submission.setExplanationText("explanation");
+        assertThat(submission.isEmpty(jsonFactory)).isFalse();
+    }
+
+    /**
+     * @return the result of the check or "exception" if the check failed, the exception type differs between the two implementations
+     */
+    private String outcome(Supplier<Boolean> isEmpty) {
+        try {
+            return String.valueOf(isEmpty.get());
+        }
+        catch (RuntimeException e) {
+            return "exception";
+        }
+    }
+}
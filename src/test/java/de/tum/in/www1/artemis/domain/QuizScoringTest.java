@@ -0,0 +1,179 @@
+package de.tum.in.www1.artemis.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.*;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import de.tum.in.www1.artemis.domain.enumeration.ScoringType;
+import de.tum.in.www1.artemis.domain.quiz.*;
+
+/**
+ * Tests that scoring many answers at once results in exactly the same scores as scoring each answer on its own.
+ */
+public class QuizScoringTest {
+
+    private static final int NUMBER_OF_ANSWERS = 500;
+
+    private final Random random = new Random(42);
+
+    private long nextId = 1;
+
+    @ParameterizedTest
+    @EnumSource(ScoringType.class)
+    public void testMultipleChoiceBatchScoresEqualSingleScores(ScoringType scoringType) {
+        var question = new MultipleChoiceQuestion();
+        initQuestion(question, scoringType);
+        List<AnswerOption> answerOptions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            var answerOption = new AnswerOption().isCorrect(random.nextBoolean());
+            answerOption.setId(nextId++);
+            answerOption.setInvalid(i == 4);
+            answerOptions.add(answerOption);
+        }
+        question.setAnswerOptions(answerOptions);
+
+        List<SubmittedAnswer> answers = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ANSWERS; i++) {
+            var answer = new MultipleChoiceSubmittedAnswer();
+            answer.setQuizQuestion(question);
+            for (AnswerOption answerOption : answerOptions) {
+                if (random.nextBoolean()) {
+                    // a copy of the option like it is received from the client
+                    var selectedOption = new AnswerOption();
+                    selectedOption.setId(answerOption.getId());
+                    answer.addSelectedOptions(selectedOption);
+                }
+            }
+            answers.add(answer);
+        }
+        answers.add(new DragAndDropSubmittedAnswer());
+
+        assertBatchScoresEqualSingleScores(question, answers);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringType.class)
+    public void testDragAndDropBatchScoresEqualSingleScores(ScoringType scoringType) {
+        var question = new DragAndDropQuestion();
+        initQuestion(question, scoringType);
+        List<DropLocation> dropLocations = new ArrayList<>();
+        List<DragItem> dragItems = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            var dropLocation = new DropLocation();
+            dropLocation.setId(nextId++);
+            dropLocation.setInvalid(i == 3);
+            dropLocation.setQuestion(question);
+            dropLocations.add(dropLocation);
+            var dragItem = new DragItem().text("item " + i);
+            dragItem.setId(nextId++);
+            dragItem.setInvalid(false);
+            dragItems.add(dragItem);
+        }
+        question.setDropLocations(dropLocations);
+        question.setDragItems(dragItems);
+        // the last but one drop location is meant to stay empty
+        for (int i = 0; i < 4; i++) {
+            if (i != 2) {
+                question.addCorrectMapping(new DragAndDropMapping().dragItem(dragItems.get(i)).dropLocation(dropLocations.get(i)));
+            }
+        }
+
+        List<SubmittedAnswer> answers = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ANSWERS; i++) {
+            var answer = new DragAndDropSubmittedAnswer();
+            answer.setQuizQuestion(question);
+            for (DropLocation dropLocation : dropLocations) {
+                if (random.nextInt(4) > 0) {
+                    answer.addMappings(new DragAndDropMapping().dragItem(dragItems.get(random.nextInt(dragItems.size()))).dropLocation(dropLocation));
+                }
+            }
+            answers.add(answer);
+        }
+        answers.add(new MultipleChoiceSubmittedAnswer());
+
+        assertBatchScoresEqualSingleScores(question, answers);
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringType.class)
+    public void testShortAnswerBatchScoresEqualSingleScores(ScoringType scoringType) {
+        var question = new ShortAnswerQuestion();
+        initQuestion(question, scoringType);
+        question.setSimilarityValue(80);
+        question.setMatchLetterCase(false);
+        List<ShortAnswerSpot> spots = new ArrayList<>();
+        List<ShortAnswerSolution> solutions = new ArrayList<>();
+        String[] texts = { "Java", "Kotlin", "Scala" };
+        for (int i = 0; i < texts.length; i++) {
+            var spot = new ShortAnswerSpot().spotNr(i);
+            spot.setId(nextId++);
+            spot.setInvalid(false);
+            spots.add(spot);
+            var solution = new ShortAnswerSolution().text(texts[i]);
+            solution.setId(nextId++);
+            solutions.add(solution);
+        }
+        question.setSpots(spots);
+        question.setSolutions(solutions);
+        // every solution fits every spot, but each solution can only be used once
+        for (ShortAnswerSpot spot : spots) {
+            for (ShortAnswerSolution solution : solutions) {
+                question.addCorrectMapping(new ShortAnswerMapping().spot(spot).solution(solution));
+            }
+        }
+
+        String[] submittedTexts = { "Java", "java ", "Jawa", "kotlin", "Scalar", "C++", "", null };
+        List<SubmittedAnswer> answers = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ANSWERS; i++) {
+            var answer = new ShortAnswerSubmittedAnswer();
+            answer.setQuizQuestion(question);
+            for (ShortAnswerSpot spot : spots) {
+                if (random.nextInt(5) > 0) {
+                    var submittedText = new ShortAnswerSubmittedText();
+                    submittedText.setSpot(spot);
+                    submittedText.setText(submittedTexts[random.nextInt(submittedTexts.length)]);
+                    answer.addSubmittedTexts(submittedText);
+                }
+            }
+            answers.add(answer);
+        }
+
+        assertBatchScoresEqualSingleScores(question, answers);
+        // the submitted texts are marked as correct or incorrect the same way
+        for (SubmittedAnswer answer : answers) {
+            for (ShortAnswerSubmittedText submittedText : ((ShortAnswerSubmittedAnswer) answer).getSubmittedTexts()) {
+                Boolean batchIsCorrect = submittedText.isIsCorrect();
+                question.scoreForAnswer(answer);
+                assertThat(submittedText.isIsCorrect()).isEqualTo(batchIsCorrect);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ScoringType.class)
+    public void testInvalidQuestionGetsFullPoints(ScoringType scoringType) {
+        var question = new MultipleChoiceQuestion();
+        initQuestion(question, scoringType);
+        question.setInvalid(true);
+        double[] scores = question.scoreForAnswers(new SubmittedAnswer[] { new MultipleChoiceSubmittedAnswer(), new MultipleChoiceSubmittedAnswer() });
+        assertThat(scores).containsExactly(4.0, 4.0);
+    }
+
+    private void initQuestion(QuizQuestion question, ScoringType scoringType) {
+        question.setId(nextId++);
+        question.setPoints(4);
+        question.setScoringType(scoringType);
+        question.setInvalid(false);
+    }
+
+    private void assertBatchScoresEqualSingleScores(QuizQuestion question, List<SubmittedAnswer> answers) {
+        double[] batchScores = question.scoreForAnswers(answers.toArray(new SubmittedAnswer[0]));
+        assertThat(batchScores).hasSize(answers.size());
+        for (int i = 0; i < answers.size(); i++) {
+            assertThat(batchScores[i]).as("score of answer " + i).isEqualTo(question.scoreForAnswer(answers.get(i)));
+        }
+    }
+}
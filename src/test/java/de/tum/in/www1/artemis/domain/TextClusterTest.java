@@ -0,0 +1,45 @@
+package de.tum.in.www1.artemis.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TextClusterTest {
+
+    @Test
+    public void convertSerializedProbabilities() throws IOException {
+        double[] probabilities = { 0.25, 0.5, 1.0 };
+        TextCluster cluster = new TextCluster();
+        cluster.setProbabilities(probabilities);
+
+        byte[] converted = TextCluster.toCompactBinary(serialize(probabilities));
+
+        assertThat(converted).isEqualTo(ReflectionTestUtils.getField(cluster, "probabilities"));
+        assertThat(TextCluster.toCompactBinary(converted)).isSameAs(converted);
+    }
+
+    @Test
+    public void keepCauseOfUnreadableSerializedData() throws IOException {
+        byte[] serialized = serialize(new double[] { 0.25, 0.5 });
+        byte[] corrupted = Arrays.copyOf(serialized, 8);
+        corrupted[4] = (byte) 0xFF;
+
+        assertThatThrownBy(() -> TextCluster.toCompactBinary(corrupted)).isInstanceOf(IllegalArgumentException.class).hasCauseInstanceOf(StreamCorruptedException.class);
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+}
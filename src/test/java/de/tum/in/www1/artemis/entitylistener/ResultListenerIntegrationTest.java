@@ -30,6 +30,7 @@ import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.security.SecurityUtils;
 import de.tum.in.www1.artemis.service.ParticipationService;
 import de.tum.in.www1.artemis.service.ScoreService;
+import de.tum.in.www1.artemis.service.scheduled.ParticipantScoreSchedulerService;
 
 public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBambooBitbucketJiraTest {
 
@@ -73,6 +74,9 @@ public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBamb
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    ParticipantScoreSchedulerService participantScoreSchedulerService;
+
     @SpyBean
     private ScoreService scoreService;
 
@@ -391,6 +395,7 @@ public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBamb
         }
 
         Result persistedResult = database.createParticipationSubmissionAndResult(idOfExercise, participant, 10.0, 10.0, 200, isRatedResult);
+        participantScoreSchedulerService.executeScheduledTasks();
         SecurityUtils.setAuthorizationObject();
         savedParticipantScores = participantScoreRepository.findAllEagerly();
         SecurityContextHolder.getContext().setAuthentication(null);
@@ -407,7 +412,7 @@ public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBamb
                     pointsAchieved, null);
 
         }
-        verify(this.scoreService, times(1)).updateOrCreateParticipantScore(any());
+        verify(this.scoreService, times(1)).updateOrCreateParticipantScore(any(StudentParticipation.class), any());
         return savedParticipantScore;
     }
 
@@ -423,6 +428,7 @@ public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBamb
             participant = userRepository.findOneByLogin("student1").get();
             idOfExercise = idOfIndividualTextExercise;
         }
+        participantScoreSchedulerService.executeScheduledTasks();
         SecurityUtils.setAuthorizationObject();
         List<ParticipantScore> savedParticipantScore = participantScoreRepository.findAllEagerly();
         SecurityContextHolder.getContext().setAuthentication(null);
@@ -440,7 +446,7 @@ public class ResultListenerIntegrationTest extends AbstractSpringIntegrationBamb
 
         assertParticipantScoreStructure(updatedParticipantScore, idOfExercise, participant.getId(), expectedLastResultId, expectedLastScore, expectedLastRatedResultId,
                 expectedLastRatedScore, lastPoints, lastRatedPoints);
-        verify(this.scoreService, times(2)).updateOrCreateParticipantScore(any(Result.class));
+        verify(this.scoreService, times(2)).updateOrCreateParticipantScore(any(StudentParticipation.class), any());
     }
 
 }
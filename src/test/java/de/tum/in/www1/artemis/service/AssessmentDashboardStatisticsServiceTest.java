@@ -0,0 +1,112 @@
+package de.tum.in.www1.artemis.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.tum.in.www1.artemis.domain.TextExercise;
+import de.tum.in.www1.artemis.domain.participation.Participation;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.repository.*;
+
+public class AssessmentDashboardStatisticsServiceTest {
+
+    private static final long EXERCISE_ID = 10;
+
+    @Mock
+    private ProgrammingExerciseRepository programmingExerciseRepository;
+
+    @Mock
+    private SubmissionRepository submissionRepository;
+
+    @Mock
+    private ResultRepository resultRepository;
+
+    @Mock
+    private ComplaintRepository complaintRepository;
+
+    @Mock
+    private ComplaintResponseRepository complaintResponseRepository;
+
+    @Mock
+    private ParticipationRepository participationRepository;
+
+    private AssessmentDashboardStatisticsService assessmentDashboardStatisticsService;
+
+    private TextExercise exercise;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doCallRealMethod().when(participationRepository).findExerciseIdOfParticipation(any());
+        assessmentDashboardStatisticsService = new AssessmentDashboardStatisticsService(programmingExerciseRepository, submissionRepository, resultRepository,
+                complaintRepository, complaintResponseRepository, participationRepository);
+        ReflectionTestUtils.setField(assessmentDashboardStatisticsService, "statisticsMaxAgeInSeconds", 30L);
+
+        exercise = new TextExercise();
+        exercise.setId(EXERCISE_ID);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void invalidateStatisticsOnlyAfterTheTransactionHasBeenCommitted() {
+        assessmentDashboardStatisticsService.getStatistics(Set.of(exercise), false);
+        TransactionSynchronizationManager.initSynchronization();
+
+        assessmentDashboardStatisticsService.invalidateStatistics(participation());
+        // the statistics calculated before the commit do not contain the saved submission yet and are not cached afterwards
+        assessmentDashboardStatisticsService.getStatistics(Set.of(exercise), false);
+        verifyCalculations(1);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assessmentDashboardStatisticsService.getStatistics(Set.of(exercise), false);
+        verifyCalculations(2);
+    }
+
+    @Test
+    public void invalidateStatisticsOfLazyParticipation() {
+        assessmentDashboardStatisticsService.getStatistics(Set.of(exercise), false);
+        LazyInitializer lazyInitializer = mock(LazyInitializer.class);
+        doReturn(true).when(lazyInitializer).isUninitialized();
+        doReturn(3L).when(lazyInitializer).getIdentifier();
+        Participation participationProxy = mock(StudentParticipation.class, withSettings().extraInterfaces(HibernateProxy.class));
+        doReturn(lazyInitializer).when((HibernateProxy) participationProxy).getHibernateLazyInitializer();
+        doReturn(Optional.of(EXERCISE_ID)).when(participationRepository).findExerciseIdById(3L);
+
+        assessmentDashboardStatisticsService.invalidateStatistics(participationProxy);
+
+        // only the exercise id is queried, the participation is not loaded
+        verify(participationProxy, never()).getExercise();
+        assessmentDashboardStatisticsService.getStatistics(Set.of(exercise), false);
+        verifyCalculations(2);
+    }
+
+    private StudentParticipation participation() {
+        StudentParticipation participation = new StudentParticipation();
+        participation.setExercise(exercise);
+        return participation;
+    }
+
+    private void verifyCalculations(int times) {
+        verify(submissionRepository, times(times)).countByExerciseIdsSubmittedBeforeDueDate(Set.of(EXERCISE_ID));
+    }
+}
@@ -0,0 +1,110 @@
+package de.tum.in.www1.artemis.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import de.tum.in.www1.artemis.domain.*;
+import de.tum.in.www1.artemis.domain.enumeration.FeedbackType;
+import de.tum.in.www1.artemis.repository.FeedbackRepository;
+import de.tum.in.www1.artemis.repository.TextBlockRepository;
+
+public class AutomaticTextFeedbackServiceTest {
+
+    private static final long SUBMISSION_ID = 3;
+
+    @Mock
+    private FeedbackRepository feedbackRepository;
+
+    @Mock
+    private TextBlockRepository textBlockRepository;
+
+    private AutomaticTextFeedbackService automaticTextFeedbackService;
+
+    private TextExercise exercise;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        automaticTextFeedbackService = new AutomaticTextFeedbackService(new FeedbackService(feedbackRepository), textBlockRepository);
+        exercise = new TextExercise();
+        exercise.setId(1L);
+    }
+
+    @Test
+    public void suggestFeedbackOfClosestBlocksInAllClusters() {
+        // the submission contains the blocks "first" and "second" in the first cluster, "far" in the second cluster and "unclustered" without a cluster
+        TextBlock first = block("first");
+        TextBlock second = block("second");
+        TextBlock far = block("far");
+        TextBlock unclustered = block("unclustered");
+        TextBlock assessed = block("assessed");
+        TextBlock reassessed = block("reassessed");
+        TextBlock assessedFarAway = block("assessedFarAway");
+        cluster(new double[][] { { 0, 0.3, 0.1, 0 }, { 0.3, 0, 0.6, 0.2 }, { 0.1, 0.6, 0, 0.5 }, { 0, 0.2, 0.5, 0 } }, first, assessed, reassessed, second);
+        cluster(new double[][] { { 0, 1.5 }, { 1.5, 0 } }, far, assessedFarAway);
+        when(textBlockRepository.findAllWithEagerClusterBySubmissionId(SUBMISSION_ID)).thenReturn(new LinkedHashSet<>(List.of(second, unclustered, far, first)));
+        // the block "reassessed" has been assessed in two correction rounds, the latest feedback is suggested
+        when(feedbackRepository.findByReferenceInAndResult_Submission_Participation_Exercise(anyList(), eq(exercise))).thenReturn(List.of(feedback(10L, assessed, 2.0),
+                feedback(12L, reassessed, 1.5), feedback(11L, reassessed, 1.0), feedback(13L, assessedFarAway, 3.0)));
+        Result result = new Result();
+        result.setSubmission(new TextSubmission(SUBMISSION_ID));
+
+        automaticTextFeedbackService.suggestFeedback(result);
+
+        // the existing feedback of both clusters is loaded with one query
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> referencesCaptor = ArgumentCaptor.forClass(List.class);
+        verify(feedbackRepository, times(1)).findByReferenceInAndResult_Submission_Participation_Exercise(referencesCaptor.capture(), eq(exercise));
+        assertThat(referencesCaptor.getValue()).containsExactlyInAnyOrder("first", "assessed", "reassessed", "second", "far", "assessedFarAway");
+
+        // the feedback follows the order of the blocks in the submission, the block in the second cluster is too far away from the assessed block
+        assertThat(result.getFeedbacks()).extracting(Feedback::getReference).containsExactly("second", "first");
+        assertThat(result.getFeedbacks()).extracting(Feedback::getCredits).containsExactly(2.0, 1.5);
+        assertThat(result.getFeedbacks()).extracting(Feedback::getDetailText).containsExactly("Feedback 10", "Feedback 12");
+        assertThat(result.getFeedbacks()).extracting(Feedback::getType).containsOnly(FeedbackType.AUTOMATIC);
+    }
+
+    @Test
+    public void suggestNoFeedbackWithoutAssessedBlocks() {
+        TextBlock first = block("first");
+        TextBlock other = block("other");
+        cluster(new double[][] { { 0, 0.1 }, { 0.1, 0 } }, first, other);
+        when(textBlockRepository.findAllWithEagerClusterBySubmissionId(SUBMISSION_ID)).thenReturn(Set.of(first));
+        when(feedbackRepository.findByReferenceInAndResult_Submission_Participation_Exercise(anyList(), eq(exercise))).thenReturn(List.of());
+        Result result = new Result();
+        result.setSubmission(new TextSubmission(SUBMISSION_ID));
+
+        automaticTextFeedbackService.suggestFeedback(result);
+
+        assertThat(result.getFeedbacks()).isEmpty();
+    }
+
+    private TextBlock block(String id) {
+        TextBlock block = new TextBlock().text("Text of " + id);
+        block.setId(id);
+        return block;
+    }
+
+    private void cluster(double[][] distanceMatrix, TextBlock... blocks) {
+        TextCluster cluster = new TextCluster().exercise(exercise).distanceMatrix(distanceMatrix);
+        for (TextBlock block : blocks) {
+            cluster.addBlocks(block);
+        }
+    }
+
+    private Feedback feedback(long id, TextBlock block, double credits) {
+        Feedback feedback = new Feedback().reference(block.getId()).credits(credits).detailText("Feedback " + id);
+        feedback.setId(id);
+        return feedback;
+    }
+}
@@ -79,6 +79,30 @@ public class ProgrammingExerciseIntegrationJenkinsGitlabTest extends AbstractSpr
         programmingExerciseIntegrationServiceTest.textExportSubmissionsByStudentLogins();
     }
 
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    void textExportSubmissionsByStudentLogins_hideStudentNames() throws Exception {
+        programmingExerciseIntegrationServiceTest.textExportSubmissionsByStudentLogins_hideStudentNames();
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    void exportStudentRepositories_failedRepositoryIsReportedAndSkipped() throws Exception {
+        programmingExerciseIntegrationServiceTest.exportStudentRepositories_failedRepositoryIsReportedAndSkipped();
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    void exportStudentRepositoriesToZipFile_noRepositoryExported_returnsNull() {
+        programmingExerciseIntegrationServiceTest.exportStudentRepositoriesToZipFile_noRepositoryExported_returnsNull();
+    }
+
+    @Test
+    @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
+    void exportStudentRepositories_withAndWithoutCheckout_sameContent() throws Exception {
+        programmingExerciseIntegrationServiceTest.exportStudentRepositories_withAndWithoutCheckout_sameContent();
+    }
+
     @Test
     @WithMockUser(username = "instructor1", roles = "INSTRUCTOR")
     void testProgrammingExerciseDelete() throws Exception {
@@ -10,20 +10,26 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -44,10 +50,12 @@ import de.tum.in.www1.artemis.domain.enumeration.RepositoryType;
 import de.tum.in.www1.artemis.domain.notification.Notification;
 import de.tum.in.www1.artemis.domain.participation.ProgrammingExerciseStudentParticipation;
 import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.exception.GitException;
 import de.tum.in.www1.artemis.programmingexercise.MockDelegate;
 import de.tum.in.www1.artemis.repository.*;
 import de.tum.in.www1.artemis.service.connectors.GitService;
 import de.tum.in.www1.artemis.service.connectors.VersionControlService;
+import de.tum.in.www1.artemis.service.programming.ProgrammingExerciseExportService;
 import de.tum.in.www1.artemis.util.DatabaseUtilService;
 import de.tum.in.www1.artemis.util.GitUtilService;
 import de.tum.in.www1.artemis.util.RequestUtilService;
@@ -78,6 +86,9 @@ public class ProgrammingExerciseIntegrationServiceTest {
     @Autowired
     NotificationRepository notificationRepository;
 
+    @Autowired
+    ProgrammingExerciseExportService programmingExerciseExportService;
+
     Course course;
 
     ProgrammingExercise programmingExercise;
@@ -261,7 +272,132 @@ public class ProgrammingExerciseIntegrationServiceTest {
                 + EXPORT_SUBMISSIONS_BY_PARTICIPANTS.replace("{exerciseId}", String.valueOf(programmingExercise.getId())).replace("{participantIdentifiers}", "student1,student2");
         downloadedFile = request.postWithResponseBodyFile(path, getOptions(), HttpStatus.OK);
         assertThat(downloadedFile.exists());
-        // TODO: unzip the files and add some checks
+        // the repositories are contained as separate zip files
+        try (var zipFile = new ZipFile(downloadedFile)) {
+            assertThat(zipFile.stream().map(ZipEntry::getName)).hasSize(2).allMatch(name -> name.endsWith(".zip"));
+        }
+    }
+
+    public void textExportSubmissionsByStudentLogins_hideStudentNames() throws Exception {
+        var repository1 = gitService.getExistingCheckedOutRepositoryByLocalPath(localRepoFile.toPath(), null);
+        var repository2 = gitService.getExistingCheckedOutRepositoryByLocalPath(localRepoFile2.toPath(), null);
+        doReturn(repository1).when(gitService).getOrCheckoutRepository(eq(participation1.getVcsRepositoryUrl()), anyString(), anyBoolean());
+        doReturn(repository2).when(gitService).getOrCheckoutRepository(eq(participation2.getVcsRepositoryUrl()), anyString(), anyBoolean());
+        final var options = getOptions();
+        options.setHideStudentNameInZippedFolder(true);
+        final var path = ROOT
+                + EXPORT_SUBMISSIONS_BY_PARTICIPANTS.replace("{exerciseId}", String.valueOf(programmingExercise.getId())).replace("{participantIdentifiers}", "student1,student2");
+        downloadedFile = request.postWithResponseBodyFile(path, options, HttpStatus.OK);
+        // both repositories get the same name without the student names, so the participation id is added to the name of the second one
+        try (var zipFile = new ZipFile(downloadedFile)) {
+            var zipEntryNames = zipFile.stream().map(ZipEntry::getName).collect(Collectors.toList());
+            assertThat(zipEntryNames).hasSize(2).doesNotHaveDuplicates().noneMatch(name -> name.contains("student1") || name.contains("student2"));
+            assertThat(zipEntryNames).filteredOn(name -> name.endsWith("-student-submission.git.zip")).hasSize(1);
+            assertThat(zipEntryNames).filteredOn(name -> name.endsWith("-student-submission.git-" + participation1.getId() + ".zip")
+                    || name.endsWith("-student-submission.git-" + participation2.getId() + ".zip")).hasSize(1);
+        }
+    }
+
+    public void exportStudentRepositories_failedRepositoryIsReportedAndSkipped() throws Exception {
+        var repository1 = gitService.getExistingCheckedOutRepositoryByLocalPath(localRepoFile.toPath(), null);
+        doReturn(repository1).when(gitService).getOrCheckoutRepository(eq(participation1.getVcsRepositoryUrl()), anyString(), anyBoolean());
+        doThrow(new GitException("Cannot clone the repository")).when(gitService).getOrCheckoutRepository(eq(participation2.getVcsRepositoryUrl()), anyString(), anyBoolean());
+        var exercise = programmingExerciseRepository.findByIdWithStudentParticipationsAndSubmissionsElseThrow(programmingExercise.getId());
+        var participations = exercise.getStudentParticipations().stream().map(participation -> (ProgrammingExerciseStudentParticipation) participation)
+                .collect(Collectors.toList());
+        List<String> exportErrors = new ArrayList<>();
+        var zipBytes = new ByteArrayOutputStream();
+
+        int numberOfExportedRepositories;
+        try (var zipOutputStream = new ZipOutputStream(zipBytes)) {
+            numberOfExportedRepositories = programmingExerciseExportService.exportStudentRepositories(exercise, participations, getOptions(), zipOutputStream, exportErrors);
+        }
+
+        assertThat(numberOfExportedRepositories).isEqualTo(1);
+        assertThat(exportErrors).hasSize(1);
+        assertThat(exportErrors.get(0)).contains("participation: " + participation2.getId());
+        List<String> zipEntryNames = new ArrayList<>();
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(zipBytes.toByteArray()))) {
+            for (var zipEntry = zipInputStream.getNextEntry(); zipEntry != null; zipEntry = zipInputStream.getNextEntry()) {
+                zipEntryNames.add(zipEntry.getName());
+            }
+        }
+        assertThat(zipEntryNames).hasSize(1).allMatch(name -> name.endsWith("-student1.zip"));
+    }
+
+    public void exportStudentRepositoriesToZipFile_noRepositoryExported_returnsNull() {
+        doThrow(new GitException("Cannot clone the repository")).when(gitService).getOrCheckoutRepository(any(VcsRepositoryUrl.class), anyString(), anyBoolean());
+        var participations = programmingExerciseRepository.findByIdWithStudentParticipationsAndSubmissionsElseThrow(programmingExercise.getId()).getStudentParticipations()
+                .stream().map(participation -> (ProgrammingExerciseStudentParticipation) participation).collect(Collectors.toList());
+
+        // the empty zip file is not finished and no exception is thrown
+        assertThat(programmingExerciseExportService.exportStudentRepositoriesToZipFile(programmingExercise.getId(), participations, getOptions())).isNull();
+    }
+
+    public void exportStudentRepositories_withAndWithoutCheckout_sameContent() throws Exception {
+        // both repositories have the same files, the late commit is filtered out
+        for (var git : List.of(localGit, localGit2)) {
+            commitFile(git, "src/Main.java", "class Main {}\n", ZonedDateTime.now().minusHours(2));
+            commitFile(git, "src/Main.java", "class Main { late }\n", ZonedDateTime.now());
+            commitFile(git, "src/Late.java", "class Late {}\n", ZonedDateTime.now());
+            git.push().call();
+        }
+        var repository1 = gitService.getExistingCheckedOutRepositoryByLocalPath(localRepoFile.toPath(), null);
+        var repository2 = gitService.getExistingCheckedOutRepositoryByLocalPath(localRepoFile2.toPath(), null);
+        doReturn(repository1).when(gitService).getOrCloneRepositoryWithoutCheckout(eq(participation1.getVcsRepositoryUrl()), anyString());
+        doReturn(repository2).when(gitService).getOrCheckoutRepository(eq(participation2.getVcsRepositoryUrl()), anyString(), anyBoolean());
+        var exercise = programmingExerciseRepository.findByIdWithStudentParticipationsAndSubmissionsElseThrow(programmingExercise.getId());
+        var participations = exercise.getStudentParticipations().stream().map(participation -> (ProgrammingExerciseStudentParticipation) participation)
+                .collect(Collectors.toMap(ProgrammingExerciseStudentParticipation::getParticipantIdentifier, participation -> participation));
+
+        // the files are only checked out if they are modified by the export options
+        final var optionsWithoutCheckout = new RepositoryExportOptionsDTO();
+        optionsWithoutCheckout.setFilterLateSubmissions(true);
+        optionsWithoutCheckout.setFilterLateSubmissionsDate(ZonedDateTime.now().minusHours(1));
+        final var optionsWithCheckout = new RepositoryExportOptionsDTO();
+        optionsWithCheckout.setFilterLateSubmissions(true);
+        optionsWithCheckout.setFilterLateSubmissionsDate(optionsWithoutCheckout.getFilterLateSubmissionsDate());
+        optionsWithCheckout.setNormalizeCodeStyle(true);
+
+        var filesWithoutCheckout = exportRepositoryFiles(exercise, participations.get("student1"), optionsWithoutCheckout);
+        var filesWithCheckout = exportRepositoryFiles(exercise, participations.get("student2"), optionsWithCheckout);
+
+        assertThat(filesWithoutCheckout).isEqualTo(Map.of("src/Main.java", "class Main {}\n"));
+        assertThat(filesWithCheckout).isEqualTo(filesWithoutCheckout);
+    }
+
+    private void commitFile(Git git, String path, String content, ZonedDateTime commitDate) throws Exception {
+        var file = git.getRepository().getWorkTree().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        git.add().addFilepattern(path).call();
+        var person = new PersonIdent("test", "test@test.com", Date.from(commitDate.toInstant()), TimeZone.getDefault());
+        git.commit().setMessage("change " + path).setAuthor(person).setCommitter(person).call();
+    }
+
+    /**
+     * Exports the repository of the given participation and returns the files of the zipped repository without the files in the .git folder
+     */
+    private Map<String, String> exportRepositoryFiles(ProgrammingExercise exercise, ProgrammingExerciseStudentParticipation participation, RepositoryExportOptionsDTO options)
+            throws Exception {
+        List<String> exportErrors = new ArrayList<>();
+        var zipBytes = new ByteArrayOutputStream();
+        try (var zipOutputStream = new ZipOutputStream(zipBytes)) {
+            assertThat(programmingExerciseExportService.exportStudentRepositories(exercise, List.of(participation), options, zipOutputStream, exportErrors)).isEqualTo(1);
+        }
+        assertThat(exportErrors).isEmpty();
+
+        Map<String, String> files = new HashMap<>();
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(zipBytes.toByteArray()))) {
+            assertThat(zipInputStream.getNextEntry()).isNotNull();
+            var nestedZipInputStream = new ZipInputStream(zipInputStream);
+            for (var zipEntry = nestedZipInputStream.getNextEntry(); zipEntry != null; zipEntry = nestedZipInputStream.getNextEntry()) {
+                if (!zipEntry.getName().startsWith(".git")) {
+                    files.put(zipEntry.getName(), new String(nestedZipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return files;
     }
 
     private RepositoryExportOptionsDTO getOptions() {
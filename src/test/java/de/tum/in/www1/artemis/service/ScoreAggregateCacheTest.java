@@ -0,0 +1,111 @@
+package de.tum.in.www1.artemis.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+
+import de.tum.in.www1.artemis.domain.Exercise;
+import de.tum.in.www1.artemis.domain.TextExercise;
+import de.tum.in.www1.artemis.domain.User;
+import de.tum.in.www1.artemis.domain.scores.StudentScore;
+import de.tum.in.www1.artemis.repository.StudentScoreRepository;
+import de.tum.in.www1.artemis.repository.TeamScoreRepository;
+import de.tum.in.www1.artemis.service.ScoreAggregateCache.ScoreAggregate;
+
+public class ScoreAggregateCacheTest {
+
+    @Mock
+    private StudentScoreRepository studentScoreRepository;
+
+    @Mock
+    private TeamScoreRepository teamScoreRepository;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private ITopic<Object> participantScoreChanges;
+
+    private ScoreAggregateCache scoreAggregateCache;
+
+    private Exercise exercise;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(participantScoreChanges).when(hazelcastInstance).getTopic(any());
+        scoreAggregateCache = new ScoreAggregateCache(studentScoreRepository, teamScoreRepository, hazelcastInstance);
+        ReflectionTestUtils.setField(scoreAggregateCache, "aggregateMaxAgeInSeconds", 600L);
+        exercise = new TextExercise();
+        exercise.setId(1L);
+    }
+
+    @Test
+    public void applyChangesThatArriveWhileTheAggregateIsLoaded() {
+        when(studentScoreRepository.getPointsOfStudents(any())).thenAnswer(invocation -> {
+            // the score of student 1 is removed after the database has been queried
+            scoreAggregateCache.participantScoreChanged(studentScore(1L, 5.0), true);
+            // the score of student 3 is created after the database has been queried
+            scoreAggregateCache.participantScoreChanged(studentScore(3L, 7.0), false);
+            return List.of(new Object[] { 1L, 1L, 5.0, 5.0 }, new Object[] { 1L, 2L, 3.0, 3.0 });
+        });
+
+        ScoreAggregate aggregate = scoreAggregateCache.getAggregate("course-1", Set.of(exercise));
+        assertThat(pointsOf(aggregate)).containsOnly(Map.entry(2L, 3.0), Map.entry(3L, 7.0));
+    }
+
+    @Test
+    public void concurrentRequestsWaitForTheCompletelyLoadedAggregate() throws Exception {
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch continueLoad = new CountDownLatch(1);
+        when(studentScoreRepository.getPointsOfStudents(any())).thenAnswer(invocation -> {
+            loadStarted.countDown();
+            continueLoad.await(10, TimeUnit.SECONDS);
+            return List.<Object[]>of(new Object[] { 1L, 1L, 5.0, 5.0 });
+        });
+
+        var firstRequest = CompletableFuture.supplyAsync(() -> scoreAggregateCache.getAggregate("course-1", Set.of(exercise)));
+        assertThat(loadStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        var secondRequest = CompletableFuture.supplyAsync(() -> scoreAggregateCache.getAggregate("course-1", Set.of(exercise)));
+        // the second request must not get the aggregate before it has been loaded
+        Thread.sleep(100);
+        assertThat(secondRequest).isNotDone();
+
+        continueLoad.countDown();
+        ScoreAggregate aggregate = firstRequest.get(10, TimeUnit.SECONDS);
+        assertThat(secondRequest.get(10, TimeUnit.SECONDS)).isSameAs(aggregate);
+        assertThat(pointsOf(aggregate)).containsOnly(Map.entry(1L, 5.0));
+        verify(studentScoreRepository, times(1)).getPointsOfStudents(any());
+    }
+
+    private StudentScore studentScore(long userId, double points) {
+        User user = new User();
+        user.setId(userId);
+        StudentScore studentScore = new StudentScore();
+        studentScore.setUser(user);
+        studentScore.setExercise(exercise);
+        studentScore.setLastPoints(points);
+        studentScore.setLastRatedPoints(points);
+        return studentScore;
+    }
+
+    private Map<Long, Double> pointsOf(ScoreAggregate aggregate) {
+        Map<Long, Double> points = new HashMap<>();
+        aggregate.forEachPoints(exercise, true, points::put);
+        return points;
+    }
+}
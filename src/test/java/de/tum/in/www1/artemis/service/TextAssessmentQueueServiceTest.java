@@ -2,6 +2,9 @@ package de.tum.in.www1.artemis.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.*;
 
 import org.assertj.core.data.Percentage;
@@ -12,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import de.tum.in.www1.artemis.AbstractSpringIntegrationBambooBitbucketJiraTest;
 import de.tum.in.www1.artemis.domain.*;
+import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
 import de.tum.in.www1.artemis.repository.TextBlockRepository;
 import de.tum.in.www1.artemis.repository.TextClusterRepository;
 import de.tum.in.www1.artemis.util.TextExerciseUtilService;
@@ -68,6 +72,26 @@ public class TextAssessmentQueueServiceTest extends AbstractSpringIntegrationBam
         assertThat(textCluster.getProbabilities()).isEqualTo(probabilities);
     }
 
+    @Test
+    public void testTextClusterDistanceMatrix() throws IOException {
+        var textBlocks = new ArrayList<>(textExerciseUtilService.generateTextBlocks(3));
+        TextCluster textCluster = addTextBlocksToRandomCluster(textBlocks, 1).get(0);
+        double[][] distanceMatrix = new double[][] { { 0, 0.1, 0.2 }, { 0.1, 0, 0.4 }, { 0.2, 0.4, 0 } };
+        textCluster.setDistanceMatrix(distanceMatrix);
+        assertThat(textCluster.getDistanceMatrix()).isEqualTo(distanceMatrix);
+        assertThat(textCluster.getDistance(1, 2)).isEqualTo(0.4);
+        assertThat(textCluster.distanceBetweenBlocks(textBlocks.get(0), textBlocks.get(2))).isEqualTo(0.2);
+
+        // data in the former Java serialization format is converted into the compact format
+        var legacyData = new ByteArrayOutputStream();
+        try (var outputStream = new ObjectOutputStream(legacyData)) {
+            outputStream.writeObject(distanceMatrix);
+        }
+        byte[] convertedData = TextCluster.toCompactBinary(legacyData.toByteArray());
+        assertThat(convertedData).hasSize(Byte.BYTES + Integer.BYTES + 9 * Double.BYTES);
+        assertThat(TextCluster.toCompactBinary(convertedData)).isSameAs(convertedData);
+    }
+
     @Test
     // Note: this transaction is necessary, because the method call textSubmissionService.getTextSubmissionsByExerciseId does not eagerly load the text blocks that are
     // evaluated in the call textAssessmentQueueService.calculateSmallerClusterPercentageBatch
@@ -108,6 +132,27 @@ public class TextAssessmentQueueServiceTest extends AbstractSpringIntegrationBam
         });
     }
 
+    @Test
+    public void testProposedTextSubmissionIsRemovedFromRankingWhenAssessed() {
+        int submissionCount = 3;
+        int submissionSize = 2;
+        int[] clusterSizes = new int[] { 4, 2 };
+        var textBlocks = new ArrayList<>(textExerciseUtilService.generateTextBlocks(submissionCount * submissionSize));
+        TextExercise textExercise = textExerciseUtilService.createSampleTextExerciseWithSubmissions(course, textBlocks, submissionCount, submissionSize);
+        textBlocks.forEach(TextBlock::computeId);
+        List<TextCluster> clusters = textExerciseUtilService.addTextBlocksToCluster(new HashSet<>(textBlocks), clusterSizes, textExercise);
+        textClusterRepository.saveAll(clusters);
+        textBlockRepository.saveAll(textBlocks);
+
+        var proposedSubmission = textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        assertThat(proposedSubmission).isPresent();
+        database.addResultToSubmission(proposedSubmission.get(), AssessmentType.MANUAL);
+
+        var nextProposedSubmission = textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        assertThat(nextProposedSubmission).isPresent();
+        assertThat(nextProposedSubmission.get().getId()).isNotEqualTo(proposedSubmission.get().getId());
+    }
+
     private List<TextCluster> addTextBlocksToRandomCluster(List<TextBlock> textBlocks, int clusterCount) {
         ArrayList<TextCluster> clusters = new ArrayList<>();
         for (int i = 0; i < clusterCount; i++) {
@@ -0,0 +1,103 @@
+package de.tum.in.www1.artemis.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.MessageListener;
+
+import de.tum.in.www1.artemis.domain.TextExercise;
+import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
+import de.tum.in.www1.artemis.repository.TextClusterRepository;
+import de.tum.in.www1.artemis.repository.TextSubmissionRepository;
+
+public class TextAssessmentRankingTest {
+
+    @Mock
+    private TextClusterRepository textClusterRepository;
+
+    @Mock
+    private TextSubmissionRepository textSubmissionRepository;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private ITopic<Object> assessmentRankingInvalidations;
+
+    @Mock
+    private Member otherMember;
+
+    private MessageListener<Object> invalidationListener;
+
+    private TextAssessmentQueueService textAssessmentQueueService;
+
+    private TextExercise textExercise;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(assessmentRankingInvalidations).when(hazelcastInstance).getTopic(any());
+        textAssessmentQueueService = new TextAssessmentQueueService(textClusterRepository, textSubmissionRepository, hazelcastInstance);
+        ReflectionTestUtils.setField(textAssessmentQueueService, "assessmentRankingMaxAgeInSeconds", 600L);
+        ArgumentCaptor<MessageListener<Object>> listenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(assessmentRankingInvalidations).addMessageListener(listenerCaptor.capture());
+        invalidationListener = listenerCaptor.getValue();
+
+        textExercise = new TextExercise();
+        textExercise.setId(1L);
+        textExercise.setAssessmentType(AssessmentType.SEMI_AUTOMATIC);
+        when(textSubmissionRepository.findIdsOfOpenSubmissionsByExerciseId(1L)).thenReturn(Set.of());
+        when(textSubmissionRepository.findByParticipation_ExerciseIdAndResultsIsNullAndSubmittedIsTrue(1L)).thenReturn(List.of());
+        when(textClusterRepository.findAllByExercise(textExercise)).thenReturn(List.of());
+    }
+
+    @Test
+    public void reuseRankingUntilItIsInvalidated() {
+        assertThat(textAssessmentQueueService.getProposedTextSubmission(textExercise)).isEmpty();
+        assertThat(textAssessmentQueueService.getProposedTextSubmission(textExercise)).isEmpty();
+        verify(textClusterRepository, times(1)).findAllByExercise(textExercise);
+
+        textAssessmentQueueService.invalidateAssessmentRanking(1L);
+        verify(assessmentRankingInvalidations).publish(1L);
+        textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        verify(textClusterRepository, times(2)).findAllByExercise(textExercise);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void invalidateRankingWhenAnotherInstanceReceivedNewClusters() {
+        textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        verify(textClusterRepository, times(1)).findAllByExercise(textExercise);
+
+        Message<Object> message = mock(Message.class);
+        when(message.getPublishingMember()).thenReturn(otherMember);
+        when(message.getMessageObject()).thenReturn(1L);
+        invalidationListener.onMessage(message);
+        textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        verify(textClusterRepository, times(2)).findAllByExercise(textExercise);
+    }
+
+    @Test
+    public void calculateOutdatedRankingAgain() {
+        ReflectionTestUtils.setField(textAssessmentQueueService, "assessmentRankingMaxAgeInSeconds", 0L);
+        textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        textAssessmentQueueService.getProposedTextSubmission(textExercise);
+        verify(textClusterRepository, times(2)).findAllByExercise(textExercise);
+    }
+}
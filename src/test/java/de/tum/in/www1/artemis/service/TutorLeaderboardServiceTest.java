@@ -0,0 +1,197 @@
+package de.tum.in.www1.artemis.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.LazyInitializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.Message;
+import com.hazelcast.topic.MessageListener;
+
+import de.tum.in.www1.artemis.domain.Course;
+import de.tum.in.www1.artemis.domain.TextExercise;
+import de.tum.in.www1.artemis.domain.participation.Participation;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.repository.*;
+
+public class TutorLeaderboardServiceTest {
+
+    private static final long EXERCISE_ID = 10;
+
+    @Mock
+    private ResultRepository resultRepository;
+
+    @Mock
+    private ComplaintRepository complaintRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExerciseRepository exerciseRepository;
+
+    @Mock
+    private ParticipationRepository participationRepository;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private ITopic<Object> leaderboardInvalidations;
+
+    @Mock
+    private Member otherMember;
+
+    private MessageListener<Object> invalidationListener;
+
+    private TutorLeaderboardService tutorLeaderboardService;
+
+    private Course course;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(leaderboardInvalidations).when(hazelcastInstance).getTopic(any());
+        doCallRealMethod().when(participationRepository).findExerciseIdOfParticipation(any());
+        tutorLeaderboardService = new TutorLeaderboardService(resultRepository, complaintRepository, userRepository, exerciseRepository, participationRepository,
+                hazelcastInstance);
+        ReflectionTestUtils.setField(tutorLeaderboardService, "leaderboardMaxAgeInSeconds", 600L);
+        ArgumentCaptor<MessageListener<Object>> listenerCaptor = ArgumentCaptor.forClass(MessageListener.class);
+        verify(leaderboardInvalidations).addMessageListener(listenerCaptor.capture());
+        invalidationListener = listenerCaptor.getValue();
+
+        course = new Course();
+        course.setId(1L);
+        course.setTeachingAssistantGroupName("tutor");
+        when(exerciseRepository.findAllIdsByCourseId(1L)).thenReturn(Set.of(EXERCISE_ID));
+    }
+
+    @Test
+    public void reuseCountersUntilTheyAreInvalidated() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(1);
+
+        tutorLeaderboardService.invalidateExerciseLeaderboard(participation());
+        verify(leaderboardInvalidations).publish(EXERCISE_ID);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void invalidateCountersOnlyAfterTheTransactionHasBeenCommitted() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        TransactionSynchronizationManager.initSynchronization();
+
+        tutorLeaderboardService.invalidateExerciseLeaderboard(participation());
+        // the counters calculated before the commit do not contain the saved result yet and are not cached afterwards
+        verify(leaderboardInvalidations, never()).publish(any());
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(1);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(leaderboardInvalidations).publish(EXERCISE_ID);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    @Test
+    public void invalidateCountersOfLazyParticipation() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        LazyInitializer lazyInitializer = mock(LazyInitializer.class);
+        doReturn(true).when(lazyInitializer).isUninitialized();
+        doReturn(3L).when(lazyInitializer).getIdentifier();
+        Participation participationProxy = mock(StudentParticipation.class, withSettings().extraInterfaces(HibernateProxy.class));
+        doReturn(lazyInitializer).when((HibernateProxy) participationProxy).getHibernateLazyInitializer();
+        doReturn(Optional.of(EXERCISE_ID)).when(participationRepository).findExerciseIdById(3L);
+
+        tutorLeaderboardService.invalidateExerciseLeaderboard(participationProxy);
+
+        // only the exercise id is queried, the participation is not loaded
+        verify(participationProxy, never()).getExercise();
+        verify(leaderboardInvalidations).publish(EXERCISE_ID);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void invalidateCountersWhenAnotherInstanceSavedAResult() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(1);
+
+        Message<Object> message = mock(Message.class);
+        when(message.getPublishingMember()).thenReturn(otherMember);
+        when(message.getMessageObject()).thenReturn(EXERCISE_ID);
+        invalidationListener.onMessage(message);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void ignoreOwnInvalidationMessages() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+
+        Member localMember = mock(Member.class);
+        when(localMember.localMember()).thenReturn(true);
+        Message<Object> message = mock(Message.class);
+        when(message.getPublishingMember()).thenReturn(localMember);
+        when(message.getMessageObject()).thenReturn(EXERCISE_ID);
+        invalidationListener.onMessage(message);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(1);
+    }
+
+    @Test
+    public void calculateCountersOfOtherGroupSeparately() {
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        course.setTeachingAssistantGroupName("other-tutor");
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    @Test
+    public void calculateOutdatedCountersAgain() {
+        ReflectionTestUtils.setField(tutorLeaderboardService, "leaderboardMaxAgeInSeconds", 0L);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        tutorLeaderboardService.getCourseLeaderboard(course);
+        verifyCalculations(2);
+    }
+
+    private StudentParticipation participation() {
+        TextExercise exercise = new TextExercise();
+        exercise.setId(EXERCISE_ID);
+        StudentParticipation participation = new StudentParticipation();
+        participation.setExercise(exercise);
+        return participation;
+    }
+
+    private void verifyCalculations(int times) {
+        verify(resultRepository, times(times)).findTutorLeaderboardAssessmentByExerciseIds(Set.of(EXERCISE_ID));
+    }
+}
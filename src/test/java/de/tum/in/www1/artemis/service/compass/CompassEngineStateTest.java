@@ -0,0 +1,115 @@
+package de.tum.in.www1.artemis.service.compass;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+
+import de.tum.in.www1.artemis.domain.modeling.ModelingSubmission;
+import de.tum.in.www1.artemis.service.compass.umlmodel.UMLDiagram;
+import de.tum.in.www1.artemis.service.compass.umlmodel.UMLElement;
+import de.tum.in.www1.artemis.util.FileUtils;
+
+class CompassEngineStateTest {
+
+    @Test
+    void serializeAndDeserializeState() throws IOException {
+        CompassEngineState state = new CompassEngineState();
+        state.addModel(1L, DigestUtils.sha256("model1"), Map.of("element1", 0, "element2", 1));
+        state.addModel(2L, DigestUtils.sha256("model2"), Map.of("element3", 0, "element4", 2));
+        state.addUniqueElement(1L, "element1");
+        state.addUniqueElement(1L, "element2");
+        state.addUniqueElement(2L, "element4");
+        state.setModelSelection(List.of(2L), List.of(1L));
+
+        CompassEngineState restoredState = CompassEngineState.fromBytes(state.toBytes());
+
+        assertThat(restoredState).isNotNull();
+        assertThat(restoredState.getModel(1L).getModelDigest()).isEqualTo(DigestUtils.sha256("model1"));
+        assertThat(restoredState.getModel(1L).getSimilarityIds()).isEqualTo(Map.of("element1", 0, "element2", 1));
+        assertThat(restoredState.getModel(2L).getModelDigest()).isEqualTo(DigestUtils.sha256("model2"));
+        assertThat(restoredState.getModel(2L).getSimilarityIds()).isEqualTo(Map.of("element3", 0, "element4", 2));
+        assertThat(restoredState.getModel(3L)).isNull();
+        assertThat(restoredState.getNumberOfUniqueElements()).isEqualTo(3);
+        assertThat(restoredState.getUniqueElementSubmissionId(2)).isEqualTo(2L);
+        assertThat(restoredState.getUniqueElementJsonId(2)).isEqualTo("element4");
+        assertThat(restoredState.getModelsWaitingForAssessment()).containsExactly(2L);
+        assertThat(restoredState.getAlreadyHandledModels()).containsExactly(1L);
+    }
+
+    @Test
+    void ignoreStateOfOtherVersion() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(1);
+            out.writeInt(0);
+        }
+
+        assertThat(CompassEngineState.fromBytes(bytes.toByteArray())).isNull();
+    }
+
+    @Test
+    void restoreSimilarityIdsFromSnapshot() throws IOException {
+        Set<ModelingSubmission> submissions = Set.of(submission(1L, "model.54727.json"), submission(2L, "model.54742.json"), submission(3L, "model.54745.json"));
+        CompassCalculationEngine engine = new CompassCalculationEngine(submissions);
+        CompassEngineState state = CompassEngineState.fromBytes(engine.createSnapshot());
+        int numberOfUniqueElements = state.getNumberOfUniqueElements();
+        assertThat(numberOfUniqueElements).isGreaterThan(1);
+
+        // the similarity sets are numbered in reverse order, so that restored similarity ids can be told apart from analyzed ones
+        CompassCalculationEngine restoredEngine = new CompassCalculationEngine(submissions, renumberSimilaritySets(state, List.of(1L, 2L, 3L)).toBytes());
+
+        assertThat(restoredEngine.getModelMap()).containsOnlyKeys(1L, 2L, 3L);
+        for (UMLDiagram model : engine.getModelMap().values()) {
+            UMLDiagram restoredModel = restoredEngine.getModelMap().get(model.getModelSubmissionId());
+            for (UMLElement element : model.getAllModelElements()) {
+                assertThat(restoredModel.getElementByJSONID(element.getJSONElementID()).getSimilarityID()).isEqualTo(numberOfUniqueElements - 1 - element.getSimilarityID());
+            }
+        }
+        assertThat(restoredEngine.getModelsWaitingForAssessment()).containsExactlyInAnyOrderElementsOf(engine.getModelsWaitingForAssessment());
+    }
+
+    @Test
+    void analyzeChangedModelsAgain() throws IOException {
+        ModelingSubmission changedSubmission = submission(3L, "model.54745.json");
+        Set<ModelingSubmission> submissions = Set.of(submission(1L, "model.54727.json"), submission(2L, "model.54742.json"), changedSubmission);
+        byte[] snapshot = new CompassCalculationEngine(submissions).createSnapshot();
+
+        // only the layout changes, the model elements and their JSON ids stay the same
+        changedSubmission.setModel(changedSubmission.getModel().replace("\"x\": 90,", "\"x\": 91,"));
+        CompassCalculationEngine restoredEngine = new CompassCalculationEngine(submissions, snapshot);
+
+        CompassEngineState restoredState = CompassEngineState.fromBytes(restoredEngine.createSnapshot());
+        assertThat(restoredState.getModel(3L).getModelDigest()).isEqualTo(DigestUtils.sha256(changedSubmission.getModel()));
+        assertThat(restoredState.getModel(1L).getModelDigest()).isEqualTo(DigestUtils.sha256(FileUtils.loadFileFromResources("test-data/model-submission/model.54727.json")));
+    }
+
+    private CompassEngineState renumberSimilaritySets(CompassEngineState state, List<Long> submissionIds) {
+        int numberOfUniqueElements = state.getNumberOfUniqueElements();
+        CompassEngineState renumberedState = new CompassEngineState();
+        for (long submissionId : submissionIds) {
+            CompassEngineState.ModelState model = state.getModel(submissionId);
+            Map<String, Integer> similarityIds = new HashMap<>();
+            model.getSimilarityIds().forEach((jsonElementId, similarityId) -> similarityIds.put(jsonElementId, numberOfUniqueElements - 1 - similarityId));
+            renumberedState.addModel(submissionId, model.getModelDigest(), similarityIds);
+        }
+        for (int similarityId = numberOfUniqueElements - 1; similarityId >= 0; similarityId--) {
+            renumberedState.addUniqueElement(state.getUniqueElementSubmissionId(similarityId), state.getUniqueElementJsonId(similarityId));
+        }
+        renumberedState.setModelSelection(state.getModelsWaitingForAssessment(), state.getAlreadyHandledModels());
+        return renumberedState;
+    }
+
+    private ModelingSubmission submission(long id, String modelFile) throws IOException {
+        ModelingSubmission submission = new ModelingSubmission();
+        submission.setId(id);
+        submission.setModel(FileUtils.loadFileFromResources("test-data/model-submission/" + modelFile));
+        return submission;
+    }
+}
@@ -0,0 +1,137 @@
+package de.tum.in.www1.artemis.service.compass;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.MemberLeftException;
+import com.hazelcast.partition.Partition;
+import com.hazelcast.partition.PartitionService;
+
+import de.tum.in.www1.artemis.config.Constants;
+import de.tum.in.www1.artemis.domain.Feedback;
+import de.tum.in.www1.artemis.repository.*;
+import de.tum.in.www1.artemis.web.rest.errors.InternalServerErrorException;
+
+public class CompassServiceTest {
+
+    private static final long EXERCISE_ID = 42;
+
+    @Mock
+    private ResultRepository resultRepository;
+
+    @Mock
+    private ModelingExerciseRepository modelingExerciseRepository;
+
+    @Mock
+    private ModelingSubmissionRepository modelingSubmissionRepository;
+
+    @Mock
+    private StudentParticipationRepository studentParticipationRepository;
+
+    @Mock
+    private CompassEngineSnapshotRepository compassEngineSnapshotRepository;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private IExecutorService compassExecutor;
+
+    @Mock
+    private PartitionService partitionService;
+
+    @Mock
+    private Partition partition;
+
+    @Mock
+    private Member owner;
+
+    private CompassService compassService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        when(hazelcastInstance.getExecutorService(Constants.HAZELCAST_COMPASS_EXECUTOR)).thenReturn(compassExecutor);
+        when(hazelcastInstance.getPartitionService()).thenReturn(partitionService);
+        when(partitionService.getPartition(EXERCISE_ID)).thenReturn(partition);
+        when(partition.getOwner()).thenReturn(owner);
+        // the engine of the exercise is owned by another cluster member
+        when(owner.localMember()).thenReturn(false);
+        compassService = new CompassService(resultRepository, modelingExerciseRepository, modelingSubmissionRepository, studentParticipationRepository,
+                compassEngineSnapshotRepository, hazelcastInstance);
+    }
+
+    @Test
+    public void forwardOperationToEngineOwner() {
+        doReturn(CompletableFuture.completedFuture(new ArrayList<>(List.of(1L, 2L)))).when(compassExecutor).submitToKeyOwner(any(CompassEngineTask.class), any());
+
+        assertThat(compassService.getModelsWaitingForAssessment(EXERCISE_ID)).containsExactly(1L, 2L);
+        verify(compassExecutor).submitToKeyOwner(any(CompassEngineTask.class), any());
+        // the engine is not built on this member
+        verifyNoInteractions(modelingExerciseRepository, studentParticipationRepository);
+    }
+
+    @Test
+    public void forwardOperationAgainIfEngineOwnerHasLeft() {
+        doReturn(CompletableFuture.failedFuture(new MemberLeftException("owner left")), CompletableFuture.completedFuture(null)).when(compassExecutor)
+                .submitToKeyOwner(any(CompassEngineTask.class), any());
+
+        compassService.addAssessment(EXERCISE_ID, 1L, List.of(new Feedback().credits(1.0)));
+        verify(compassExecutor, times(2)).submitToKeyOwner(any(CompassEngineTask.class), any());
+        verifyNoInteractions(modelingExerciseRepository, studentParticipationRepository);
+    }
+
+    @Test
+    public void executeOperationLocallyIfThisMemberOwnsTheEngineAfterTheOwnerHasLeft() {
+        doReturn(CompletableFuture.failedFuture(new MemberLeftException("owner left"))).when(compassExecutor).submitToKeyOwner(any(CompassEngineTask.class), any());
+        when(owner.localMember()).thenReturn(false, true);
+        when(modelingExerciseRepository.findById(anyLong())).thenReturn(Optional.empty());
+
+        assertThat(compassService.getModelsWaitingForAssessment(EXERCISE_ID)).isEmpty();
+        verify(compassExecutor, times(1)).submitToKeyOwner(any(CompassEngineTask.class), any());
+        verify(modelingExerciseRepository).findById(EXERCISE_ID);
+    }
+
+    @Test
+    public void doNotExecuteOperationLocallyIfTheOwnerFailed() {
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("failed on owner"))).when(compassExecutor).submitToKeyOwner(any(CompassEngineTask.class), any());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> compassService.addAssessment(EXERCISE_ID, 1L, List.of()));
+        assertThat(exception.getMessage()).isEqualTo("failed on owner");
+        // the assessment might have been added by the owner, so it must not be added here again
+        verify(compassExecutor, times(1)).submitToKeyOwner(any(CompassEngineTask.class), any());
+        verifyNoInteractions(modelingExerciseRepository, studentParticipationRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void doNotExecuteOperationLocallyIfTheOwnerTimedOut() throws Exception {
+        Future<Serializable> future = mock(Future.class);
+        when(future.get(anyLong(), any(TimeUnit.class))).thenThrow(new TimeoutException());
+        doReturn(future).when(compassExecutor).submitToKeyOwner(any(CompassEngineTask.class), any());
+
+        assertThrows(InternalServerErrorException.class, () -> compassService.removeModelWaitingForAssessment(EXERCISE_ID, 1L));
+        verify(compassExecutor, times(1)).submitToKeyOwner(any(CompassEngineTask.class), any());
+        verifyNoInteractions(modelingExerciseRepository, studentParticipationRepository);
+    }
+}
@@ -2,7 +2,8 @@ package de.tum.in.www1.artemis.service.compass.controller;
 
 import static de.tum.in.www1.artemis.service.compass.utils.CompassConfiguration.EQUALITY_THRESHOLD;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,6 +12,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import de.tum.in.www1.artemis.service.compass.umlmodel.UMLElement;
+import de.tum.in.www1.artemis.service.compass.umlmodel.classdiagram.UMLClass;
+import de.tum.in.www1.artemis.service.compass.umlmodel.classdiagram.UMLPackage;
 
 @ExtendWith(MockitoExtension.class)
 class ModelIndexTest {
@@ -91,6 +94,26 @@ class ModelIndexTest {
         assertThat(modelIndex.getNumberOfUniqueElements()).isEqualTo(3);
     }
 
+    @Test
+    void retrieveSimilarityId_onlyComparesElementsOfSameType() {
+        UMLClass umlClass1 = mock(UMLClass.class);
+        UMLClass umlClass2 = mock(UMLClass.class);
+        UMLPackage umlPackage = mock(UMLPackage.class);
+        mockSimilarityBetweenElements(umlClass2, umlClass1, EQUALITY_THRESHOLD + 0.01);
+        when(umlClass1.getSimilarityID()).thenReturn(0);
+
+        int similarityId1 = modelIndex.retrieveSimilarityId(umlClass1);
+        int similarityId2 = modelIndex.retrieveSimilarityId(umlPackage);
+        int similarityId3 = modelIndex.retrieveSimilarityId(umlClass2);
+
+        assertThat(similarityId1).isEqualTo(0);
+        assertThat(similarityId2).isEqualTo(1);
+        assertThat(similarityId3).isEqualTo(0);
+        assertThat(modelIndex.getNumberOfUniqueElements()).isEqualTo(2);
+        verify(umlPackage, never()).similarity(any());
+        verify(umlClass1, never()).similarity(umlPackage);
+    }
+
     private void mockSimilarityBetweenElements(UMLElement element1, UMLElement element2, double similarity) {
         when(element2.similarity(element1)).thenReturn(similarity);
     }
@@ -0,0 +1,64 @@
+package de.tum.in.www1.artemis.service.compass.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tum.in.www1.artemis.service.compass.umlmodel.UMLDiagram;
+
+@ExtendWith(MockitoExtension.class)
+class ModelSimilarityMatrixTest {
+
+    @Mock
+    UMLDiagram model1;
+
+    @Mock
+    UMLDiagram model2;
+
+    @Test
+    void getSimilarity_calculatesEachPairOnce() {
+        when(model1.getModelSubmissionId()).thenReturn(1L);
+        when(model2.getModelSubmissionId()).thenReturn(2L);
+        when(model2.similarity(model1)).thenReturn(0.75);
+        ModelSimilarityMatrix matrix = new ModelSimilarityMatrix();
+
+        int[] indices = matrix.indicesOf(List.of(model1, model2));
+
+        assertThat(indices).containsExactly(0, 1);
+        assertThat(matrix.getSimilarity(model1, indices[0], model2, indices[1])).isCloseTo(0.75, within(1e-6));
+        assertThat(matrix.getSimilarity(model2, indices[1], model1, indices[0])).isCloseTo(0.75, within(1e-6));
+        verify(model2, times(1)).similarity(model1);
+        verify(model1, never()).similarity(any());
+    }
+
+    @Test
+    void indicesOf_keepsSimilaritiesWhenGrowing() {
+        when(model1.getModelSubmissionId()).thenReturn(1L);
+        when(model2.getModelSubmissionId()).thenReturn(2L);
+        when(model2.similarity(model1)).thenReturn(0.5);
+        ModelSimilarityMatrix matrix = new ModelSimilarityMatrix();
+        int[] indices = matrix.indicesOf(List.of(model1, model2));
+        matrix.getSimilarity(model1, indices[0], model2, indices[1]);
+
+        List<UMLDiagram> moreModels = new ArrayList<>();
+        for (long submissionId = 3; submissionId < 100; submissionId++) {
+            UMLDiagram model = mock(UMLDiagram.class);
+            when(model.getModelSubmissionId()).thenReturn(submissionId);
+            moreModels.add(model);
+        }
+        int[] moreIndices = matrix.indicesOf(moreModels);
+
+        assertThat(moreIndices[moreIndices.length - 1]).isEqualTo(98);
+        assertThat(matrix.indicesOf(List.of(model2, model1))).containsExactly(1, 0);
+        assertThat(matrix.getSimilarity(model1, 0, model2, 1)).isCloseTo(0.5, within(1e-6));
+        verify(model2, times(1)).similarity(model1);
+    }
+}
@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -61,6 +62,22 @@ class SimilarityDetectorTest {
         SimilarityDetector.analyzeSimilarity(classDiagram, modelIndex);
     }
 
+    @Test
+    void restoreSimilarity_ClassDiagram() {
+        UMLAttribute attribute = new UMLAttribute("attribute", "String", "attributeId");
+        UMLMethod method = new UMLMethod("method(): void", "method", "void", emptyList(), "methodId");
+        UMLClass umlClass = new UMLClass("class", List.of(attribute), List.of(method), "classId", UMLClass.UMLClassType.CLASS);
+        classDiagram = new UMLClassDiagram(123456789, List.of(umlClass), emptyList(), emptyList());
+        ModelIndex index = new ModelIndex();
+
+        SimilarityDetector.restoreSimilarity(classDiagram, index, Map.of("classId", 1, "attributeId", 2, "methodId", 3));
+
+        verifySimilarityIds(List.of(umlClass, attribute, method));
+        verifyContext(List.of(attribute, method), 1);
+        verifyContext(List.of(umlClass), -1);
+        assertThat(index.getModelElementMapping()).hasSize(3);
+    }
+
     @Test
     void analyzeSimilarity_ActivityDiagram() {
         UMLActivityNode activityNode1 = new UMLActivityNode("activityNode1", "activityNode1Id", UMLActivityNode.UMLActivityNodeType.ACTIVITY_ACTION_NODE);
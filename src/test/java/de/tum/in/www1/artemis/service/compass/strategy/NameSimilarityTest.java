@@ -0,0 +1,47 @@
+package de.tum.in.www1.artemis.service.compass.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import me.xdrop.fuzzywuzzy.FuzzySearch;
+
+class NameSimilarityTest {
+
+    private static final List<String> NAMES = List.of("Customer", "customer", "Customers", "Costumer", "getName", "getName()", "setName", "id", "ID", "name", "Name",
+            "+ getName(): String", "- name: String", "Order", "OrderItem", "Item", "", "Ä", "äöü");
+
+    @Test
+    void levenshteinSimilarity_equalsFuzzySearchRatio() {
+        List<String> names = new ArrayList<>(NAMES);
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = random.nextInt(15);
+            for (int j = 0; j < length; j++) {
+                name.append((char) ('a' + random.nextInt(6)));
+            }
+            names.add(name.toString());
+        }
+
+        for (String name1 : names) {
+            for (String name2 : names) {
+                double expected = name1.equals(name2) ? 1 : FuzzySearch.ratio(name1, name2) / 100.0;
+                assertThat(NameSimilarity.levenshteinSimilarity(name1, name2)).as(name1 + " / " + name2).isEqualTo(expected);
+                // the second call uses the cache
+                assertThat(NameSimilarity.levenshteinSimilarity(name2, name1)).as(name2 + " / " + name1).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void levenshteinSimilarity_null() {
+        assertThat(NameSimilarity.levenshteinSimilarity(null, null)).isEqualTo(1);
+        assertThat(NameSimilarity.levenshteinSimilarity("name", null)).isEqualTo(0);
+        assertThat(NameSimilarity.levenshteinSimilarity(null, "name")).isEqualTo(0);
+    }
+}
@@ -0,0 +1,152 @@
+package de.tum.in.www1.artemis.service.plagiarism;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jplag.JPlag;
+import jplag.JPlagComparison;
+import jplag.JPlagOptions;
+import jplag.JPlagResult;
+import jplag.options.LanguageOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ShardedJPlagComparisonStrategyTest {
+
+    private static final float SIMILARITY_THRESHOLD = 30;
+
+    @TempDir
+    Path submissionsFolder;
+
+    @Test
+    public void compareSubmissionsLikeTheNormalComparison() throws Exception {
+        createSubmissions();
+
+        Map<String, Float> normalComparisons = similarities(runJPlag(null));
+        Map<String, Float> shardedComparisons = similarities(runJPlag(3));
+
+        // the renamed and the reordered copies are similar to the original ...
+        assertThat(normalComparisons).containsKeys("original-renamed", "original-reordered", "renamed-reordered");
+        // ... and they survive the pre-filter with the same similarity
+        assertThat(shardedComparisons).isEqualTo(normalComparisons);
+    }
+
+    private JPlagResult runJPlag(Integer numberOfThreads) throws Exception {
+        JPlagOptions options = new JPlagOptions(submissionsFolder.toString(), LanguageOption.JAVA_1_9);
+        options.setSimilarityThreshold(SIMILARITY_THRESHOLD);
+        JPlag jplag = new JPlag(options);
+        if (numberOfThreads != null) {
+            jplag.comparisonStrategy = new ShardedJPlagComparisonStrategy(jplag, numberOfThreads);
+        }
+        return jplag.run();
+    }
+
+    private Map<String, Float> similarities(JPlagResult result) {
+        Map<String, Float> similarities = new TreeMap<>();
+        for (JPlagComparison comparison : result.getComparisons()) {
+            String firstName = comparison.subA.name.compareTo(comparison.subB.name) < 0 ? comparison.subA.name : comparison.subB.name;
+            String secondName = firstName.equals(comparison.subA.name) ? comparison.subB.name : comparison.subA.name;
+            similarities.put(firstName + "-" + secondName, comparison.percent());
+        }
+        return similarities;
+    }
+
+    private void createSubmissions() throws IOException {
+        String sort = """
+                    public static void sort(int[] values) {
+                        for (int i = 0; i < values.length; i++) {
+                            for (int j = 0; j < values.length - i - 1; j++) {
+                                if (values[j] > values[j + 1]) {
+                                    int temp = values[j];
+                                    values[j] = values[j + 1];
+                                    values[j + 1] = temp;
+                                }
+                            }
+                        }
+                    }
+                """;
+        String search = """
+                    public static int search(int[] values, int value) {
+                        int low = 0;
+                        int high = values.length - 1;
+                        while (low <= high) {
+                            int middle = (low + high) / 2;
+                            if (values[middle] < value) {
+                                low = middle + 1;
+                            }
+                            else if (values[middle] > value) {
+                                high = middle - 1;
+                            }
+                            else {
+                                return middle;
+                            }
+                        }
+                        return -1;
+                    }
+                """;
+        String sum = """
+                    public static long sum(int[] values) {
+                        long sum = 0;
+                        for (int value : values) {
+                            sum += value;
+                        }
+                        return sum;
+                    }
+                """;
+        createSubmission("original", "public class Algorithms {\n" + sort + search + sum + "}\n");
+        createSubmission("renamed", ("public class Algorithms {\n" + sort + search + sum + "}\n").replace("values", "numbers").replace("middle", "center"));
+        createSubmission("reordered", "public class Algorithms {\n" + sum + search + sort + "}\n");
+        createSubmission("different", """
+                import java.util.ArrayList;
+                import java.util.List;
+
+                public class Algorithms {
+
+                    private final List<String> names = new ArrayList<>();
+
+                    public void add(String name) {
+                        if (name == null || name.isBlank()) {
+                            throw new IllegalArgumentException("The name must not be empty");
+                        }
+                        names.add(name.trim());
+                    }
+
+                    public String join(String separator) {
+                        StringBuilder builder = new StringBuilder();
+                        for (String name : names) {
+                            if (builder.length() > 0) {
+                                builder.append(separator);
+                            }
+                            builder.append(name);
+                        }
+                        return builder.toString();
+                    }
+
+                    public boolean contains(String name) {
+                        return names.stream().anyMatch(existing -> existing.equalsIgnoreCase(name));
+                    }
+                }
+                """);
+        createSubmission("partial", "public class Algorithms {\n" + sum + """
+                    public static int max(int[] values) {
+                        int max = Integer.MIN_VALUE;
+                        for (int value : values) {
+                            max = Math.max(max, value);
+                        }
+                        return max;
+                    }
+                }
+                """);
+    }
+
+    private void createSubmission(String name, String content) throws IOException {
+        Path folder = Files.createDirectories(submissionsFolder.resolve(name));
+        Files.writeString(folder.resolve("Algorithms.java"), content);
+    }
+}
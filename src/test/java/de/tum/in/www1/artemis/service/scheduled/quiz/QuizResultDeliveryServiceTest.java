@@ -0,0 +1,126 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MimeTypeUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.domain.quiz.QuizExercise;
+
+public class QuizResultDeliveryServiceTest {
+
+    private static final long QUIZ_EXERCISE_ID = 7;
+
+    @Mock
+    private SimpMessageSendingOperations messagingTemplate;
+
+    private final MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter = new MappingJackson2HttpMessageConverter();
+
+    private ObjectMapper objectMapper;
+
+    private MappingJackson2MessageConverter messageConverter;
+
+    private QuizResultDeliveryService quizResultDeliveryService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        objectMapper = mappingJackson2HttpMessageConverter.getObjectMapper();
+        // the websocket messages are converted with the object mapper of the REST endpoints, see WebsocketConfiguration
+        messageConverter = new MappingJackson2MessageConverter();
+        messageConverter.setObjectMapper(objectMapper);
+        quizResultDeliveryService = new QuizResultDeliveryService(messagingTemplate, mappingJackson2HttpMessageConverter, 2, 10);
+        ReflectionTestUtils.setField(quizResultDeliveryService, "deliveryTimeoutInSeconds", 10L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        quizResultDeliveryService.shutdown();
+    }
+
+    @Test
+    public void deliverParticipationsWithSharedExercise() throws IOException {
+        QuizExercise quizExercise = new QuizExercise();
+        quizExercise.setId(QUIZ_EXERCISE_ID);
+        quizExercise.setTitle("Quiz");
+        quizExercise.setDuration(120);
+        StudentParticipation participation1 = participation(1L, quizExercise, 50.0);
+        StudentParticipation participation2 = participation(2L, quizExercise, 100.0);
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+
+        int numberOfDeliveries = quizResultDeliveryService.deliver(QUIZ_EXERCISE_ID, List.of(Map.entry("student1", participation1), Map.entry("student2", participation2)),
+                delivered::add);
+
+        assertThat(numberOfDeliveries).isEqualTo(2);
+        assertThat(delivered).containsExactlyInAnyOrder("student1", "student2");
+        // the payload contains the shared exercise and is the same as the complete serialization of the participation
+        assertThat(objectMapper.readTree(deliveredPayload("student1"))).isEqualTo(objectMapper.valueToTree(participation1));
+        assertThat(objectMapper.readTree(deliveredPayload("student2"))).isEqualTo(objectMapper.valueToTree(participation2));
+        assertThat(objectMapper.readTree(deliveredPayload("student1")).get("exercise").get("title").asText()).isEqualTo("Quiz");
+        assertThat(deliveredObject("student1")).isInstanceOf(JsonNode.class);
+        // the exercise is restored after the participation has been serialized
+        assertThat(participation1.getExercise()).isSameAs(quizExercise);
+    }
+
+    @Test
+    public void deliverParticipationWithoutExercise() throws IOException {
+        StudentParticipation participation = participation(1L, null, 75.0);
+
+        quizResultDeliveryService.deliver(QUIZ_EXERCISE_ID, List.of(Map.entry("student1", participation)), username -> {
+        });
+
+        assertThat(objectMapper.readTree(deliveredPayload("student1"))).isEqualTo(objectMapper.valueToTree(participation));
+        assertThat(deliveredObject("student1")).isSameAs(participation);
+    }
+
+    /**
+     * @return the JSON text the websocket client receives, the message must be sent as JSON and not as binary data
+     */
+    private String deliveredPayload(String username) {
+        Message<?> message = messageConverter.toMessage(deliveredObject(username), null);
+        assertThat(message).isNotNull();
+        assertThat(message.getHeaders().get(MessageHeaders.CONTENT_TYPE).toString()).isEqualTo(MimeTypeUtils.APPLICATION_JSON_VALUE);
+        return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+    }
+
+    private Object deliveredObject(String username) {
+        ArgumentCaptor<Object> payloadCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSendToUser(eq(username), eq("/topic/exercise/" + QUIZ_EXERCISE_ID + "/participation"), payloadCaptor.capture());
+        assertThat(payloadCaptor.getValue()).isNotInstanceOf(byte[].class);
+        return payloadCaptor.getValue();
+    }
+
+    private StudentParticipation participation(long id, QuizExercise quizExercise, double score) {
+        StudentParticipation participation = new StudentParticipation();
+        participation.setId(id);
+        participation.setExercise(quizExercise);
+        Result result = new Result();
+        result.setId(id);
+        result.setScore(score);
+        result.setRated(true);
+        participation.setResults(Set.of(result));
+        return participation;
+    }
+}
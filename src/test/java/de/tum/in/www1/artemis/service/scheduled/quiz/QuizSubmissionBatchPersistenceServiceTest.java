@@ -0,0 +1,175 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import de.tum.in.www1.artemis.domain.Result;
+import de.tum.in.www1.artemis.domain.User;
+import de.tum.in.www1.artemis.domain.enumeration.AssessmentType;
+import de.tum.in.www1.artemis.domain.enumeration.ScoringType;
+import de.tum.in.www1.artemis.domain.participation.StudentParticipation;
+import de.tum.in.www1.artemis.domain.quiz.*;
+import de.tum.in.www1.artemis.repository.QuizSubmissionRepository;
+import de.tum.in.www1.artemis.repository.ResultRepository;
+import de.tum.in.www1.artemis.repository.StudentParticipationRepository;
+import de.tum.in.www1.artemis.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class QuizSubmissionBatchPersistenceServiceTest {
+
+    @Mock
+    private StudentParticipationRepository studentParticipationRepository;
+
+    @Mock
+    private QuizSubmissionRepository quizSubmissionRepository;
+
+    @Mock
+    private ResultRepository resultRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QuizSubmissionBatchPersistenceService quizSubmissionBatchPersistenceService;
+
+    private QuizExercise quizExercise;
+
+    private MultipleChoiceQuestion question;
+
+    private AnswerOption correctOption;
+
+    private AnswerOption wrongOption;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> new SimpleTransactionStatus()).when(transactionManager).getTransaction(any());
+        doAnswer(invocation -> {
+            Set<String> logins = invocation.getArgument(0);
+            return logins.stream().map(this::user).collect(Collectors.toList());
+        }).when(userRepository).findAllByLogins(any());
+        quizSubmissionBatchPersistenceService = new QuizSubmissionBatchPersistenceService(studentParticipationRepository, quizSubmissionRepository, resultRepository,
+                userRepository, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(quizSubmissionBatchPersistenceService, "batchSize", 2);
+
+        question = (MultipleChoiceQuestion) new MultipleChoiceQuestion().title("MC").score(4).text("Q1");
+        question.setId(1L);
+        question.setScoringType(ScoringType.ALL_OR_NOTHING);
+        correctOption = new AnswerOption().text("A").isCorrect(true);
+        correctOption.setId(1L);
+        wrongOption = new AnswerOption().text("B").isCorrect(false);
+        wrongOption.setId(2L);
+        question.getAnswerOptions().add(correctOption);
+        question.getAnswerOptions().add(wrongOption);
+        quizExercise = new QuizExercise();
+        quizExercise.setId(1L);
+        quizExercise.addQuestions(question);
+    }
+
+    @Test
+    public void saveSubmissionsInBatchesOfTheConfiguredSize() {
+        Map<String, QuizSubmission> submissions = submissions(5);
+
+        Map<String, StudentParticipation> participations = quizSubmissionBatchPersistenceService.saveSubmissionsWithParticipationAndResult(quizExercise, submissions);
+
+        // 5 submissions are saved in 3 transactions with one query for the users of each batch
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager, times(3)).commit(any());
+        verify(transactionManager, never()).rollback(any());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Set<String>> loginsCaptor = ArgumentCaptor.forClass(Set.class);
+        verify(userRepository, times(3)).findAllByLogins(loginsCaptor.capture());
+        assertThat(loginsCaptor.getAllValues()).extracting(Set::size).containsExactly(2, 2, 1);
+        verify(studentParticipationRepository, times(3)).saveAll(any());
+
+        assertThat(participations).containsOnlyKeys(submissions.keySet());
+        participations.forEach((username, participation) -> {
+            QuizSubmission quizSubmission = submissions.get(username);
+            assertThat(participation.getParticipantIdentifier()).isEqualTo(username);
+            assertThat(participation.getExercise()).isSameAs(quizExercise);
+            assertThat(participation.getSubmissions()).containsExactly(quizSubmission);
+            assertThat(quizSubmission.getParticipation()).isSameAs(participation);
+            Result result = participation.getResults().iterator().next();
+            assertThat(result.getSubmission()).isSameAs(quizSubmission);
+            assertThat(result.getParticipation()).isSameAs(participation);
+            assertThat(result.isRated()).isTrue();
+            assertThat(result.getAssessmentType()).isEqualTo(AssessmentType.AUTOMATIC);
+            assertThat(quizSubmission.getResults()).containsExactly(result);
+        });
+        // every second student selected the correct answer
+        assertThat(participations.get("student1").getResults().iterator().next().getScore()).isEqualTo(100.0);
+        assertThat(participations.get("student2").getResults().iterator().next().getScore()).isEqualTo(0.0);
+        assertThat(meterRegistry.get("artemis.quiz.submissions.persisted").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    public void skipBatchThatCannotBeSaved() {
+        Map<String, QuizSubmission> submissions = submissions(5);
+        doAnswer(invocation -> {
+            Set<String> logins = invocation.getArgument(0);
+            if (logins.contains("student3")) {
+                throw new DataIntegrityViolationException("Duplicate participation of student3");
+            }
+            return logins.stream().map(this::user).collect(Collectors.toList());
+        }).when(userRepository).findAllByLogins(any());
+
+        Map<String, StudentParticipation> participations = quizSubmissionBatchPersistenceService.saveSubmissionsWithParticipationAndResult(quizExercise, submissions);
+
+        // the failed batch is rolled back and its users are missing, so that the caller saves them individually
+        verify(transactionManager, times(2)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+        assertThat(participations).containsOnlyKeys("student1", "student2", "student5");
+        assertThat(meterRegistry.get("artemis.quiz.submissions.persisted").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("artemis.quiz.submissions.failed.batches").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void doNotStartTransactionWithoutSubmissions() {
+        assertThat(quizSubmissionBatchPersistenceService.saveSubmissionsWithParticipationAndResult(quizExercise, Map.of())).isEmpty();
+        verifyNoInteractions(transactionManager, userRepository);
+    }
+
+    /**
+     * Creates submitted quiz submissions for the users student1 to student{numberOfSubmissions}, the users with an odd number select the correct answer
+     */
+    private Map<String, QuizSubmission> submissions(int numberOfSubmissions) {
+        Map<String, QuizSubmission> submissions = new LinkedHashMap<>();
+        for (int i = 1; i <= numberOfSubmissions; i++) {
+            MultipleChoiceSubmittedAnswer submittedAnswer = new MultipleChoiceSubmittedAnswer();
+            submittedAnswer.setQuizQuestion(question);
+            submittedAnswer.addSelectedOptions(i % 2 == 1 ? correctOption : wrongOption);
+            QuizSubmission quizSubmission = new QuizSubmission();
+            quizSubmission.addSubmittedAnswers(submittedAnswer);
+            quizSubmission.setSubmitted(true);
+            quizSubmission.setSubmissionDate(ZonedDateTime.now());
+            submissions.put("student" + i, quizSubmission);
+        }
+        return submissions;
+    }
+
+    private User user(String login) {
+        User user = new User();
+        user.setLogin(login);
+        return user;
+    }
+}
@@ -0,0 +1,198 @@
+package de.tum.in.www1.artemis.service.scheduled.quiz;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.topic.ITopic;
+
+import de.tum.in.www1.artemis.config.Constants;
+import de.tum.in.www1.artemis.domain.quiz.QuizSubmission;
+
+public class QuizSubmissionBufferTest {
+
+    private static final long QUIZ_EXERCISE_ID = 5;
+
+    private static final long OTHER_QUIZ_EXERCISE_ID = 6;
+
+    @Mock
+    private HazelcastInstance hazelcastInstance;
+
+    @Mock
+    private ITopic<Object> cachedQuizExerciseUpdates;
+
+    @Mock
+    private IMap<Object, Object> cachedQuizExercises;
+
+    @Mock
+    private IMap<Object, Object> otherDistributedMaps;
+
+    /**
+     * The submissions of each quiz exercise that have been published to the cluster
+     */
+    private final Map<Long, Map<String, QuizSubmission>> publishedSubmissions = new ConcurrentHashMap<>();
+
+    private final Map<Long, IMap<Object, Object>> distributedSubmissionMaps = new HashMap<>();
+
+    private QuizSubmissionBuffer submissionBuffer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void init() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(cachedQuizExerciseUpdates).when(hazelcastInstance).getTopic(any());
+        doReturn(otherDistributedMaps).when(hazelcastInstance).getMap(anyString());
+        doReturn(cachedQuizExercises).when(hazelcastInstance).getMap(Constants.HAZELCAST_EXERCISE_CACHE);
+        for (long quizExerciseId : List.of(QUIZ_EXERCISE_ID, OTHER_QUIZ_EXERCISE_ID)) {
+            // the distributed submission map of the quiz exercise records the published submissions
+            Map<String, QuizSubmission> published = new ConcurrentHashMap<>();
+            publishedSubmissions.put(quizExerciseId, published);
+            IMap<Object, Object> distributedSubmissions = mock(IMap.class);
+            doAnswer(invocation -> {
+                published.putAll(invocation.getArgument(0));
+                return null;
+            }).when(distributedSubmissions).putAll(any());
+            distributedSubmissionMaps.put(quizExerciseId, distributedSubmissions);
+            doReturn(distributedSubmissions).when(hazelcastInstance).getMap(Constants.HAZELCAST_QUIZ_PREFIX + quizExerciseId + "-submissions");
+
+            QuizExerciseDistributedCache cachedQuiz = new QuizExerciseDistributedCache(quizExerciseId);
+            cachedQuiz.setHazelcastInstance(hazelcastInstance);
+            doReturn(cachedQuiz).when(cachedQuizExercises).get(quizExerciseId);
+        }
+        submissionBuffer = new QuizSubmissionBuffer(new QuizCache(hazelcastInstance));
+    }
+
+    @Test
+    public void keepLatestSubmissionOfUserUntilFlush() {
+        QuizSubmission firstSave = submission(1L);
+        QuizSubmission secondSave = submission(2L);
+        QuizSubmission otherUserSave = submission(3L);
+
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", firstSave);
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", secondSave);
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student2", otherUserSave);
+
+        // nothing is written into the cluster before the flush
+        verifyNoInteractions(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID));
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isSameAs(secondSave);
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student2")).isSameAs(otherUserSave);
+        assertThat(submissionBuffer.getPendingSubmission(OTHER_QUIZ_EXERCISE_ID, "student1")).isNull();
+
+        // all pending submissions of the quiz are published in one batch
+        assertThat(submissionBuffer.flush(QUIZ_EXERCISE_ID)).isEqualTo(2);
+        verify(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID), times(1)).putAll(Map.of("student1", secondSave, "student2", otherUserSave));
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isNull();
+
+        // a flush without pending submissions does not write into the cluster
+        assertThat(submissionBuffer.flush(QUIZ_EXERCISE_ID)).isZero();
+        verify(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID), times(1)).putAll(any());
+    }
+
+    @Test
+    public void writeThroughPublishesPendingSubmissionsImmediately() {
+        QuizSubmission savedSubmission = submission(1L);
+        QuizSubmission submittedSubmission = submission(2L);
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", savedSubmission);
+
+        submissionBuffer.writeThrough(QUIZ_EXERCISE_ID, "student2", submittedSubmission);
+
+        assertThat(publishedSubmissions.get(QUIZ_EXERCISE_ID)).isEqualTo(Map.of("student1", savedSubmission, "student2", submittedSubmission));
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isNull();
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student2")).isNull();
+    }
+
+    @Test
+    public void flushAllQuizExercises() {
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", submission(1L));
+        submissionBuffer.buffer(OTHER_QUIZ_EXERCISE_ID, "student1", submission(2L));
+        submissionBuffer.buffer(OTHER_QUIZ_EXERCISE_ID, "student2", submission(3L));
+
+        assertThat(submissionBuffer.flushAll()).isEqualTo(3);
+
+        assertThat(publishedSubmissions.get(QUIZ_EXERCISE_ID)).containsOnlyKeys("student1");
+        assertThat(publishedSubmissions.get(OTHER_QUIZ_EXERCISE_ID)).containsOnlyKeys("student1", "student2");
+        assertThat(submissionBuffer.flushAll()).isZero();
+    }
+
+    @Test
+    public void keepSubmissionsPendingIfTheyCannotBePublished() {
+        QuizSubmission quizSubmission = submission(1L);
+        doThrow(new IllegalStateException("The cluster is not reachable")).when(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID)).putAll(any());
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", quizSubmission);
+
+        assertThat(submissionBuffer.flush(QUIZ_EXERCISE_ID)).isZero();
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isSameAs(quizSubmission);
+
+        // the next flush publishes the submission
+        doNothing().when(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID)).putAll(any());
+        assertThat(submissionBuffer.flush(QUIZ_EXERCISE_ID)).isEqualTo(1);
+        verify(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID), times(2)).putAll(Map.of("student1", quizSubmission));
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isNull();
+    }
+
+    @Test
+    public void discardPendingSubmissionsOnClear() {
+        submissionBuffer.buffer(QUIZ_EXERCISE_ID, "student1", submission(1L));
+        submissionBuffer.buffer(OTHER_QUIZ_EXERCISE_ID, "student1", submission(2L));
+
+        submissionBuffer.clear(QUIZ_EXERCISE_ID);
+        assertThat(submissionBuffer.getPendingSubmission(QUIZ_EXERCISE_ID, "student1")).isNull();
+        assertThat(submissionBuffer.getPendingSubmission(OTHER_QUIZ_EXERCISE_ID, "student1")).isNotNull();
+
+        submissionBuffer.clear();
+        assertThat(submissionBuffer.flushAll()).isZero();
+        verifyNoInteractions(distributedSubmissionMaps.get(QUIZ_EXERCISE_ID), distributedSubmissionMaps.get(OTHER_QUIZ_EXERCISE_ID));
+    }
+
+    @Test
+    public void neverPublishOlderSubmissionAfterNewerOne() throws Exception {
+        int numberOfUsers = 4;
+        int numberOfSaves = 2000;
+        ExecutorService threadPool = Executors.newFixedThreadPool(numberOfUsers + 1);
+        try {
+            List<Future<?>> saves = new ArrayList<>();
+            for (int user = 0; user < numberOfUsers; user++) {
+                String username = "student" + user;
+                saves.add(threadPool.submit(() -> {
+                    for (long save = 1; save <= numberOfSaves; save++) {
+                        submissionBuffer.buffer(QUIZ_EXERCISE_ID, username, submission(save));
+                    }
+                }));
+            }
+            // the periodic flush runs while the users are saving
+            Future<?> flushes = threadPool.submit(() -> {
+                while (saves.stream().anyMatch(save -> !save.isDone())) {
+                    submissionBuffer.flush(QUIZ_EXERCISE_ID);
+                }
+            });
+            for (Future<?> save : saves) {
+                save.get(30, TimeUnit.SECONDS);
+            }
+            flushes.get(30, TimeUnit.SECONDS);
+        }
+        finally {
+            threadPool.shutdownNow();
+        }
+        submissionBuffer.flushAll();
+
+        assertThat(publishedSubmissions.get(QUIZ_EXERCISE_ID)).hasSize(numberOfUsers);
+        assertThat(publishedSubmissions.get(QUIZ_EXERCISE_ID).values()).allSatisfy(quizSubmission -> assertThat(quizSubmission.getId()).isEqualTo((long) numberOfSaves));
+    }
+
+    private QuizSubmission submission(long id) {
+        QuizSubmission quizSubmission = new QuizSubmission();
+        quizSubmission.setId(id);
+        return quizSubmission;
+    }
+}
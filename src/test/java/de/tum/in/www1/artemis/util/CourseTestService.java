@@ -666,6 +666,22 @@ public class CourseTestService {
         getCourseForDashboardWithStats(true);
     }
 
+    // Test
+    public void testGetCourseForAssessmentDashboardWithStats_newSubmissionInvalidatesStats() throws Exception {
+        Course testCourse = database.createCoursesWithExercisesAndLectures(true).get(0);
+        Course course = request.get("/api/courses/" + testCourse.getId() + "/for-assessment-dashboard", HttpStatus.OK, Course.class);
+        Exercise textExercise = course.getExercises().stream().filter(exercise -> exercise instanceof TextExercise).findFirst().get();
+        assertThat(textExercise.getNumberOfSubmissions().getInTime()).as("Number of in-time submissions is correct").isEqualTo(1);
+
+        Long textExerciseId = textExercise.getId();
+        TextExercise savedTextExercise = (TextExercise) exerciseRepo.findById(textExerciseId).get();
+        database.saveTextSubmission(savedTextExercise, ModelFactory.generateTextSubmission("new submission", Language.ENGLISH, true), "student3");
+
+        course = request.get("/api/courses/" + testCourse.getId() + "/for-assessment-dashboard", HttpStatus.OK, Course.class);
+        textExercise = course.getExercises().stream().filter(exercise -> exercise.getId().equals(textExerciseId)).findFirst().get();
+        assertThat(textExercise.getNumberOfSubmissions().getInTime()).as("Cached statistics are invalidated by the new submission").isEqualTo(2);
+    }
+
     // Test
     public void testGetCourseForInstructorDashboardWithStats_instructorNotInCourse() throws Exception {
         List<Course> testCourses = database.createCoursesWithExercisesAndLectures(true);
@@ -377,6 +377,12 @@ public class RequestUtilService {
         return mapper.readValue(res.getResponse().getContentAsString(), mapper.getTypeFactory().constructCollectionType(List.class, listElementType));
     }
 
+    public String getETag(String path, HttpStatus expectedStatus) throws Exception {
+        MvcResult res = mvc.perform(MockMvcRequestBuilders.get(new URI(path))).andExpect(status().is(expectedStatus.value())).andReturn();
+        restoreSecurityContext();
+        return res.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
     public <K, V> Map<K, V> getMap(String path, HttpStatus expectedStatus, Class<K> keyType, Class<V> valueType) throws Exception {
         return getMap(path, expectedStatus, keyType, valueType, new LinkedMultiValueMap<>());
     }